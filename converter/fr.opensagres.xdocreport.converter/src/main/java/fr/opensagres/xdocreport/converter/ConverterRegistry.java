@@ -24,6 +24,7 @@
  */
 package fr.opensagres.xdocreport.converter;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -36,6 +37,11 @@ import fr.opensagres.xdocreport.core.registry.AbstractRegistry;
 
 /**
  * {@link IConverter} registry.
+ * <p>
+ * Once the discovery is done, the registry builds an immutable routing table (from/to/via to {@link IConverter}) which
+ * is published with a volatile field. Lookups read this table without lock, only the first lookup (or the first after
+ * a {@link #dispose()}) synchronizes to initialize the registry.
+ * </p>
  */
 public class ConverterRegistry
     extends AbstractRegistry<IConverterDiscovery>
@@ -48,7 +54,14 @@ public class ConverterRegistry
      */
     private static final Logger LOGGER = LogUtils.getLogger( ConverterRegistry.class.getName() );
 
-    private Map<String /* from */, ConverterFrom> converters = new HashMap<String, ConverterFrom>();
+    private static final char ROUTE_SEPARATOR = '|';
+
+    private final Map<String /* from */, ConverterFrom> converters = new HashMap<String, ConverterFrom>();
+
+    /**
+     * Immutable routing table built at the end of the initialization, null if the registry is not initialized.
+     */
+    private volatile Routes routes;
 
     public ConverterRegistry()
     {
@@ -97,73 +110,114 @@ public class ConverterRegistry
 
     public ConverterFrom getConverterFrom( String from )
     {
-        initializeIfNeeded();
-        return converters.get( from );
+        return getRoutes().froms.get( from );
     }
 
     public Set<String> getFroms()
     {
-        initializeIfNeeded();
-        return converters.keySet();
+        return getRoutes().froms.keySet();
     }
 
     private IConverter internalFindConverter( String from, String to, String via, boolean throwError )
         throws XDocConverterException
     {
-        initializeIfNeeded();
-        ConverterFrom fromConverters = getConverterFrom( from );
+        Routes routes = getRoutes();
+        IConverter converter = routes.converters.get( getRouteKey( from, to, via ) );
+        if ( converter != null || !throwError )
+        {
+            return converter;
+        }
+        // the route doesn't exist, compute the error message.
+        ConverterFrom fromConverters = routes.froms.get( from );
         if ( fromConverters == null )
         {
-            if ( throwError )
-            {
-                String msg = String.format( "Cannot find converters from=%s", from );
-                LOGGER.severe( msg );
-                throw new XDocConverterException( msg );
-            }
-            return null;
+            String msg = String.format( "Cannot find converters from=%s", from );
+            LOGGER.severe( msg );
+            throw new XDocConverterException( msg );
         }
         ConverterTo toConverters = fromConverters.getConverterTo( to );
         if ( toConverters == null )
         {
-            if ( throwError )
-            {
-                String msg = String.format( "Cannot find converters for to=%s for from=%s", to, from );
-                LOGGER.severe( msg );
-                throw new XDocConverterException( msg );
-            }
-            return null;
+            String msg = String.format( "Cannot find converters for to=%s for from=%s", to, from );
+            LOGGER.severe( msg );
+            throw new XDocConverterException( msg );
         }
-        if ( via == null )
+        String msg =
+            via == null ? String.format( "Cannot find converters for to=%s for from=%s", to, from )
+                            : String.format( "Cannot find converters via %s for to=%s for from=%s", via, to, from );
+        LOGGER.severe( msg );
+        throw new XDocConverterException( msg );
+    }
+
+    private Routes getRoutes()
+    {
+        Routes routes = this.routes;
+        if ( routes == null )
         {
-            IConverter converter = toConverters.getDefaultConverter();
-            if ( throwError && converter == null )
+            initializeIfNeeded();
+            routes = this.routes;
+        }
+        return routes;
+    }
+
+    @Override
+    protected synchronized void initializeIfNeeded()
+    {
+        if ( routes == null )
+        {
+            super.initializeIfNeeded();
+        }
+    }
+
+    @Override
+    protected void onEndInitialization()
+    {
+        // precompute the routes (default converter when via is null).
+        Map<String, IConverter> routeConverters = new HashMap<String, IConverter>();
+        for ( ConverterFrom converterFrom : converters.values() )
+        {
+            String from = converterFrom.getFrom();
+            for ( ConverterTo converterTo : converterFrom.getConvertersTo() )
             {
-                if ( throwError )
+                String to = converterTo.getTo();
+                for ( String via : converterTo.getVias() )
                 {
-                    String msg = String.format( "Cannot find converters for to=%s for from=%s", to, from );
-                    LOGGER.severe( msg );
-                    throw new XDocConverterException( msg );
+                    IConverter converter = converterTo.getConverter( via );
+                    if ( via != null && converter != null )
+                    {
+                        routeConverters.put( getRouteKey( from, to, via ), converter );
+                    }
+                }
+                IConverter defaultConverter = converterTo.getDefaultConverter();
+                if ( defaultConverter != null )
+                {
+                    routeConverters.put( getRouteKey( from, to, null ), defaultConverter );
                 }
             }
-            return converter;
         }
+        this.routes =
+            new Routes( Collections.unmodifiableMap( new HashMap<String, ConverterFrom>( converters ) ),
+                        Collections.unmodifiableMap( routeConverters ) );
+    }
 
-        IConverter converter = toConverters.getConverter( via );
-        if ( converter == null )
+    private static String getRouteKey( String from, String to, String via )
+    {
+        StringBuilder key = new StringBuilder();
+        key.append( from );
+        key.append( ROUTE_SEPARATOR );
+        key.append( to );
+        if ( via != null )
         {
-            if ( throwError )
-            {
-                String msg = String.format( "Cannot find converters via %s for to=%s for from=%s", via, to, from );
-                LOGGER.severe( msg );
-                throw new XDocConverterException( msg );
-            }
+            key.append( ROUTE_SEPARATOR );
+            key.append( via );
         }
-        return converter;
+        return key.toString();
     }
 
     @Override
-    protected void doDispose()
+    protected synchronized void doDispose()
     {
+        this.routes = null;
         this.converters.clear();
     }
 
@@ -183,4 +237,21 @@ public class ConverterRegistry
         converterFrom.addConverter( to, via, converter );
         return true;
     }
+
+    /**
+     * Immutable snapshot of the registry.
+     */
+    private static class Routes
+    {
+
+        private final Map<String, ConverterFrom> froms;
+
+        private final Map<String, IConverter> converters;
+
+        public Routes( Map<String, ConverterFrom> froms, Map<String, IConverter> converters )
+        {
+            this.froms = froms;
+            this.converters = converters;
+        }
+    }
 }
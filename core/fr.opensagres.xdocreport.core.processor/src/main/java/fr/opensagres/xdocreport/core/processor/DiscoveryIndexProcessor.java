@@ -0,0 +1,208 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.processor;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Annotation processor which generates the discovery index (META-INF/xdocreport/discovery.index) of a module at
+ * compile time. It claims no annotation and is not declared in META-INF/services : this artifact is a build-only
+ * dependency and the compiler runs the processor when it is named explicitly (see the discovery-index profile of the
+ * XDocReport parent pom), so it is never part of the runtime classpath.
+ * <p>
+ * The META-INF/services files are copied in the classes folder before the compilation (Maven process-resources
+ * phase). The processor reads the files whose name is a type which extends IBaseDiscovery and writes their
+ * implementations in the index. Other services are ignored. The core types are referenced by name, so the processor
+ * doesn't depend on the core.
+ * </p>
+ */
+@SupportedAnnotationTypes( "*" )
+public class DiscoveryIndexProcessor
+    extends AbstractProcessor
+{
+
+    // must be the same as DiscoveryIndex#INDEX_RESOURCE of the core.
+    private static final String INDEX_RESOURCE = "META-INF/xdocreport/discovery.index";
+
+    private static final String BASE_DISCOVERY_CLASS_NAME = "fr.opensagres.xdocreport.core.discovery.IBaseDiscovery";
+
+    private static final String SERVICES_FOLDER = "META-INF/services";
+
+    private static final String ENCODING = "UTF-8";
+
+    private boolean generated;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion()
+    {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process( Set<? extends TypeElement> annotations, RoundEnvironment roundEnv )
+    {
+        if ( !generated )
+        {
+            generated = true;
+            try
+            {
+                generateIndex();
+            }
+            catch ( Exception e )
+            {
+                // the index is an optimization, the registries use ServiceLoader without it.
+                processingEnv.getMessager().printMessage( Kind.WARNING,
+                                                          "Cannot generate " + INDEX_RESOURCE + ": "
+                                                              + e.getMessage() );
+            }
+        }
+        return false;
+    }
+
+    private void generateIndex()
+        throws IOException
+    {
+        File servicesDir = getServicesDir();
+        if ( servicesDir == null )
+        {
+            return;
+        }
+        File[] files = servicesDir.listFiles();
+        if ( files == null )
+        {
+            return;
+        }
+        Arrays.sort( files );
+        Elements elements = processingEnv.getElementUtils();
+        Types types = processingEnv.getTypeUtils();
+        TypeElement baseDiscovery = elements.getTypeElement( BASE_DISCOVERY_CLASS_NAME );
+        if ( baseDiscovery == null )
+        {
+            return;
+        }
+        TypeMirror baseDiscoveryType = types.erasure( baseDiscovery.asType() );
+        StringBuilder index = new StringBuilder();
+        for ( File file : files )
+        {
+            String providerClassName = file.getName();
+            TypeElement provider = elements.getTypeElement( providerClassName );
+            if ( provider == null || provider.equals( baseDiscovery )
+                || !types.isAssignable( types.erasure( provider.asType() ), baseDiscoveryType ) )
+            {
+                continue;
+            }
+            for ( String className : readServices( file ) )
+            {
+                index.append( providerClassName ).append( '=' ).append( className ).append( '\n' );
+            }
+        }
+        if ( index.length() == 0 )
+        {
+            return;
+        }
+        FileObject resource =
+            processingEnv.getFiler().createResource( StandardLocation.CLASS_OUTPUT, "", INDEX_RESOURCE );
+        Writer writer = new OutputStreamWriter( resource.openOutputStream(), ENCODING );
+        try
+        {
+            writer.write( index.toString() );
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+    private File getServicesDir()
+    {
+        try
+        {
+            // javac doesn't support directory resources : the folder is the parent of a services file.
+            FileObject services =
+                processingEnv.getFiler().getResource( StandardLocation.CLASS_OUTPUT, "",
+                                                      SERVICES_FOLDER + "/" + BASE_DISCOVERY_CLASS_NAME );
+            File dir = new File( services.toUri() ).getParentFile();
+            return dir != null && dir.isDirectory() ? dir : null;
+        }
+        catch ( Exception e )
+        {
+            // no META-INF/services in the classes folder.
+            return null;
+        }
+    }
+
+    private static List<String> readServices( File file )
+        throws IOException
+    {
+        List<String> classNames = new ArrayList<String>();
+        InputStream in = new FileInputStream( file );
+        try
+        {
+            BufferedReader reader = new BufferedReader( new InputStreamReader( in, ENCODING ) );
+            String line = null;
+            while ( ( line = reader.readLine() ) != null )
+            {
+                int comment = line.indexOf( '#' );
+                if ( comment != -1 )
+                {
+                    line = line.substring( 0, comment );
+                }
+                line = line.trim();
+                if ( line.length() > 0 && !classNames.contains( line ) )
+                {
+                    classNames.add( line );
+                }
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+        return classNames;
+    }
+}
@@ -33,7 +33,8 @@ public enum DocumentKind
     ODT( "application/vnd.oasis.opendocument.text" ), ODS( "application/vnd.oasis.opendocument.spreadsheet" ), ODP(
         "application/vnd.oasis.opendocument.presentation" ), DOCX(
         "application/vnd.openxmlformats-officedocument.wordprocessingml.document" ), PPTX(
-        "application/vnd.openxmlformats-officedocument.presentationml.presentation" );
+        "application/vnd.openxmlformats-officedocument.presentationml.presentation" ), XLSX(
+        "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet" );
 
     private final String mimeType;
 
@@ -0,0 +1,356 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.internal;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import fr.opensagres.xdocreport.core.logging.LogUtils;
+
+/**
+ * Static discovery index generated at build time by the annotation processor of the
+ * fr.opensagres.xdocreport.core.processor artifact. Each jar contains a {@link #INDEX_RESOURCE} resource where each
+ * line has the form :
+ * 
+ * <pre>
+ * fr.opensagres.xdocreport.document.discovery.IXDocReportFactoryDiscovery=fr.opensagres.xdocreport.document.docx.DocxReportFactoryDiscovery
+ * </pre>
+ * <p>
+ * All the index resources of a class loader are read once and cached. The implementations of a discovery type are
+ * computed once : the META-INF/services files of the type which are in a jar (or folder) with an index are not
+ * parsed, the index gives their implementations. The META-INF/services files of the jars built without the processor
+ * are parsed and merged with the index, so their discoveries are never lost. When neither the index nor a services
+ * file declares a discovery type, {@link #lookupProviders(Class, ClassLoader)} falls back to {@link JDKServiceLoader}.
+ * </p>
+ * <p>
+ * The index can be disabled with the system property <code>-Dxdocreport.discovery.index=false</code>.
+ * </p>
+ */
+public class DiscoveryIndex
+{
+
+    private static final Logger LOGGER = LogUtils.getLogger( DiscoveryIndex.class.getName() );
+
+    public static final String INDEX_RESOURCE = "META-INF/xdocreport/discovery.index";
+
+    public static final String INDEX_ENABLED_PROPERTY = "xdocreport.discovery.index";
+
+    private static final String SERVICES_FOLDER = "META-INF/services/";
+
+    private static final String ENCODING = "UTF-8";
+
+    // weak keys : the index must not keep the class loader of an undeployed application.
+    private static final Map<ClassLoader, DiscoveryIndex> INDEXES = new WeakHashMap<ClassLoader, DiscoveryIndex>();
+
+    private final Map<String, List<String>> implementations;
+
+    // base URLs (jar or folder) which contain an index
+    private final Set<String> indexedBaseURLs;
+
+    // implementations of the index merged with the services files of the jars without index, by discovery type
+    private final Map<String, List<String>> mergedImplementations;
+
+    DiscoveryIndex( Map<String, List<String>> implementations, Set<String> indexedBaseURLs )
+    {
+        this.implementations = implementations;
+        this.indexedBaseURLs = indexedBaseURLs;
+        this.mergedImplementations = new ConcurrentHashMap<String, List<String>>();
+    }
+
+    /**
+     * Returns the providers of the given type declared in the discovery index of the given class loader and in the
+     * META-INF/services files of the jars without index, or the providers found by {@link JDKServiceLoader} if none of
+     * them declares the type.
+     * 
+     * @param providerClass the discovery type.
+     * @param loader the class loader to use.
+     * @return
+     */
+    public static <T> Iterator<T> lookupProviders( Class<T> providerClass, ClassLoader loader )
+    {
+        if ( isEnabled() )
+        {
+            List<String> classNames = getIndex( loader ).getMergedImplementations( providerClass.getName(), loader );
+            if ( classNames != null )
+            {
+                return createProviders( providerClass, classNames, loader ).iterator();
+            }
+        }
+        return JDKServiceLoader.lookupProviders( providerClass, loader );
+    }
+
+    /**
+     * Returns the discovery index of the given class loader, read at first call.
+     * 
+     * @param loader
+     * @return
+     */
+    public static DiscoveryIndex getIndex( ClassLoader loader )
+    {
+        synchronized ( INDEXES )
+        {
+            DiscoveryIndex index = INDEXES.get( loader );
+            if ( index == null )
+            {
+                index = load( loader );
+                INDEXES.put( loader, index );
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Returns the implementation class names of the given discovery type or null if the index doesn't declare it.
+     * 
+     * @param providerClassName
+     * @return
+     */
+    public List<String> getImplementations( String providerClassName )
+    {
+        return implementations.get( providerClassName );
+    }
+
+    /**
+     * Returns the implementation class names of the given discovery type declared in the index merged with the ones
+     * declared in the META-INF/services files of the jars (or folders) of the class loader which have no index, or
+     * null if none of them declares the type. The result is computed at first call.
+     * 
+     * @param providerClassName the discovery type.
+     * @param loader the class loader of this index.
+     * @return
+     */
+    public List<String> getMergedImplementations( String providerClassName, ClassLoader loader )
+    {
+        List<String> classNames = mergedImplementations.get( providerClassName );
+        if ( classNames == null )
+        {
+            classNames = mergeImplementations( providerClassName, loader );
+            if ( classNames == null )
+            {
+                return null;
+            }
+            mergedImplementations.put( providerClassName, classNames );
+        }
+        return classNames;
+    }
+
+    private List<String> mergeImplementations( String providerClassName, ClassLoader loader )
+    {
+        List<String> indexed = implementations.get( providerClassName );
+        List<String> classNames = indexed != null ? new ArrayList<String>( indexed ) : new ArrayList<String>();
+        String resourceName = SERVICES_FOLDER + providerClassName;
+        try
+        {
+            Enumeration<URL> resources = getResources( loader, resourceName );
+            while ( resources.hasMoreElements() )
+            {
+                URL url = resources.nextElement();
+                if ( indexedBaseURLs.contains( getBaseURL( url, resourceName ) ) )
+                {
+                    // the index of this jar gives the same implementations.
+                    continue;
+                }
+                InputStream in = url.openStream();
+                try
+                {
+                    parseServices( in, classNames );
+                }
+                finally
+                {
+                    in.close();
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            // like an unreadable index : the services are loaded with the JDK.
+            LOGGER.log( Level.WARNING, "Error while loading services " + resourceName, e );
+            return null;
+        }
+        if ( indexed == null && classNames.isEmpty() )
+        {
+            return null;
+        }
+        return Collections.unmodifiableList( classNames );
+    }
+
+    /**
+     * Returns the discovery types declared in the index.
+     * 
+     * @return
+     */
+    public Iterable<String> getProviderClassNames()
+    {
+        return Collections.unmodifiableSet( implementations.keySet() );
+    }
+
+    private static boolean isEnabled()
+    {
+        return !"false".equals( System.getProperty( INDEX_ENABLED_PROPERTY ) );
+    }
+
+    private static DiscoveryIndex load( ClassLoader loader )
+    {
+        Map<String, List<String>> implementations = new LinkedHashMap<String, List<String>>();
+        Set<String> indexedBaseURLs = new HashSet<String>();
+        try
+        {
+            Enumeration<URL> resources = getResources( loader, INDEX_RESOURCE );
+            while ( resources.hasMoreElements() )
+            {
+                URL url = resources.nextElement();
+                indexedBaseURLs.add( getBaseURL( url, INDEX_RESOURCE ) );
+                InputStream in = url.openStream();
+                try
+                {
+                    parse( in, implementations );
+                }
+                finally
+                {
+                    in.close();
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            // an unreadable index must not break the registries : the services are loaded with the JDK.
+            LOGGER.log( Level.WARNING, "Error while loading discovery index " + INDEX_RESOURCE, e );
+            implementations.clear();
+            indexedBaseURLs.clear();
+        }
+        if ( LOGGER.isLoggable( Level.FINE ) )
+        {
+            LOGGER.fine( "Discovery index loaded with types " + implementations.keySet() );
+        }
+        return new DiscoveryIndex( implementations, indexedBaseURLs );
+    }
+
+    private static Enumeration<URL> getResources( ClassLoader loader, String name )
+        throws IOException
+    {
+        return loader != null ? loader.getResources( name ) : ClassLoader.getSystemResources( name );
+    }
+
+    /**
+     * Returns the URL of the jar (or folder) which contains the given resource.
+     */
+    private static String getBaseURL( URL url, String resourceName )
+    {
+        String externalForm = url.toExternalForm();
+        return externalForm.endsWith( resourceName ) ? externalForm.substring( 0, externalForm.length()
+            - resourceName.length() ) : externalForm;
+    }
+
+    static void parseServices( InputStream in, List<String> classNames )
+        throws IOException
+    {
+        BufferedReader reader = new BufferedReader( new InputStreamReader( in, ENCODING ) );
+        String line = null;
+        while ( ( line = reader.readLine() ) != null )
+        {
+            int comment = line.indexOf( '#' );
+            if ( comment != -1 )
+            {
+                line = line.substring( 0, comment );
+            }
+            line = line.trim();
+            if ( line.length() > 0 && !classNames.contains( line ) )
+            {
+                classNames.add( line );
+            }
+        }
+    }
+
+    static void parse( InputStream in, Map<String, List<String>> implementations )
+        throws IOException
+    {
+        BufferedReader reader = new BufferedReader( new InputStreamReader( in, ENCODING ) );
+        String line = null;
+        while ( ( line = reader.readLine() ) != null )
+        {
+            int comment = line.indexOf( '#' );
+            if ( comment != -1 )
+            {
+                line = line.substring( 0, comment );
+            }
+            int index = line.indexOf( '=' );
+            if ( index == -1 )
+            {
+                continue;
+            }
+            String providerClassName = line.substring( 0, index ).trim();
+            String className = line.substring( index + 1 ).trim();
+            if ( providerClassName.length() == 0 || className.length() == 0 )
+            {
+                continue;
+            }
+            List<String> classNames = implementations.get( providerClassName );
+            if ( classNames == null )
+            {
+                classNames = new ArrayList<String>();
+                implementations.put( providerClassName, classNames );
+            }
+            if ( !classNames.contains( className ) )
+            {
+                classNames.add( className );
+            }
+        }
+    }
+
+    private static <T> List<T> createProviders( Class<T> providerClass, List<String> classNames, ClassLoader loader )
+    {
+        List<T> providers = new ArrayList<T>( classNames.size() );
+        for ( String className : classNames )
+        {
+            try
+            {
+                Class<?> clazz = Class.forName( className, false, loader );
+                providers.add( providerClass.cast( clazz.newInstance() ) );
+            }
+            catch ( Throwable e )
+            {
+                // like ServiceLoader, an invalid provider is not registered but the others must be.
+                LOGGER.log( Level.WARNING, "Error while creating discovery " + className, e );
+            }
+        }
+        return providers;
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Immutable content of an entry of a {@link XDocArchive}, created by an {@link IEntryStorage}.
+ */
+public interface IEntryContent
+{
+
+    /**
+     * Returns the size in bytes of the content.
+     * 
+     * @return
+     */
+    int getSize();
+
+    /**
+     * Returns a new {@link InputStream} which reads the content from the start. Several streams can be opened at the
+     * same time by several threads.
+     * 
+     * @return
+     */
+    InputStream getInputStream();
+
+    /**
+     * Write the content in the given output stream.
+     * 
+     * @param out
+     * @throws IOException
+     */
+    void writeTo( OutputStream out )
+        throws IOException;
+
+    /**
+     * Returns the content as array bytes. The heap implementation returns its own array, so the returned array must
+     * not be modified.
+     * 
+     * @return
+     */
+    byte[] toByteArray();
+
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.io;
+
+import java.io.IOException;
+
+import fr.opensagres.xdocreport.core.io.storage.ByteBufferEntryStorage;
+import fr.opensagres.xdocreport.core.io.storage.HeapEntryStorage;
+import fr.opensagres.xdocreport.core.io.storage.MappedFileEntryStorage;
+import fr.opensagres.xdocreport.core.io.storage.SizeThresholdEntryStorage;
+
+/**
+ * Storage used by {@link XDocArchive} to keep the content of its entries. Implementations are :
+ * <ul>
+ * <li>{@link HeapEntryStorage} : the content is stored in a byte array (default).</li>
+ * <li>{@link ByteBufferEntryStorage} : the content is stored in a direct {@link java.nio.ByteBuffer}, out of the Java
+ * heap.</li>
+ * <li>{@link MappedFileEntryStorage} : the content is appended to a temporary spill file which is memory-mapped.</li>
+ * <li>{@link SizeThresholdEntryStorage} : selects one of two storages according to the size of the entry.</li>
+ * </ul>
+ * Implementations must be thread-safe.
+ */
+public interface IEntryStorage
+{
+
+    /**
+     * Store the given content of the entry.
+     * 
+     * @param entryName the entry name.
+     * @param data the content (the array can be modified by the caller after this call, so it must be copied).
+     * @param length the length of the content.
+     * @return the stored content.
+     * @throws IOException
+     */
+    IEntryContent store( String entryName, byte[] data, int length )
+        throws IOException;
+
+    /**
+     * Release the resources (temporary file, direct or mapped buffer) of the given content created by this storage.
+     * The content must not be read after this call.
+     * 
+     * @param content the content to release.
+     */
+    void release( IEntryContent content );
+
+    /**
+     * Release the resources still kept by this storage for the released contents (ex : temporary files which could not
+     * be deleted while they were mapped). The storage can be used after this call.
+     */
+    void dispose();
+
+}
@@ -46,6 +46,7 @@ import java.util.logging.Logger;
 
 import fr.opensagres.xdocreport.core.io.internal.ByteArrayOutputStream;
 import fr.opensagres.xdocreport.core.io.internal.LineIterator;
+import fr.opensagres.xdocreport.core.io.internal.ThreadLocalBufferPool;
 import fr.opensagres.xdocreport.core.logging.LogUtils;
 
 //import org.apache.commons.io.output.ByteArrayOutputStream;
@@ -1129,15 +1130,22 @@ public class IOUtils
     public static long copyLarge( InputStream input, OutputStream output )
         throws IOException
     {
-        byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
-        long count = 0;
-        int n = 0;
-        while ( -1 != ( n = input.read( buffer ) ) )
+        byte[] buffer = ThreadLocalBufferPool.acquire( DEFAULT_BUFFER_SIZE );
+        try
         {
-            output.write( buffer, 0, n );
-            count += n;
+            long count = 0;
+            int n = 0;
+            while ( -1 != ( n = input.read( buffer ) ) )
+            {
+                output.write( buffer, 0, n );
+                count += n;
+            }
+            return count;
+        }
+        finally
+        {
+            ThreadLocalBufferPool.release( buffer );
         }
-        return count;
     }
 
     /**
@@ -24,19 +24,24 @@
  */
 package fr.opensagres.xdocreport.core.io;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
@@ -44,7 +49,9 @@ import java.util.zip.ZipOutputStream;
 
 import fr.opensagres.xdocreport.core.EncodingConstants;
 import fr.opensagres.xdocreport.core.io.internal.OutputStream2InputStream;
-import fr.opensagres.xdocreport.core.io.internal.OutputStreamWriterCancelable;
+import fr.opensagres.xdocreport.core.io.internal.ThreadLocalBufferPool;
+import fr.opensagres.xdocreport.core.io.internal.UTF8OutputStreamWriter;
+import fr.opensagres.xdocreport.core.io.storage.HeapEntryStorage;
 import fr.opensagres.xdocreport.core.utils.StringUtils;
 
 /**
@@ -55,22 +62,36 @@ public class XDocArchive
     implements IEntryInputStreamProvider, IEntryReaderProvider, IEntryWriterProvider, IEntryOutputStreamProvider
 {
 
-    private static final String MIMETYPE_ENTRY_NAME = "mimetype";
+    public static final String MIMETYPE_ENTRY_NAME = "mimetype";
 
     /**
      * Cache entries of the original XML document (odt, docx....). This Map contains a key as entry name (ex : for docx
-     * word/document.xml) and the content of the XML file as array bytes.
+     * word/document.xml) and the content of the XML file stored with the {@link IEntryStorage} of the archive. The
+     * entries can be written and read by several threads (parallel preprocessing), so this map and the last modified
+     * dates are only accessed while holding the lock of the archive.
      */
-    private Map<String, byte[]> cacheEntries = new LinkedHashMap<String, byte[]>();
+    private Map<String, IEntryContent> cacheEntries = new LinkedHashMap<String, IEntryContent>();
 
     /**
-     * Cache entries info.
+     * Storage of the entries content.
      */
-    private Map<String, IEntryInfo> cacheEntriesInfo = new LinkedHashMap<String, IEntryInfo>();
+    private final IEntryStorage entryStorage;
+
+    /**
+     * Cache entries info. The preprocessed archive of a report is read by the threads which process it, so this cache
+     * and the wildcard cache are concurrent.
+     */
+    private Map<String, IEntryInfo> cacheEntriesInfo = new ConcurrentHashMap<String, IEntryInfo>();
 
     private Map<String, Long> lastModifiedEntries;
 
-    private Map<String, Set<String>> cacheEntriesWilcard = null;
+    private volatile Map<String, Set<String>> cacheEntriesWilcard = null;
+
+    /**
+     * Size classes (see {@link ThreadLocalBufferPool}) of the last written content of the entries, shared by the
+     * copies of the archive to size the buffer of an entry from its previous merge.
+     */
+    private ConcurrentMap<String, Integer> entrySizeClasses = new ConcurrentHashMap<String, Integer>();
 
     public XDocArchive()
     {
@@ -79,6 +100,18 @@ public class XDocArchive
 
     public XDocArchive( boolean trackLastModified )
     {
+        this( trackLastModified, null );
+    }
+
+    /**
+     * Create an archive which stores its entries with the given storage.
+     * 
+     * @param trackLastModified true if the last modified date of each entry must be tracked.
+     * @param entryStorage the storage of the entries, or null to store them on the heap.
+     */
+    public XDocArchive( boolean trackLastModified, IEntryStorage entryStorage )
+    {
+        this.entryStorage = entryStorage != null ? entryStorage : HeapEntryStorage.getInstance();
         if ( trackLastModified )
         {
             this.lastModifiedEntries = new HashMap<String, Long>();
@@ -96,14 +129,28 @@ public class XDocArchive
      */
     public Set<String> getEntryNames()
     {
-        return cacheEntries.keySet();
+        synchronized ( this )
+        {
+            // copy of the names, the entries can be modified while the names are iterated
+            return Collections.unmodifiableSet( new LinkedHashSet<String>( cacheEntries.keySet() ) );
+        }
+    }
+
+    /**
+     * Returns the content of the given entry and null if the entry doesn't exist.
+     */
+    private synchronized IEntryContent getEntryContent( String entryName )
+    {
+        return cacheEntries.get( entryName );
     }
 
     public Set<String> getEntryNames( final String wildcard )
     {
+        Map<String, Set<String>> cacheEntriesWilcard = this.cacheEntriesWilcard;
         if ( cacheEntriesWilcard == null )
         {
-            cacheEntriesWilcard = new HashMap<String, Set<String>>();
+            cacheEntriesWilcard = new ConcurrentHashMap<String, Set<String>>();
+            this.cacheEntriesWilcard = cacheEntriesWilcard;
         }
 
         Set<String> entryNamesWithWildcard = cacheEntriesWilcard.get( wildcard );
@@ -173,11 +220,34 @@ public class XDocArchive
      */
     public InputStream getEntryInputStream( String entryName )
     {
-        if ( !cacheEntries.containsKey( entryName ) )
+        IEntryContent content = getEntryContent( entryName );
+        if ( content == null )
         {
             return null;
         }
-        return new ByteArrayInputStream( (byte[]) cacheEntries.get( entryName ) );
+        return content.getInputStream();
+    }
+
+    /**
+     * Returns the content of the given entry (not copied for the heap storage) and null if the entry doesn't exist.
+     * 
+     * @param entryName
+     * @return
+     */
+    byte[] getEntryData( String entryName )
+    {
+        IEntryContent content = getEntryContent( entryName );
+        return content != null ? content.toByteArray() : null;
+    }
+
+    /**
+     * Returns the storage of the entries content.
+     * 
+     * @return
+     */
+    public IEntryStorage getEntryStorage()
+    {
+        return entryStorage;
     }
 
     /**
@@ -204,7 +274,22 @@ public class XDocArchive
      */
     public OutputStream getEntryOutputStream( String entryName )
     {
-        return new EntryByteArrayOutputStream( entryName );
+        int initialSize = 0;
+        Integer sizeClass = entrySizeClasses.get( entryName );
+        if ( sizeClass != null )
+        {
+            // size of the last written content of the entry (ex : merged entry of the previous report).
+            initialSize = 1 << sizeClass;
+        }
+        else
+        {
+            IEntryContent content = getEntryContent( entryName );
+            if ( content != null )
+            {
+                initialSize = content.getSize();
+            }
+        }
+        return new EntryByteArrayOutputStream( entryName, initialSize );
     }
 
     /**
@@ -219,34 +304,80 @@ public class XDocArchive
     }
 
     /**
-     * Create a copy of the {@link XDocArchive}.
+     * Create a copy of the {@link XDocArchive} which stores its entries on the heap.
      * 
      * @return
      */
     public XDocArchive createCopy()
+    {
+        return createCopy( false, null );
+    }
+
+    /**
+     * Create a copy of the {@link XDocArchive} which stores its entries with the given storage. The last modified
+     * dates of the entries are copied too.
+     * 
+     * @param entryStorage the storage of the copy entries, or null to store them on the heap.
+     * @return
+     */
+    public XDocArchive createCopy( IEntryStorage entryStorage )
+    {
+        return createCopy( isTrackLastModified(), entryStorage );
+    }
+
+    private XDocArchive createCopy( boolean trackLastModified, IEntryStorage entryStorage )
     {
         // Create new instance of XDocArchive
-        XDocArchive archiveCopy = new XDocArchive();
+        XDocArchive archiveCopy = new XDocArchive( trackLastModified, entryStorage );
+        Map<String, IEntryContent> entries;
+        synchronized ( this )
+        {
+            if ( trackLastModified )
+            {
+                archiveCopy.lastModifiedEntries.putAll( lastModifiedEntries );
+            }
+            entries = new LinkedHashMap<String, IEntryContent>( cacheEntries );
+        }
+        archiveCopy.entrySizeClasses = this.entrySizeClasses;
+        if ( archiveCopy.entryStorage == this.entryStorage )
+        {
+            // the contents are immutable and the entries written in the copy replace them, so they are shared
+            // without copying their bytes (ex : copy of the preprocessed archive for each process of a report).
+            archiveCopy.cacheEntries = entries;
+            // the wildcards only depend on the entry names, which are the same.
+            archiveCopy.cacheEntriesWilcard = this.cacheEntriesWilcard;
+            return archiveCopy;
+        }
         // Loop for cache entries
-        for ( Map.Entry<String, byte[]> entry : cacheEntries.entrySet() )
+        for ( Map.Entry<String, IEntryContent> entry : entries.entrySet() )
         {
             String name = entry.getKey();
-            byte[] entryData = entry.getValue();
-            byte[] entryDataCopy = new byte[entryData.length];
-            System.arraycopy( entryData, 0, entryDataCopy, 0, entryData.length );
+            byte[] entryData = entry.getValue().toByteArray();
             // modify the cache entries in the new XDocArchive
-            archiveCopy.cacheEntries.put( name, entryDataCopy );
+            archiveCopy.cacheEntries.put( name, archiveCopy.storeEntry( name, entryData, entryData.length ) );
         }
         return archiveCopy;
     }
 
+    private IEntryContent storeEntry( String entryName, byte[] data, int length )
+    {
+        try
+        {
+            return entryStorage.store( entryName, data, length );
+        }
+        catch ( IOException e )
+        {
+            throw new IllegalStateException( "Cannot store the entry name=" + entryName, e );
+        }
+    }
+
     /**
      * Returns true if {@link XDocArchive} contains an entry with the given name.
      * 
      * @param entryName
      * @return
      */
-    public boolean hasEntry( String entryName )
+    public synchronized boolean hasEntry( String entryName )
     {
         return cacheEntries.containsKey( entryName );
     }
@@ -270,7 +401,7 @@ public class XDocArchive
      */
     private static Writer toUTF8Writer( OutputStream outputStream )
     {
-        return new OutputStreamWriterCancelable( outputStream, EncodingConstants.UTF_8 );
+        return new UTF8OutputStreamWriter( outputStream );
     }
 
     /**
@@ -283,6 +414,21 @@ public class XDocArchive
      */
     public static XDocArchive readZip( InputStream sourceStream )
         throws IOException
+    {
+        return readZip( sourceStream, null );
+    }
+
+    /**
+     * Read zip from input stream and returns an instance of {@link XDocArchive} which stores each entry from the zip
+     * with the given storage.
+     * 
+     * @param sourceStream stream of odt, docx file.
+     * @param entryStorage the storage of the entries, or null to store them on the heap.
+     * @return
+     * @throws IOException
+     */
+    public static XDocArchive readZip( InputStream sourceStream, IEntryStorage entryStorage )
+        throws IOException
     {
         if ( sourceStream == null )
         {
@@ -304,7 +450,7 @@ public class XDocArchive
                 if ( archive == null )
                 {
                     // track last modified for each entries when entry change
-                    archive = new XDocArchive( true );
+                    archive = new XDocArchive( true, entryStorage );
                 }
                 // 4) Create empty output stream and register it with the entry
                 // name
@@ -364,7 +510,7 @@ public class XDocArchive
         {
             throw new IOException( "Cannot find entry name=" + entryName + " in the document archive." );
         }
-        outputStream.write( archive.cacheEntries.get( entryName ) );
+        archive.getEntryContent( entryName ).writeTo( outputStream );
     }
 
     /**
@@ -394,7 +540,28 @@ public class XDocArchive
     }
 
     /**
-     * Write zip entry.
+     * Write XML document archive in the given output stream with the given compression options (compression level and
+     * strategy per entry, stored entries, parallel compression of the entries). If the options are null or if the
+     * archive needs zip64 (more than 65535 entries or more than 4GB), the archive is written like
+     * {@link #writeZip(XDocArchive, OutputStream)}.
+     * 
+     * @param archive
+     * @param outputStream
+     * @param options the compression options, or null.
+     * @throws IOException
+     */
+    public static void writeZip( XDocArchive archive, OutputStream outputStream, ZipCompressionOptions options )
+        throws IOException
+    {
+        if ( options == null || !new ZipArchiveWriter( archive, outputStream, options ).write() )
+        {
+            writeZip( archive, outputStream );
+        }
+    }
+
+    /**
+     * Write the given entry of the archive in the zip output stream. Nothing is written if the archive doesn't
+     * contain the entry.
      * 
      * @param zipOutputStream
      * @param archive
@@ -402,12 +569,12 @@ public class XDocArchive
      * @param method
      * @throws IOException
      */
-    private static void writeZipEntry( ZipOutputStream zipOutputStream, XDocArchive archive, String entryName,
-                                       int method )
+    public static void writeZipEntry( ZipOutputStream zipOutputStream, XDocArchive archive, String entryName,
+                                      int method )
         throws IOException
     {
-        InputStream entryInputStream = archive.getEntryInputStream( entryName );
-        if ( entryInputStream == null )
+        IEntryContent content = archive.getEntryContent( entryName );
+        if ( content == null )
         {
             return;
         }
@@ -416,21 +583,22 @@ public class XDocArchive
         zipEntry.setMethod( method );
         if ( method == ZipEntry.STORED )
         {
-            byte[] inputBytes = IOUtils.toByteArray( entryInputStream );
+            // not copied for the heap storage
+            byte[] inputBytes = content.toByteArray();
             CRC32 crc = new CRC32();
             crc.update( inputBytes );
             zipEntry.setCrc( crc.getValue() );
             zipEntry.setSize( inputBytes.length );
             zipEntry.setCompressedSize( inputBytes.length );
             zipOutputStream.putNextEntry( zipEntry );
-            IOUtils.write( inputBytes, zipOutputStream );
+            zipOutputStream.write( inputBytes );
         }
         else
         {
             zipOutputStream.putNextEntry( zipEntry );
-            IOUtils.copy( entryInputStream, zipOutputStream );
+            // written without intermediate buffer
+            content.writeTo( zipOutputStream );
         }
-        IOUtils.closeQuietly( entryInputStream );
         zipOutputStream.closeEntry();
     }
 
@@ -450,29 +618,98 @@ public class XDocArchive
     }
 
     /**
-     * A {@link ByteArrayOutputStream} that updates the entry cache of XML document archive when it get close().
+     * A byte array output stream that updates the entry cache of XML document archive when it get close(). The array
+     * is taken from the {@link ThreadLocalBufferPool} and given back once the content is stored.
      */
     private class EntryByteArrayOutputStream
-        extends ByteArrayOutputStream
+        extends OutputStream
     {
 
-        private String entryName;
+        private final String entryName;
+
+        private byte[] buf;
+
+        private int count;
 
-        public EntryByteArrayOutputStream( String entryName )
+        public EntryByteArrayOutputStream( String entryName, int initialSize )
         {
             this.entryName = entryName;
+            this.buf = ThreadLocalBufferPool.acquire( initialSize );
+            this.count = 0;
+        }
+
+        @Override
+        public void write( int b )
+            throws IOException
+        {
+            ensureCapacity( count + 1 );
+            buf[count++] = (byte) b;
+        }
+
+        @Override
+        public void write( byte[] b, int off, int len )
+            throws IOException
+        {
+            ensureCapacity( count + len );
+            System.arraycopy( b, off, buf, count, len );
+            count += len;
+        }
+
+        private void ensureCapacity( int minCapacity )
+            throws IOException
+        {
+            if ( buf == null )
+            {
+                throw new IOException( "Stream closed" );
+            }
+            if ( minCapacity > buf.length )
+            {
+                byte[] newBuf = ThreadLocalBufferPool.acquire( Math.max( minCapacity, buf.length << 1 ) );
+                System.arraycopy( buf, 0, newBuf, 0, count );
+                ThreadLocalBufferPool.release( buf );
+                buf = newBuf;
+            }
         }
 
+        @Override
         public void close()
             throws IOException
         {
+            if ( buf == null )
+            {
+                // already closed
+                return;
+            }
             // stream is closed, modify the cache
-            cacheEntries.put( entryName, toByteArray() );
-            if ( isTrackLastModified() )
+            IEntryContent content;
+            try
+            {
+                content = entryStorage.store( entryName, buf, count );
+            }
+            finally
             {
-                lastModifiedEntries.put( entryName, System.currentTimeMillis() );
+                // the storage copies the content
+                ThreadLocalBufferPool.release( buf );
+                buf = null;
+            }
+            Integer sizeClass = ThreadLocalBufferPool.getSizeClass( count );
+            if ( !sizeClass.equals( entrySizeClasses.get( entryName ) ) )
+            {
+                entrySizeClasses.put( entryName, sizeClass );
+            }
+            // entries can be written by several threads (parallel preprocessing)
+            synchronized ( XDocArchive.this )
+            {
+                if ( cacheEntries.put( entryName, content ) == null )
+                {
+                    // new entry, the entry names matching a wildcard can change.
+                    cacheEntriesWilcard = null;
+                }
+                if ( isTrackLastModified() )
+                {
+                    lastModifiedEntries.put( entryName, System.currentTimeMillis() );
+                }
             }
-            cacheEntriesWilcard = null;
         }
     }
 
@@ -481,7 +718,7 @@ public class XDocArchive
         return lastModifiedEntries != null;
     }
 
-    public long getLastModifiedEntry( String entryName )
+    public synchronized long getLastModifiedEntry( String entryName )
     {
         if ( isTrackLastModified() )
         {
@@ -538,7 +775,44 @@ public class XDocArchive
         return info;
     }
 
-    public void dispose()
+    /**
+     * Release the contents of the entries of the given archives with the entry storage of each archive (see
+     * {@link IEntryStorage#release(IEntryContent)}) and dispose the archives. The archives can share their contents (see
+     * {@link #createCopy(IEntryStorage)}), a content is released once. The archives and their copies must not be used
+     * after this call.
+     * 
+     * @param archives the archives to release, null archives are ignored.
+     */
+    public static void releaseEntries( XDocArchive... archives )
+    {
+        Set<IEntryContent> released = Collections.newSetFromMap( new IdentityHashMap<IEntryContent, Boolean>() );
+        for ( XDocArchive archive : archives )
+        {
+            if ( archive == null )
+            {
+                continue;
+            }
+            List<IEntryContent> contents;
+            synchronized ( archive )
+            {
+                if ( archive.cacheEntries == null )
+                {
+                    continue;
+                }
+                contents = new ArrayList<IEntryContent>( archive.cacheEntries.values() );
+            }
+            for ( IEntryContent content : contents )
+            {
+                if ( released.add( content ) )
+                {
+                    archive.entryStorage.release( content );
+                }
+            }
+            archive.dispose();
+        }
+    }
+
+    public synchronized void dispose()
     {
         if ( cacheEntries != null )
         {
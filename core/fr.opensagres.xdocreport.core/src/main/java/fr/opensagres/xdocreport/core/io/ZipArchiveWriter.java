@@ -0,0 +1,392 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * Writes the entries of a {@link XDocArchive} as zip with the given {@link ZipCompressionOptions}. Each entry is
+ * deflated in a raw buffer (by the executor of the options for the big entries), then the local headers, the
+ * compressed data and the central directory are written in the order of the entries. Zip64 is not supported : when
+ * the archive could exceed the zip limits, {@link #write()} returns false and the caller must use a
+ * {@link java.util.zip.ZipOutputStream}.
+ */
+class ZipArchiveWriter
+{
+
+    private static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50;
+
+    private static final int CENTRAL_DIRECTORY_HEADER_SIGNATURE = 0x02014b50;
+
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+
+    private static final int UTF8_NAME_FLAG = 0x0800;
+
+    private static final int MAX_ENTRIES = 0xFFFF;
+
+    private static final long MAX_SIZE = 0xFFFFFFFFL;
+
+    private final XDocArchive archive;
+
+    private final OutputStream out;
+
+    private final ZipCompressionOptions options;
+
+    private final byte[] header;
+
+    private long written;
+
+    ZipArchiveWriter( XDocArchive archive, OutputStream out, ZipCompressionOptions options )
+    {
+        this.archive = archive;
+        this.out = out;
+        this.options = options;
+        this.header = new byte[46];
+        this.written = 0;
+    }
+
+    /**
+     * Write the zip.
+     * 
+     * @return false if the archive cannot be written without zip64 and true otherwise.
+     * @throws IOException
+     */
+    boolean write()
+        throws IOException
+    {
+        // 1) Collect the entries, the "mimetype" must be the first entry (ODT spec)
+        List<CompressedEntry> entries = new ArrayList<CompressedEntry>();
+        long maxSize = 22;
+        byte[] mimetype = archive.getEntryData( XDocArchive.MIMETYPE_ENTRY_NAME );
+        if ( mimetype != null )
+        {
+            entries.add( new CompressedEntry( XDocArchive.MIMETYPE_ENTRY_NAME, mimetype ) );
+        }
+        for ( String entryName : archive.getEntryNames() )
+        {
+            if ( !XDocArchive.MIMETYPE_ENTRY_NAME.equals( entryName ) )
+            {
+                entries.add( new CompressedEntry( entryName, archive.getEntryData( entryName ) ) );
+            }
+        }
+        for ( CompressedEntry entry : entries )
+        {
+            // deflate can grow the data of 5 bytes per 16k block
+            maxSize += entry.data.length + ( entry.data.length >> 10 ) + 64 + 2 * ( 46 + entry.name.length );
+        }
+        if ( entries.size() > MAX_ENTRIES || maxSize > MAX_SIZE )
+        {
+            return false;
+        }
+
+        // 2) Deflate the big entries in parallel
+        Executor executor = options.getExecutor();
+        if ( executor != null )
+        {
+            int threshold = options.getParallelThreshold();
+            for ( CompressedEntry entry : entries )
+            {
+                if ( !entry.stored && entry.data.length >= threshold )
+                {
+                    entry.task = new FutureTask<CompressedEntry>( entry );
+                    try
+                    {
+                        executor.execute( entry.task );
+                    }
+                    catch ( RejectedExecutionException e )
+                    {
+                        // the entry is deflated by the current thread
+                    }
+                }
+            }
+        }
+
+        // 3) Write the local headers and the compressed data in the order of the entries, the small entries are
+        // deflated by the current thread while the executor deflates the big entries.
+        boolean done = false;
+        try
+        {
+            int time = toDosTime( System.currentTimeMillis() );
+            for ( CompressedEntry entry : entries )
+            {
+                compressIfNeeded( entry );
+                entry.offset = written;
+                writeLocalHeader( entry, time );
+                writeBytes( entry.compressed, entry.compressedLength );
+                // release the compressed data as soon as it is written
+                entry.compressed = null;
+            }
+            // 4) Write the central directory
+            long centralDirectoryOffset = written;
+            for ( CompressedEntry entry : entries )
+            {
+                writeCentralDirectoryHeader( entry, time );
+            }
+            writeEndOfCentralDirectory( entries.size(), written - centralDirectoryOffset, centralDirectoryOffset );
+            out.flush();
+            done = true;
+        }
+        finally
+        {
+            if ( !done )
+            {
+                for ( CompressedEntry entry : entries )
+                {
+                    if ( entry.task != null )
+                    {
+                        entry.task.cancel( false );
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private void compressIfNeeded( CompressedEntry entry )
+        throws IOException
+    {
+        if ( entry.task == null )
+        {
+            entry.call();
+            return;
+        }
+        // the executor can be used by the caller (ex : bounded pool which processes the reports), so the current thread
+        // deflates the entry if the executor has not started it yet instead of waiting for a free thread. Does nothing
+        // if the task is already started by the executor.
+        entry.task.run();
+        try
+        {
+            entry.task.get();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException( "Interrupted while deflating the entry " + entry.entryName );
+        }
+        catch ( ExecutionException e )
+        {
+            Throwable cause = e.getCause();
+            if ( cause instanceof RuntimeException )
+            {
+                throw (RuntimeException) cause;
+            }
+            if ( cause instanceof Error )
+            {
+                throw (Error) cause;
+            }
+            IOException ex = new IOException( "Error while deflating the entry " + entry.entryName );
+            ex.initCause( cause );
+            throw ex;
+        }
+    }
+
+    private void writeLocalHeader( CompressedEntry entry, int time )
+        throws IOException
+    {
+        writeInt( 0, LOCAL_FILE_HEADER_SIGNATURE );
+        writeShort( 4, entry.getVersionNeeded() );
+        writeShort( 6, entry.flags );
+        writeShort( 8, entry.getMethod() );
+        writeInt( 10, time );
+        writeInt( 14, (int) entry.crc );
+        writeInt( 18, entry.compressedLength );
+        writeInt( 22, entry.data.length );
+        writeShort( 26, entry.name.length );
+        writeShort( 28, 0 );
+        writeBytes( header, 30 );
+        writeBytes( entry.name, entry.name.length );
+    }
+
+    private void writeCentralDirectoryHeader( CompressedEntry entry, int time )
+        throws IOException
+    {
+        writeInt( 0, CENTRAL_DIRECTORY_HEADER_SIGNATURE );
+        writeShort( 4, 20 );
+        writeShort( 6, entry.getVersionNeeded() );
+        writeShort( 8, entry.flags );
+        writeShort( 10, entry.getMethod() );
+        writeInt( 12, time );
+        writeInt( 16, (int) entry.crc );
+        writeInt( 20, entry.compressedLength );
+        writeInt( 24, entry.data.length );
+        writeShort( 28, entry.name.length );
+        // extra field length, comment length, disk number, internal and external attributes
+        Arrays.fill( header, 30, 42, (byte) 0 );
+        writeInt( 42, (int) entry.offset );
+        writeBytes( header, 46 );
+        writeBytes( entry.name, entry.name.length );
+    }
+
+    private void writeEndOfCentralDirectory( int count, long size, long offset )
+        throws IOException
+    {
+        writeInt( 0, END_OF_CENTRAL_DIRECTORY_SIGNATURE );
+        writeShort( 4, 0 );
+        writeShort( 6, 0 );
+        writeShort( 8, count );
+        writeShort( 10, count );
+        writeInt( 12, (int) size );
+        writeInt( 16, (int) offset );
+        writeShort( 20, 0 );
+        writeBytes( header, 22 );
+    }
+
+    private void writeShort( int index, int value )
+    {
+        header[index] = (byte) value;
+        header[index + 1] = (byte) ( value >>> 8 );
+    }
+
+    private void writeInt( int index, int value )
+    {
+        header[index] = (byte) value;
+        header[index + 1] = (byte) ( value >>> 8 );
+        header[index + 2] = (byte) ( value >>> 16 );
+        header[index + 3] = (byte) ( value >>> 24 );
+    }
+
+    private void writeBytes( byte[] bytes, int length )
+        throws IOException
+    {
+        out.write( bytes, 0, length );
+        written += length;
+    }
+
+    /**
+     * Returns the MS-DOS date/time of the given Java time (like {@link ZipEntry#setTime(long)}).
+     */
+    private static int toDosTime( long time )
+    {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis( time );
+        int year = calendar.get( Calendar.YEAR );
+        if ( year < 1980 )
+        {
+            return ( 1 << 21 ) | ( 1 << 16 );
+        }
+        return ( year - 1980 ) << 25 | ( calendar.get( Calendar.MONTH ) + 1 ) << 21
+            | calendar.get( Calendar.DAY_OF_MONTH ) << 16 | calendar.get( Calendar.HOUR_OF_DAY ) << 11
+            | calendar.get( Calendar.MINUTE ) << 5 | calendar.get( Calendar.SECOND ) >> 1;
+    }
+
+    /**
+     * An entry to write with its compressed data.
+     */
+    private class CompressedEntry
+        implements Callable<CompressedEntry>
+    {
+
+        private final String entryName;
+
+        private final byte[] name;
+
+        private final int flags;
+
+        private final byte[] data;
+
+        private final boolean stored;
+
+        private long crc;
+
+        private byte[] compressed;
+
+        private int compressedLength;
+
+        private long offset;
+
+        private FutureTask<CompressedEntry> task;
+
+        public CompressedEntry( String entryName, byte[] data )
+            throws UnsupportedEncodingException
+        {
+            this.entryName = entryName;
+            this.name = entryName.getBytes( "UTF-8" );
+            this.flags = name.length != entryName.length() ? UTF8_NAME_FLAG : 0;
+            this.data = data;
+            this.stored = options.isStored( entryName );
+        }
+
+        public CompressedEntry call()
+        {
+            CRC32 crc32 = new CRC32();
+            crc32.update( data );
+            crc = crc32.getValue();
+            if ( stored )
+            {
+                compressed = data;
+                compressedLength = data.length;
+                return this;
+            }
+            Deflater deflater = new Deflater( options.getLevel( entryName ), true );
+            try
+            {
+                deflater.setStrategy( options.getStrategy( entryName ) );
+                deflater.setInput( data );
+                deflater.finish();
+                byte[] buffer = new byte[Math.max( 64, data.length / 2 )];
+                int length = 0;
+                while ( !deflater.finished() )
+                {
+                    if ( length == buffer.length )
+                    {
+                        buffer = Arrays.copyOf( buffer, buffer.length * 2 );
+                    }
+                    length += deflater.deflate( buffer, length, buffer.length - length );
+                }
+                compressed = buffer;
+                compressedLength = length;
+            }
+            finally
+            {
+                deflater.end();
+            }
+            return this;
+        }
+
+        int getMethod()
+        {
+            return stored ? ZipEntry.STORED : ZipEntry.DEFLATED;
+        }
+
+        int getVersionNeeded()
+        {
+            return stored ? 10 : 20;
+        }
+    }
+}
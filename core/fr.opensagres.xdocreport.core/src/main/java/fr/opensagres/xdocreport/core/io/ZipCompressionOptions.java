@@ -0,0 +1,331 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.io;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+/**
+ * Options used by {@link XDocArchive#writeZip(XDocArchive, java.io.OutputStream, ZipCompressionOptions)} to write the
+ * zipped XML document :
+ * <ul>
+ * <li>the compression level and strategy can be defined per entry extension, and entries which are already
+ * compressed (png, jpeg...) can be stored instead of deflated. The "mimetype" entry is always stored.</li>
+ * <li>when an {@link Executor} is set (see {@link #setExecutor(Executor)} and {@link #setParallel(boolean)}), the
+ * entries bigger than {@link #getParallelThreshold()} are deflated in parallel by this executor, while the zip is
+ * written in the order of the entries.</li>
+ * </ul>
+ */
+public class ZipCompressionOptions
+{
+
+    /**
+     * Default size (in bytes) from which an entry is deflated by the executor.
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 32 * 1024;
+
+    /**
+     * Extensions of the entries which are already compressed (images, media, archives).
+     */
+    public static final String[] COMPRESSED_MEDIA_EXTENSIONS = { "png", "jpg", "jpeg", "gif", "tif", "tiff", "wdp",
+        "jdp", "mp3", "mp4", "m4a", "avi", "wmv", "zip", "gz", "jar", "odt", "docx", "xlsx", "pptx" };
+
+    private static volatile ExecutorService sharedExecutor;
+
+    private int level;
+
+    private int strategy;
+
+    private final Set<String> storedExtensions;
+
+    private final Map<String, Integer> levels;
+
+    private final Map<String, Integer> strategies;
+
+    private Executor executor;
+
+    private int parallelThreshold;
+
+    public ZipCompressionOptions()
+    {
+        this.level = Deflater.DEFAULT_COMPRESSION;
+        this.strategy = Deflater.DEFAULT_STRATEGY;
+        this.storedExtensions = new HashSet<String>();
+        this.levels = new HashMap<String, Integer>();
+        this.strategies = new HashMap<String, Integer>();
+        this.executor = null;
+        this.parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    }
+
+    /**
+     * Set the compression level (see {@link Deflater#setLevel(int)}) used for the entries which have no specific
+     * level.
+     * 
+     * @param level
+     * @return
+     */
+    public ZipCompressionOptions setLevel( int level )
+    {
+        this.level = level;
+        return this;
+    }
+
+    /**
+     * Set the compression level (see {@link Deflater#setLevel(int)}) used for the entries with the given extension.
+     * 
+     * @param extension the entry extension (ex : "xml").
+     * @param level
+     * @return
+     */
+    public ZipCompressionOptions setLevel( String extension, int level )
+    {
+        levels.put( toKey( extension ), level );
+        return this;
+    }
+
+    /**
+     * Set the compression strategy (see {@link Deflater#setStrategy(int)}) used for the entries which have no specific
+     * strategy.
+     * 
+     * @param strategy
+     * @return
+     */
+    public ZipCompressionOptions setStrategy( int strategy )
+    {
+        this.strategy = strategy;
+        return this;
+    }
+
+    /**
+     * Set the compression strategy (see {@link Deflater#setStrategy(int)}) used for the entries with the given
+     * extension.
+     * 
+     * @param extension the entry extension (ex : "xml").
+     * @param strategy
+     * @return
+     */
+    public ZipCompressionOptions setStrategy( String extension, int strategy )
+    {
+        strategies.put( toKey( extension ), strategy );
+        return this;
+    }
+
+    /**
+     * Store (without compression) the entries with the given extensions.
+     * 
+     * @param extensions the entry extensions (ex : "png").
+     * @return
+     */
+    public ZipCompressionOptions setStored( String... extensions )
+    {
+        for ( String extension : extensions )
+        {
+            storedExtensions.add( toKey( extension ) );
+        }
+        return this;
+    }
+
+    /**
+     * Store (without compression) the entries which are already compressed (see {@link #COMPRESSED_MEDIA_EXTENSIONS}
+     * ).
+     * 
+     * @return
+     */
+    public ZipCompressionOptions setStoredCompressedMedia()
+    {
+        return setStored( COMPRESSED_MEDIA_EXTENSIONS );
+    }
+
+    /**
+     * Set the executor used to deflate the entries in parallel and null to deflate the entries in the thread which
+     * writes the zip.
+     * 
+     * @param executor
+     * @return
+     */
+    public ZipCompressionOptions setExecutor( Executor executor )
+    {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Returns the executor used to deflate the entries in parallel and null otherwise.
+     * 
+     * @return
+     */
+    public Executor getExecutor()
+    {
+        return executor;
+    }
+
+    /**
+     * Set true to deflate the entries with the compression executor shared by the JVM (one daemon thread per
+     * processor) and false to deflate the entries in the thread which writes the zip.
+     * 
+     * @param parallel
+     * @return
+     */
+    public ZipCompressionOptions setParallel( boolean parallel )
+    {
+        return setExecutor( parallel ? getSharedExecutor() : null );
+    }
+
+    /**
+     * Set the size (in bytes) from which an entry is deflated by the executor. Smaller entries are deflated by the
+     * thread which writes the zip, the cost of the task is higher than the compression.
+     * 
+     * @param parallelThreshold
+     * @return
+     */
+    public ZipCompressionOptions setParallelThreshold( int parallelThreshold )
+    {
+        this.parallelThreshold = parallelThreshold;
+        return this;
+    }
+
+    public int getParallelThreshold()
+    {
+        return parallelThreshold;
+    }
+
+    /**
+     * Returns true if the given entry must be stored and false if it must be deflated.
+     * 
+     * @param entryName
+     * @return
+     */
+    public boolean isStored( String entryName )
+    {
+        if ( XDocArchive.MIMETYPE_ENTRY_NAME.equals( entryName ) )
+        {
+            return true;
+        }
+        String extension = getExtension( entryName );
+        return extension != null && storedExtensions.contains( extension );
+    }
+
+    /**
+     * Returns the compression level to use for the given entry.
+     * 
+     * @param entryName
+     * @return
+     */
+    public int getLevel( String entryName )
+    {
+        return getValue( levels, entryName, level );
+    }
+
+    /**
+     * Returns the compression strategy to use for the given entry.
+     * 
+     * @param entryName
+     * @return
+     */
+    public int getStrategy( String entryName )
+    {
+        return getValue( strategies, entryName, strategy );
+    }
+
+    private static int getValue( Map<String, Integer> values, String entryName, int defaultValue )
+    {
+        if ( values.isEmpty() )
+        {
+            return defaultValue;
+        }
+        String extension = getExtension( entryName );
+        Integer value = extension != null ? values.get( extension ) : null;
+        return value != null ? value : defaultValue;
+    }
+
+    private static String getExtension( String entryName )
+    {
+        int index = entryName.lastIndexOf( '.' );
+        if ( index == -1 || entryName.indexOf( '/', index ) != -1 )
+        {
+            return null;
+        }
+        return toKey( entryName.substring( index + 1 ) );
+    }
+
+    private static String toKey( String extension )
+    {
+        if ( extension.startsWith( "." ) )
+        {
+            extension = extension.substring( 1 );
+        }
+        return extension.toLowerCase();
+    }
+
+    /**
+     * Returns the compression executor shared by the JVM, with one daemon thread per processor.
+     * 
+     * @return
+     */
+    public static ExecutorService getSharedExecutor()
+    {
+        ExecutorService executor = sharedExecutor;
+        if ( executor == null )
+        {
+            synchronized ( ZipCompressionOptions.class )
+            {
+                executor = sharedExecutor;
+                if ( executor == null )
+                {
+                    executor =
+                        Executors.newFixedThreadPool( Runtime.getRuntime().availableProcessors(),
+                                                      new CompressionThreadFactory() );
+                    sharedExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Creates the daemon threads of the shared compression executor.
+     */
+    private static class CompressionThreadFactory
+        implements ThreadFactory
+    {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        public Thread newThread( Runnable runnable )
+        {
+            Thread thread = new Thread( runnable, "xdocreport-zip-" + count.incrementAndGet() );
+            thread.setDaemon( true );
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.io.internal;
+
+/**
+ * Pool of byte arrays reused by the same thread : the buffers used to generate a report (merged entries, UTF-8
+ * encoding, copy of streams) are released at the end of their use and acquired again by the next report generated
+ * with the thread, instead of being allocated for each report.
+ * <p>
+ * Arrays are pooled by size classes (power of two from 1KB to 64KB by default, see {@link #setMaxPooledSize(int)})
+ * with one array per size class and per thread, so a thread keeps at most 128KB. Bigger arrays are not pooled. The
+ * arrays of a thread which doesn't generate reports anymore (ex : thread of a shared executor) can be released with
+ * {@link #clear()}.
+ * </p>
+ */
+public class ThreadLocalBufferPool
+{
+
+    private static final int MIN_SIZE_CLASS = 10;
+
+    private static final int DEFAULT_MAX_SIZE_CLASS = 16;
+
+    private static final int MAX_SIZE_CLASS_LIMIT = 20;
+
+    private static volatile boolean enabled = true;
+
+    private static volatile int maxSizeClass = DEFAULT_MAX_SIZE_CLASS;
+
+    private static final ThreadLocal<byte[][]> BUFFERS = new ThreadLocal<byte[][]>()
+    {
+        @Override
+        protected byte[][] initialValue()
+        {
+            return new byte[MAX_SIZE_CLASS_LIMIT + 1][];
+        }
+    };
+
+    private ThreadLocalBufferPool()
+    {
+    }
+
+    /**
+     * Returns an array of at least the given size, taken from the pool of the current thread if it's possible.
+     * 
+     * @param minSize
+     * @return
+     */
+    public static byte[] acquire( int minSize )
+    {
+        int sizeClass = getSizeClass( minSize );
+        int maxSizeClass = ThreadLocalBufferPool.maxSizeClass;
+        if ( sizeClass > maxSizeClass || !enabled )
+        {
+            return new byte[sizeClass > maxSizeClass ? minSize : 1 << sizeClass];
+        }
+        byte[][] buffers = BUFFERS.get();
+        byte[] buffer = buffers[sizeClass];
+        if ( buffer != null )
+        {
+            buffers[sizeClass] = null;
+            return buffer;
+        }
+        return new byte[1 << sizeClass];
+    }
+
+    /**
+     * Give back to the pool of the current thread an array returned by {@link #acquire(int)}. The array must not be
+     * used after this call.
+     * 
+     * @param buffer
+     */
+    public static void release( byte[] buffer )
+    {
+        if ( buffer == null || !enabled )
+        {
+            return;
+        }
+        int sizeClass = getSizeClass( buffer.length );
+        if ( sizeClass > maxSizeClass || buffer.length != 1 << sizeClass )
+        {
+            // not a pooled array
+            return;
+        }
+        byte[][] buffers = BUFFERS.get();
+        if ( buffers[sizeClass] == null )
+        {
+            buffers[sizeClass] = buffer;
+        }
+    }
+
+    /**
+     * Returns the size class (the power of two) of the arrays which can contain the given size.
+     * 
+     * @param size
+     * @return
+     */
+    public static int getSizeClass( int size )
+    {
+        if ( size <= 1 << MIN_SIZE_CLASS )
+        {
+            return MIN_SIZE_CLASS;
+        }
+        return 32 - Integer.numberOfLeadingZeros( size - 1 );
+    }
+
+    /**
+     * Enable or disable the pool (enabled by default). When the pool is disabled, a new array is allocated for each
+     * acquire.
+     * 
+     * @param enabled
+     */
+    public static void setEnabled( boolean enabled )
+    {
+        ThreadLocalBufferPool.enabled = enabled;
+    }
+
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Release the arrays pooled by the current thread.
+     */
+    public static void clear()
+    {
+        BUFFERS.remove();
+    }
+
+    /**
+     * Set the size of the biggest pooled arrays (64KB by default, at most 1MB). The size is rounded up to a power of
+     * two and a thread keeps at most twice this size. The arrays already pooled by other threads are kept until they
+     * call {@link #clear()}.
+     * 
+     * @param maxPooledSize
+     */
+    public static void setMaxPooledSize( int maxPooledSize )
+    {
+        int sizeClass = getSizeClass( maxPooledSize );
+        if ( sizeClass > MAX_SIZE_CLASS_LIMIT )
+        {
+            throw new IllegalArgumentException( "The max pooled size must not be greater than " + ( 1 << MAX_SIZE_CLASS_LIMIT )
+                + " : " + maxPooledSize );
+        }
+        ThreadLocalBufferPool.maxSizeClass = sizeClass;
+    }
+
+    public static int getMaxPooledSize()
+    {
+        return 1 << maxSizeClass;
+    }
+}
@@ -0,0 +1,201 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.io.internal;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+import fr.opensagres.xdocreport.core.io.StreamCancelable;
+
+/**
+ * {@link Writer} which encodes the characters in UTF-8 in a buffer of the {@link ThreadLocalBufferPool} and writes
+ * them in the output stream when the buffer is full. Unlike {@link java.io.OutputStreamWriter}, no charset encoder
+ * and no buffer is allocated for each writer. Like {@link OutputStreamWriterCancelable}, the output stream is not
+ * closed when {@link StreamCancelable#cancel()} was called.
+ */
+public class UTF8OutputStreamWriter
+    extends Writer
+    implements StreamCancelable
+{
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final OutputStream out;
+
+    private byte[] buffer;
+
+    private int count;
+
+    // high surrogate waiting for the low surrogate of the next write.
+    private char highSurrogate;
+
+    private boolean canceled;
+
+    public UTF8OutputStreamWriter( OutputStream out )
+    {
+        this.out = out;
+        this.buffer = ThreadLocalBufferPool.acquire( BUFFER_SIZE );
+        this.count = 0;
+        this.canceled = false;
+    }
+
+    @Override
+    public void write( int c )
+        throws IOException
+    {
+        encode( (char) c );
+    }
+
+    @Override
+    public void write( char[] cbuf, int off, int len )
+        throws IOException
+    {
+        int end = off + len;
+        for ( int i = off; i < end; i++ )
+        {
+            encode( cbuf[i] );
+        }
+    }
+
+    @Override
+    public void write( String str, int off, int len )
+        throws IOException
+    {
+        int end = off + len;
+        for ( int i = off; i < end; i++ )
+        {
+            encode( str.charAt( i ) );
+        }
+    }
+
+    private void encode( char c )
+        throws IOException
+    {
+        ensureOpen();
+        if ( count + 4 > buffer.length )
+        {
+            flushBuffer();
+        }
+        if ( highSurrogate != 0 )
+        {
+            char high = highSurrogate;
+            highSurrogate = 0;
+            if ( Character.isLowSurrogate( c ) )
+            {
+                int codePoint = Character.toCodePoint( high, c );
+                buffer[count++] = (byte) ( 0xF0 | ( codePoint >> 18 ) );
+                buffer[count++] = (byte) ( 0x80 | ( ( codePoint >> 12 ) & 0x3F ) );
+                buffer[count++] = (byte) ( 0x80 | ( ( codePoint >> 6 ) & 0x3F ) );
+                buffer[count++] = (byte) ( 0x80 | ( codePoint & 0x3F ) );
+                return;
+            }
+            // malformed surrogate, replaced like the JDK UTF-8 encoder
+            buffer[count++] = '?';
+        }
+        if ( c < 0x80 )
+        {
+            buffer[count++] = (byte) c;
+        }
+        else if ( c < 0x800 )
+        {
+            buffer[count++] = (byte) ( 0xC0 | ( c >> 6 ) );
+            buffer[count++] = (byte) ( 0x80 | ( c & 0x3F ) );
+        }
+        else if ( Character.isHighSurrogate( c ) )
+        {
+            highSurrogate = c;
+        }
+        else if ( Character.isLowSurrogate( c ) )
+        {
+            buffer[count++] = '?';
+        }
+        else
+        {
+            buffer[count++] = (byte) ( 0xE0 | ( c >> 12 ) );
+            buffer[count++] = (byte) ( 0x80 | ( ( c >> 6 ) & 0x3F ) );
+            buffer[count++] = (byte) ( 0x80 | ( c & 0x3F ) );
+        }
+    }
+
+    @Override
+    public void flush()
+        throws IOException
+    {
+        ensureOpen();
+        flushBuffer();
+        out.flush();
+    }
+
+    private void flushBuffer()
+        throws IOException
+    {
+        if ( count > 0 )
+        {
+            out.write( buffer, 0, count );
+            count = 0;
+        }
+    }
+
+    private void ensureOpen()
+        throws IOException
+    {
+        if ( buffer == null )
+        {
+            throw new IOException( "Stream closed" );
+        }
+    }
+
+    public void cancel()
+    {
+        this.canceled = true;
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        if ( canceled || buffer == null )
+        {
+            return;
+        }
+        try
+        {
+            if ( highSurrogate != 0 )
+            {
+                highSurrogate = 0;
+                encode( '?' );
+            }
+            flushBuffer();
+            out.close();
+        }
+        finally
+        {
+            ThreadLocalBufferPool.release( buffer );
+            buffer = null;
+        }
+    }
+
+}
@@ -0,0 +1,184 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.io.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import fr.opensagres.xdocreport.core.io.IEntryContent;
+
+/**
+ * Entry content backed by a {@link ByteBuffer} (direct or memory-mapped). The buffer is never modified, each reader
+ * works on its own duplicate. Once released (see {@link #release()}), the content keeps no reference to the buffer, so
+ * the memory (or the mapping) is freed when the buffer is collected.
+ */
+class ByteBufferEntryContent
+    implements IEntryContent
+{
+
+    private static final int COPY_BUFFER_SIZE = 8192;
+
+    private volatile ByteBuffer buffer;
+
+    private final int size;
+
+    public ByteBufferEntryContent( ByteBuffer buffer )
+    {
+        this.buffer = buffer;
+        this.size = buffer.limit();
+    }
+
+    public int getSize()
+    {
+        return size;
+    }
+
+    public InputStream getInputStream()
+    {
+        return new ByteBufferInputStream( getBuffer().duplicate() );
+    }
+
+    public void writeTo( OutputStream out )
+        throws IOException
+    {
+        ByteBuffer source = getBuffer().duplicate();
+        byte[] chunk = new byte[Math.min( COPY_BUFFER_SIZE, source.remaining() )];
+        while ( source.hasRemaining() )
+        {
+            int length = Math.min( chunk.length, source.remaining() );
+            source.get( chunk, 0, length );
+            out.write( chunk, 0, length );
+        }
+    }
+
+    public byte[] toByteArray()
+    {
+        ByteBuffer source = getBuffer().duplicate();
+        byte[] data = new byte[source.remaining()];
+        source.get( data );
+        return data;
+    }
+
+    /**
+     * Release the buffer. The content cannot be read after.
+     * 
+     * @return true if the content was not already released and false otherwise.
+     */
+    synchronized boolean release()
+    {
+        boolean released = buffer != null;
+        this.buffer = null;
+        return released;
+    }
+
+    private ByteBuffer getBuffer()
+    {
+        ByteBuffer buffer = this.buffer;
+        if ( buffer == null )
+        {
+            throw new IllegalStateException( "The entry content is released." );
+        }
+        return buffer;
+    }
+
+    private static class ByteBufferInputStream
+        extends InputStream
+    {
+
+        private final ByteBuffer buffer;
+
+        private int mark;
+
+        public ByteBufferInputStream( ByteBuffer buffer )
+        {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read()
+        {
+            if ( !buffer.hasRemaining() )
+            {
+                return -1;
+            }
+            return buffer.get() & 0xFF;
+        }
+
+        @Override
+        public int read( byte[] b, int off, int len )
+        {
+            if ( len == 0 )
+            {
+                return 0;
+            }
+            int remaining = buffer.remaining();
+            if ( remaining == 0 )
+            {
+                return -1;
+            }
+            int length = Math.min( len, remaining );
+            buffer.get( b, off, length );
+            return length;
+        }
+
+        @Override
+        public long skip( long n )
+        {
+            if ( n <= 0 )
+            {
+                return 0;
+            }
+            int length = (int) Math.min( n, buffer.remaining() );
+            buffer.position( buffer.position() + length );
+            return length;
+        }
+
+        @Override
+        public int available()
+        {
+            return buffer.remaining();
+        }
+
+        @Override
+        public boolean markSupported()
+        {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark( int readlimit )
+        {
+            mark = buffer.position();
+        }
+
+        @Override
+        public synchronized void reset()
+        {
+            buffer.position( mark );
+        }
+    }
+}
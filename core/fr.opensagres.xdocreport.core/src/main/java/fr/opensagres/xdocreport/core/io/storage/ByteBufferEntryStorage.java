@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.io.storage;
+
+import java.nio.ByteBuffer;
+
+import fr.opensagres.xdocreport.core.io.IEntryContent;
+import fr.opensagres.xdocreport.core.io.IEntryStorage;
+
+/**
+ * {@link IEntryStorage} which stores the entry content in a direct {@link ByteBuffer}. The content is out of the Java
+ * heap, so it is not scanned by the garbage collector, and the memory is released when the buffer is collected (see
+ * -XX:MaxDirectMemorySize to limit it).
+ */
+public class ByteBufferEntryStorage
+    implements IEntryStorage
+{
+
+    private static final ByteBufferEntryStorage INSTANCE = new ByteBufferEntryStorage();
+
+    public static ByteBufferEntryStorage getInstance()
+    {
+        return INSTANCE;
+    }
+
+    public IEntryContent store( String entryName, byte[] data, int length )
+    {
+        ByteBuffer buffer = ByteBuffer.allocateDirect( length );
+        buffer.put( data, 0, length );
+        buffer.flip();
+        return new ByteBufferEntryContent( buffer.asReadOnlyBuffer() );
+    }
+
+    public void release( IEntryContent content )
+    {
+        if ( content instanceof ByteBufferEntryContent )
+        {
+            // the direct memory is freed when the buffer is collected
+            ( (ByteBufferEntryContent) content ).release();
+        }
+    }
+
+    public void dispose()
+    {
+        // Do nothing
+    }
+
+}
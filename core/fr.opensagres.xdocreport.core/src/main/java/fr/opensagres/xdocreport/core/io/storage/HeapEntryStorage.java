@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.io.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import fr.opensagres.xdocreport.core.io.IEntryContent;
+import fr.opensagres.xdocreport.core.io.IEntryStorage;
+
+/**
+ * {@link IEntryStorage} which stores the entry content in a byte array on the Java heap.
+ */
+public class HeapEntryStorage
+    implements IEntryStorage
+{
+
+    private static final HeapEntryStorage INSTANCE = new HeapEntryStorage();
+
+    public static HeapEntryStorage getInstance()
+    {
+        return INSTANCE;
+    }
+
+    public IEntryContent store( String entryName, byte[] data, int length )
+    {
+        byte[] copy = new byte[length];
+        System.arraycopy( data, 0, copy, 0, length );
+        return new HeapEntryContent( copy );
+    }
+
+    public void release( IEntryContent content )
+    {
+        // Do nothing, the array is collected with the content
+    }
+
+    public void dispose()
+    {
+        // Do nothing
+    }
+
+    private static class HeapEntryContent
+        implements IEntryContent
+    {
+
+        private final byte[] data;
+
+        public HeapEntryContent( byte[] data )
+        {
+            this.data = data;
+        }
+
+        public int getSize()
+        {
+            return data.length;
+        }
+
+        public InputStream getInputStream()
+        {
+            return new ByteArrayInputStream( data );
+        }
+
+        public void writeTo( OutputStream out )
+            throws IOException
+        {
+            out.write( data );
+        }
+
+        public byte[] toByteArray()
+        {
+            return data;
+        }
+    }
+}
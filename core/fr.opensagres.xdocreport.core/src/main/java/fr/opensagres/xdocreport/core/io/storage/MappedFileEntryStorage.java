@@ -0,0 +1,280 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.io.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import fr.opensagres.xdocreport.core.io.IEntryContent;
+import fr.opensagres.xdocreport.core.io.IEntryStorage;
+
+/**
+ * {@link IEntryStorage} which appends the entry contents to a temporary spill file and reads them with
+ * {@link MappedByteBuffer}. The pages are managed by the operating system (and can be swapped out) instead of the
+ * Java heap.
+ * <p>
+ * The spill file is shared by all the entries of the storage. It is mapped by segments of 4MB : the small entries are
+ * written one after the other in the current segment and each content keeps its offset and its length in the segment
+ * (an entry bigger than a segment gets its own mapped region at the end of the file). The space of the released
+ * entries is not reused : the spill file is closed when all the stored entries are released and a new file is
+ * created by the next {@link #store(String, byte[], int)}.
+ * </p>
+ * <p>
+ * The spill file is deleted as soon as it is created (the mappings stay valid until the buffers are collected). When
+ * the platform doesn't allow it (Windows), the storage deletes the file when it is closed, or at each
+ * {@link #release(IEntryContent)} and {@link #dispose()} call, which succeeds once the buffers are collected.
+ * </p>
+ */
+public class MappedFileEntryStorage
+    implements IEntryStorage
+{
+
+    private static final String FILE_PREFIX = "xdocreport-entries";
+
+    private static final int SEGMENT_SIZE = 4 * 1024 * 1024;
+
+    private static final MappedFileEntryStorage INSTANCE = new MappedFileEntryStorage( null );
+
+    private final File directory;
+
+    // spill files which could not be deleted while they were mapped
+    private final List<File> undeletedFiles;
+
+    // current spill file (null if no entry is stored)
+    private File file;
+
+    private FileChannel channel;
+
+    // number of bytes of the spill file which are mapped
+    private long mappedLength;
+
+    // mapped region of the spill file where the next entries are written
+    private ByteBuffer segment;
+
+    // number of stored entries which are not released
+    private int storedEntries;
+
+    /**
+     * Create a storage which writes its spill file in the given directory.
+     * 
+     * @param directory the directory, or null for the default temporary directory.
+     */
+    public MappedFileEntryStorage( File directory )
+    {
+        this.directory = directory;
+        this.undeletedFiles = new ArrayList<File>();
+    }
+
+    /**
+     * Returns the storage which writes its spill file in the default temporary directory.
+     * 
+     * @return
+     */
+    public static MappedFileEntryStorage getInstance()
+    {
+        return INSTANCE;
+    }
+
+    public IEntryContent store( String entryName, byte[] data, int length )
+        throws IOException
+    {
+        if ( length == 0 )
+        {
+            // a region of zero byte cannot be mapped on every platform
+            return new ByteBufferEntryContent( ByteBuffer.allocate( 0 ).asReadOnlyBuffer() );
+        }
+        // the region is reserved for this entry, it can be written without lock
+        ByteBuffer region = allocate( length );
+        region.put( data, 0, length );
+        region.flip();
+        return new SpilledEntryContent( region.asReadOnlyBuffer(), this );
+    }
+
+    public void release( IEntryContent content )
+    {
+        // the mapping is released when all the buffers of its entries are collected
+        if ( content instanceof SpilledEntryContent && ( (SpilledEntryContent) content ).storage == this
+            && ( (SpilledEntryContent) content ).release() )
+        {
+            entryReleased();
+        }
+        else if ( content instanceof ByteBufferEntryContent )
+        {
+            ( (ByteBufferEntryContent) content ).release();
+        }
+        deleteUndeletedFiles();
+    }
+
+    public void dispose()
+    {
+        deleteUndeletedFiles();
+    }
+
+    /**
+     * Returns the number of bytes mapped in the current spill file (0 if all the stored entries are released).
+     * 
+     * @return the number of mapped bytes.
+     */
+    public synchronized long getMappedLength()
+    {
+        return mappedLength;
+    }
+
+    /**
+     * Returns the number of spill files which could not be deleted yet.
+     * 
+     * @return the number of spill files which are not deleted.
+     */
+    public int getUndeletedFilesCount()
+    {
+        synchronized ( undeletedFiles )
+        {
+            return undeletedFiles.size();
+        }
+    }
+
+    /**
+     * Returns a region of the spill file of the given length.
+     */
+    private synchronized ByteBuffer allocate( int length )
+        throws IOException
+    {
+        if ( channel == null )
+        {
+            openFile();
+        }
+        ByteBuffer region;
+        if ( length > SEGMENT_SIZE )
+        {
+            region = map( length );
+        }
+        else
+        {
+            if ( segment == null || segment.remaining() < length )
+            {
+                segment = map( SEGMENT_SIZE );
+            }
+            region = segment.slice();
+            region.limit( length );
+            segment.position( segment.position() + length );
+        }
+        storedEntries++;
+        return region;
+    }
+
+    private ByteBuffer map( int length )
+        throws IOException
+    {
+        MappedByteBuffer buffer = channel.map( FileChannel.MapMode.READ_WRITE, mappedLength, length );
+        mappedLength += length;
+        return buffer;
+    }
+
+    private void openFile()
+        throws IOException
+    {
+        File newFile = File.createTempFile( FILE_PREFIX, null, directory );
+        try
+        {
+            channel = new RandomAccessFile( newFile, "rw" ).getChannel();
+        }
+        catch ( IOException e )
+        {
+            newFile.delete();
+            throw e;
+        }
+        // the channel and the mappings stay valid when the file is deleted
+        newFile.delete();
+        file = newFile;
+        mappedLength = 0;
+    }
+
+    private synchronized void entryReleased()
+    {
+        storedEntries--;
+        if ( storedEntries == 0 && channel != null )
+        {
+            // the file is no longer read, the next entries are written in a new file
+            try
+            {
+                channel.close();
+            }
+            catch ( IOException e )
+            {
+                // the mappings are released when their buffers are collected
+            }
+            if ( file.exists() && !file.delete() )
+            {
+                synchronized ( undeletedFiles )
+                {
+                    undeletedFiles.add( file );
+                }
+            }
+            file = null;
+            channel = null;
+            segment = null;
+            mappedLength = 0;
+        }
+    }
+
+    private void deleteUndeletedFiles()
+    {
+        synchronized ( undeletedFiles )
+        {
+            for ( Iterator<File> it = undeletedFiles.iterator(); it.hasNext(); )
+            {
+                File file = it.next();
+                if ( file.delete() || !file.exists() )
+                {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Content of an entry written in the spill file of a storage.
+     */
+    private static class SpilledEntryContent
+        extends ByteBufferEntryContent
+    {
+
+        private final MappedFileEntryStorage storage;
+
+        public SpilledEntryContent( ByteBuffer buffer, MappedFileEntryStorage storage )
+        {
+            super( buffer );
+            this.storage = storage;
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.io.storage;
+
+import java.io.IOException;
+
+import fr.opensagres.xdocreport.core.io.IEntryContent;
+import fr.opensagres.xdocreport.core.io.IEntryStorage;
+
+/**
+ * {@link IEntryStorage} which stores the entries smaller than a threshold with a storage (ex : heap) and the others
+ * with another storage (ex : memory-mapped file).
+ */
+public class SizeThresholdEntryStorage
+    implements IEntryStorage
+{
+
+    private final int threshold;
+
+    private final IEntryStorage smallEntryStorage;
+
+    private final IEntryStorage largeEntryStorage;
+
+    /**
+     * Create the storage.
+     * 
+     * @param threshold the size in bytes from which an entry is stored with the large entry storage.
+     * @param smallEntryStorage the storage of the entries smaller than the threshold.
+     * @param largeEntryStorage the storage of the entries larger than or equal to the threshold.
+     */
+    public SizeThresholdEntryStorage( int threshold, IEntryStorage smallEntryStorage, IEntryStorage largeEntryStorage )
+    {
+        this.threshold = threshold;
+        this.smallEntryStorage = smallEntryStorage;
+        this.largeEntryStorage = largeEntryStorage;
+    }
+
+    public IEntryContent store( String entryName, byte[] data, int length )
+        throws IOException
+    {
+        if ( length < threshold )
+        {
+            return smallEntryStorage.store( entryName, data, length );
+        }
+        return largeEntryStorage.store( entryName, data, length );
+    }
+
+    public void release( IEntryContent content )
+    {
+        if ( content.getSize() < threshold )
+        {
+            smallEntryStorage.release( content );
+        }
+        else
+        {
+            largeEntryStorage.release( content );
+        }
+    }
+
+    public void dispose()
+    {
+        smallEntryStorage.dispose();
+        largeEntryStorage.dispose();
+    }
+
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.pool;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * {@link IPooledObjectFactory} for the temporary {@link ByteArrayOutputStream} used by converters (ex : PDF converters
+ * which render the document in memory before knowing the total page count). Buffers which have grown beyond
+ * <code>maxRetainedSize</code> are discarded to avoid keeping large arrays alive in the pool (the array of a retained
+ * buffer is at most twice this size).
+ */
+public class ByteArrayOutputStreamFactory
+    implements IPooledObjectFactory<ByteArrayOutputStream>
+{
+
+    public static final int DEFAULT_INITIAL_SIZE = 32 * 1024;
+
+    public static final int DEFAULT_MAX_RETAINED_SIZE = 512 * 1024;
+
+    /**
+     * Default number of idle buffers kept by the pools created with {@link #createPool()}.
+     */
+    public static final int DEFAULT_MAX_IDLE = 2;
+
+    private final int initialSize;
+
+    private final int maxRetainedSize;
+
+    public ByteArrayOutputStreamFactory()
+    {
+        this( DEFAULT_INITIAL_SIZE, DEFAULT_MAX_RETAINED_SIZE );
+    }
+
+    public ByteArrayOutputStreamFactory( int initialSize, int maxRetainedSize )
+    {
+        this.initialSize = initialSize;
+        this.maxRetainedSize = maxRetainedSize;
+    }
+
+    /**
+     * Create a pool of buffers with the default sizes which keeps at most {@link #DEFAULT_MAX_IDLE} idle buffers, so a
+     * pool retains at most 2MB.
+     * 
+     * @return
+     */
+    public static IObjectPool<ByteArrayOutputStream> createPool()
+    {
+        return new ObjectPool<ByteArrayOutputStream>( new ByteArrayOutputStreamFactory(), DEFAULT_MAX_IDLE );
+    }
+
+    public ByteArrayOutputStream create()
+    {
+        return new ByteArrayOutputStream( initialSize );
+    }
+
+    public boolean passivate( ByteArrayOutputStream instance )
+    {
+        if ( instance.size() > maxRetainedSize )
+        {
+            return false;
+        }
+        instance.reset();
+        return true;
+    }
+}
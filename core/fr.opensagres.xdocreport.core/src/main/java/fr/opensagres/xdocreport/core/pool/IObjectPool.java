@@ -0,0 +1,61 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.pool;
+
+/**
+ * Pool of expensive objects (buffers, font providers, color registries, style engines...) shared between concurrent
+ * conversions. Implementations must be thread-safe.
+ *
+ * @param <T> the pooled object type.
+ */
+public interface IObjectPool<T>
+{
+
+    /**
+     * Returns an idle instance of the pool or a new instance if the pool is empty.
+     *
+     * @return an instance which is owned by the caller until {@link #release(Object)} is called.
+     */
+    T borrow();
+
+    /**
+     * Returns the given instance to the pool. The instance must not be used by the caller after this call.
+     *
+     * @param instance the instance to release.
+     */
+    void release( T instance );
+
+    /**
+     * Returns the number of idle instances.
+     *
+     * @return the number of idle instances.
+     */
+    int getIdleCount();
+
+    /**
+     * Remove all idle instances of the pool.
+     */
+    void clear();
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.pool;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Default lock-free {@link IObjectPool} implementation which keeps at most <code>maxIdle</code> idle instances. When
+ * the pool is empty, a new instance is created, so {@link #borrow()} never blocks.
+ *
+ * @param <T> the pooled object type.
+ */
+public class ObjectPool<T>
+    implements IObjectPool<T>
+{
+
+    public static final int DEFAULT_MAX_IDLE = 8;
+
+    private final IPooledObjectFactory<T> factory;
+
+    private final int maxIdle;
+
+    private final Queue<T> idle;
+
+    private final AtomicInteger idleCount;
+
+    public ObjectPool( IPooledObjectFactory<T> factory )
+    {
+        this( factory, DEFAULT_MAX_IDLE );
+    }
+
+    public ObjectPool( IPooledObjectFactory<T> factory, int maxIdle )
+    {
+        if ( factory == null )
+        {
+            throw new IllegalArgumentException( "Pooled object factory cannot be null." );
+        }
+        this.factory = factory;
+        this.maxIdle = maxIdle;
+        this.idle = new ConcurrentLinkedQueue<T>();
+        this.idleCount = new AtomicInteger();
+    }
+
+    public T borrow()
+    {
+        T instance = idle.poll();
+        if ( instance == null )
+        {
+            return factory.create();
+        }
+        idleCount.decrementAndGet();
+        return instance;
+    }
+
+    public void release( T instance )
+    {
+        if ( instance == null || !factory.passivate( instance ) )
+        {
+            return;
+        }
+        // reserve a slot before adding the instance to respect maxIdle without lock.
+        if ( idleCount.incrementAndGet() > maxIdle )
+        {
+            idleCount.decrementAndGet();
+            return;
+        }
+        idle.offer( instance );
+    }
+
+    public int getIdleCount()
+    {
+        return idleCount.get();
+    }
+
+    public void clear()
+    {
+        while ( idle.poll() != null )
+        {
+            idleCount.decrementAndGet();
+        }
+    }
+
+    public int getMaxIdle()
+    {
+        return maxIdle;
+    }
+}
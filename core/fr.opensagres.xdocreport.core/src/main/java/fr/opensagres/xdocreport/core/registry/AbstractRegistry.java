@@ -29,7 +29,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import fr.opensagres.xdocreport.core.discovery.IBaseDiscovery;
-import fr.opensagres.xdocreport.core.internal.JDKServiceLoader;
+import fr.opensagres.xdocreport.core.internal.DiscoveryIndex;
 import fr.opensagres.xdocreport.core.logging.LogUtils;
 
 public abstract class AbstractRegistry<Discovery extends IBaseDiscovery>
@@ -40,7 +40,8 @@ public abstract class AbstractRegistry<Discovery extends IBaseDiscovery>
      */
     private static final Logger LOGGER = LogUtils.getLogger( AbstractRegistry.class.getName() );
 
-    private boolean initialized;
+    // volatile : the registries are shared by the threads which process reports, the initialization is done once.
+    private volatile boolean initialized;
 
     private final Class<Discovery> registryType;
 
@@ -58,35 +59,45 @@ public abstract class AbstractRegistry<Discovery extends IBaseDiscovery>
     {
         if ( !initialized )
         {
-            onStartInitialization();
-            // getClass().getClassLoader() to work under OSGi context
-
-            Iterator<Discovery> discoveries =
-                JDKServiceLoader.lookupProviders( registryType, getClass().getClassLoader() );
-            if ( LOGGER.isLoggable( Level.FINE ) )
+            synchronized ( this )
             {
-                LOGGER.fine( "discoveries found ? " + discoveries.hasNext() );
+                if ( !initialized )
+                {
+                    doInitialize();
+                }
             }
+        }
+    }
+
+    private void doInitialize()
+    {
+        onStartInitialization();
+        // getClass().getClassLoader() to work under OSGi context
+        // the build-time discovery index is read once, the META-INF/services are scanned only if the index is absent.
+        Iterator<Discovery> discoveries = DiscoveryIndex.lookupProviders( registryType, getClass().getClassLoader() );
+        if ( LOGGER.isLoggable( Level.FINE ) )
+        {
+            LOGGER.fine( "discoveries found ? " + discoveries.hasNext() );
+        }
 
-            while ( discoveries.hasNext() )
+        while ( discoveries.hasNext() )
+        {
+            Discovery instance = discoveries.next();
+            try
             {
-                Discovery instance = discoveries.next();
-                try
+                boolean result = registerInstance( instance );
+                if ( LOGGER.isLoggable( Level.FINE ) )
                 {
-                    boolean result = registerInstance( instance );
-                    if ( LOGGER.isLoggable( Level.FINE ) )
-                    {
-                        LOGGER.fine( "Registered Discovery instance  " + instance + " " + result );
-                    }
-                }
-                catch ( Throwable e )
-                {
-                    LOGGER.log( Level.WARNING, "Error while registration of Discovery instance  " + instance, e );
+                    LOGGER.fine( "Registered Discovery instance  " + instance + " " + result );
                 }
             }
-            onEndInitialization();
-            initialized = true;
+            catch ( Throwable e )
+            {
+                LOGGER.log( Level.WARNING, "Error while registration of Discovery instance  " + instance, e );
+            }
         }
+        onEndInitialization();
+        initialized = true;
     }
 
     /**
@@ -116,7 +127,7 @@ public abstract class AbstractRegistry<Discovery extends IBaseDiscovery>
     /**
      * Dispose the registry.
      */
-    public final void dispose()
+    public final synchronized void dispose()
     {
         doDispose();
         this.initialized = false;
@@ -74,6 +74,14 @@ public final class Base64Utility
 
     private static final int PAD_SIZE8 = 3;
 
+    /**
+     * Number of base64 characters written at once by the streaming encode methods.
+     */
+    public static final int STREAM_CHUNK_SIZE = 4096;
+
+    // number of bytes encoded into a full chunk of base64 characters
+    private static final int STREAM_CHUNK_BYTES = STREAM_CHUNK_SIZE / 4 * 3;
+
     // class static intializer for building decode table
     static
     {
@@ -323,8 +331,122 @@ public final class Base64Utility
         }
     }
 
+    /**
+     * Writes the base64 representation of the given byte array to the given writer. The data is encoded by chunks of
+     * {@link #STREAM_CHUNK_SIZE} characters, so that the encoded content is never materialized as one String.
+     *
+     * @param id the data to encode.
+     * @param writer the writer where base64 characters must be written.
+     * @throws IOException
+     */
+    public static void encode( byte[] id, Writer writer )
+        throws IOException
+    {
+        char[] buffer = new char[STREAM_CHUNK_SIZE];
+        int offset = 0;
+        while ( offset < id.length )
+        {
+            int length = Math.min( STREAM_CHUNK_BYTES, id.length - offset );
+            int count = encodeBlock( id, offset, length, buffer );
+            writer.write( buffer, 0, count );
+            offset += length;
+        }
+    }
+
+    /**
+     * Writes the base64 representation of the given byte array to the given output stream (base64 characters are
+     * written as ASCII bytes). The data is encoded by chunks of {@link #STREAM_CHUNK_SIZE} characters.
+     *
+     * @param id the data to encode.
+     * @param out the output stream where base64 characters must be written.
+     * @throws IOException
+     */
+    public static void encode( byte[] id, OutputStream out )
+        throws IOException
+    {
+        char[] buffer = new char[STREAM_CHUNK_SIZE];
+        byte[] bytes = new byte[STREAM_CHUNK_SIZE];
+        int offset = 0;
+        while ( offset < id.length )
+        {
+            int length = Math.min( STREAM_CHUNK_BYTES, id.length - offset );
+            int count = encodeBlock( id, offset, length, buffer );
+            for ( int i = 0; i < count; i++ )
+            {
+                bytes[i] = (byte) buffer[i];
+            }
+            out.write( bytes, 0, count );
+            offset += length;
+        }
+    }
+
+    /**
+     * Appends the base64 representation of the given byte array to the given buffer without building an intermediate
+     * String.
+     *
+     * @param id the data to encode.
+     * @param buffer the buffer where base64 characters must be appended.
+     */
+    public static void encode( byte[] id, StringBuilder buffer )
+    {
+        buffer.ensureCapacity( buffer.length() + ( ( id.length + 2 ) / 3 ) * 4 );
+        char[] chunk = new char[STREAM_CHUNK_SIZE];
+        int offset = 0;
+        while ( offset < id.length )
+        {
+            int length = Math.min( STREAM_CHUNK_BYTES, id.length - offset );
+            int count = encodeBlock( id, offset, length, chunk );
+            buffer.append( chunk, 0, count );
+            offset += length;
+        }
+    }
+
     // ---- Private static methods --------------------------------------
 
+    /**
+     * Encodes <code>length</code> bytes of <code>id</code> starting at <code>offset</code> into the given char buffer.
+     * The buffer must be large enough to hold the encoded block (padding is written only if the block length is not a
+     * multiple of 3, so only the last block of a stream can be padded).
+     *
+     * @return the number of characters written in the buffer.
+     */
+    private static int encodeBlock( byte[] id, int offset, int length, char[] out )
+    {
+        int rindex = offset;
+        int windex = 0;
+        int rest = length;
+
+        while ( rest >= 3 )
+        {
+            int i = ( ( id[rindex] & 0xff ) << 16 ) + ( ( id[rindex + 1] & 0xff ) << 8 ) + ( id[rindex + 2] & 0xff );
+
+            out[windex++] = BCS[i >> 18];
+            out[windex++] = BCS[( i >> 12 ) & 0x3f];
+            out[windex++] = BCS[( i >> 6 ) & 0x3f];
+            out[windex++] = BCS[i & 0x3f];
+            rindex += 3;
+            rest -= 3;
+        }
+
+        if ( rest == 1 )
+        {
+            int i = id[rindex] & 0xff;
+            out[windex++] = BCS[i >> 2];
+            out[windex++] = BCS[( i << 4 ) & 0x3f];
+            out[windex++] = PAD;
+            out[windex++] = PAD;
+        }
+        else if ( rest == 2 )
+        {
+            int i = ( ( id[rindex] & 0xff ) << 8 ) + ( id[rindex + 1] & 0xff );
+            out[windex++] = BCS[i >> 10];
+            out[windex++] = BCS[( i >> 4 ) & 0x3f];
+            out[windex++] = BCS[( i << 2 ) & 0x3f];
+            out[windex++] = PAD;
+        }
+        return windex;
+    }
+
     /**
      * The <code>process</code> routine processes an atomic base64 unit of encoding (encodeme) into its native encoding.
      * This class is used by decode routines to do the grunt work of decoding base64 encoded information
@@ -52,6 +52,15 @@ public class HttpHeaderUtils
 
     public static final String ATTACHMENT_FILENAME_END = "\"";
 
+    // Conditional request HTTP Headers
+    public static final String ETAG = "ETag";
+
+    public static final String LAST_MODIFIED = "Last-Modified";
+
+    public static final String IF_NONE_MATCH = "If-None-Match";
+
+    public static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+
     /**
      * Return the header attachment for the given filename.
      * 
@@ -65,4 +74,48 @@ public class HttpHeaderUtils
         attachment.append( ATTACHMENT_FILENAME_END );
         return attachment.toString();
     }
+
+    /**
+     * Returns the quoted entity tag for the given value.
+     * 
+     * @param value
+     * @return
+     */
+    public static String getETag( String value )
+    {
+        return "\"" + value + "\"";
+    }
+
+    /**
+     * Returns true if the client has already the content with the given entity tag and last modification time
+     * according the values of the If-None-Match and If-Modified-Since request headers.
+     * 
+     * @param ifNoneMatch the If-None-Match header value or null.
+     * @param ifModifiedSince the If-Modified-Since header value in milliseconds or -1.
+     * @param etag the quoted entity tag of the content.
+     * @param lastModified the last modification time of the content in milliseconds.
+     * @return true if a "304 Not Modified" response can be sent.
+     */
+    public static boolean isNotModified( String ifNoneMatch, long ifModifiedSince, String etag, long lastModified )
+    {
+        if ( ifNoneMatch != null )
+        {
+            // If-None-Match has precedence over If-Modified-Since
+            for ( String tag : ifNoneMatch.split( "," ) )
+            {
+                tag = tag.trim();
+                if ( tag.startsWith( "W/" ) )
+                {
+                    tag = tag.substring( 2 );
+                }
+                if ( "*".equals( tag ) || tag.equals( etag ) )
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+        // HTTP dates have a precision of one second.
+        return ifModifiedSince != -1 && lastModified / 1000 <= ifModifiedSince / 1000;
+    }
 }
@@ -0,0 +1,211 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import fr.opensagres.xdocreport.core.discovery.IBaseDiscovery;
+
+/**
+ * Test case for {@link DiscoveryIndex}.
+ */
+public class DiscoveryIndexTestCase
+    extends TestCase
+{
+
+    public interface ITestDiscovery
+        extends IBaseDiscovery
+    {
+
+    }
+
+    public interface IOtherDiscovery
+        extends IBaseDiscovery
+    {
+
+    }
+
+    public static class TestDiscovery
+        implements ITestDiscovery
+    {
+
+        public String getId()
+        {
+            return "test";
+        }
+
+        public String getDescription()
+        {
+            return "Test discovery";
+        }
+    }
+
+    public static class OtherTestDiscovery
+        implements ITestDiscovery
+    {
+
+        public String getId()
+        {
+            return "other";
+        }
+
+        public String getDescription()
+        {
+            return "Test discovery declared without index";
+        }
+    }
+
+    public void testParse()
+        throws IOException
+    {
+        String index =
+            "# comment\n" + "a.IX=a.X1\n" + "a.IY = a.Y\n" + "a.IX=a.X2 # comment\n" + "a.IX=a.X1\n" + "invalid\n"
+                + "a.IZ=\n";
+        Map<String, List<String>> implementations = new LinkedHashMap<String, List<String>>();
+        DiscoveryIndex.parse( new ByteArrayInputStream( index.getBytes( "UTF-8" ) ), implementations );
+        assertEquals( 2, implementations.size() );
+        assertEquals( 2, implementations.get( "a.IX" ).size() );
+        assertEquals( "a.X1", implementations.get( "a.IX" ).get( 0 ) );
+        assertEquals( "a.X2", implementations.get( "a.IX" ).get( 1 ) );
+        assertEquals( "a.Y", implementations.get( "a.IY" ).get( 0 ) );
+    }
+
+    public void testLookupFromIndex()
+        throws IOException
+    {
+        ClassLoader loader =
+            createClassLoader( ITestDiscovery.class.getName() + "=" + TestDiscovery.class.getName() + "\n"
+                + ITestDiscovery.class.getName() + "=unknown.Discovery\n" );
+        DiscoveryIndex index = DiscoveryIndex.getIndex( loader );
+        assertSame( index, DiscoveryIndex.getIndex( loader ) );
+        assertEquals( 2, index.getImplementations( ITestDiscovery.class.getName() ).size() );
+
+        // the unknown class is ignored
+        Iterator<ITestDiscovery> discoveries = DiscoveryIndex.lookupProviders( ITestDiscovery.class, loader );
+        assertTrue( discoveries.hasNext() );
+        assertEquals( "test", discoveries.next().getId() );
+        assertFalse( discoveries.hasNext() );
+    }
+
+    public void testFallbackToServiceLoader()
+        throws IOException
+    {
+        ClassLoader loader =
+            createClassLoader( ITestDiscovery.class.getName() + "=" + TestDiscovery.class.getName() + "\n" );
+        assertNull( DiscoveryIndex.getIndex( loader ).getImplementations( IOtherDiscovery.class.getName() ) );
+        // no META-INF/services for this type
+        assertFalse( DiscoveryIndex.lookupProviders( IOtherDiscovery.class, loader ).hasNext() );
+    }
+
+    public void testMergeServicesWithoutIndex()
+        throws IOException
+    {
+        String servicesResource = "META-INF/services/" + ITestDiscovery.class.getName();
+        // jar with an index and the services file which was used to generate it
+        URL indexed =
+            createFolder( DiscoveryIndex.INDEX_RESOURCE, ITestDiscovery.class.getName() + "="
+                + TestDiscovery.class.getName() + "\n", servicesResource, TestDiscovery.class.getName() + "\n" );
+        // jar built without the processor
+        URL notIndexed = createFolder( servicesResource, "# comment\n" + OtherTestDiscovery.class.getName() + "\n" );
+        ClassLoader loader = new URLClassLoader( new URL[] { indexed, notIndexed }, getClass().getClassLoader() );
+
+        List<String> classNames =
+            DiscoveryIndex.getIndex( loader ).getMergedImplementations( ITestDiscovery.class.getName(), loader );
+        assertEquals( 2, classNames.size() );
+        assertEquals( TestDiscovery.class.getName(), classNames.get( 0 ) );
+        assertEquals( OtherTestDiscovery.class.getName(), classNames.get( 1 ) );
+        assertSame( classNames,
+                    DiscoveryIndex.getIndex( loader ).getMergedImplementations( ITestDiscovery.class.getName(), loader ) );
+
+        Iterator<ITestDiscovery> discoveries = DiscoveryIndex.lookupProviders( ITestDiscovery.class, loader );
+        assertEquals( "test", discoveries.next().getId() );
+        assertEquals( "other", discoveries.next().getId() );
+        assertFalse( discoveries.hasNext() );
+    }
+
+    public void testDisabledIndex()
+        throws IOException
+    {
+        ClassLoader loader =
+            createClassLoader( ITestDiscovery.class.getName() + "=" + TestDiscovery.class.getName() + "\n" );
+        System.setProperty( DiscoveryIndex.INDEX_ENABLED_PROPERTY, "false" );
+        try
+        {
+            assertFalse( DiscoveryIndex.lookupProviders( ITestDiscovery.class, loader ).hasNext() );
+        }
+        finally
+        {
+            System.clearProperty( DiscoveryIndex.INDEX_ENABLED_PROPERTY );
+        }
+    }
+
+    private ClassLoader createClassLoader( String index )
+        throws IOException
+    {
+        return new URLClassLoader( new URL[] { createFolder( DiscoveryIndex.INDEX_RESOURCE, index ) },
+                                   getClass().getClassLoader() );
+    }
+
+    /**
+     * Create a temporary folder with the given resources (pairs of resource name and content).
+     */
+    private URL createFolder( String... resources )
+        throws IOException
+    {
+        File dir = File.createTempFile( "xdocreport-index", "" );
+        dir.delete();
+        // files are deleted on exit in the reverse order of the registration.
+        dir.deleteOnExit();
+        for ( int i = 0; i < resources.length; i += 2 )
+        {
+            File file = new File( dir, resources[i] );
+            file.getParentFile().mkdirs();
+            file.getParentFile().getParentFile().deleteOnExit();
+            file.getParentFile().deleteOnExit();
+            file.deleteOnExit();
+            OutputStream out = new FileOutputStream( file );
+            try
+            {
+                out.write( resources[i + 1].getBytes( "UTF-8" ) );
+            }
+            finally
+            {
+                out.close();
+            }
+        }
+        return dir.toURI().toURL();
+    }
+}
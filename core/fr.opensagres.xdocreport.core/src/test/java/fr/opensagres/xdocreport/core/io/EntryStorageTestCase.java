@@ -0,0 +1,248 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import junit.framework.TestCase;
+import fr.opensagres.xdocreport.core.io.storage.ByteBufferEntryStorage;
+import fr.opensagres.xdocreport.core.io.storage.HeapEntryStorage;
+import fr.opensagres.xdocreport.core.io.storage.MappedFileEntryStorage;
+import fr.opensagres.xdocreport.core.io.storage.SizeThresholdEntryStorage;
+
+/**
+ * Test case for the {@link IEntryStorage} implementations used by {@link XDocArchive}.
+ */
+public class EntryStorageTestCase
+    extends TestCase
+{
+
+    public void testHeap()
+        throws IOException
+    {
+        checkStorage( HeapEntryStorage.getInstance() );
+    }
+
+    public void testByteBuffer()
+        throws IOException
+    {
+        checkStorage( ByteBufferEntryStorage.getInstance() );
+    }
+
+    public void testMappedFile()
+        throws IOException
+    {
+        checkStorage( MappedFileEntryStorage.getInstance() );
+    }
+
+    public void testSizeThreshold()
+        throws IOException
+    {
+        IEntryStorage storage =
+            new SizeThresholdEntryStorage( 100, HeapEntryStorage.getInstance(), ByteBufferEntryStorage.getInstance() );
+        checkStorage( storage );
+        assertTrue( storage.store( "a", new byte[99], 99 ).toByteArray().length == 99 );
+    }
+
+    public void testStoreCopiesData()
+        throws IOException
+    {
+        byte[] data = new byte[] { 1, 2, 3 };
+        IEntryContent content = ByteBufferEntryStorage.getInstance().store( "a", data, 2 );
+        data[0] = 5;
+        assertTrue( Arrays.equals( new byte[] { 1, 2 }, content.toByteArray() ) );
+        assertEquals( 2, content.getSize() );
+    }
+
+    public void testRelease()
+        throws IOException
+    {
+        MappedFileEntryStorage storage = new MappedFileEntryStorage( null );
+        IEntryContent content = storage.store( "a", new byte[] { 1, 2, 3 }, 3 );
+        assertEquals( 3, content.toByteArray().length );
+        storage.release( content );
+        assertEquals( 3, content.getSize() );
+        try
+        {
+            content.getInputStream();
+            fail( "A released content cannot be read." );
+        }
+        catch ( IllegalStateException e )
+        {
+            // expected
+        }
+        storage.dispose();
+        assertEquals( 0, storage.getUndeletedFilesCount() );
+    }
+
+    public void testMappedFileSharedBySeveralEntries()
+        throws IOException
+    {
+        MappedFileEntryStorage storage = new MappedFileEntryStorage( null );
+        List<IEntryContent> contents = new ArrayList<IEntryContent>();
+        for ( int i = 0; i < 100; i++ )
+        {
+            byte[] data = new byte[1000];
+            Arrays.fill( data, (byte) i );
+            contents.add( storage.store( "entry" + i, data, data.length ) );
+        }
+        // the small entries are written in the same mapped segment
+        assertEquals( 4 * 1024 * 1024, storage.getMappedLength() );
+        for ( int i = 0; i < 100; i++ )
+        {
+            byte[] data = contents.get( i ).toByteArray();
+            assertEquals( 1000, data.length );
+            assertEquals( (byte) i, data[0] );
+            assertEquals( (byte) i, data[999] );
+        }
+        // a big entry has its own region
+        IEntryContent big = storage.store( "big", new byte[5 * 1024 * 1024], 5 * 1024 * 1024 );
+        assertEquals( 9 * 1024 * 1024, storage.getMappedLength() );
+        assertEquals( 5 * 1024 * 1024, big.toByteArray().length );
+
+        storage.release( big );
+        // released twice, counted once
+        storage.release( big );
+        for ( int i = 0; i < 99; i++ )
+        {
+            storage.release( contents.get( i ) );
+        }
+        assertEquals( 9 * 1024 * 1024, storage.getMappedLength() );
+        assertEquals( 1000, contents.get( 99 ).toByteArray().length );
+        // the spill file is closed when all the entries are released
+        storage.release( contents.get( 99 ) );
+        assertEquals( 0, storage.getMappedLength() );
+
+        IEntryContent content = storage.store( "a", new byte[] { 1, 2, 3 }, 3 );
+        assertTrue( Arrays.equals( new byte[] { 1, 2, 3 }, content.toByteArray() ) );
+        assertEquals( 4 * 1024 * 1024, storage.getMappedLength() );
+        storage.release( content );
+        storage.dispose();
+        assertEquals( 0, storage.getUndeletedFilesCount() );
+    }
+
+    public void testReleaseEntries()
+        throws IOException
+    {
+        final List<IEntryContent> released = new ArrayList<IEntryContent>();
+        IEntryStorage storage = new IEntryStorage()
+        {
+            public IEntryContent store( String entryName, byte[] data, int length )
+                throws IOException
+            {
+                return ByteBufferEntryStorage.getInstance().store( entryName, data, length );
+            }
+
+            public void release( IEntryContent content )
+            {
+                released.add( content );
+            }
+
+            public void dispose()
+            {
+            }
+        };
+        XDocArchive archive = new XDocArchive( false, storage );
+        Writer writer = archive.getEntryWriter( "content.xml" );
+        writer.write( "<p>content</p>" );
+        writer.close();
+        archive.getEntryOutputStream( "styles.xml" ).close();
+        XDocArchive copy = archive.createCopy( storage );
+        writer = copy.getEntryWriter( "content.xml" );
+        writer.write( "<p>modified</p>" );
+        writer.close();
+
+        // the contents shared by the archive and its copy are released once
+        XDocArchive.releaseEntries( archive, copy, null );
+        assertEquals( 3, released.size() );
+        assertEquals( 3, new HashSet<IEntryContent>( released ).size() );
+    }
+
+    private void checkStorage( IEntryStorage storage )
+        throws IOException
+    {
+        // create a zip
+        XDocArchive source = new XDocArchive();
+        Writer writer = source.getEntryWriter( "content.xml" );
+        StringBuilder content = new StringBuilder();
+        for ( int i = 0; i < 1000; i++ )
+        {
+            content.append( "<p>été " ).append( i ).append( "</p>" );
+        }
+        writer.write( content.toString() );
+        writer.close();
+        source.getEntryOutputStream( "empty.xml" ).close();
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        XDocArchive.writeZip( source, zip );
+
+        // read it with the storage
+        XDocArchive archive = XDocArchive.readZip( new ByteArrayInputStream( zip.toByteArray() ), storage );
+        assertSame( storage, archive.getEntryStorage() );
+        assertEquals( content.toString(), IOUtils.toString( archive.getEntryReader( "content.xml" ) ) );
+        assertEquals( 0, IOUtils.toByteArray( archive.getEntryInputStream( "empty.xml" ) ).length );
+        assertTrue( archive.getLastModifiedEntry( "content.xml" ) > 0 );
+
+        // several streams can read the same entry
+        InputStream in1 = archive.getEntryInputStream( "content.xml" );
+        InputStream in2 = archive.getEntryInputStream( "content.xml" );
+        assertEquals( in1.read(), in2.read() );
+        assertEquals( 10, in1.skip( 10 ) );
+        assertTrue( in1.available() == in2.available() - 10 );
+
+        // modify an entry
+        Writer entryWriter = archive.getEntryWriter( "content.xml" );
+        entryWriter.write( "<p>modified</p>" );
+        entryWriter.close();
+        Reader reader = archive.getEntryReader( "content.xml" );
+        assertEquals( "<p>modified</p>", IOUtils.toString( reader ) );
+
+        // copy to the heap and to the storage
+        XDocArchive heapCopy = archive.createCopy();
+        assertSame( HeapEntryStorage.getInstance(), heapCopy.getEntryStorage() );
+        assertEquals( "<p>modified</p>", IOUtils.toString( heapCopy.getEntryReader( "content.xml" ) ) );
+        XDocArchive storageCopy = archive.createCopy( storage );
+        assertSame( storage, storageCopy.getEntryStorage() );
+        assertEquals( archive.getLastModifiedEntry( "content.xml" ), storageCopy.getLastModifiedEntry( "content.xml" ) );
+
+        // write entry and zip
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XDocArchive.writeEntry( storageCopy, "content.xml", out );
+        assertEquals( "<p>modified</p>", new String( out.toByteArray(), "UTF-8" ) );
+        out = new ByteArrayOutputStream();
+        XDocArchive.writeZip( storageCopy, out );
+        XDocArchive result = XDocArchive.readZip( new ByteArrayInputStream( out.toByteArray() ) );
+        assertEquals( storageCopy.getEntryNames(), result.getEntryNames() );
+        assertEquals( "<p>modified</p>", IOUtils.toString( result.getEntryReader( "content.xml" ) ) );
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.logging.Logger;
+
+import junit.framework.TestCase;
+import fr.opensagres.xdocreport.core.io.internal.ThreadLocalBufferPool;
+import fr.opensagres.xdocreport.core.logging.LogUtils;
+
+/**
+ * Allocation benchmark of the generation of reports : the entries of a copy of the archive are merged and the zip is
+ * written like a process of report, with and without the {@link ThreadLocalBufferPool}. The bytes allocated by the
+ * thread are measured with the HotSpot thread MXBean (the test does nothing if it's not available).
+ */
+public class XDocArchiveAllocationTestCase
+    extends TestCase
+{
+
+    private static final Logger LOGGER = LogUtils.getLogger( XDocArchiveAllocationTestCase.class.getName() );
+
+    private static final int NB_RENDERS = 20;
+
+    // about 55KB of merged content, lower than the max size of the pooled arrays
+    private static final int NB_ROWS = 2500;
+
+    public void testAllocation()
+        throws IOException
+    {
+        if ( !( ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean ) )
+        {
+            return;
+        }
+        com.sun.management.ThreadMXBean threadMXBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if ( !threadMXBean.isThreadAllocatedMemorySupported() || !threadMXBean.isThreadAllocatedMemoryEnabled() )
+        {
+            return;
+        }
+        XDocArchive template = createTemplate();
+        // the merged entry is pooled
+        XDocArchive merged = template.createCopy();
+        merge( merged );
+        assertTrue( merged.getEntryData( "content.xml" ).length <= ThreadLocalBufferPool.getMaxPooledSize() );
+        merged.dispose();
+
+        boolean enabled = ThreadLocalBufferPool.isEnabled();
+        try
+        {
+            ThreadLocalBufferPool.setEnabled( false );
+            render( template, NB_RENDERS );
+            long withoutPool = render( template, NB_RENDERS );
+
+            ThreadLocalBufferPool.setEnabled( true );
+            render( template, NB_RENDERS );
+            long withPool = render( template, NB_RENDERS );
+
+            LOGGER.info( "Allocated bytes per render : " + ( withoutPool / NB_RENDERS ) + " without pool, "
+                + ( withPool / NB_RENDERS ) + " with pool." );
+            // at least the array of the merged entry is reused at each render
+            assertTrue( withoutPool - withPool >= (long) NB_RENDERS * ThreadLocalBufferPool.getMaxPooledSize() );
+        }
+        finally
+        {
+            ThreadLocalBufferPool.setEnabled( enabled );
+        }
+    }
+
+    private static long render( XDocArchive template, int nbRenders )
+        throws IOException
+    {
+        com.sun.management.ThreadMXBean threadMXBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long start = threadMXBean.getThreadAllocatedBytes( threadId );
+        for ( int i = 0; i < nbRenders; i++ )
+        {
+            XDocArchive outputArchive = template.createCopy();
+            merge( outputArchive );
+            XDocArchive.writeZip( outputArchive, new NullOutputStream() );
+            outputArchive.dispose();
+        }
+        return threadMXBean.getThreadAllocatedBytes( threadId ) - start;
+    }
+
+    /**
+     * Merge the entry like a template engine.
+     */
+    private static void merge( XDocArchive outputArchive )
+        throws IOException
+    {
+        Writer writer = outputArchive.getEntryWriter( "content.xml" );
+        writer.write( "<content>" );
+        for ( int j = 0; j < NB_ROWS; j++ )
+        {
+            writer.write( "<row>Value é " );
+            writer.write( String.valueOf( j ) );
+            writer.write( "</row>" );
+        }
+        writer.write( "</content>" );
+        writer.close();
+    }
+
+    private static XDocArchive createTemplate()
+        throws IOException
+    {
+        XDocArchive archive = new XDocArchive();
+        Writer writer = archive.getEntryWriter( XDocArchive.MIMETYPE_ENTRY_NAME );
+        writer.write( "application/vnd.oasis.opendocument.text" );
+        writer.close();
+        writer = archive.getEntryWriter( "content.xml" );
+        writer.write( "<content>[#list rows as row]<row>${row}</row>[/#list]</content>" );
+        writer.close();
+        writer = archive.getEntryWriter( "styles.xml" );
+        for ( int i = 0; i < 1000; i++ )
+        {
+            writer.write( "<style name=\"Style" + i + "\" />" );
+        }
+        writer.close();
+        return archive;
+    }
+
+    private static class NullOutputStream
+        extends OutputStream
+    {
+        @Override
+        public void write( int b )
+        {
+        }
+
+        @Override
+        public void write( byte[] b, int off, int len )
+        {
+        }
+    }
+}
@@ -28,6 +28,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.logging.Logger;
 
@@ -152,4 +155,76 @@ public class XDocArchiveTestCase
         String document = IOUtils.toString( archive.getEntryReader( "word/document.xml" ) );
         assertNotNull( document );
     }
+
+    public void testWriteCopy()
+        throws IOException
+    {
+        XDocArchive archive = new XDocArchive();
+        Writer contentWriter = archive.getEntryWriter( "content.xml" );
+        contentWriter.write( "bla bla bla" );
+        contentWriter.close();
+
+        // the copy shares the content of the archive entries
+        XDocArchive copy = archive.createCopy();
+        assertEquals( "bla bla bla", IOUtils.toString( copy.getEntryReader( "content.xml" ) ) );
+
+        // write the entry of the copy doesn't modify the archive
+        contentWriter = copy.getEntryWriter( "content.xml" );
+        contentWriter.write( "bla bla bla2" );
+        contentWriter.close();
+        assertEquals( "bla bla bla2", IOUtils.toString( copy.getEntryReader( "content.xml" ) ) );
+        assertEquals( "bla bla bla", IOUtils.toString( archive.getEntryReader( "content.xml" ) ) );
+
+        // dispose the copy doesn't dispose the archive
+        copy.dispose();
+        assertEquals( "bla bla bla", IOUtils.toString( archive.getEntryReader( "content.xml" ) ) );
+    }
+
+    public void testConcurrentWriteAndRead()
+        throws Exception
+    {
+        final XDocArchive archive = new XDocArchive( true );
+        final List<Throwable> errors = Collections.synchronizedList( new ArrayList<Throwable>() );
+        List<Thread> threads = new ArrayList<Thread>();
+        for ( int i = 0; i < 4; i++ )
+        {
+            final int writer = i;
+            Thread thread = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        for ( int j = 0; j < 500; j++ )
+                        {
+                            String entryName = "entry" + writer + "_" + j + ".xml";
+                            Writer entryWriter = archive.getEntryWriter( entryName );
+                            entryWriter.write( "<p>" + j + "</p>" );
+                            entryWriter.close();
+                            // the names are iterated while the other threads add entries
+                            for ( String name : archive.getEntryNames() )
+                            {
+                                assertTrue( archive.hasEntry( name ) );
+                            }
+                            assertEquals( "<p>" + j + "</p>", IOUtils.toString( archive.getEntryReader( entryName ) ) );
+                            assertTrue( archive.getLastModifiedEntry( entryName ) > 0 );
+                        }
+                    }
+                    catch ( Throwable e )
+                    {
+                        errors.add( e );
+                    }
+                }
+            };
+            threads.add( thread );
+            thread.start();
+        }
+        for ( Thread thread : threads )
+        {
+            thread.join();
+        }
+        assertEquals( Collections.emptyList(), errors );
+        assertEquals( 2000, archive.getEntryNames().size() );
+    }
 }
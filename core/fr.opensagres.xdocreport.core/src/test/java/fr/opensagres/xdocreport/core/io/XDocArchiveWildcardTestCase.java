@@ -126,4 +126,27 @@ public class XDocArchiveWildcardTestCase
         assertEquals( entries, archive.getEntryNames( "header*.xml" ) );
 
     }
+
+    public void testWildcardCacheOfCopy()
+        throws IOException
+    {
+        // the copy shares the wildcard cache of the archive
+        assertEquals( 2, archive.getEntryNames( "header*.xml" ).size() );
+        XDocArchive copy = archive.createCopy();
+        assertEquals( 2, copy.getEntryNames( "header*.xml" ).size() );
+
+        // modify an entry of the copy doesn't change the entry names
+        Writer header1Writer = copy.getEntryWriter( "header1.xml" );
+        header1Writer.write( "Merged header1" );
+        header1Writer.close();
+        assertEquals( 2, copy.getEntryNames( "header*.xml" ).size() );
+
+        // a new entry in the copy is matched by the wildcard of the copy and not by the wildcard of the archive
+        Writer header3Writer = copy.getEntryWriter( "header3.xml" );
+        header3Writer.write( "Header3" );
+        header3Writer.close();
+        assertEquals( 3, copy.getEntryNames( "header*.xml" ).size() );
+        assertEquals( 2, archive.getEntryNames( "header*.xml" ).size() );
+        copy.dispose();
+    }
 }
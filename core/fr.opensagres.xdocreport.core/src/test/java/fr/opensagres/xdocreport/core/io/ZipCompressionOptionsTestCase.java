@@ -0,0 +1,175 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import junit.framework.TestCase;
+
+/**
+ * Test case for {@link XDocArchive#writeZip(XDocArchive, OutputStream, ZipCompressionOptions)}.
+ */
+public class ZipCompressionOptionsTestCase
+    extends TestCase
+{
+
+    public void testSequential()
+        throws IOException
+    {
+        checkWriteZip( new ZipCompressionOptions().setStoredCompressedMedia() );
+    }
+
+    public void testParallel()
+        throws IOException
+    {
+        ExecutorService executor = Executors.newFixedThreadPool( 4 );
+        try
+        {
+            checkWriteZip( new ZipCompressionOptions().setStoredCompressedMedia().setExecutor( executor ).setParallelThreshold( 1024 ) );
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    public void testParallelWithSaturatedExecutor()
+        throws Exception
+    {
+        // the zip is written by the only thread of the executor used to deflate the entries
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            Future<Void> future = executor.submit( new Callable<Void>()
+            {
+                public Void call()
+                    throws Exception
+                {
+                    checkWriteZip( new ZipCompressionOptions().setStoredCompressedMedia().setExecutor( executor ).setParallelThreshold( 1024 ) );
+                    return null;
+                }
+            } );
+            future.get( 30, TimeUnit.SECONDS );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    public void testParallelWithRejectingExecutor()
+        throws IOException
+    {
+        Executor executor = new Executor()
+        {
+            public void execute( Runnable command )
+            {
+                throw new RejectedExecutionException();
+            }
+        };
+        checkWriteZip( new ZipCompressionOptions().setStoredCompressedMedia().setExecutor( executor ).setParallelThreshold( 1024 ) );
+    }
+
+    public void testLevelAndStrategyPerExtension()
+    {
+        ZipCompressionOptions options =
+            new ZipCompressionOptions().setLevel( 1 ).setLevel( "xml", 9 ).setStrategy( ".XML", 1 ).setStored( "png" );
+        assertEquals( 9, options.getLevel( "word/document.xml" ) );
+        assertEquals( 1, options.getStrategy( "word/document.XML" ) );
+        assertEquals( 1, options.getLevel( "word/_rels/document.xml.rels" ) );
+        assertEquals( 1, options.getLevel( "word.xml/file" ) );
+        assertTrue( options.isStored( "mimetype" ) );
+        assertTrue( options.isStored( "word/media/image1.PNG" ) );
+        assertFalse( options.isStored( "word/media/image1.jpg" ) );
+    }
+
+    private void checkWriteZip( ZipCompressionOptions options )
+        throws IOException
+    {
+        XDocArchive archive = new XDocArchive();
+        setEntry( archive, "mimetype", "application/vnd.oasis.opendocument.text".getBytes( "UTF-8" ) );
+        StringBuilder content = new StringBuilder();
+        for ( int i = 0; i < 20000; i++ )
+        {
+            content.append( "<text:p>Paragraph " ).append( i ).append( "</text:p>" );
+        }
+        setEntry( archive, "content.xml", content.toString().getBytes( "UTF-8" ) );
+        setEntry( archive, "styles.xml", "<styles />".getBytes( "UTF-8" ) );
+        setEntry( archive, "empty.xml", new byte[0] );
+        byte[] image = new byte[50000];
+        new Random( 0 ).nextBytes( image );
+        setEntry( archive, "Pictures/imageé.png", image );
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XDocArchive.writeZip( archive, out, options );
+
+        // check the zip with the JDK zip reader
+        ZipInputStream zipInputStream = new ZipInputStream( new ByteArrayInputStream( out.toByteArray() ) );
+        ZipEntry entry = zipInputStream.getNextEntry();
+        assertEquals( "mimetype", entry.getName() );
+        assertEquals( ZipEntry.STORED, entry.getMethod() );
+        int nbEntries = 1;
+        while ( ( entry = zipInputStream.getNextEntry() ) != null )
+        {
+            nbEntries++;
+            byte[] data = IOUtils.toByteArray( zipInputStream );
+            assertTrue( entry.getName(), Arrays.equals( archive.getEntryData( entry.getName() ), data ) );
+            assertEquals( entry.getName().endsWith( ".png" ) ? ZipEntry.STORED : ZipEntry.DEFLATED,
+                          entry.getMethod() );
+        }
+        zipInputStream.close();
+        assertEquals( 5, nbEntries );
+
+        // check the zip with XDocArchive
+        XDocArchive result = XDocArchive.readZip( new ByteArrayInputStream( out.toByteArray() ) );
+        assertEquals( archive.getEntryNames(), result.getEntryNames() );
+        for ( String entryName : archive.getEntryNames() )
+        {
+            assertTrue( entryName, Arrays.equals( archive.getEntryData( entryName ), result.getEntryData( entryName ) ) );
+        }
+        // the xml is deflated
+        assertTrue( out.size() < content.length() / 4 + image.length );
+    }
+
+    private static void setEntry( XDocArchive archive, String entryName, byte[] data )
+        throws IOException
+    {
+        XDocArchive.setEntry( archive, entryName, new ByteArrayInputStream( data ) );
+    }
+}
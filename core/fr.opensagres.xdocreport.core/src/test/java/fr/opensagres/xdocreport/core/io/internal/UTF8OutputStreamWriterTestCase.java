@@ -0,0 +1,163 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.io.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+
+import junit.framework.TestCase;
+
+/**
+ * Test case for {@link UTF8OutputStreamWriter} and {@link ThreadLocalBufferPool}.
+ */
+public class UTF8OutputStreamWriterTestCase
+    extends TestCase
+{
+
+    public void testEncode()
+        throws IOException
+    {
+        // ASCII, 2 bytes, 3 bytes and 4 bytes (surrogate pair) characters
+        String text = "abc éè € 😀 end";
+        assertEncoded( text, text );
+    }
+
+    public void testEncodeBiggerThanBuffer()
+        throws IOException
+    {
+        StringBuilder text = new StringBuilder();
+        for ( int i = 0; i < 5000; i++ )
+        {
+            text.append( "é€😀" );
+        }
+        assertEncoded( text.toString(), text.toString() );
+    }
+
+    public void testSurrogatePairInSeveralWrites()
+        throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Writer writer = new UTF8OutputStreamWriter( out );
+        writer.write( "a\uD83D" );
+        writer.write( '\uDE00' );
+        writer.close();
+        assertEquals( "a😀", new String( out.toByteArray(), "UTF-8" ) );
+    }
+
+    public void testMalformedSurrogate()
+        throws IOException
+    {
+        assertEncoded( "a\uDE00b\uD83Dc\uD83D", "a?b?c?" );
+    }
+
+    public void testCancel()
+        throws IOException
+    {
+        final boolean[] closed = new boolean[1];
+        ByteArrayOutputStream out = new ByteArrayOutputStream()
+        {
+            @Override
+            public void close()
+                throws IOException
+            {
+                closed[0] = true;
+            }
+        };
+        UTF8OutputStreamWriter writer = new UTF8OutputStreamWriter( out );
+        writer.write( "text" );
+        writer.cancel();
+        writer.close();
+        assertFalse( closed[0] );
+        assertEquals( 0, out.size() );
+    }
+
+    public void testPool()
+    {
+        byte[] buffer = ThreadLocalBufferPool.acquire( 3000 );
+        assertEquals( 4096, buffer.length );
+        ThreadLocalBufferPool.release( buffer );
+        // same array for the same thread
+        assertSame( buffer, ThreadLocalBufferPool.acquire( 2049 ) );
+        assertNotSame( buffer, ThreadLocalBufferPool.acquire( 4096 ) );
+
+        // too big to be pooled
+        byte[] bigBuffer = ThreadLocalBufferPool.acquire( 2 * 1024 * 1024 + 1 );
+        assertEquals( 2 * 1024 * 1024 + 1, bigBuffer.length );
+        ThreadLocalBufferPool.release( bigBuffer );
+        assertNotSame( bigBuffer, ThreadLocalBufferPool.acquire( 2 * 1024 * 1024 + 1 ) );
+    }
+
+    public void testPoolClear()
+    {
+        byte[] buffer = ThreadLocalBufferPool.acquire( 3000 );
+        ThreadLocalBufferPool.release( buffer );
+        ThreadLocalBufferPool.clear();
+        assertNotSame( buffer, ThreadLocalBufferPool.acquire( 3000 ) );
+    }
+
+    public void testPoolMaxPooledSize()
+    {
+        assertEquals( 64 * 1024, ThreadLocalBufferPool.getMaxPooledSize() );
+        // bigger than the default max size
+        byte[] buffer = ThreadLocalBufferPool.acquire( 64 * 1024 + 1 );
+        assertEquals( 64 * 1024 + 1, buffer.length );
+        ThreadLocalBufferPool.release( buffer );
+        assertNotSame( buffer, ThreadLocalBufferPool.acquire( 64 * 1024 + 1 ) );
+        try
+        {
+            ThreadLocalBufferPool.setMaxPooledSize( 100 * 1024 );
+            assertEquals( 128 * 1024, ThreadLocalBufferPool.getMaxPooledSize() );
+            buffer = ThreadLocalBufferPool.acquire( 64 * 1024 + 1 );
+            assertEquals( 128 * 1024, buffer.length );
+            ThreadLocalBufferPool.release( buffer );
+            assertSame( buffer, ThreadLocalBufferPool.acquire( 64 * 1024 + 1 ) );
+            try
+            {
+                ThreadLocalBufferPool.setMaxPooledSize( 2 * 1024 * 1024 );
+                fail( "The max pooled size is bigger than 1MB" );
+            }
+            catch ( IllegalArgumentException e )
+            {
+                assertEquals( 128 * 1024, ThreadLocalBufferPool.getMaxPooledSize() );
+            }
+        }
+        finally
+        {
+            ThreadLocalBufferPool.setMaxPooledSize( 64 * 1024 );
+            ThreadLocalBufferPool.clear();
+        }
+    }
+
+    private static void assertEncoded( String text, String expected )
+        throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Writer writer = new UTF8OutputStreamWriter( out );
+        writer.write( text );
+        writer.close();
+        assertEquals( expected, new String( out.toByteArray(), "UTF-8" ) );
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.pool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayOutputStream;
+
+import org.junit.Test;
+
+public class ObjectPoolTestCase
+{
+
+    @Test
+    public void reuseReleasedBuffer()
+    {
+        IObjectPool<ByteArrayOutputStream> pool =
+            new ObjectPool<ByteArrayOutputStream>( new ByteArrayOutputStreamFactory() );
+        ByteArrayOutputStream out = pool.borrow();
+        out.write( 1 );
+        pool.release( out );
+        assertEquals( 1, pool.getIdleCount() );
+
+        ByteArrayOutputStream reused = pool.borrow();
+        assertSame( out, reused );
+        assertEquals( 0, reused.size() );
+        assertEquals( 0, pool.getIdleCount() );
+    }
+
+    @Test
+    public void discardLargeBuffer()
+    {
+        IObjectPool<ByteArrayOutputStream> pool =
+            new ObjectPool<ByteArrayOutputStream>( new ByteArrayOutputStreamFactory( 16, 16 ) );
+        ByteArrayOutputStream out = pool.borrow();
+        out.write( new byte[17], 0, 17 );
+        pool.release( out );
+        assertEquals( 0, pool.getIdleCount() );
+        assertNotSame( out, pool.borrow() );
+    }
+
+    @Test
+    public void maxIdle()
+    {
+        IObjectPool<ByteArrayOutputStream> pool =
+            new ObjectPool<ByteArrayOutputStream>( new ByteArrayOutputStreamFactory(), 2 );
+        ByteArrayOutputStream out1 = pool.borrow();
+        ByteArrayOutputStream out2 = pool.borrow();
+        ByteArrayOutputStream out3 = pool.borrow();
+        pool.release( out1 );
+        pool.release( out2 );
+        pool.release( out3 );
+        assertEquals( 2, pool.getIdleCount() );
+        pool.clear();
+        assertEquals( 0, pool.getIdleCount() );
+    }
+
+    @Test
+    public void defaultPool()
+    {
+        IObjectPool<ByteArrayOutputStream> pool = ByteArrayOutputStreamFactory.createPool();
+        ByteArrayOutputStream out1 = pool.borrow();
+        ByteArrayOutputStream out2 = pool.borrow();
+        ByteArrayOutputStream out3 = pool.borrow();
+        pool.release( out1 );
+        pool.release( out2 );
+        pool.release( out3 );
+        assertEquals( ByteArrayOutputStreamFactory.DEFAULT_MAX_IDLE, pool.getIdleCount() );
+        pool.clear();
+
+        // too big to be retained
+        ByteArrayOutputStream out = pool.borrow();
+        out.write( new byte[ByteArrayOutputStreamFactory.DEFAULT_MAX_RETAINED_SIZE + 1], 0,
+                   ByteArrayOutputStreamFactory.DEFAULT_MAX_RETAINED_SIZE + 1 );
+        pool.release( out );
+        assertEquals( 0, pool.getIdleCount() );
+    }
+}
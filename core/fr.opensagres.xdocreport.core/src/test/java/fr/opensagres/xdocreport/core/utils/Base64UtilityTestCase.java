@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class Base64UtilityTestCase
+{
+
+    @Test
+    public void streamEncodeEqualsStringEncode()
+        throws Exception
+    {
+        Random random = new Random( 42 );
+        // sizes around the chunk size to check padding and chunk boundaries
+        int[] sizes = { 0, 1, 2, 3, 3071, 3072, 3073, 3074, 10000 };
+        for ( int size : sizes )
+        {
+            byte[] data = new byte[size];
+            random.nextBytes( data );
+            String expected = size > 0 ? Base64Utility.encode( data ) : "";
+
+            StringWriter writer = new StringWriter();
+            Base64Utility.encode( data, writer );
+            assertEquals( expected, writer.toString() );
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Base64Utility.encode( data, out );
+            assertEquals( expected, new String( out.toByteArray(), "ASCII" ) );
+
+            StringBuilder buffer = new StringBuilder( "data:;base64," );
+            Base64Utility.encode( data, buffer );
+            assertEquals( "data:;base64," + expected, buffer.toString() );
+
+            if ( size > 0 )
+            {
+                assertArrayEquals( data, Base64Utility.decode( writer.toString() ) );
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.utils;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class HttpHeaderUtilsTestCase
+{
+
+    private static final String ETAG = HttpHeaderUtils.getETag( "1234-original" );
+
+    @Test
+    public void ifNoneMatch()
+    {
+        assertTrue( HttpHeaderUtils.isNotModified( "\"1234-original\"", -1, ETAG, 0 ) );
+        assertTrue( HttpHeaderUtils.isNotModified( "\"other\", W/\"1234-original\"", -1, ETAG, 0 ) );
+        assertTrue( HttpHeaderUtils.isNotModified( "*", -1, ETAG, 0 ) );
+        assertFalse( HttpHeaderUtils.isNotModified( "\"1234-preprocessed\"", -1, ETAG, 0 ) );
+        // If-None-Match has precedence over If-Modified-Since
+        assertFalse( HttpHeaderUtils.isNotModified( "\"other\"", 2000, ETAG, 1000 ) );
+    }
+
+    @Test
+    public void ifModifiedSince()
+    {
+        assertFalse( HttpHeaderUtils.isNotModified( null, -1, ETAG, 1000 ) );
+        // HTTP dates have no milliseconds
+        assertTrue( HttpHeaderUtils.isNotModified( null, 1000, ETAG, 1999 ) );
+        assertTrue( HttpHeaderUtils.isNotModified( null, 5000, ETAG, 1999 ) );
+        assertFalse( HttpHeaderUtils.isNotModified( null, 1000, ETAG, 2000 ) );
+    }
+}
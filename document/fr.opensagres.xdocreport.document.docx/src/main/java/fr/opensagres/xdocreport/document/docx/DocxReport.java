@@ -123,6 +123,19 @@ public class DocxReport
         super.addPreprocessor( CONTENT_TYPES_XML_ENTRY, DocxContentTypesPreprocessor.INSTANCE );
         super.addPreprocessor( WORD_RELS_XMLRELS_XML_ENTRY, DocxDocumentXMLRelsPreprocessor.INSTANCE );
         super.addPreprocessor( WORD_NUMBERING_XML_ENTRY, DocxNumberingPreprocessor.INSTANCE );
+        // order used by the parallel preprocessing :
+        // - numbering uses the default style computed with the styles.
+        super.addPreprocessorDependency( WORD_NUMBERING_XML_ENTRY, WORD_STYLES_XML_ENTRY );
+        // - document, headers and footers use the footnotes/endnotes registered in the shared context.
+        for ( String entryName : new String[] { WORD_DOCUMENT_XML_ENTRY, WORD_HEADER_XML_ENTRY,
+            WORD_FOOTER_XML_ENTRY } )
+        {
+            super.addPreprocessorDependency( entryName, WORD_STYLES_XML_ENTRY );
+            super.addPreprocessorDependency( entryName, WORD_FOOTNOTES_XML_ENTRY );
+            super.addPreprocessorDependency( entryName, WORD_ENDNOTES_XML_ENTRY );
+            // - *.xml.rels uses the hyperlinks modified by the preprocessing of the document, headers and footers.
+            super.addPreprocessorDependency( WORD_RELS_XMLRELS_XML_ENTRY, entryName );
+        }
     }
 
     @Override
@@ -141,7 +154,7 @@ public class DocxReport
                                                   IEntryWriterProvider writerProvider,
                                                   IEntryOutputStreamProvider outputStreamProvider )
     {
-        return new DocxImageRegistry( readerProvider, writerProvider, outputStreamProvider, getFieldsMetadata() );
+        return new DocxImageRegistry( readerProvider, writerProvider, outputStreamProvider, getFrozenFieldsMetadata() );
     }
 
     @Override
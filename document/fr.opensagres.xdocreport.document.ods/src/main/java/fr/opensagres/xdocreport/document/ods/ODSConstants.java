@@ -37,6 +37,13 @@ public interface ODSConstants
 
     String STYLES_XML_ENTRY = "styles.xml";
 
+    // Table
+    String TABLE_NS = "urn:oasis:names:tc:opendocument:xmlns:table:1.0";
+
+    String TABLE_ELT = "table";
+
+    String TABLE_ROW_ELT = "table-row";
+
     // Mime type
     String MIMETYPE = "mimetype";
 
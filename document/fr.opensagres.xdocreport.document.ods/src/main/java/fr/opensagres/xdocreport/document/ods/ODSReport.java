@@ -25,6 +25,7 @@
 package fr.opensagres.xdocreport.document.ods;
 
 import java.io.IOException;
+import java.io.Writer;
 
 import fr.opensagres.xdocreport.converter.MimeMapping;
 import fr.opensagres.xdocreport.core.document.DocumentKind;
@@ -36,6 +37,8 @@ import fr.opensagres.xdocreport.core.io.XDocArchive;
 import fr.opensagres.xdocreport.document.AbstractXDocReport;
 import fr.opensagres.xdocreport.document.images.IImageRegistry;
 import fr.opensagres.xdocreport.document.ods.images.ODSImageRegistry;
+import fr.opensagres.xdocreport.document.ods.internal.EmptyRowsCompactionWriter;
+import fr.opensagres.xdocreport.document.ods.preprocessor.ODSPreprocessor;
 
 /**
  * Open Office ODS report.
@@ -49,15 +52,59 @@ public class ODSReport
 
     private static final String[] DEFAULT_XML_ENTRIES = { CONTENT_XML_ENTRY, STYLES_XML_ENTRY };
 
+    private static final String[] STREAMED_ENTRIES = { CONTENT_XML_ENTRY };
+
     public String getKind()
     {
         return DocumentKind.ODS.name();
     }
 
+    private boolean streamingContent;
+
     @Override
     protected void registerPreprocessors()
     {
+        // processor to generate the loop directives of the rows which contain a list field.
+        super.addPreprocessor( CONTENT_XML_ENTRY, ODSPreprocessor.INSTANCE );
+    }
+
+    /**
+     * Set true to merge content.xml directly in the output stream when the whole report is generated, instead of
+     * merging it in memory before writing the zip. The consecutive identical empty rows of the merged sheets are
+     * compacted with <code>table:number-rows-repeated</code>. Useful for spreadsheets with a lot of rows.
+     * 
+     * @param streamingContent
+     */
+    public void setStreamingContent( boolean streamingContent )
+    {
+        this.streamingContent = streamingContent;
+        resetRenderPlan();
+    }
+
+    /**
+     * Returns true if content.xml is merged directly in the output stream and false otherwise.
+     * 
+     * @return
+     */
+    public boolean isStreamingContent()
+    {
+        return streamingContent;
+    }
 
+    @Override
+    protected String[] getStreamedEntries()
+    {
+        return streamingContent ? STREAMED_ENTRIES : null;
+    }
+
+    @Override
+    protected Writer createMergedEntryWriter( String entryName, Writer writer )
+    {
+        if ( streamingContent && CONTENT_XML_ENTRY.equals( entryName ) )
+        {
+            return new EmptyRowsCompactionWriter( writer );
+        }
+        return writer;
     }
 
     @Override
@@ -92,6 +139,6 @@ public class ODSReport
                                                   IEntryWriterProvider writerProvider,
                                                   IEntryOutputStreamProvider outputStreamProvider )
     {
-        return new ODSImageRegistry( readerProvider, writerProvider, outputStreamProvider, getFieldsMetadata() );
+        return new ODSImageRegistry( readerProvider, writerProvider, outputStreamProvider, getFrozenFieldsMetadata() );
     }
 }
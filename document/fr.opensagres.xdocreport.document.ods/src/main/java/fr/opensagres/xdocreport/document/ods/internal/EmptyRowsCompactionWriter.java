@@ -0,0 +1,398 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document.ods.internal;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writer which compacts the consecutive identical empty rows of a merged ODS content.xml in one row with the
+ * <code>table:number-rows-repeated</code> attribute, like LibreOffice does. The XML is filtered on the fly :
+ * <ul>
+ * <li>a row is buffered only while it can be empty (only empty table:table-cell/table:covered-table-cell without
+ * office:value). As soon as a content is found, the buffered start of the row is written and the rest of the row is
+ * written as is.</li>
+ * <li>an empty row is kept until the next row, to merge it if it's the same. The whitespaces which follow it
+ * (indentation) are kept too : they are dropped if the next row is merged, and written otherwise.</li>
+ * </ul>
+ */
+public class EmptyRowsCompactionWriter
+    extends Writer
+{
+
+    private static final String ROW_START = "<table:table-row";
+
+    private static final String ROW_END = "</table:table-row";
+
+    private static final String REPEATED_ATTR = "table:number-rows-repeated";
+
+    private static final String[] EMPTY_CELL_TAGS = { "<table:table-cell", "</table:table-cell",
+        "<table:covered-table-cell", "</table:covered-table-cell" };
+
+    private static final String VALUE_ATTR = "office:value";
+
+    // an empty row is small, a bigger row is written without compaction.
+    private static final int MAX_ROW_LENGTH = 4096;
+
+    private final Writer out;
+
+    // the start of ROW_START or the current row which can be empty
+    private final StringBuilder row;
+
+    private boolean inRow;
+
+    private boolean inTag;
+
+    private char quote;
+
+    private int tagStart;
+
+    private int startTagEnd;
+
+    // the last empty row (without repeated attribute) and the number of times it is repeated.
+    private String pendingRow;
+
+    private int pendingInsertIndex;
+
+    private long pendingCount;
+
+    // the whitespaces written after the pending row.
+    private final StringBuilder pendingWhitespaces;
+
+    public EmptyRowsCompactionWriter( Writer out )
+    {
+        this.out = out;
+        this.row = new StringBuilder();
+        this.pendingWhitespaces = new StringBuilder();
+    }
+
+    @Override
+    public void write( char[] cbuf, int off, int len )
+        throws IOException
+    {
+        int end = off + len;
+        // start of the chars to write as is.
+        int passStart = off;
+        for ( int i = off; i < end; i++ )
+        {
+            char c = cbuf[i];
+            if ( !inRow && row.length() == 0 )
+            {
+                if ( c != '<' )
+                {
+                    continue;
+                }
+                writeAsIs( cbuf, passStart, i - passStart );
+                row.append( c );
+            }
+            else if ( inRow )
+            {
+                consumeRow( c );
+            }
+            else
+            {
+                consumeRowStart( c );
+            }
+            passStart = i + 1;
+        }
+        writeAsIs( cbuf, passStart, end - passStart );
+    }
+
+    private void consumeRowStart( char c )
+        throws IOException
+    {
+        int length = row.length();
+        if ( length < ROW_START.length() )
+        {
+            if ( c == ROW_START.charAt( length ) )
+            {
+                row.append( c );
+                return;
+            }
+        }
+        else if ( c == '>' || c == '/' || Character.isWhitespace( c ) )
+        {
+            // table:table-row element (and not table:table-rows...)
+            inRow = true;
+            inTag = true;
+            tagStart = 0;
+            consumeRow( c );
+            return;
+        }
+        writeRow();
+        if ( c == '<' )
+        {
+            row.append( c );
+        }
+        else
+        {
+            out.write( c );
+        }
+    }
+
+    private void consumeRow( char c )
+        throws IOException
+    {
+        row.append( c );
+        if ( row.length() > MAX_ROW_LENGTH )
+        {
+            writeRow();
+            return;
+        }
+        if ( inTag )
+        {
+            if ( quote != 0 )
+            {
+                if ( c == quote )
+                {
+                    quote = 0;
+                }
+            }
+            else if ( c == '"' || c == '\'' )
+            {
+                quote = c;
+            }
+            else if ( c == '>' )
+            {
+                inTag = false;
+                endTag();
+            }
+        }
+        else if ( c == '<' )
+        {
+            inTag = true;
+            tagStart = row.length() - 1;
+        }
+        else if ( !Character.isWhitespace( c ) )
+        {
+            // text content, the row is not empty.
+            writeRow();
+        }
+    }
+
+    private void endTag()
+        throws IOException
+    {
+        if ( tagStart == 0 )
+        {
+            // start tag of the row
+            startTagEnd = row.length();
+            if ( row.charAt( startTagEnd - 2 ) == '/' )
+            {
+                endRow();
+            }
+            return;
+        }
+        if ( startsWith( row, tagStart, ROW_END ) )
+        {
+            endRow();
+            return;
+        }
+        for ( int i = 0; i < EMPTY_CELL_TAGS.length; i++ )
+        {
+            if ( startsWith( row, tagStart, EMPTY_CELL_TAGS[i] ) )
+            {
+                if ( row.indexOf( VALUE_ATTR, tagStart ) != -1 )
+                {
+                    // cell with value
+                    writeRow();
+                }
+                return;
+            }
+        }
+        // other element (text:p, draw:frame...), the row is not empty.
+        writeRow();
+    }
+
+    private void endRow()
+        throws IOException
+    {
+        String startTag = row.substring( 0, startTagEnd );
+        long count = 1;
+        int attrIndex = startTag.indexOf( REPEATED_ATTR );
+        if ( attrIndex != -1 )
+        {
+            // table:number-rows-repeated="n"
+            int valueStart = attrIndex + REPEATED_ATTR.length() + 2;
+            int valueEnd = -1;
+            if ( valueStart < startTag.length() && startTag.charAt( valueStart - 2 ) == '=' )
+            {
+                valueEnd = startTag.indexOf( startTag.charAt( valueStart - 1 ), valueStart );
+            }
+            count = valueEnd != -1 ? parseCount( startTag.substring( valueStart, valueEnd ) ) : -1;
+            if ( count < 1 )
+            {
+                writeRow();
+                return;
+            }
+            int removeStart = attrIndex;
+            while ( removeStart > 0 && Character.isWhitespace( startTag.charAt( removeStart - 1 ) ) )
+            {
+                removeStart--;
+            }
+            startTag = startTag.substring( 0, removeStart ) + startTag.substring( valueEnd + 1 );
+        }
+        String emptyRow = startTag + row.substring( startTagEnd );
+        if ( emptyRow.equals( pendingRow ) )
+        {
+            // the whitespaces between the 2 rows are dropped with the merged row.
+            pendingCount += count;
+            pendingWhitespaces.setLength( 0 );
+        }
+        else
+        {
+            flushPendingRow();
+            pendingRow = emptyRow;
+            pendingInsertIndex = startTag.length() - ( startTag.endsWith( "/>" ) ? 2 : 1 );
+            pendingCount = count;
+        }
+        resetRow();
+    }
+
+    private static long parseCount( String value )
+    {
+        try
+        {
+            return Long.parseLong( value );
+        }
+        catch ( NumberFormatException e )
+        {
+            return -1;
+        }
+    }
+
+    private void writeAsIs( char[] cbuf, int off, int len )
+        throws IOException
+    {
+        if ( len > 0 )
+        {
+            if ( pendingRow != null && isWhitespaces( cbuf, off, len )
+                && pendingWhitespaces.length() + len <= MAX_ROW_LENGTH )
+            {
+                // whitespaces between rows must not stop the compaction.
+                pendingWhitespaces.append( cbuf, off, len );
+                return;
+            }
+            flushPendingRow();
+            out.write( cbuf, off, len );
+        }
+    }
+
+    private static boolean isWhitespaces( char[] cbuf, int off, int len )
+    {
+        for ( int i = off; i < off + len; i++ )
+        {
+            if ( !Character.isWhitespace( cbuf[i] ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Write the buffered content as is, the rest of the row (if any) is written as is too.
+     */
+    private void writeRow()
+        throws IOException
+    {
+        flushPendingRow();
+        out.append( row );
+        resetRow();
+    }
+
+    private void resetRow()
+    {
+        row.setLength( 0 );
+        inRow = false;
+        inTag = false;
+        quote = 0;
+    }
+
+    private void flushPendingRow()
+        throws IOException
+    {
+        if ( pendingRow == null )
+        {
+            return;
+        }
+        if ( pendingCount > 1 )
+        {
+            out.write( pendingRow, 0, pendingInsertIndex );
+            out.write( ' ' );
+            out.write( REPEATED_ATTR );
+            out.write( "=\"" );
+            out.write( String.valueOf( pendingCount ) );
+            out.write( '"' );
+            out.write( pendingRow, pendingInsertIndex, pendingRow.length() - pendingInsertIndex );
+        }
+        else
+        {
+            out.write( pendingRow );
+        }
+        pendingRow = null;
+        out.append( pendingWhitespaces );
+        pendingWhitespaces.setLength( 0 );
+    }
+
+    private static boolean startsWith( StringBuilder s, int offset, String prefix )
+    {
+        int length = prefix.length();
+        if ( offset + length > s.length() )
+        {
+            return false;
+        }
+        for ( int i = 0; i < length; i++ )
+        {
+            if ( s.charAt( offset + i ) != prefix.charAt( i ) )
+            {
+                return false;
+            }
+        }
+        // the element name must end here (table:table-cell and not table:table-cell-range...)
+        if ( offset + length == s.length() )
+        {
+            return true;
+        }
+        char c = s.charAt( offset + length );
+        return c == '>' || c == '/' || Character.isWhitespace( c );
+    }
+
+    @Override
+    public void flush()
+        throws IOException
+    {
+        // the pending empty row and the current row are kept to continue the compaction.
+        out.flush();
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        writeRow();
+        out.close();
+    }
+}
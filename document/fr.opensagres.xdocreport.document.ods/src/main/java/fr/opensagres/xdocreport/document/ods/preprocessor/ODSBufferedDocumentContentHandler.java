@@ -0,0 +1,71 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document.ods.preprocessor;
+
+import java.util.Map;
+
+import fr.opensagres.xdocreport.document.preprocessor.sax.TransformedBufferedDocumentContentHandler;
+import fr.opensagres.xdocreport.template.formatter.FieldsMetadata;
+import fr.opensagres.xdocreport.template.formatter.IDocumentFormatter;
+
+/**
+ * SAX content handler to generate lazy Freemarker/Velocity loop directive in the sheet row (table:table-row) which
+ * contains a list fields. The fields are typed in the cells text (ex : <code>$developers.Name</code>).
+ */
+public class ODSBufferedDocumentContentHandler
+    extends TransformedBufferedDocumentContentHandler<ODSBufferedDocument>
+{
+
+    public ODSBufferedDocumentContentHandler( String entryName, FieldsMetadata fieldsMetadata,
+                                              IDocumentFormatter formatter, Map<String, Object> sharedContext )
+    {
+        super( entryName, fieldsMetadata, formatter, sharedContext );
+    }
+
+    @Override
+    protected ODSBufferedDocument createDocument()
+    {
+        return new ODSBufferedDocument();
+    }
+
+    @Override
+    protected String getTableTableName()
+    {
+        return "table:table";
+    }
+
+    @Override
+    protected String getTableRowName()
+    {
+        return "table:table-row";
+    }
+
+    @Override
+    protected String getTableCellName()
+    {
+        return "table:table-cell";
+    }
+
+}
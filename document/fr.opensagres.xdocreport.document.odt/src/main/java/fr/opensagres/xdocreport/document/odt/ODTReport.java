@@ -130,6 +130,6 @@ public class ODTReport
                                                   IEntryWriterProvider writerProvider,
                                                   IEntryOutputStreamProvider outputStreamProvider )
     {
-        return new ODTImageRegistry( readerProvider, writerProvider, outputStreamProvider, getFieldsMetadata() );
+        return new ODTImageRegistry( readerProvider, writerProvider, outputStreamProvider, getFrozenFieldsMetadata() );
     }
 }
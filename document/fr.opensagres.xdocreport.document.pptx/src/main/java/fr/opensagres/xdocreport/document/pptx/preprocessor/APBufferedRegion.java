@@ -154,21 +154,18 @@ public class APBufferedRegion
         if ( formatter != null && fieldsMetadata != null )
         {
 
-            Collection<String> fieldsAsList = fieldsMetadata.getFieldsAsList();
+            List<String> fieldsAsList = fieldsMetadata.getFieldsAsListMatcher().getFieldNames( content );
             for ( final String fieldName : fieldsAsList )
             {
-                if ( content.contains( fieldName ) )
+                this.itemNameList = formatter.extractItemNameList( content, fieldName, true );
+                if ( StringUtils.isNotEmpty( itemNameList ) )
                 {
-                    this.itemNameList = formatter.extractItemNameList( content, fieldName, true );
-                    if ( StringUtils.isNotEmpty( itemNameList ) )
+                    if ( !isIgnoreStartLoopDirective( itemNameList ) )
                     {
-                        if ( !isIgnoreStartLoopDirective( itemNameList ) )
-                        {
-                            setStartLoopDirective( formatter.getStartLoopDirective( itemNameList ) );
-                            addIgnoreStartLoopDirective( itemNameList );
-                        }
-                        return formatter.formatAsFieldItemList( content, fieldName, true );
+                        setStartLoopDirective( formatter.getStartLoopDirective( itemNameList ) );
+                        addIgnoreStartLoopDirective( itemNameList );
                     }
+                    return formatter.formatAsFieldItemList( content, fieldName, true );
                 }
             }
         }
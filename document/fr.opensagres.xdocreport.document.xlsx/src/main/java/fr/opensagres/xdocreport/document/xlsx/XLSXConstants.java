@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document.xlsx;
+
+import fr.opensagres.xdocreport.converter.MimeMapping;
+
+/**
+ * Microsoft Office XLSX constants.
+ */
+public class XLSXConstants
+{
+
+    public static final String WORKBOOK_XML_ENTRY = "xl/workbook.xml";
+
+    public static final String WORKSHEETS_XML_ENTRY = "xl/worksheets/sheet*.xml";
+
+    public static final String WORKSHEET_ENTRY_PREFIX = "xl/worksheets/sheet";
+
+    public static final String SHARED_STRINGS_XML_ENTRY = "xl/sharedStrings.xml";
+
+    // [Content_Types].xml
+    public static final String CONTENT_TYPES_XML = "[Content_Types].xml";
+
+    public static final String SPREADSHEETML_SHEET = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+    public static final String XLSX_EXTENSION = "xlsx";
+
+    // Namespaces
+    public static final String S_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+
+    // Element
+    public static final String WORKBOOK_ELT = "workbook";
+
+    public static final String CALC_PR_ELT = "calcPr";
+
+    public static final String WORKSHEET_ELT = "worksheet";
+
+    public static final String DIMENSION_ELT = "dimension";
+
+    public static final String SHEET_DATA_ELT = "sheetData";
+
+    public static final String ROW_ELT = "row";
+
+    public static final String C_ELT = "c";
+
+    public static final String V_ELT = "v";
+
+    public static final String IS_ELT = "is";
+
+    public static final String T_ELT = "t";
+
+    public static final String SI_ELT = "si";
+
+    public static final String RPH_ELT = "rPh";
+
+    // Attributes
+    public static final String R_ATTR = "r";
+
+    public static final String T_ATTR = "t";
+
+    public static final String FULL_CALC_ON_LOAD_ATTR = "fullCalcOnLoad";
+
+    // Cell types
+    public static final String SHARED_STRING_TYPE = "s";
+
+    public static final String INLINE_STRING_TYPE = "inlineStr";
+
+    // Mime mapping
+    public static final MimeMapping MIME_MAPPING = new MimeMapping( XLSX_EXTENSION, SPREADSHEETML_SHEET );
+
+    // Meta data for discovery
+    public static final String ID_DISCOVERY = "xlsx";
+
+    public static final String DESCRIPTION_DISCOVERY = "Manage Microsoft Office xlsx document.";
+}
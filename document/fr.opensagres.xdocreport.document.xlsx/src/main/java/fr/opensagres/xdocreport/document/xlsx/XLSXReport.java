@@ -0,0 +1,155 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document.xlsx;
+
+import static fr.opensagres.xdocreport.document.xlsx.XLSXConstants.CONTENT_TYPES_XML;
+import static fr.opensagres.xdocreport.document.xlsx.XLSXConstants.MIME_MAPPING;
+import static fr.opensagres.xdocreport.document.xlsx.XLSXConstants.SHARED_STRINGS_XML_ENTRY;
+import static fr.opensagres.xdocreport.document.xlsx.XLSXConstants.WORKBOOK_XML_ENTRY;
+import static fr.opensagres.xdocreport.document.xlsx.XLSXConstants.WORKSHEETS_XML_ENTRY;
+import static fr.opensagres.xdocreport.document.xlsx.XLSXConstants.WORKSHEET_ENTRY_PREFIX;
+
+import java.io.Writer;
+
+import fr.opensagres.xdocreport.converter.MimeMapping;
+import fr.opensagres.xdocreport.core.document.DocumentKind;
+import fr.opensagres.xdocreport.core.io.IEntryOutputStreamProvider;
+import fr.opensagres.xdocreport.core.io.IEntryReaderProvider;
+import fr.opensagres.xdocreport.core.io.IEntryWriterProvider;
+import fr.opensagres.xdocreport.core.io.XDocArchive;
+import fr.opensagres.xdocreport.document.AbstractXDocReport;
+import fr.opensagres.xdocreport.document.images.IImageRegistry;
+import fr.opensagres.xdocreport.document.xlsx.internal.RowsNumberingWriter;
+import fr.opensagres.xdocreport.document.xlsx.preprocessor.XLSXSharedStringsPreprocessor;
+import fr.opensagres.xdocreport.document.xlsx.preprocessor.XLSXSheetPreprocessor;
+import fr.opensagres.xdocreport.document.xlsx.preprocessor.XLSXWorkbookPreprocessor;
+
+/**
+ * Microsoft Office XLSX report. The rows of the sheets which contain a list field are generated with a loop directive
+ * and the merged sheets are written directly in the zip output stream (see {@link #setStreamingSheets(boolean)}), so
+ * the size of the generated sheets is not limited by the heap.
+ */
+public class XLSXReport
+    extends AbstractXDocReport
+{
+
+    private static final String XL_REGEXP = "xl*";
+
+    private static final long serialVersionUID = 6416813263440183521L;
+
+    private static final String[] DEFAULT_XML_ENTRIES = { WORKSHEETS_XML_ENTRY };
+
+    private static final String[] STREAMED_ENTRIES = { WORKSHEETS_XML_ENTRY };
+
+    private boolean streamingSheets = true;
+
+    public String getKind()
+    {
+        return DocumentKind.XLSX.name();
+    }
+
+    @Override
+    protected void registerPreprocessors()
+    {
+        // the fields typed in the cells are stored in xl/sharedStrings.xml, they must be collected before the sheets
+        // are preprocessed.
+        super.addPreprocessor( SHARED_STRINGS_XML_ENTRY, XLSXSharedStringsPreprocessor.INSTANCE );
+        super.addPreprocessor( WORKSHEETS_XML_ENTRY, XLSXSheetPreprocessor.INSTANCE );
+        super.addPreprocessorDependency( WORKSHEETS_XML_ENTRY, SHARED_STRINGS_XML_ENTRY );
+        // the cached values of the formulas must be recalculated if the sheets contain fields.
+        super.addPreprocessor( WORKBOOK_XML_ENTRY, XLSXWorkbookPreprocessor.INSTANCE );
+        super.addPreprocessorDependency( WORKBOOK_XML_ENTRY, SHARED_STRINGS_XML_ENTRY );
+    }
+
+    /**
+     * Set false to merge the sheets in memory before writing the zip, instead of merging them directly in the output
+     * stream (default).
+     * 
+     * @param streamingSheets
+     */
+    public void setStreamingSheets( boolean streamingSheets )
+    {
+        this.streamingSheets = streamingSheets;
+        resetRenderPlan();
+    }
+
+    /**
+     * Returns true if the sheets are merged directly in the output stream and false otherwise.
+     * 
+     * @return
+     */
+    public boolean isStreamingSheets()
+    {
+        return streamingSheets;
+    }
+
+    @Override
+    protected String[] getStreamedEntries()
+    {
+        return streamingSheets ? STREAMED_ENTRIES : null;
+    }
+
+    @Override
+    protected Writer createMergedEntryWriter( String entryName, Writer writer )
+    {
+        if ( entryName.startsWith( WORKSHEET_ENTRY_PREFIX ) )
+        {
+            // the rows generated by a loop have the number of the row template, renumber them.
+            return new RowsNumberingWriter( writer );
+        }
+        return writer;
+    }
+
+    @Override
+    protected String[] getDefaultXMLEntries()
+    {
+        return DEFAULT_XML_ENTRIES;
+    }
+
+    public MimeMapping getMimeMapping()
+    {
+        return MIME_MAPPING;
+    }
+
+    public static boolean isXLSX( XDocArchive documentArchive )
+    {
+        if ( !documentArchive.hasEntry( CONTENT_TYPES_XML ) )
+        {
+            return false;
+        }
+        // <Override PartName="/xl/workbook.xml"
+        // ContentType="application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml"/>
+        return documentArchive.getEntryNames( XL_REGEXP ).size() > 0;
+    }
+
+    @Override
+    protected IImageRegistry createImageRegistry( IEntryReaderProvider readerProvider,
+                                                  IEntryWriterProvider writerProvider,
+                                                  IEntryOutputStreamProvider outputStreamProvider )
+    {
+        // dynamic images are not managed for xlsx.
+        return null;
+    }
+}
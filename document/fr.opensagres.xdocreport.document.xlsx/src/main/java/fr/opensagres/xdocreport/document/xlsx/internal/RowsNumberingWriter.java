@@ -0,0 +1,883 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document.xlsx.internal;
+
+import static fr.opensagres.xdocreport.core.EncodingConstants.APOS;
+import static fr.opensagres.xdocreport.core.EncodingConstants.QUOT;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writer which renumbers on the fly the rows of a merged xl/worksheets/sheet*.xml. The rows generated by a loop
+ * directive are copies of the row template, so they have the same <code>r</code> attribute (and their cells the same
+ * reference), and the rows after the loop must be shifted :
+ * 
+ * <pre>
+ * &lt;row r="2"&gt;&lt;c r="A2"&gt;...&lt;/row&gt;
+ * &lt;row r="2"&gt;&lt;c r="A2"&gt;...&lt;/row&gt;
+ * &lt;row r="3"&gt;&lt;c r="A3"&gt;...&lt;/row&gt;
+ * </pre>
+ * 
+ * becomes
+ * 
+ * <pre>
+ * &lt;row r="2"&gt;&lt;c r="A2"&gt;...&lt;/row&gt;
+ * &lt;row r="3"&gt;&lt;c r="A3"&gt;...&lt;/row&gt;
+ * &lt;row r="4"&gt;&lt;c r="A4"&gt;...&lt;/row&gt;
+ * </pre>
+ * 
+ * The references of the formulas (f element and its ref attribute) and of the merged cells are updated like Excel does
+ * when the rows of the loop are inserted and the row template is filled down :
+ * <ul>
+ * <li>a reference to a row before the formula is shifted. A range which ends with a row template ends with its last
+ * generated row (ex : <code>SUM(B2:B2)</code> after a loop on the row 2 becomes <code>SUM(B2:B4)</code>).</li>
+ * <li>in the generated rows, the relative references follow the generated row (ex : <code>A2*2</code> becomes
+ * <code>A3*2</code> in the second generated row) and the absolute references ($) don't.</li>
+ * <li>a merged cell of a row template is merged in each generated row. The count attribute of mergeCells is removed.
+ * </li>
+ * </ul>
+ * The rows after a formula are not known when the formula is written, so a formula which references a row shifted by
+ * a next loop (ex : a total above the rows of a loop) or a shared formula in a generated row is rejected with an
+ * {@link IOException}. References to other sheets are not updated. The cached values of the formulas are not updated
+ * either : the workbook is marked to be recalculated when it is opened (see XLSXWorkbookPreprocessor).
+ * <p>
+ * Only the start tags of the row, c and mergeCell elements and the formulas are buffered, the rest of the XML is
+ * written as is, so the memory used doesn't depend on the number of generated rows. The dimension element, written
+ * before the rows, is removed by the preprocessor from the sheets which contain a loop.
+ * </p>
+ */
+public class RowsNumberingWriter
+    extends Writer
+{
+
+    private static final String ROW_ELT = "row";
+
+    private static final String C_ELT = "c";
+
+    private static final String F_ELT = "f";
+
+    private static final String MERGE_CELL_ELT = "mergeCell";
+
+    private static final String MERGE_CELLS_ELT = "mergeCells";
+
+    private static final String R_ATTR = "r";
+
+    private static final String REF_ATTR = "ref";
+
+    private static final String T_ATTR = "t";
+
+    private static final String COUNT_ATTR = "count";
+
+    private static final String SHARED_FORMULA_TYPE = "shared";
+
+    private static final int OTHER_TAG = 0;
+
+    private static final int ROW_TAG = 1;
+
+    private static final int C_TAG = 2;
+
+    private static final int F_TAG = 3;
+
+    private static final int MERGE_CELL_TAG = 4;
+
+    private static final int MERGE_CELLS_TAG = 5;
+
+    // the names of the updated elements are short, a longer name is written as is.
+    private static final int MAX_NAME_LENGTH = 16;
+
+    // XFD1048576 is the last cell of a sheet.
+    private static final int MAX_COLUMN_LETTERS = 3;
+
+    private static final int MAX_COLUMN = 16384;
+
+    private static final int MAX_ROW = 1048576;
+
+    private final Writer out;
+
+    // the current start tag (or the start of the tag while the element name is not known).
+    private final StringBuilder tag;
+
+    // the text of the current formula.
+    private final StringBuilder formula;
+
+    private boolean inName;
+
+    private boolean inTag;
+
+    private boolean inFormula;
+
+    // the kind of the current start tag (ROW_TAG, C_TAG...).
+    private int tagKind;
+
+    private char quote;
+
+    // the last row number of the template and the offset to add to get the generated row number.
+    private int lastTemplateRow;
+
+    private int offset;
+
+    private int currentRow;
+
+    // the first and the last generated rows of each row template.
+    private final TreeMap<Integer, int[]> generatedRows;
+
+    // the greatest row (and range end row) after the current row referenced by a written formula.
+    private int maxForwardRow;
+
+    private int maxForwardRangeEndRow;
+
+    private String forwardFormula;
+
+    public RowsNumberingWriter( Writer out )
+    {
+        this.out = out;
+        this.tag = new StringBuilder();
+        this.formula = new StringBuilder();
+        this.generatedRows = new TreeMap<Integer, int[]>();
+    }
+
+    @Override
+    public void write( char[] cbuf, int off, int len )
+        throws IOException
+    {
+        int end = off + len;
+        // start of the chars to write as is.
+        int passStart = off;
+        for ( int i = off; i < end; i++ )
+        {
+            char c = cbuf[i];
+            if ( inFormula )
+            {
+                if ( c != '<' )
+                {
+                    formula.append( c );
+                    passStart = i + 1;
+                    continue;
+                }
+                writeFormula();
+            }
+            if ( inTag )
+            {
+                consumeTag( c );
+            }
+            else if ( inName )
+            {
+                consumeName( c );
+            }
+            else if ( c == '<' )
+            {
+                writeAsIs( cbuf, passStart, i - passStart );
+                tag.append( c );
+                inName = true;
+            }
+            else
+            {
+                continue;
+            }
+            passStart = i + 1;
+        }
+        writeAsIs( cbuf, passStart, end - passStart );
+    }
+
+    private void consumeName( char c )
+        throws IOException
+    {
+        if ( c == '>' || c == '/' || Character.isWhitespace( c ) )
+        {
+            inName = false;
+            tagKind = getTagKind( getLocalName() );
+            if ( tagKind != OTHER_TAG )
+            {
+                inTag = true;
+                consumeTag( c );
+                return;
+            }
+        }
+        else if ( tag.length() <= MAX_NAME_LENGTH && c != '<' )
+        {
+            tag.append( c );
+            return;
+        }
+        // other element, end tag, comment...
+        inName = false;
+        writeTag();
+        if ( c == '<' )
+        {
+            tag.append( c );
+            inName = true;
+        }
+        else
+        {
+            out.write( c );
+        }
+    }
+
+    private static int getTagKind( String localName )
+    {
+        if ( ROW_ELT.equals( localName ) )
+        {
+            return ROW_TAG;
+        }
+        if ( C_ELT.equals( localName ) )
+        {
+            return C_TAG;
+        }
+        if ( F_ELT.equals( localName ) )
+        {
+            return F_TAG;
+        }
+        if ( MERGE_CELL_ELT.equals( localName ) )
+        {
+            return MERGE_CELL_TAG;
+        }
+        if ( MERGE_CELLS_ELT.equals( localName ) )
+        {
+            return MERGE_CELLS_TAG;
+        }
+        return OTHER_TAG;
+    }
+
+    private String getLocalName()
+    {
+        int start = tag.lastIndexOf( ":" ) + 1;
+        return tag.substring( start > 0 ? start : 1 );
+    }
+
+    private void consumeTag( char c )
+        throws IOException
+    {
+        tag.append( c );
+        if ( quote != 0 )
+        {
+            if ( c == quote )
+            {
+                quote = 0;
+            }
+        }
+        else if ( c == '"' || c == '\'' )
+        {
+            quote = c;
+        }
+        else if ( c == '>' )
+        {
+            inTag = false;
+            switch ( tagKind )
+            {
+                case ROW_TAG:
+                    renumberRow();
+                    break;
+                case C_TAG:
+                    renumberCell();
+                    break;
+                case F_TAG:
+                    updateFormulaTag();
+                    // the text of the formula follows if the element is not empty.
+                    inFormula = tag.charAt( tag.length() - 2 ) != '/';
+                    break;
+                case MERGE_CELL_TAG:
+                    writeMergeCells();
+                    return;
+                case MERGE_CELLS_TAG:
+                    if ( !generatedRows.isEmpty() && offset != 0 )
+                    {
+                        // the merged cells of the row templates are duplicated.
+                        removeAttribute( COUNT_ATTR );
+                    }
+                    break;
+            }
+            writeTag();
+        }
+    }
+
+    private void renumberRow()
+        throws IOException
+    {
+        int valueStart = indexOfAttributeValue( R_ATTR );
+        if ( valueStart == -1 )
+        {
+            // no r attribute, the row follows the previous row.
+            lastTemplateRow++;
+            currentRow++;
+            addGeneratedRow( lastTemplateRow );
+            return;
+        }
+        int valueEnd = tag.indexOf( String.valueOf( tag.charAt( valueStart - 1 ) ), valueStart );
+        int templateRow = parseRow( tag.substring( valueStart, valueEnd ) );
+        if ( templateRow < 1 )
+        {
+            return;
+        }
+        if ( templateRow <= lastTemplateRow )
+        {
+            // row generated by a loop
+            checkForwardReferences( templateRow );
+            offset += lastTemplateRow - templateRow + 1;
+        }
+        lastTemplateRow = templateRow;
+        currentRow = templateRow + offset;
+        addGeneratedRow( templateRow );
+        if ( offset != 0 )
+        {
+            tag.replace( valueStart, valueEnd, String.valueOf( currentRow ) );
+        }
+    }
+
+    private void addGeneratedRow( int templateRow )
+    {
+        int[] rows = generatedRows.get( templateRow );
+        if ( rows == null )
+        {
+            generatedRows.put( templateRow, new int[] { currentRow, currentRow } );
+        }
+        else
+        {
+            rows[1] = currentRow;
+        }
+    }
+
+    /**
+     * Reject the written formulas which reference a row after the given row template, which is generated by a loop.
+     */
+    private void checkForwardReferences( int templateRow )
+        throws IOException
+    {
+        if ( maxForwardRow > templateRow || maxForwardRangeEndRow >= templateRow )
+        {
+            throw new IOException( "The formula '" + forwardFormula + "' references a row which is shifted by the loop "
+                + "of the row " + templateRow + " : a formula cannot reference the rows of a loop or after a loop "
+                + "from a row before it." );
+        }
+    }
+
+    private void renumberCell()
+    {
+        if ( offset == 0 || currentRow < 1 )
+        {
+            return;
+        }
+        int valueStart = indexOfAttributeValue( R_ATTR );
+        if ( valueStart == -1 )
+        {
+            return;
+        }
+        int valueEnd = tag.indexOf( String.valueOf( tag.charAt( valueStart - 1 ) ), valueStart );
+        // r="AB12" : replace the row number which follows the column letters
+        int rowStart = valueStart;
+        while ( rowStart < valueEnd && !Character.isDigit( tag.charAt( rowStart ) ) )
+        {
+            rowStart++;
+        }
+        if ( rowStart < valueEnd )
+        {
+            tag.replace( rowStart, valueEnd, String.valueOf( currentRow ) );
+        }
+    }
+
+    /**
+     * Update the ref attribute (range of a shared or array formula) of the current f start tag.
+     */
+    private void updateFormulaTag()
+        throws IOException
+    {
+        if ( getGeneratedRowIndex() > 0 && SHARED_FORMULA_TYPE.equals( getAttributeValue( T_ATTR ) ) )
+        {
+            throw new IOException( "The shared formula of the row " + lastTemplateRow + " cannot be copied by a loop, "
+                + "the formula must be typed in the row template only." );
+        }
+        int valueStart = indexOfAttributeValue( REF_ATTR );
+        if ( valueStart != -1 )
+        {
+            int valueEnd = tag.indexOf( String.valueOf( tag.charAt( valueStart - 1 ) ), valueStart );
+            String ref = tag.substring( valueStart, valueEnd );
+            tag.replace( valueStart, valueEnd, shiftReferences( ref, getGeneratedRowIndex() ) );
+        }
+    }
+
+    private void writeFormula()
+        throws IOException
+    {
+        inFormula = false;
+        if ( formula.length() > 0 )
+        {
+            out.write( shiftReferences( formula.toString(), getGeneratedRowIndex() ) );
+            formula.setLength( 0 );
+        }
+    }
+
+    /**
+     * Write the current mergeCell start tag, once for each generated row if the merged cells are in a row template
+     * generated by a loop.
+     */
+    private void writeMergeCells()
+        throws IOException
+    {
+        int valueStart = indexOfAttributeValue( REF_ATTR );
+        if ( valueStart == -1 )
+        {
+            writeTag();
+            return;
+        }
+        int valueEnd = tag.indexOf( String.valueOf( tag.charAt( valueStart - 1 ) ), valueStart );
+        String ref = tag.substring( valueStart, valueEnd );
+        int[] rows = getSingleRowRange( ref );
+        if ( rows == null || rows[0] == rows[1] )
+        {
+            tag.replace( valueStart, valueEnd, shiftReferences( ref, 0 ) );
+            writeTag();
+            return;
+        }
+        // merged cells in a row template : same merge in each generated row.
+        String before = tag.substring( 0, valueStart );
+        String after = tag.substring( valueEnd );
+        for ( int row = rows[0]; row <= rows[1]; row++ )
+        {
+            out.write( before );
+            out.write( replaceRow( ref, row ) );
+            out.write( after );
+        }
+        tag.setLength( 0 );
+        quote = 0;
+    }
+
+    /**
+     * Returns the generated rows of the row template of the given range if the range is in one row, and null
+     * otherwise.
+     */
+    private int[] getSingleRowRange( String ref )
+    {
+        int colon = ref.indexOf( ':' );
+        int startRow = parseCellRow( colon == -1 ? ref : ref.substring( 0, colon ) );
+        int endRow = colon == -1 ? startRow : parseCellRow( ref.substring( colon + 1 ) );
+        if ( startRow < 1 || startRow != endRow )
+        {
+            return null;
+        }
+        return generatedRows.get( startRow );
+    }
+
+    /**
+     * Returns the given range (ex : A2:B2) with the given row.
+     */
+    private static String replaceRow( String ref, int row )
+    {
+        StringBuilder result = new StringBuilder( ref.length() + 4 );
+        for ( int i = 0; i < ref.length(); i++ )
+        {
+            char c = ref.charAt( i );
+            if ( !Character.isDigit( c ) )
+            {
+                result.append( c );
+            }
+            else if ( i == 0 || !Character.isDigit( ref.charAt( i - 1 ) ) )
+            {
+                result.append( row );
+            }
+        }
+        return result.toString();
+    }
+
+    private static int parseCellRow( String cell )
+    {
+        int i = 0;
+        while ( i < cell.length() && !Character.isDigit( cell.charAt( i ) ) )
+        {
+            i++;
+        }
+        return i < cell.length() ? parseRow( cell.substring( i ) ) : -1;
+    }
+
+    /**
+     * Returns the index of the current row in the rows generated by its row template (0 for the first row).
+     */
+    private int getGeneratedRowIndex()
+    {
+        int[] rows = generatedRows.get( lastTemplateRow );
+        return rows != null ? currentRow - rows[0] : 0;
+    }
+
+    /**
+     * Returns the given formula (or range) with the row of its A1 references updated.
+     * 
+     * @param formula the formula.
+     * @param generatedRowIndex the index of the current row in the rows generated by its row template.
+     * @return the updated formula.
+     */
+    private String shiftReferences( String formula, int generatedRowIndex )
+    {
+        StringBuilder result = null;
+        int copied = 0;
+        int length = formula.length();
+        boolean inString = false;
+        boolean inSheetName = false;
+        // true if the current reference (or range) is preceded by a sheet name
+        boolean otherSheet = false;
+        int i = 0;
+        while ( i < length )
+        {
+            char c = formula.charAt( i );
+            if ( !inSheetName && ( c == '"' || formula.startsWith( QUOT, i ) ) )
+            {
+                inString = !inString;
+                i += c == '"' ? 1 : QUOT.length();
+                continue;
+            }
+            if ( !inString && ( c == '\'' || formula.startsWith( APOS, i ) ) )
+            {
+                inSheetName = !inSheetName;
+                i += c == '\'' ? 1 : APOS.length();
+                continue;
+            }
+            if ( inString || inSheetName || !isReferenceStart( formula, i ) )
+            {
+                i++;
+                continue;
+            }
+            int refEnd = parseReference( formula, i );
+            if ( refEnd == -1 )
+            {
+                // function, defined name...
+                i++;
+                while ( i < length && isNamePart( formula.charAt( i ) ) )
+                {
+                    i++;
+                }
+                continue;
+            }
+            boolean rangeEnd = i > 0 && formula.charAt( i - 1 ) == ':';
+            if ( !rangeEnd )
+            {
+                otherSheet = i > 0 && formula.charAt( i - 1 ) == '!';
+            }
+            if ( !otherSheet )
+            {
+                // the row follows the column letters and the optional $
+                int rowStart = i;
+                while ( !Character.isDigit( formula.charAt( rowStart ) ) )
+                {
+                    rowStart++;
+                }
+                boolean absolute = formula.charAt( rowStart - 1 ) == '$';
+                int row = parseRow( formula.substring( rowStart, refEnd ) );
+                int newRow = shiftRow( row, absolute, rangeEnd, generatedRowIndex, formula );
+                if ( newRow != row )
+                {
+                    if ( result == null )
+                    {
+                        result = new StringBuilder( length + 8 );
+                    }
+                    result.append( formula, copied, rowStart ).append( newRow );
+                    copied = refEnd;
+                }
+            }
+            i = refEnd;
+        }
+        if ( result == null )
+        {
+            return formula;
+        }
+        result.append( formula, copied, length );
+        return result.toString();
+    }
+
+    /**
+     * Returns the generated row of the given row of a reference.
+     */
+    private int shiftRow( int row, boolean absolute, boolean rangeEnd, int generatedRowIndex, String formula )
+    {
+        if ( row > lastTemplateRow )
+        {
+            // the row is not generated yet : it is shifted by the current offset if no other loop is generated before
+            // it.
+            if ( rangeEnd ? row > maxForwardRangeEndRow : row > maxForwardRow )
+            {
+                if ( rangeEnd )
+                {
+                    maxForwardRangeEndRow = row;
+                }
+                else
+                {
+                    maxForwardRow = row;
+                }
+                forwardFormula = formula;
+            }
+            return row + offset + ( absolute ? 0 : generatedRowIndex );
+        }
+        int shiftedRow;
+        int[] rows = generatedRows.get( row );
+        if ( row == lastTemplateRow )
+        {
+            // the current row template, its last generated row is not known yet.
+            shiftedRow = rows[0];
+        }
+        else if ( rows != null )
+        {
+            shiftedRow = rangeEnd ? rows[1] : rows[0];
+        }
+        else
+        {
+            // row without row element : it follows the previous row template.
+            Map.Entry<Integer, int[]> previous = generatedRows.floorEntry( row );
+            shiftedRow = previous != null ? row - previous.getKey() + previous.getValue()[1] : row;
+        }
+        return absolute ? shiftedRow : shiftedRow + generatedRowIndex;
+    }
+
+    private static boolean isReferenceStart( String formula, int index )
+    {
+        char c = formula.charAt( index );
+        if ( c != '$' && !isLetter( c ) )
+        {
+            return false;
+        }
+        return index == 0 || !isNamePart( formula.charAt( index - 1 ) );
+    }
+
+    /**
+     * Returns the end index of the A1 reference (ex : $AB$12) which starts at the given index or -1 if there is no
+     * reference.
+     */
+    private static int parseReference( String formula, int start )
+    {
+        int length = formula.length();
+        int i = start;
+        if ( formula.charAt( i ) == '$' )
+        {
+            i++;
+        }
+        int column = 0;
+        int lettersStart = i;
+        while ( i < length && isLetter( formula.charAt( i ) ) )
+        {
+            column = column * 26 + Character.toUpperCase( formula.charAt( i ) ) - 'A' + 1;
+            i++;
+        }
+        int letters = i - lettersStart;
+        if ( letters == 0 || letters > MAX_COLUMN_LETTERS || column > MAX_COLUMN )
+        {
+            return -1;
+        }
+        if ( i < length && formula.charAt( i ) == '$' )
+        {
+            i++;
+        }
+        int digitsStart = i;
+        while ( i < length && Character.isDigit( formula.charAt( i ) ) )
+        {
+            i++;
+        }
+        if ( i == digitsStart || i - digitsStart > 7 )
+        {
+            return -1;
+        }
+        int row = parseRow( formula.substring( digitsStart, i ) );
+        if ( row < 1 || row > MAX_ROW )
+        {
+            return -1;
+        }
+        if ( i < length )
+        {
+            char c = formula.charAt( i );
+            if ( isNamePart( c ) || c == '(' || c == '!' )
+            {
+                return -1;
+            }
+        }
+        return i;
+    }
+
+    private static boolean isLetter( char c )
+    {
+        return ( c >= 'A' && c <= 'Z' ) || ( c >= 'a' && c <= 'z' );
+    }
+
+    private static boolean isNamePart( char c )
+    {
+        return Character.isLetterOrDigit( c ) || c == '_' || c == '.' || c == '$' || c == '\\';
+    }
+
+    /**
+     * Returns the value of the given attribute in the current start tag or null if the tag has not this attribute.
+     */
+    private String getAttributeValue( String name )
+    {
+        int valueStart = indexOfAttributeValue( name );
+        if ( valueStart == -1 )
+        {
+            return null;
+        }
+        int valueEnd = tag.indexOf( String.valueOf( tag.charAt( valueStart - 1 ) ), valueStart );
+        return tag.substring( valueStart, valueEnd );
+    }
+
+    /**
+     * Remove the given attribute (and the spaces before it) from the current start tag.
+     */
+    private void removeAttribute( String name )
+    {
+        int valueStart = indexOfAttributeValue( name );
+        if ( valueStart == -1 )
+        {
+            return;
+        }
+        int valueEnd = tag.indexOf( String.valueOf( tag.charAt( valueStart - 1 ) ), valueStart );
+        // name="value" : go back to the name
+        int removeStart = tag.lastIndexOf( "=", valueStart );
+        while ( Character.isWhitespace( tag.charAt( removeStart - 1 ) ) )
+        {
+            removeStart--;
+        }
+        removeStart -= name.length();
+        while ( Character.isWhitespace( tag.charAt( removeStart - 1 ) ) )
+        {
+            removeStart--;
+        }
+        tag.delete( removeStart, valueEnd + 1 );
+    }
+
+    /**
+     * Returns the index of the value of the given attribute in the current start tag or -1 if the tag has not this
+     * attribute.
+     */
+    private int indexOfAttributeValue( String name )
+    {
+        int length = tag.length();
+        int i = 1;
+        // skip the element name
+        while ( i < length && !isNameEnd( tag.charAt( i ) ) )
+        {
+            i++;
+        }
+        while ( i < length )
+        {
+            // skip the spaces before the attribute name
+            while ( i < length && Character.isWhitespace( tag.charAt( i ) ) )
+            {
+                i++;
+            }
+            int nameStart = i;
+            while ( i < length && tag.charAt( i ) != '=' && !isNameEnd( tag.charAt( i ) ) )
+            {
+                i++;
+            }
+            int nameEnd = i;
+            while ( i < length && Character.isWhitespace( tag.charAt( i ) ) )
+            {
+                i++;
+            }
+            if ( i >= length || tag.charAt( i ) != '=' )
+            {
+                return -1;
+            }
+            i++;
+            while ( i < length && Character.isWhitespace( tag.charAt( i ) ) )
+            {
+                i++;
+            }
+            if ( i >= length )
+            {
+                return -1;
+            }
+            char q = tag.charAt( i );
+            if ( q != '"' && q != '\'' )
+            {
+                return -1;
+            }
+            int valueStart = i + 1;
+            if ( nameEnd - nameStart == name.length() && tag.indexOf( name, nameStart ) == nameStart )
+            {
+                return valueStart;
+            }
+            i = tag.indexOf( String.valueOf( q ), valueStart );
+            if ( i == -1 )
+            {
+                return -1;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    private static boolean isNameEnd( char c )
+    {
+        return c == '>' || c == '/' || Character.isWhitespace( c );
+    }
+
+    private static int parseRow( String value )
+    {
+        try
+        {
+            return Integer.parseInt( value.trim() );
+        }
+        catch ( NumberFormatException e )
+        {
+            return -1;
+        }
+    }
+
+    private void writeAsIs( char[] cbuf, int off, int len )
+        throws IOException
+    {
+        if ( len > 0 )
+        {
+            out.write( cbuf, off, len );
+        }
+    }
+
+    private void writeTag()
+        throws IOException
+    {
+        if ( tag.length() > 0 )
+        {
+            out.append( tag );
+            tag.setLength( 0 );
+        }
+        quote = 0;
+    }
+
+    @Override
+    public void flush()
+        throws IOException
+    {
+        // the current tag and formula are kept to update them.
+        out.flush();
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        if ( inFormula )
+        {
+            writeFormula();
+        }
+        writeTag();
+        inName = false;
+        inTag = false;
+        out.close();
+    }
+}
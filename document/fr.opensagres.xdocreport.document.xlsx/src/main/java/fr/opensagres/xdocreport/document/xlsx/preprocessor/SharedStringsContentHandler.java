@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document.xlsx.preprocessor;
+
+import static fr.opensagres.xdocreport.document.xlsx.XLSXConstants.RPH_ELT;
+import static fr.opensagres.xdocreport.document.xlsx.XLSXConstants.SI_ELT;
+import static fr.opensagres.xdocreport.document.xlsx.XLSXConstants.T_ELT;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import fr.opensagres.xdocreport.template.formatter.IDocumentFormatter;
+
+/**
+ * SAX content handler which collects the text of the shared strings (si) of xl/sharedStrings.xml. The text of a rich
+ * string is the concatenation of the text of its runs (the phonetic runs are ignored). Only the strings which contain
+ * a field or a directive are kept.
+ */
+public class SharedStringsContentHandler
+    extends DefaultHandler
+{
+
+    private final IDocumentFormatter formatter;
+
+    private final Map<Integer, String> templateSharedStrings;
+
+    private final StringBuilder text;
+
+    private int index;
+
+    private boolean inText;
+
+    private boolean inPhoneticRun;
+
+    public SharedStringsContentHandler( IDocumentFormatter formatter )
+    {
+        this.formatter = formatter;
+        this.templateSharedStrings = new HashMap<Integer, String>();
+        this.text = new StringBuilder();
+        this.index = 0;
+    }
+
+    @Override
+    public void startElement( String uri, String localName, String name, Attributes attributes )
+        throws SAXException
+    {
+        if ( SI_ELT.equals( localName ) )
+        {
+            text.setLength( 0 );
+        }
+        else if ( RPH_ELT.equals( localName ) )
+        {
+            inPhoneticRun = true;
+        }
+        else if ( T_ELT.equals( localName ) )
+        {
+            inText = !inPhoneticRun;
+        }
+    }
+
+    @Override
+    public void characters( char[] ch, int start, int length )
+        throws SAXException
+    {
+        if ( inText )
+        {
+            text.append( ch, start, length );
+        }
+    }
+
+    @Override
+    public void endElement( String uri, String localName, String name )
+        throws SAXException
+    {
+        if ( SI_ELT.equals( localName ) )
+        {
+            String content = text.toString();
+            if ( formatter.containsInterpolation( content ) || formatter.hasDirective( content ) )
+            {
+                templateSharedStrings.put( index, content );
+            }
+            index++;
+        }
+        else if ( RPH_ELT.equals( localName ) )
+        {
+            inPhoneticRun = false;
+        }
+        else if ( T_ELT.equals( localName ) )
+        {
+            inText = false;
+        }
+    }
+
+    public Map<Integer, String> getTemplateSharedStrings()
+    {
+        return templateSharedStrings;
+    }
+}
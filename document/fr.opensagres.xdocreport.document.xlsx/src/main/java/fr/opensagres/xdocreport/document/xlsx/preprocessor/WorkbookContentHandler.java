@@ -0,0 +1,115 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document.xlsx.preprocessor;
+
+import static fr.opensagres.xdocreport.document.xlsx.XLSXConstants.CALC_PR_ELT;
+import static fr.opensagres.xdocreport.document.xlsx.XLSXConstants.FULL_CALC_ON_LOAD_ATTR;
+import static fr.opensagres.xdocreport.document.xlsx.XLSXConstants.S_NS;
+import static fr.opensagres.xdocreport.document.xlsx.XLSXConstants.WORKBOOK_ELT;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+import fr.opensagres.xdocreport.document.preprocessor.sax.BufferedDocument;
+import fr.opensagres.xdocreport.document.preprocessor.sax.BufferedDocumentContentHandler;
+
+/**
+ * SAX content handler for xl/workbook.xml which sets the fullCalcOnLoad attribute of calcPr :
+ * 
+ * <pre>
+ * &lt;calcPr calcId="145621" fullCalcOnLoad="1"/&gt;
+ * </pre>
+ * 
+ * The calcPr element is created at its place (before the elements which follow it in the schema) if the workbook has
+ * not this element.
+ */
+public class WorkbookContentHandler
+    extends BufferedDocumentContentHandler<BufferedDocument>
+{
+
+    // the children of workbook which follow calcPr
+    private static final List<String> AFTER_CALC_PR_ELTS = Arrays.asList( "oleSize", "customWorkbookViews",
+                                                                          "pivotCaches", "smartTagPr",
+                                                                          "smartTagTypes", "webPublishing",
+                                                                          "fileRecoveryPr", "webPublishObjects",
+                                                                          "extLst" );
+
+    private static final String FULL_CALC_ON_LOAD_VALUE = "1";
+
+    private boolean calcPrFound;
+
+    @Override
+    public boolean doStartElement( String uri, String localName, String name, Attributes attributes )
+        throws SAXException
+    {
+        if ( S_NS.equals( uri ) && getElementIndex() == 1 )
+        {
+            if ( CALC_PR_ELT.equals( localName ) )
+            {
+                calcPrFound = true;
+                AttributesImpl attributesImpl = toAttributesImpl( attributes );
+                int index = attributesImpl.getIndex( FULL_CALC_ON_LOAD_ATTR );
+                if ( index == -1 )
+                {
+                    attributesImpl.addAttribute( "", FULL_CALC_ON_LOAD_ATTR, FULL_CALC_ON_LOAD_ATTR, CDATA_TYPE,
+                                                 FULL_CALC_ON_LOAD_VALUE );
+                }
+                else
+                {
+                    attributesImpl.setValue( index, FULL_CALC_ON_LOAD_VALUE );
+                }
+                return super.doStartElement( uri, localName, name, attributesImpl );
+            }
+            if ( !calcPrFound && AFTER_CALC_PR_ELTS.contains( localName ) )
+            {
+                appendCalcPr( name, localName );
+            }
+        }
+        return super.doStartElement( uri, localName, name, attributes );
+    }
+
+    @Override
+    public void doEndElement( String uri, String localName, String name )
+        throws SAXException
+    {
+        if ( !calcPrFound && S_NS.equals( uri ) && WORKBOOK_ELT.equals( localName ) )
+        {
+            appendCalcPr( name, localName );
+        }
+        super.doEndElement( uri, localName, name );
+    }
+
+    private void appendCalcPr( String name, String localName )
+    {
+        calcPrFound = true;
+        String prefix = name.substring( 0, name.length() - localName.length() );
+        getCurrentElement().append( "<" + prefix + CALC_PR_ELT + " " + FULL_CALC_ON_LOAD_ATTR + "=\""
+                                        + FULL_CALC_ON_LOAD_VALUE + "\"/>" );
+    }
+}
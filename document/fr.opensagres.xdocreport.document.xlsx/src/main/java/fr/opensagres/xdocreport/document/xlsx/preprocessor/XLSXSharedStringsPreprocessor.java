@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document.xlsx.preprocessor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.Map;
+
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.XMLReaderFactory;
+
+import fr.opensagres.xdocreport.core.XDocReportException;
+import fr.opensagres.xdocreport.core.io.IOUtils;
+import fr.opensagres.xdocreport.core.io.XDocArchive;
+import fr.opensagres.xdocreport.document.preprocessor.AbstractXDocPreprocessor;
+import fr.opensagres.xdocreport.document.preprocessor.IXDocPreprocessor;
+import fr.opensagres.xdocreport.template.formatter.FieldsMetadata;
+import fr.opensagres.xdocreport.template.formatter.IDocumentFormatter;
+
+/**
+ * Preprocessor which parses xl/sharedStrings.xml to collect the shared strings which contain a field or a directive.
+ * Those strings are used by {@link XLSXSheetPreprocessor} to transform the cells which reference them into inline
+ * string cells. The entry itself is not modified.
+ */
+public class XLSXSharedStringsPreprocessor
+    extends AbstractXDocPreprocessor<InputStream>
+{
+
+    public static final IXDocPreprocessor INSTANCE = new XLSXSharedStringsPreprocessor();
+
+    private static final String TEMPLATE_SHARED_STRINGS_KEY = "___XLSXTemplateSharedStrings";
+
+    @Override
+    public boolean preprocess( String entryName, InputStream reader, Writer writer, FieldsMetadata fieldsMetadata,
+                               IDocumentFormatter formatter, Map<String, Object> sharedContext )
+        throws XDocReportException, IOException
+    {
+        if ( formatter == null || sharedContext == null )
+        {
+            return false;
+        }
+        try
+        {
+            XMLReader xmlReader = XMLReaderFactory.createXMLReader();
+            SharedStringsContentHandler contentHandler = new SharedStringsContentHandler( formatter );
+            xmlReader.setContentHandler( contentHandler );
+            xmlReader.parse( new InputSource( reader ) );
+            sharedContext.put( TEMPLATE_SHARED_STRINGS_KEY, contentHandler.getTemplateSharedStrings() );
+            // the entry is not modified.
+            return false;
+        }
+        catch ( SAXException e )
+        {
+            throw new XDocReportException( e );
+        }
+    }
+
+    /**
+     * Returns the shared strings (by index) which contain a field or a directive, collected by this preprocessor.
+     * 
+     * @param sharedContext
+     * @return
+     */
+    @SuppressWarnings( "unchecked" )
+    public static Map<Integer, String> getTemplateSharedStrings( Map<String, Object> sharedContext )
+    {
+        Map<Integer, String> sharedStrings =
+            sharedContext != null ? (Map<Integer, String>) sharedContext.get( TEMPLATE_SHARED_STRINGS_KEY ) : null;
+        if ( sharedStrings == null )
+        {
+            return Collections.emptyMap();
+        }
+        return sharedStrings;
+    }
+
+    @Override
+    protected InputStream getSource( XDocArchive documentArchive, String entryName )
+    {
+        return documentArchive.getEntryInputStream( entryName );
+    }
+
+    @Override
+    protected void closeSource( InputStream reader )
+    {
+        if ( reader != null )
+        {
+            IOUtils.closeQuietly( reader );
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document.xlsx.preprocessor;
+
+import fr.opensagres.xdocreport.document.preprocessor.sax.TransformedBufferedDocument;
+import fr.opensagres.xdocreport.document.xlsx.XLSXConstants;
+
+public class XLSXSheetBufferedDocument
+    extends TransformedBufferedDocument
+{
+
+    @Override
+    protected boolean isTable( String uri, String localName, String name )
+    {
+        return XLSXConstants.S_NS.equals( uri ) && XLSXConstants.SHEET_DATA_ELT.equals( localName );
+    }
+
+    @Override
+    protected boolean isTableRow( String uri, String localName, String name )
+    {
+        return XLSXConstants.S_NS.equals( uri ) && XLSXConstants.ROW_ELT.equals( localName );
+    }
+}
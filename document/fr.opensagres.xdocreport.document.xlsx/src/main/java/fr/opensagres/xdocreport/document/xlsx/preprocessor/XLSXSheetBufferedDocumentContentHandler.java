@@ -0,0 +1,266 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document.xlsx.preprocessor;
+
+import static fr.opensagres.xdocreport.core.EncodingConstants.AMP;
+import static fr.opensagres.xdocreport.core.EncodingConstants.APOS;
+import static fr.opensagres.xdocreport.core.EncodingConstants.GT;
+import static fr.opensagres.xdocreport.core.EncodingConstants.LT;
+import static fr.opensagres.xdocreport.document.xlsx.XLSXConstants.C_ELT;
+import static fr.opensagres.xdocreport.document.xlsx.XLSXConstants.DIMENSION_ELT;
+import static fr.opensagres.xdocreport.document.xlsx.XLSXConstants.INLINE_STRING_TYPE;
+import static fr.opensagres.xdocreport.document.xlsx.XLSXConstants.IS_ELT;
+import static fr.opensagres.xdocreport.document.xlsx.XLSXConstants.ROW_ELT;
+import static fr.opensagres.xdocreport.document.xlsx.XLSXConstants.SHARED_STRING_TYPE;
+import static fr.opensagres.xdocreport.document.xlsx.XLSXConstants.S_NS;
+import static fr.opensagres.xdocreport.document.xlsx.XLSXConstants.T_ATTR;
+import static fr.opensagres.xdocreport.document.xlsx.XLSXConstants.T_ELT;
+import static fr.opensagres.xdocreport.document.xlsx.XLSXConstants.V_ELT;
+import static fr.opensagres.xdocreport.document.xlsx.XLSXConstants.WORKSHEET_ELT;
+
+import java.util.Map;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+import fr.opensagres.xdocreport.core.utils.StringUtils;
+import fr.opensagres.xdocreport.document.preprocessor.sax.BufferedAttribute;
+import fr.opensagres.xdocreport.document.preprocessor.sax.BufferedElement;
+import fr.opensagres.xdocreport.document.preprocessor.sax.IBufferedRegion;
+import fr.opensagres.xdocreport.document.preprocessor.sax.RowBufferedRegion;
+import fr.opensagres.xdocreport.document.preprocessor.sax.TransformedBufferedDocumentContentHandler;
+import fr.opensagres.xdocreport.template.formatter.FieldsMetadata;
+import fr.opensagres.xdocreport.template.formatter.IDocumentFormatter;
+
+/**
+ * SAX content handler for xl/worksheets/sheet*.xml. The fields are typed in the cells text, so Excel stores them in
+ * xl/sharedStrings.xml and the cell only references the index of the shared string :
+ * 
+ * <pre>
+ * &lt;c r="A2" t="s"&gt;&lt;v&gt;3&lt;/v&gt;&lt;/c&gt;
+ * </pre>
+ * 
+ * When the shared string contains a field or a directive, the cell is transformed into an inline string cell which
+ * contains the text of the shared string :
+ * 
+ * <pre>
+ * &lt;c r="A2" t="inlineStr"&gt;&lt;is&gt;&lt;t&gt;${developers.name}&lt;/t&gt;&lt;/is&gt;&lt;/c&gt;
+ * </pre>
+ * 
+ * and the lazy Freemarker/Velocity loop directive is generated in the row (row) which contains a list field. The
+ * dimension element of a sheet with a loop is removed : the generated rows are not known when it is written.
+ */
+public class XLSXSheetBufferedDocumentContentHandler
+    extends TransformedBufferedDocumentContentHandler<XLSXSheetBufferedDocument>
+{
+
+    private final Map<Integer, String> templateSharedStrings;
+
+    // t attribute of the current cell which references a shared string.
+    private BufferedAttribute sharedStringType;
+
+    private boolean inSharedStringValue;
+
+    private String sharedStringValue;
+
+    private BufferedElement dimension;
+
+    private boolean hasLoop;
+
+    public XLSXSheetBufferedDocumentContentHandler( String entryName, FieldsMetadata fieldsMetadata,
+                                                    IDocumentFormatter formatter, Map<String, Object> sharedContext )
+    {
+        super( entryName, fieldsMetadata, formatter, sharedContext );
+        this.templateSharedStrings = XLSXSharedStringsPreprocessor.getTemplateSharedStrings( sharedContext );
+    }
+
+    @Override
+    protected XLSXSheetBufferedDocument createDocument()
+    {
+        return new XLSXSheetBufferedDocument();
+    }
+
+    @Override
+    public boolean doStartElement( String uri, String localName, String name, Attributes attributes )
+        throws SAXException
+    {
+        if ( isSheetElement( uri, localName, C_ELT ) )
+        {
+            sharedStringType = null;
+            if ( !templateSharedStrings.isEmpty() && SHARED_STRING_TYPE.equals( attributes.getValue( T_ATTR ) ) )
+            {
+                // the t attribute is generated as dynamic attribute to update it when the value is parsed.
+                AttributesImpl attributesImpl = toAttributesImpl( attributes );
+                attributesImpl.removeAttribute( attributesImpl.getIndex( T_ATTR ) );
+                sharedStringType = getCurrentElement().setAttribute( T_ATTR, SHARED_STRING_TYPE );
+                return super.doStartElement( uri, localName, name, attributesImpl );
+            }
+        }
+        else if ( isSheetElement( uri, localName, DIMENSION_ELT ) )
+        {
+            boolean result = super.doStartElement( uri, localName, name, attributes );
+            dimension = getCurrentElement();
+            return result;
+        }
+        else if ( sharedStringType != null && isSheetElement( uri, localName, V_ELT ) )
+        {
+            // the v element is generated at the end, when the index of the shared string is known.
+            inSharedStringValue = true;
+            sharedStringValue = null;
+            return false;
+        }
+        return super.doStartElement( uri, localName, name, attributes );
+    }
+
+    @Override
+    protected void flushCharacters( String characters )
+    {
+        if ( inSharedStringValue )
+        {
+            sharedStringValue = characters;
+            return;
+        }
+        super.flushCharacters( characters );
+    }
+
+    @Override
+    public void doEndElement( String uri, String localName, String name )
+        throws SAXException
+    {
+        if ( inSharedStringValue && isSheetElement( uri, localName, V_ELT ) )
+        {
+            inSharedStringValue = false;
+            IBufferedRegion currentRegion = getCurrentElement();
+            String text = getTemplateSharedString( sharedStringValue );
+            if ( text == null )
+            {
+                // static shared string, the cell is not modified.
+                currentRegion.append( "<" );
+                currentRegion.append( name );
+                currentRegion.append( ">" );
+                if ( sharedStringValue != null )
+                {
+                    currentRegion.append( sharedStringValue );
+                }
+                currentRegion.append( "</" );
+                currentRegion.append( name );
+                currentRegion.append( ">" );
+            }
+            else
+            {
+                sharedStringType.setValue( INLINE_STRING_TYPE );
+                String prefix = name.substring( 0, name.length() - localName.length() );
+                // the spaces at the start and the end of the text (and of the merged values) must be kept.
+                currentRegion.append( "<" + prefix + IS_ELT + "><" + prefix + T_ELT + " xml:space=\"preserve\">" );
+                // generate the loop directive in the row if the text contains a list field.
+                super.flushCharacters( encode( text ) );
+                currentRegion.append( "</" + prefix + T_ELT + "></" + prefix + IS_ELT + ">" );
+            }
+            return;
+        }
+        if ( isSheetElement( uri, localName, C_ELT ) )
+        {
+            sharedStringType = null;
+        }
+        else if ( isSheetElement( uri, localName, ROW_ELT ) )
+        {
+            RowBufferedRegion row = bufferedDocument.getCurrentTableRow();
+            hasLoop |= row != null && row.isLoopTemplateDirectiveInitilalized();
+        }
+        else if ( isSheetElement( uri, localName, WORKSHEET_ELT ) && hasLoop && dimension != null )
+        {
+            dimension.reset();
+        }
+        super.doEndElement( uri, localName, name );
+    }
+
+    private String getTemplateSharedString( String index )
+    {
+        if ( StringUtils.isEmpty( index ) )
+        {
+            return null;
+        }
+        Integer i = StringUtils.asInteger( index.trim() );
+        return i != null ? templateSharedStrings.get( i ) : null;
+    }
+
+    private static boolean isSheetElement( String uri, String localName, String elementName )
+    {
+        return S_NS.equals( uri ) && elementName.equals( localName );
+    }
+
+    /**
+     * Encode the given text like the characters of the parsed XML.
+     */
+    private static String encode( String text )
+    {
+        StringBuilder encoded = new StringBuilder( text.length() );
+        for ( int i = 0; i < text.length(); i++ )
+        {
+            char c = text.charAt( i );
+            if ( c == '<' )
+            {
+                encoded.append( LT );
+            }
+            else if ( c == '>' )
+            {
+                encoded.append( GT );
+            }
+            else if ( c == '\'' )
+            {
+                encoded.append( APOS );
+            }
+            else if ( c == '&' )
+            {
+                encoded.append( AMP );
+            }
+            else
+            {
+                encoded.append( c );
+            }
+        }
+        return encoded.toString();
+    }
+
+    @Override
+    protected String getTableTableName()
+    {
+        return "sheetData";
+    }
+
+    @Override
+    protected String getTableRowName()
+    {
+        return "row";
+    }
+
+    @Override
+    protected String getTableCellName()
+    {
+        return "c";
+    }
+
+}
@@ -26,28 +26,45 @@ package fr.opensagres.xdocreport.document;
 
 import static fr.opensagres.xdocreport.core.utils.StringUtils.EMPTY_STRING_ARRAY;
 
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import fr.opensagres.xdocreport.converter.ConverterRegistry;
 import fr.opensagres.xdocreport.converter.IConverter;
 import fr.opensagres.xdocreport.converter.Options;
 import fr.opensagres.xdocreport.converter.XDocConverterException;
+import fr.opensagres.xdocreport.core.EncodingConstants;
 import fr.opensagres.xdocreport.core.XDocReportException;
 import fr.opensagres.xdocreport.core.io.IEntryOutputStreamProvider;
 import fr.opensagres.xdocreport.core.io.IEntryReaderProvider;
 import fr.opensagres.xdocreport.core.io.IEntryWriterProvider;
+import fr.opensagres.xdocreport.core.io.IEntryStorage;
 import fr.opensagres.xdocreport.core.io.XDocArchive;
+import fr.opensagres.xdocreport.core.io.ZipCompressionOptions;
 import fr.opensagres.xdocreport.core.logging.LogUtils;
 import fr.opensagres.xdocreport.core.utils.StringUtils;
 import fr.opensagres.xdocreport.document.dump.DumperOptions;
@@ -59,6 +76,7 @@ import fr.opensagres.xdocreport.document.preprocessor.IXDocPreprocessor;
 import fr.opensagres.xdocreport.document.preprocessor.sax.BufferedElement;
 import fr.opensagres.xdocreport.document.registry.TextStylingRegistry;
 import fr.opensagres.xdocreport.document.registry.XDocReportRegistry;
+import fr.opensagres.xdocreport.template.AbstractTemplateEngine;
 import fr.opensagres.xdocreport.template.FieldsExtractor;
 import fr.opensagres.xdocreport.template.IContext;
 import fr.opensagres.xdocreport.template.ITemplateEngine;
@@ -68,6 +86,19 @@ import fr.opensagres.xdocreport.template.formatter.IDocumentFormatter;
 
 /**
  * Abstract class for {@link IXDocReport} to implement to manage docx, odt...
+ * <p>
+ * A loaded report can be processed (or converted) by several threads at the same time :
+ * <ul>
+ * <li>the preprocessing is done once, by the first thread which needs it. The other threads wait for the end of this
+ * preprocessing instead of doing it again.</li>
+ * <li>the state computed by the preprocessing (preprocessed archive, text styling elements...) is only read by the
+ * process.</li>
+ * <li>the state of a process (output archive, image registry...) is stored in the given {@link IContext}.</li>
+ * </ul>
+ * The report configuration (template engine, preprocessors, document archive, fields metadata...) must be done before
+ * sharing the report with several threads. The threads read an immutable snapshot of the fields metadata (see
+ * {@link FieldsMetadata#freeze()}).
+ * </p>
  */
 public abstract class AbstractXDocReport
     implements IXDocReport
@@ -83,6 +114,17 @@ public abstract class AbstractXDocReport
     private Map<String, Collection<IXDocPreprocessor>> preprocessors =
         new LinkedHashMap<String, Collection<IXDocPreprocessor>>();
 
+    /**
+     * Map of the entry names (registered with a preprocessor) which must be preprocessed before an entry name, used
+     * when the preprocessing is parallel.
+     */
+    private final Map<String, Set<String>> preprocessorDependencies = new HashMap<String, Set<String>>();
+
+    /**
+     * Executor used to preprocess the entries in parallel, null to preprocess them one after another.
+     */
+    private transient Executor preprocessingExecutor;
+
 /**
      * id of the {@link IXDocReport}. This id is used to cache an instance of {@link IXDocReport} with
      * {@link XDocReportRegistry#loadReport(InputStream) and get instance from cache with
@@ -115,12 +157,17 @@ public abstract class AbstractXDocReport
     /**
      * Fields metadata used to manage lazy loop for table row.
      */
-    private FieldsMetadata fieldsMetadata;
+    private volatile FieldsMetadata fieldsMetadata;
 
     /**
      * True if preprocessing was done et false otherwise.
      */
-    private boolean preprocessed;
+    private volatile boolean preprocessed;
+
+    /**
+     * The preprocessing which is running, waited by the other threads which process the report.
+     */
+    private transient FutureTask<Void> preprocessingTask;
 
     /**
      * Cache or not for original document archive.
@@ -130,14 +177,29 @@ public abstract class AbstractXDocReport
     /**
      * Custom data.
      */
-    private Map<String, Object> data = null;
+    private final Map<String, Object> data = new ConcurrentHashMap<String, Object>();
 
     private long lastModified;
 
+    /**
+     * Options used to zip the generated report.
+     */
+    private ZipCompressionOptions zipCompressionOptions;
+
+    /**
+     * Storage of the entries of the original and preprocessed archives (null for the heap).
+     */
+    private IEntryStorage entryStorage;
+
     /**
      * Map of {@link BufferedElement} used for text styling to
      */
-    private Map<String, BufferedElement> elementsCache;
+    private volatile Map<String, BufferedElement> elementsCache;
+
+    /**
+     * Plan of the process computed once the preprocessing is done (null if it must be computed).
+     */
+    private volatile RenderPlan renderPlan;
 
     protected AbstractXDocReport()
     {
@@ -176,7 +238,7 @@ public abstract class AbstractXDocReport
             preprocessed = false;
         }
         // Load zipped XML Document (odt, docx...)
-        setDocumentArchive( XDocArchive.readZip( sourceStream ) );
+        setDocumentArchive( XDocArchive.readZip( sourceStream, entryStorage ) );
     }
 
     /*
@@ -189,18 +251,31 @@ public abstract class AbstractXDocReport
     {
         this.lastModified = System.currentTimeMillis();
         this.preprocessed = false;
+        this.renderPlan = null;
+        // the templates of the previous document must not be used
+        evictTemplates();
         if ( cacheOriginalDocument )
         {
-            this.originalArchive = documentArchive;
-            this.preprocessedArchive = documentArchive.createCopy();
+            this.originalArchive = toEntryStorage( documentArchive );
+            this.preprocessedArchive = documentArchive.createCopy( entryStorage );
         }
         else
         {
             this.originalArchive = null;
-            this.preprocessedArchive = documentArchive;
+            this.preprocessedArchive = toEntryStorage( documentArchive );
         }
         // Execute preprocessor and modify the original zipped XML Document
         doPreprocessorIfNeeded();
+        // a process started before the new archive was set can have cached the templates of the previous document
+        evictTemplates();
+    }
+
+    private void evictTemplates()
+    {
+        if ( templateEngine instanceof AbstractTemplateEngine && StringUtils.isNotEmpty( getId() ) )
+        {
+            ( (AbstractTemplateEngine) templateEngine ).evictTemplates( getId() );
+        }
     }
 
     /*
@@ -266,6 +341,7 @@ public abstract class AbstractXDocReport
     public void removePreprocessor( String entryName )
     {
         preprocessors.remove( entryName );
+        preprocessorDependencies.remove( entryName );
     }
 
     /**
@@ -274,6 +350,28 @@ public abstract class AbstractXDocReport
     public void removeAllPreprocessors()
     {
         preprocessors.clear();
+        preprocessorDependencies.clear();
+    }
+
+    public void addPreprocessorDependency( String entryName, String requiredEntryName )
+    {
+        Set<String> requiredEntryNames = preprocessorDependencies.get( entryName );
+        if ( requiredEntryNames == null )
+        {
+            requiredEntryNames = new LinkedHashSet<String>();
+            preprocessorDependencies.put( entryName, requiredEntryNames );
+        }
+        requiredEntryNames.add( requiredEntryName );
+    }
+
+    public void setPreprocessingExecutor( Executor preprocessingExecutor )
+    {
+        this.preprocessingExecutor = preprocessingExecutor;
+    }
+
+    public Executor getPreprocessingExecutor()
+    {
+        return preprocessingExecutor;
     }
 
     /**
@@ -299,6 +397,20 @@ public abstract class AbstractXDocReport
         return fieldsMetadata;
     }
 
+    /**
+     * Returns the immutable snapshot (see {@link FieldsMetadata#freeze()}) of the fields metadata used by the
+     * preprocessing and the process of the report, and null if there is no fields metadata. The snapshot is shared by
+     * the threads which process the report, so preprocessors and image registries must use it instead of the mutable
+     * fields metadata.
+     * 
+     * @return
+     */
+    protected FieldsMetadata getFrozenFieldsMetadata()
+    {
+        FieldsMetadata fieldsMetadata = this.fieldsMetadata;
+        return fieldsMetadata != null ? fieldsMetadata.freeze() : null;
+    }
+
     /**
      * Create fields metadata.
      * 
@@ -317,6 +429,54 @@ public abstract class AbstractXDocReport
         doPreprocessorIfNeeded();
     }
 
+    public void compile()
+        throws XDocReportException, IOException
+    {
+        doPreprocessorIfNeeded();
+        if ( !( templateEngine instanceof AbstractTemplateEngine ) )
+        {
+            // the template engine doesn't manage compilation
+            return;
+        }
+        AbstractTemplateEngine engine = (AbstractTemplateEngine) templateEngine;
+        for ( String entryName : getRenderPlan().getMergedEntryNames() )
+        {
+            engine.compile( getId(), entryName );
+        }
+    }
+
+    /**
+     * Returns the plan of the process of the report, computed once the preprocessing is done and reused by each
+     * process.
+     * 
+     * @return
+     * @throws XDocReportException
+     */
+    protected RenderPlan getRenderPlan()
+        throws XDocReportException
+    {
+        RenderPlan plan = renderPlan;
+        if ( plan == null )
+        {
+            plan = RenderPlan.create( internalGetDocumentArchive(), internalGetXMLEntries(), getStreamedEntries() );
+            if ( preprocessed )
+            {
+                // the plan of a not preprocessed archive could miss entries created by the preprocessors.
+                renderPlan = plan;
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Reset the plan of the process of the report. Must be called when the entries to merge or to stream change (ex
+     * : {@link #getStreamedEntries()} depends on a property of the report).
+     */
+    protected void resetRenderPlan()
+    {
+        this.renderPlan = null;
+    }
+
     /**
      * Execute processors registered to modify entry names of the original document archive. Processors use
      * {@link FieldsMetadata} and {@link IDocumentFormatter} (coming from {@link ITemplateEngine#getDocumentFormatter()}
@@ -338,59 +498,138 @@ public abstract class AbstractXDocReport
             // template engine is not set, so preprocessing cannot be done
             return;
         }
-        Map<String, Object> sharedContext = new HashMap<String, Object>();
+        FutureTask<Void> task = null;
+        boolean owner = false;
+        synchronized ( this )
+        {
+            if ( preprocessed )
+            {
+                return;
+            }
+            task = preprocessingTask;
+            if ( task == null )
+            {
+                // the current thread does the preprocessing
+                task = new FutureTask<Void>( new Callable<Void>()
+                {
+                    public Void call()
+                        throws Exception
+                    {
+                        doPreprocessor();
+                        return null;
+                    }
+                } );
+                preprocessingTask = task;
+                owner = true;
+            }
+        }
+        try
+        {
+            if ( owner )
+            {
+                task.run();
+            }
+            // wait for the end of the preprocessing
+            task.get();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new XDocReportException( e );
+        }
+        catch ( ExecutionException e )
+        {
+            rethrow( e );
+        }
+        finally
+        {
+            if ( owner )
+            {
+                synchronized ( this )
+                {
+                    if ( preprocessingTask == task )
+                    {
+                        preprocessingTask = null;
+                    }
+                }
+            }
+        }
+    }
+
+    private static void rethrow( ExecutionException e )
+        throws XDocReportException, IOException
+    {
+        Throwable cause = e.getCause();
+        if ( cause instanceof RuntimeException )
+        {
+            throw (RuntimeException) cause;
+        }
+        if ( cause instanceof Error )
+        {
+            throw (Error) cause;
+        }
+        if ( cause instanceof IOException )
+        {
+            throw (IOException) cause;
+        }
+        if ( cause instanceof XDocReportException )
+        {
+            throw (XDocReportException) cause;
+        }
+        throw new XDocReportException( cause );
+    }
+
+    private void doPreprocessor()
+        throws XDocReportException, IOException
+    {
+        // the shared context can be used by several preprocessors at the same time (see setPreprocessingExecutor)
+        Map<String, Object> sharedContext = Collections.synchronizedMap( new HashMap<String, Object>() );
+        FieldsMetadata fieldsMetadata = getFrozenFieldsMetadata();
+        Map<String, BufferedElement> elementsCache = null;
         if ( fieldsMetadata != null && fieldsMetadata.getFieldsAsTextStyling().size() > 0 )
         {
-            elementsCache = new HashMap<String, BufferedElement>();
+            elementsCache = new ConcurrentHashMap<String, BufferedElement>();
             sharedContext.put( DocumentContextHelper.ELEMENTS_KEY, elementsCache );
         }
         onBeforePreprocessing( sharedContext, preprocessedArchive );
         try
         {
             IDocumentFormatter formatter = internalGetTemplateEngine().getDocumentFormatter();
-            
-            // Loop for each preprocessor registered
-            for ( Entry<String, Collection<IXDocPreprocessor>> entry : preprocessors.entrySet() )
+            if ( preprocessingExecutor != null )
             {
-                String preprocessorName = entry.getKey();
-                Collection<IXDocPreprocessor> entryPreprocessors = entry.getValue();
-                if ( preprocessedArchive.hasEntry( preprocessorName ) )
+                doParallelPreprocessor( fieldsMetadata, formatter, sharedContext );
+            }
+            else
+            {
+                // Loop for each preprocessor registered
+                for ( Entry<String, Collection<IXDocPreprocessor>> entry : preprocessors.entrySet() )
                 {
-                    for ( IXDocPreprocessor preprocessor : entryPreprocessors )
+                    String preprocessorName = entry.getKey();
+                    Collection<IXDocPreprocessor> entryPreprocessors = entry.getValue();
+                    if ( preprocessedArchive.hasEntry( preprocessorName ) )
                     {
                         // XML Document contains a XML file which must be
                         // preprocessed
-                        preprocessor.preprocess( preprocessorName, preprocessedArchive, fieldsMetadata, formatter,
-                                                 sharedContext );
+                        preprocessEntry( preprocessorName, entryPreprocessors, fieldsMetadata, formatter,
+                                         sharedContext );
                     }
-                }
-                else
-                {
-                    // Test if it's wilcard?
-                    Set<String> entriesNameFromWilcard = preprocessedArchive.getEntryNames( preprocessorName );
-                    if ( entriesNameFromWilcard.size() > 0 )
+                    else
                     {
-                        for ( String entryNameFromWilcard : entriesNameFromWilcard )
+                        // Test if it's wilcard?
+                        Set<String> entriesNameFromWilcard = preprocessedArchive.getEntryNames( preprocessorName );
+                        if ( entriesNameFromWilcard.size() > 0 )
                         {
-                            for ( IXDocPreprocessor preprocessor : entryPreprocessors )
+                            for ( String entryNameFromWilcard : entriesNameFromWilcard )
                             {
-                                preprocessor.preprocess( entryNameFromWilcard, preprocessedArchive, fieldsMetadata,
-
-                                formatter, sharedContext );
+                                preprocessEntry( entryNameFromWilcard, entryPreprocessors, fieldsMetadata, formatter,
+                                                 sharedContext );
                             }
                         }
-                    }
-                    else
-                    {
-                        // entry not found, create it?
-                        entryPreprocessors = entry.getValue();
-                        for ( IXDocPreprocessor preprocessor : entryPreprocessors )
+                        else
                         {
-                            if ( preprocessor.create( preprocessorName, preprocessedArchive, fieldsMetadata, formatter,
-                                                      sharedContext ) )
-                            {
-                                break;
-                            }
+                            // entry not found, create it?
+                            createEntry( preprocessorName, entryPreprocessors, fieldsMetadata, formatter,
+                                         sharedContext );
                         }
                     }
                 }
@@ -399,6 +638,8 @@ public abstract class AbstractXDocReport
         finally
         {
             onAfterPreprocessing( sharedContext, preprocessedArchive );
+            // the elements are only read by the process of the report
+            this.elementsCache = elementsCache != null ? Collections.unmodifiableMap( elementsCache ) : null;
             // Preprocessing is done
             preprocessed = true;
             sharedContext.clear();
@@ -406,6 +647,172 @@ public abstract class AbstractXDocReport
         }
     }
 
+    /**
+     * Execute the registered preprocessors with the executor : the entries whose required entries (see
+     * {@link #addPreprocessorDependency(String, String)}) are preprocessed are preprocessed at the same time (each entry
+     * of a wildcard is a task), and the entries which must be created are created after them by the current thread,
+     * because they modify the entry names of the archive.
+     * 
+     * @param fieldsMetadata
+     * @param formatter
+     * @param sharedContext
+     * @throws XDocReportException
+     * @throws IOException
+     */
+    private void doParallelPreprocessor( final FieldsMetadata fieldsMetadata, final IDocumentFormatter formatter,
+                                         final Map<String, Object> sharedContext )
+        throws XDocReportException, IOException
+    {
+        List<String> remainingNames = new ArrayList<String>( preprocessors.keySet() );
+        Set<String> preprocessedNames = new HashSet<String>();
+        while ( !remainingNames.isEmpty() )
+        {
+            // 1) Collect the preprocessor names whose the required names are preprocessed
+            List<String> names = new ArrayList<String>();
+            for ( String preprocessorName : remainingNames )
+            {
+                if ( isPreprocessorReady( preprocessorName, preprocessedNames ) )
+                {
+                    names.add( preprocessorName );
+                }
+            }
+            if ( names.isEmpty() )
+            {
+                throw new XDocReportException( "Cyclic dependencies between the preprocessors of the entries "
+                    + remainingNames );
+            }
+
+            // 2) Preprocess the existing entries in parallel
+            List<FutureTask<Void>> tasks = new ArrayList<FutureTask<Void>>();
+            List<String> namesToCreate = new ArrayList<String>();
+            for ( String preprocessorName : names )
+            {
+                final Collection<IXDocPreprocessor> entryPreprocessors = preprocessors.get( preprocessorName );
+                Set<String> entryNames = null;
+                if ( preprocessedArchive.hasEntry( preprocessorName ) )
+                {
+                    entryNames = Collections.singleton( preprocessorName );
+                }
+                else
+                {
+                    entryNames = preprocessedArchive.getEntryNames( preprocessorName );
+                }
+                if ( entryNames.isEmpty() )
+                {
+                    namesToCreate.add( preprocessorName );
+                }
+                for ( final String entryName : entryNames )
+                {
+                    FutureTask<Void> task = new FutureTask<Void>( new Callable<Void>()
+                    {
+                        public Void call()
+                            throws Exception
+                        {
+                            preprocessEntry( entryName, entryPreprocessors, fieldsMetadata, formatter,
+                                             sharedContext );
+                            return null;
+                        }
+                    } );
+                    tasks.add( task );
+                    preprocessingExecutor.execute( task );
+                }
+            }
+            waitFor( tasks );
+
+            // 3) Create the missing entries
+            for ( String preprocessorName : namesToCreate )
+            {
+                createEntry( preprocessorName, preprocessors.get( preprocessorName ), fieldsMetadata, formatter,
+                             sharedContext );
+            }
+            remainingNames.removeAll( names );
+            preprocessedNames.addAll( names );
+        }
+    }
+
+    private boolean isPreprocessorReady( String preprocessorName, Set<String> preprocessedNames )
+    {
+        Set<String> requiredNames = preprocessorDependencies.get( preprocessorName );
+        if ( requiredNames != null )
+        {
+            for ( String requiredName : requiredNames )
+            {
+                if ( preprocessors.containsKey( requiredName ) && !preprocessedNames.contains( requiredName ) )
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Wait for the end of the given tasks and throws the error of the first task which has failed. The tasks which are
+     * not started by the executor are executed by the current thread.
+     * 
+     * @param tasks
+     * @throws XDocReportException
+     * @throws IOException
+     */
+    private static void waitFor( List<FutureTask<Void>> tasks )
+        throws XDocReportException, IOException
+    {
+        ExecutionException error = null;
+        for ( FutureTask<Void> task : tasks )
+        {
+            // does nothing if the task is already started by the executor
+            task.run();
+        }
+        for ( FutureTask<Void> task : tasks )
+        {
+            try
+            {
+                task.get();
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw new XDocReportException( e );
+            }
+            catch ( ExecutionException e )
+            {
+                if ( error == null )
+                {
+                    error = e;
+                }
+            }
+        }
+        if ( error != null )
+        {
+            rethrow( error );
+        }
+    }
+
+    private void preprocessEntry( String entryName, Collection<IXDocPreprocessor> entryPreprocessors,
+                                  FieldsMetadata fieldsMetadata, IDocumentFormatter formatter,
+                                  Map<String, Object> sharedContext )
+        throws XDocReportException, IOException
+    {
+        for ( IXDocPreprocessor preprocessor : entryPreprocessors )
+        {
+            preprocessor.preprocess( entryName, preprocessedArchive, fieldsMetadata, formatter, sharedContext );
+        }
+    }
+
+    private void createEntry( String entryName, Collection<IXDocPreprocessor> entryPreprocessors,
+                              FieldsMetadata fieldsMetadata, IDocumentFormatter formatter,
+                              Map<String, Object> sharedContext )
+        throws XDocReportException, IOException
+    {
+        for ( IXDocPreprocessor preprocessor : entryPreprocessors )
+        {
+            if ( preprocessor.create( entryName, preprocessedArchive, fieldsMetadata, formatter, sharedContext ) )
+            {
+                break;
+            }
+        }
+    }
+
     /**
      * On before preprocessing.
      * 
@@ -448,6 +855,7 @@ public abstract class AbstractXDocReport
     public void setXMLEntries( String[] xmlEntries )
     {
         this.xmlEntries = xmlEntries;
+        resetRenderPlan();
     }
 
     /**
@@ -509,29 +917,17 @@ public abstract class AbstractXDocReport
             doPreprocessorIfNeeded();
 
             // 4) Copy original archive to returns
+            RenderPlan plan = getRenderPlan();
             outputArchive = internalGetDocumentArchive().createCopy();
 
-            // 5) Loop for each entries (XML file from the zipped XML
-            // document (odt, docx...)
-            // to merge it with Java model from the context with template
-            // engine (freemarker, velocity).
-            processTemplateEngine( context, outputArchive );
-
-            doPostprocessIfNeeded( outputArchive );
-
-            if ( StringUtils.isNotEmpty( entryName ) )
+            if ( StringUtils.isEmpty( entryName ) && !plan.getStreamedEntryNames().isEmpty() )
             {
-                if ( !outputArchive.hasEntry( entryName ) )
-                {
-                    throw new XDocReportException( "No entry for the entry name=" + entryName );
-                }
-                // 6) save the merged XML entry into ouput stream
-                XDocArchive.writeEntry( outputArchive, entryName, out );
+                // 5) + 6) merge the entries and write the zip, the streamed entries are merged directly in the zip.
+                processStreamed( context, plan, outputArchive, out );
             }
             else
             {
-                // 6) save the merged XML document archive into ouput stream
-                XDocArchive.writeZip( outputArchive, out );
+                processAndWrite( context, plan, entryName, outputArchive, out );
             }
             // 7) End process report generation
             if ( LOGGER.isLoggable( Level.FINE ) )
@@ -574,6 +970,114 @@ public abstract class AbstractXDocReport
         }
     }
 
+    private void processAndWrite( IContext context, RenderPlan plan, String entryName, XDocArchive outputArchive,
+                                  OutputStream out )
+        throws XDocReportException, IOException
+    {
+        // 5) Loop for each entries (XML file from the zipped XML
+        // document (odt, docx...)
+        // to merge it with Java model from the context with template
+        // engine (freemarker, velocity).
+        processTemplateEngine( context, plan, outputArchive );
+
+        doPostprocessIfNeeded( outputArchive );
+
+        if ( StringUtils.isNotEmpty( entryName ) )
+        {
+            if ( !outputArchive.hasEntry( entryName ) )
+            {
+                throw new XDocReportException( "No entry for the entry name=" + entryName );
+            }
+            // 6) save the merged XML entry into ouput stream
+            XDocArchive.writeEntry( outputArchive, entryName, out );
+        }
+        else
+        {
+            // 6) save the merged XML document archive into ouput stream
+            XDocArchive.writeZip( outputArchive, out, zipCompressionOptions );
+        }
+    }
+
+    /**
+     * Merge the entries of the output archive and write the zip, the streamed entries of the plan being merged directly
+     * in the zip output stream (written just after the mimetype) instead of being stored in the output archive. The
+     * zip compression options are not used in this case.
+     */
+    private void processStreamed( IContext context, RenderPlan plan, XDocArchive outputArchive, OutputStream out )
+        throws XDocReportException, IOException
+    {
+        Set<String> streamedEntryNames = plan.getStreamedEntryNames();
+        onBeforeProcessTemplateEngine( context, outputArchive );
+
+        ZipOutputStream zipOutputStream = new ZipOutputStream( out );
+        XDocArchive.writeZipEntry( zipOutputStream, outputArchive, XDocArchive.MIMETYPE_ENTRY_NAME, ZipEntry.STORED );
+
+        // the template engine closes (and flushes) the writer, the zip stream must stay opened.
+        OutputStream entryOut = new FilterOutputStream( zipOutputStream )
+        {
+            @Override
+            public void write( byte[] b, int off, int len )
+                throws IOException
+            {
+                out.write( b, off, len );
+            }
+
+            @Override
+            public void close()
+                throws IOException
+            {
+                flush();
+            }
+        };
+        for ( String streamedEntryName : streamedEntryNames )
+        {
+            zipOutputStream.putNextEntry( new ZipEntry( streamedEntryName ) );
+            Writer writer = new OutputStreamWriter( entryOut, EncodingConstants.UTF_8 );
+            templateEngine.process( getId(), streamedEntryName, outputArchive,
+                                    createMergedEntryWriter( streamedEntryName, writer ), context );
+            zipOutputStream.closeEntry();
+        }
+
+        processXMLEntries( context, plan, outputArchive, streamedEntryNames );
+        onAfterProcessTemplateEngine( context, outputArchive );
+        doPostprocessIfNeeded( outputArchive );
+
+        for ( String entryName : outputArchive.getEntryNames() )
+        {
+            if ( !XDocArchive.MIMETYPE_ENTRY_NAME.equals( entryName ) && !streamedEntryNames.contains( entryName ) )
+            {
+                XDocArchive.writeZipEntry( zipOutputStream, outputArchive, entryName, ZipEntry.DEFLATED );
+            }
+        }
+        zipOutputStream.finish();
+        zipOutputStream.flush();
+    }
+
+    /**
+     * Returns the XML entries (name or wildcard) which must be merged directly in the zip output stream when the whole
+     * report is generated, or null if all the entries are merged in memory before writing the zip (default).
+     * Streaming is useful for huge entries (ex : content.xml of a spreadsheet with thousands of rows).
+     * 
+     * @return
+     */
+    protected String[] getStreamedEntries()
+    {
+        return null;
+    }
+
+    /**
+     * Returns the writer used to merge the given XML entry, streamed or not. Implementations can wrap the given writer
+     * to filter the merged XML on the fly.
+     * 
+     * @param entryName the merged entry name.
+     * @param writer the writer of the entry.
+     * @return
+     */
+    protected Writer createMergedEntryWriter( String entryName, Writer writer )
+    {
+        return writer;
+    }
+
     protected void doPostprocessIfNeeded( XDocArchive outputArchive )
     {
         // Empty default impl to avoid breaking compat
@@ -691,13 +1195,14 @@ public abstract class AbstractXDocReport
             doPreprocessorIfNeeded();
 
             // 4) Copy original arhvive to returns
+            RenderPlan plan = getRenderPlan();
             outputArchive = internalGetDocumentArchive().createCopy();
 
             // 5) Loop for each entries (XML file from the zipped XML
             // document (odt, docx...)
             // to merge it with Java model from the context with template
             // engine (freemarker, velocity).
-            processTemplateEngine( context, outputArchive );
+            processTemplateEngine( context, plan, outputArchive );
 
             if ( converter.canSupportEntries() )
             {
@@ -755,35 +1260,36 @@ public abstract class AbstractXDocReport
         }
     }
 
-    private void processTemplateEngine( final IContext context, XDocArchive outputArchive )
+    private void processTemplateEngine( final IContext context, RenderPlan plan, XDocArchive outputArchive )
         throws XDocReportException, IOException
     {
-        String[] xmlEntries = internalGetXMLEntries();
-
         onBeforeProcessTemplateEngine( context, outputArchive );
-        String entryName = null;
-        for ( int i = 0; i < xmlEntries.length; i++ )
+        processXMLEntries( context, plan, outputArchive, null );
+        onAfterProcessTemplateEngine( context, outputArchive );
+    }
+
+    private void processXMLEntries( final IContext context, RenderPlan plan, final XDocArchive outputArchive,
+                                    Set<String> excludedEntryNames )
+        throws XDocReportException, IOException
+    {
+        IEntryWriterProvider writerProvider = new IEntryWriterProvider()
         {
-            entryName = xmlEntries[i];
-            if ( outputArchive.hasEntry( entryName ) )
+            public Writer getEntryWriter( String entryName )
             {
-                // 5.1) merge current XML file with Java model from the
-                // context with template engine (freemarker, velocity).
-                templateEngine.process( getId(), entryName, outputArchive, outputArchive, context );
+                return createMergedEntryWriter( entryName, outputArchive.getEntryWriter( entryName ) );
             }
-            else
+        };
+        // the entries (wildcards resolved) are given by the plan, the output archive is not searched.
+        for ( String entryName : plan.getMergedEntryNames() )
+        {
+            if ( excludedEntryNames != null && excludedEntryNames.contains( entryName ) )
             {
-                // Test if it's wilcard?
-                Set<String> entriesNameFromWilcard = internalGetDocumentArchive().getEntryNames( entryName );
-                for ( String entryNameFromWilcard : entriesNameFromWilcard )
-                {
-                    // 5.2) merge current XML file with Java model from the
-                    // context with template engine (freemarker, velocity).
-                    templateEngine.process( getId(), entryNameFromWilcard, outputArchive, outputArchive, context );
-                }
+                continue;
             }
+            // 5.1) merge current XML file with Java model from the
+            // context with template engine (freemarker, velocity).
+            templateEngine.process( getId(), entryName, outputArchive, writerProvider, context );
         }
-        onAfterProcessTemplateEngine( context, outputArchive );
     }
 
     /**
@@ -802,6 +1308,7 @@ public abstract class AbstractXDocReport
 
         // 2) Register ImageRegistry if needed
         IImageRegistry imageRegistry = null;
+        FieldsMetadata fieldsMetadata = getFrozenFieldsMetadata();
         if ( fieldsMetadata != null && fieldsMetadata.hasFieldsAsImage() )
         {
             imageRegistry = createImageRegistry( outputArchive, outputArchive, outputArchive );
@@ -932,11 +1439,14 @@ public abstract class AbstractXDocReport
      */
     public void setData( String key, Object value )
     {
-        if ( data == null )
+        if ( value == null )
         {
-            data = new HashMap<String, Object>();
+            data.remove( key );
+        }
+        else
+        {
+            data.put( key, value );
         }
-        data.put( key, value );
     }
 
     /*
@@ -946,10 +1456,6 @@ public abstract class AbstractXDocReport
     @SuppressWarnings( "unchecked" )
     public <T> T getData( String key )
     {
-        if ( data == null )
-        {
-            return null;
-        }
         return (T) data.get( key );
     }
 
@@ -959,10 +1465,6 @@ public abstract class AbstractXDocReport
      */
     public void clearData( String key )
     {
-        if ( data == null )
-        {
-            return;
-        }
         data.remove( key );
     }
 
@@ -973,7 +1475,7 @@ public abstract class AbstractXDocReport
         {
             if ( originalArchive == null && preprocessedArchive != null )
             {
-                originalArchive = preprocessedArchive.createCopy();
+                originalArchive = preprocessedArchive.createCopy( entryStorage );
             }
         }
         else
@@ -982,6 +1484,64 @@ public abstract class AbstractXDocReport
         }
     }
 
+    public void setZipCompressionOptions( ZipCompressionOptions zipCompressionOptions )
+    {
+        this.zipCompressionOptions = zipCompressionOptions;
+    }
+
+    public ZipCompressionOptions getZipCompressionOptions()
+    {
+        return zipCompressionOptions;
+    }
+
+    public void setEntryStorage( IEntryStorage entryStorage )
+    {
+        this.entryStorage = entryStorage;
+        if ( originalArchive != null )
+        {
+            originalArchive = toEntryStorage( originalArchive );
+        }
+        if ( preprocessedArchive != null )
+        {
+            preprocessedArchive = toEntryStorage( preprocessedArchive );
+        }
+    }
+
+    public IEntryStorage getEntryStorage()
+    {
+        return entryStorage;
+    }
+
+    /**
+     * Release the entries of the original and the preprocessed archives (temporary files, direct or mapped buffers of
+     * the entry storage). Called by the registry when the report is unregistered, the report must not be processed
+     * after.
+     */
+    public void dispose()
+    {
+        XDocArchive.releaseEntries( originalArchive, preprocessedArchive );
+        this.originalArchive = null;
+        this.preprocessedArchive = null;
+        this.preprocessed = false;
+        this.renderPlan = null;
+    }
+
+    /**
+     * Returns the given archive if its entries are stored with the entry storage of this report, and a copy stored
+     * with the entry storage of this report otherwise.
+     * 
+     * @param archive
+     * @return
+     */
+    private XDocArchive toEntryStorage( XDocArchive archive )
+    {
+        if ( entryStorage == null || archive.getEntryStorage() == entryStorage )
+        {
+            return archive;
+        }
+        return archive.createCopy( entryStorage );
+    }
+
     /**
      * Returns default entries which define XML document to use for conversion.
      * 
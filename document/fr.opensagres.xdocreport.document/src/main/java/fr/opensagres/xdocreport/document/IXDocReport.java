@@ -29,13 +29,16 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import fr.opensagres.xdocreport.converter.IConverter;
 import fr.opensagres.xdocreport.converter.MimeMapping;
 import fr.opensagres.xdocreport.converter.Options;
 import fr.opensagres.xdocreport.converter.XDocConverterException;
 import fr.opensagres.xdocreport.core.XDocReportException;
+import fr.opensagres.xdocreport.core.io.IEntryStorage;
 import fr.opensagres.xdocreport.core.io.XDocArchive;
+import fr.opensagres.xdocreport.core.io.ZipCompressionOptions;
 import fr.opensagres.xdocreport.document.dump.DumperOptions;
 import fr.opensagres.xdocreport.document.dump.IDumper;
 import fr.opensagres.xdocreport.document.preprocessor.IXDocPreprocessor;
@@ -350,6 +353,37 @@ public interface IXDocReport
      */
     void setCacheOriginalDocument( boolean cacheOriginalDocument );
 
+    /**
+     * Set the options (compression level per entry, stored media, parallel compression...) used to zip the generated
+     * report, and null to zip it like the original document.
+     * 
+     * @param zipCompressionOptions
+     */
+    void setZipCompressionOptions( ZipCompressionOptions zipCompressionOptions );
+
+    /**
+     * Returns the options used to zip the generated report and null otherwise.
+     * 
+     * @return
+     */
+    ZipCompressionOptions getZipCompressionOptions();
+
+    /**
+     * Set the storage of the entries of the original and preprocessed document archives (heap, direct buffer,
+     * memory-mapped file...), and null to store them on the heap. The archives already loaded are moved to the given
+     * storage, so this method must not be called while the report is processed.
+     * 
+     * @param entryStorage
+     */
+    void setEntryStorage( IEntryStorage entryStorage );
+
+    /**
+     * Returns the storage of the entries of the document archives and null for the heap.
+     * 
+     * @return
+     */
+    IEntryStorage getEntryStorage();
+
     /**
      * Returns true if report was processed and false otherwise.
      * 
@@ -398,6 +432,34 @@ public interface IXDocReport
      */
     void removeAllPreprocessors();
 
+    /**
+     * Declare that the preprocessors of the given entry name must be executed after the preprocessors of the required
+     * entry name (both are the names used with {@link #addPreprocessor(String, IXDocPreprocessor)}, wildcard
+     * included). This order is used when the preprocessing is parallel : the entries which don't depend on each
+     * other are preprocessed at the same time.
+     * 
+     * @param entryName
+     * @param requiredEntryName
+     */
+    void addPreprocessorDependency( String entryName, String requiredEntryName );
+
+    /**
+     * Set the executor used to preprocess the independent entries (and each entry of a wildcard) in parallel, and
+     * null to preprocess the entries one after another in the registration order (default). The shared context given
+     * to the preprocessors is synchronized, but the preprocessors which share information must be ordered with
+     * {@link #addPreprocessorDependency(String, String)}.
+     * 
+     * @param preprocessingExecutor
+     */
+    void setPreprocessingExecutor( Executor preprocessingExecutor );
+
+    /**
+     * Returns the executor used to preprocess the entries in parallel and null otherwise.
+     * 
+     * @return
+     */
+    Executor getPreprocessingExecutor();
+
     /**
      * Force the preprocessing step.
      * 
@@ -407,6 +469,17 @@ public interface IXDocReport
     void preprocess()
         throws XDocReportException, IOException;
 
+    /**
+     * Force the preprocessing step and parse the templates of the XML entries in the template engine cache, so the
+     * first process of the report doesn't parse them. The templates are cached only if the report is registered in
+     * the {@link XDocReportRegistry}.
+     * 
+     * @throws XDocReportException
+     * @throws IOException
+     */
+    void compile()
+        throws XDocReportException, IOException;
+
     /**
      * Returns the dumper for the given options.
      * 
@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import fr.opensagres.xdocreport.core.io.XDocArchive;
+
+/**
+ * Immutable plan of the process of a report, computed once after the preprocessing : the entries to merge with the
+ * template engine and the entries to merge directly in the zip output stream, resolved from the XML entries and the
+ * wildcards (ex : word/header*.xml) against the preprocessed archive. The process of the report executes this plan
+ * without searching the entries of the archive.
+ */
+public class RenderPlan
+{
+
+    private final List<String> mergedEntryNames;
+
+    private final Set<String> streamedEntryNames;
+
+    private RenderPlan( List<String> mergedEntryNames, Set<String> streamedEntryNames )
+    {
+        this.mergedEntryNames = Collections.unmodifiableList( mergedEntryNames );
+        this.streamedEntryNames = Collections.unmodifiableSet( streamedEntryNames );
+    }
+
+    /**
+     * Create the plan of the given preprocessed archive.
+     * 
+     * @param archive the preprocessed archive.
+     * @param xmlEntries the names or wildcards of the entries to merge.
+     * @param streamedEntries the names or wildcards of the entries to merge directly in the zip output stream, or null.
+     * @return
+     */
+    public static RenderPlan create( XDocArchive archive, String[] xmlEntries, String[] streamedEntries )
+    {
+        Set<String> mergedEntryNames = resolve( archive, xmlEntries );
+        Set<String> streamedEntryNames = resolve( archive, streamedEntries );
+        return new RenderPlan( new ArrayList<String>( mergedEntryNames ), streamedEntryNames );
+    }
+
+    private static Set<String> resolve( XDocArchive archive, String[] entries )
+    {
+        Set<String> entryNames = new LinkedHashSet<String>();
+        if ( entries == null )
+        {
+            return entryNames;
+        }
+        for ( String entry : entries )
+        {
+            if ( archive.hasEntry( entry ) )
+            {
+                entryNames.add( entry );
+            }
+            else
+            {
+                // wildcard (ex : word/header*.xml)
+                entryNames.addAll( archive.getEntryNames( entry ) );
+            }
+        }
+        return entryNames;
+    }
+
+    /**
+     * Returns the ordered names of the existing entries to merge with the template engine.
+     * 
+     * @return
+     */
+    public List<String> getMergedEntryNames()
+    {
+        return mergedEntryNames;
+    }
+
+    /**
+     * Returns the ordered names of the existing entries to merge directly in the zip output stream when the whole
+     * report is generated.
+     * 
+     * @return
+     */
+    public Set<String> getStreamedEntryNames()
+    {
+        return streamedEntryNames;
+    }
+
+}
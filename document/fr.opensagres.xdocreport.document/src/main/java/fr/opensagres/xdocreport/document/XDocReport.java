@@ -27,7 +27,9 @@ package fr.opensagres.xdocreport.document;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import fr.opensagres.xdocreport.converter.Options;
 import fr.opensagres.xdocreport.core.XDocReportException;
@@ -468,6 +470,28 @@ public class XDocReport
         return report;
     }
 
+    // ------------------------------------ Warm-up
+
+    /**
+     * Initialize the registries and load, preprocess and compile the templates of the given report ids in the default
+     * registry, in parallel with the given executor.
+     * 
+     * @param reportIds the report ids of the templates to load.
+     * @param reportLoader the report loader used to load the templates.
+     * @param executor the executor used to execute the warm-up, or null to execute it in the current thread.
+     * @return the started warm-up, used to wait for its end and to get the timings.
+     */
+    public static XDocReportWarmUp warmUp( Collection<String> reportIds, IXDocReportLoader reportLoader,
+                                           Executor executor )
+    {
+        XDocReportWarmUp warmUp = new XDocReportWarmUp( getDefaultRegistry() );
+        for ( String reportId : reportIds )
+        {
+            warmUp.addTemplate( reportId, reportLoader );
+        }
+        return warmUp.start( executor );
+    }
+
     /**
      * Returns the default registry.
      * 
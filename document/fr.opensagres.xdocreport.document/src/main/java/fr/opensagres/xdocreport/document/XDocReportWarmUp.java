@@ -0,0 +1,349 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import fr.opensagres.xdocreport.converter.ConverterRegistry;
+import fr.opensagres.xdocreport.core.cache.CacheStorageRegistry;
+import fr.opensagres.xdocreport.core.logging.LogUtils;
+import fr.opensagres.xdocreport.core.registry.AbstractRegistry;
+import fr.opensagres.xdocreport.document.dispatcher.IXDocReportLoader;
+import fr.opensagres.xdocreport.document.dump.DumperRegistry;
+import fr.opensagres.xdocreport.document.registry.TemplateEngineInitializerRegistry;
+import fr.opensagres.xdocreport.document.registry.TextStylingRegistry;
+import fr.opensagres.xdocreport.document.registry.XDocReportRegistry;
+import fr.opensagres.xdocreport.document.textstyling.TextStylingTransformerRegistry;
+import fr.opensagres.xdocreport.template.registry.FieldsMetadataClassSerializerRegistry;
+import fr.opensagres.xdocreport.template.registry.TemplateEngineRegistry;
+
+/**
+ * Eager initialization of XDocReport, to call at the startup of the application instead of paying the lazy
+ * initialization with the first reports :
+ * <ul>
+ * <li>the registries (service loader scan of the discoveries) are initialized.</li>
+ * <li>the templates added with {@link #addTemplate(String, IXDocReportLoader)} are loaded in the registry,
+ * preprocessed and compiled (see {@link IXDocReport#compile()}).</li>
+ * <li>the custom tasks added with {@link #addTask(String, Callable)} are executed (ex : scan of the fonts directories
+ * for the PDF converter).</li>
+ * </ul>
+ * All the tasks are submitted at once, without ordering between them, and are executed in parallel by the executor
+ * given to {@link #start(Executor)} (a registry is initialized by the first task which uses it). The elapsed time of each task
+ * is available with {@link #getTimings()}, and a readiness probe can wait for the end of the warm-up with
+ * {@link #await(long, TimeUnit)} :
+ * 
+ * <pre>
+ * XDocReportWarmUp warmUp = new XDocReportWarmUp().addTemplate( &quot;invoice&quot;, loader ).start( executor );
+ * ...
+ * boolean ready = warmUp.await( 0, TimeUnit.SECONDS ) &amp;&amp; warmUp.isReady();
+ * </pre>
+ */
+public class XDocReportWarmUp
+{
+
+    private static final Logger LOGGER = LogUtils.getLogger( XDocReportWarmUp.class.getName() );
+
+    private static final String REGISTRY_TASK_PREFIX = "registry:";
+
+    private static final String TEMPLATE_TASK_PREFIX = "template:";
+
+    private final XDocReportRegistry registry;
+
+    private final Map<String, Callable<?>> tasks = new LinkedHashMap<String, Callable<?>>();
+
+    private final Map<String, Long> timings = new ConcurrentHashMap<String, Long>();
+
+    private final Map<String, Throwable> errors = new ConcurrentHashMap<String, Throwable>();
+
+    private final CountDownLatch done = new CountDownLatch( 1 );
+
+    private volatile boolean started;
+
+    private volatile long totalTime = -1;
+
+    /**
+     * Create a warm-up which uses the default {@link XDocReportRegistry}.
+     */
+    public XDocReportWarmUp()
+    {
+        this( XDocReportRegistry.getRegistry() );
+    }
+
+    /**
+     * Create a warm-up which loads the templates in the given registry.
+     * 
+     * @param registry
+     */
+    public XDocReportWarmUp( XDocReportRegistry registry )
+    {
+        this.registry = registry;
+        addRegistry( registry );
+        addRegistry( ConverterRegistry.getRegistry() );
+        addRegistry( TemplateEngineRegistry.getRegistry() );
+        addRegistry( TemplateEngineInitializerRegistry.getRegistry() );
+        addRegistry( TextStylingRegistry.getRegistry() );
+        addRegistry( TextStylingTransformerRegistry.getRegistry() );
+        addRegistry( DumperRegistry.getRegistry() );
+        addRegistry( CacheStorageRegistry.getRegistry() );
+        addRegistry( FieldsMetadataClassSerializerRegistry.getRegistry() );
+    }
+
+    private void addRegistry( final AbstractRegistry<?> registry )
+    {
+        addTask( REGISTRY_TASK_PREFIX + registry.getClass().getSimpleName(), new Callable<Void>()
+        {
+            public Void call()
+            {
+                registry.initialize();
+                return null;
+            }
+        } );
+    }
+
+    /**
+     * Add a task to execute with the warm-up.
+     * 
+     * @param name the task name used for the timings and the errors.
+     * @param task the task.
+     * @return this warm-up.
+     */
+    public XDocReportWarmUp addTask( String name, Callable<?> task )
+    {
+        if ( started )
+        {
+            throw new IllegalStateException( "Warm-up is already started." );
+        }
+        tasks.put( name, task );
+        return this;
+    }
+
+    /**
+     * Add a template to load in the registry with the given loader, and to preprocess and compile.
+     * 
+     * @param reportId the report id.
+     * @param loader the loader which gives the template stream, the template engine kind and the fields metadata.
+     * @return this warm-up.
+     */
+    public XDocReportWarmUp addTemplate( final String reportId, final IXDocReportLoader loader )
+    {
+        return addTask( TEMPLATE_TASK_PREFIX + reportId, new Callable<IXDocReport>()
+        {
+            public IXDocReport call()
+                throws Exception
+            {
+                IXDocReport report = XDocReport.getReport( reportId, loader, registry );
+                report.compile();
+                return report;
+            }
+        } );
+    }
+
+    /**
+     * Start the warm-up. The tasks are executed by the given executor, or by the current thread if the executor is
+     * null.
+     * 
+     * @param executor the executor, or null.
+     * @return this warm-up.
+     */
+    public XDocReportWarmUp start( Executor executor )
+    {
+        synchronized ( this )
+        {
+            if ( started )
+            {
+                throw new IllegalStateException( "Warm-up is already started." );
+            }
+            started = true;
+        }
+        final long startTime = System.currentTimeMillis();
+        final AtomicInteger remaining = new AtomicInteger( tasks.size() );
+        if ( remaining.get() == 0 )
+        {
+            end( startTime );
+            return this;
+        }
+        for ( final Map.Entry<String, Callable<?>> task : tasks.entrySet() )
+        {
+            Runnable runnable = new Runnable()
+            {
+                public void run()
+                {
+                    execute( task.getKey(), task.getValue() );
+                    taskDone( remaining, startTime );
+                }
+            };
+            if ( executor != null )
+            {
+                try
+                {
+                    executor.execute( runnable );
+                }
+                catch ( RejectedExecutionException e )
+                {
+                    // the task will never run : record it as failed, otherwise the warm-up is never done.
+                    errors.put( task.getKey(), e );
+                    LOGGER.log( Level.WARNING, "Warm-up task " + task.getKey() + " rejected by the executor", e );
+                    taskDone( remaining, startTime );
+                }
+            }
+            else
+            {
+                runnable.run();
+            }
+        }
+        return this;
+    }
+
+    private void taskDone( AtomicInteger remaining, long startTime )
+    {
+        if ( remaining.decrementAndGet() == 0 )
+        {
+            end( startTime );
+        }
+    }
+
+    private void execute( String name, Callable<?> task )
+    {
+        long start = System.currentTimeMillis();
+        try
+        {
+            task.call();
+        }
+        catch ( Throwable e )
+        {
+            errors.put( name, e );
+            LOGGER.log( Level.WARNING, "Error while warm-up task " + name, e );
+        }
+        finally
+        {
+            timings.put( name, System.currentTimeMillis() - start );
+        }
+    }
+
+    private void end( long startTime )
+    {
+        totalTime = System.currentTimeMillis() - startTime;
+        done.countDown();
+        if ( LOGGER.isLoggable( Level.INFO ) )
+        {
+            LOGGER.info( "Warm-up done in " + totalTime + "(ms) with " + errors.size() + " error(s) : " + getTimings() );
+        }
+    }
+
+    /**
+     * Wait for the end of the warm-up.
+     * 
+     * @param timeout the maximum time to wait.
+     * @param unit the unit of the timeout.
+     * @return true if the warm-up is done and false if the timeout elapsed.
+     * @throws InterruptedException
+     */
+    public boolean await( long timeout, TimeUnit unit )
+        throws InterruptedException
+    {
+        return done.await( timeout, unit );
+    }
+
+    /**
+     * Wait for the end of the warm-up.
+     * 
+     * @throws InterruptedException
+     */
+    public void await()
+        throws InterruptedException
+    {
+        done.await();
+    }
+
+    /**
+     * Returns true if all the tasks are executed and false otherwise.
+     * 
+     * @return
+     */
+    public boolean isDone()
+    {
+        return done.getCount() == 0;
+    }
+
+    /**
+     * Returns true if all the tasks are executed without error and false otherwise.
+     * 
+     * @return
+     */
+    public boolean isReady()
+    {
+        return isDone() && errors.isEmpty();
+    }
+
+    /**
+     * Returns the elapsed time in milliseconds of the executed tasks, in the order of the tasks.
+     * 
+     * @return
+     */
+    public Map<String, Long> getTimings()
+    {
+        Map<String, Long> result = new LinkedHashMap<String, Long>();
+        for ( String name : tasks.keySet() )
+        {
+            Long timing = timings.get( name );
+            if ( timing != null )
+            {
+                result.put( name, timing );
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the errors of the tasks which have failed.
+     * 
+     * @return
+     */
+    public Map<String, Throwable> getErrors()
+    {
+        return Collections.unmodifiableMap( errors );
+    }
+
+    /**
+     * Returns the elapsed time in milliseconds of the whole warm-up and -1 if it is not done.
+     * 
+     * @return
+     */
+    public long getTotalTime()
+    {
+        return totalTime;
+    }
+}
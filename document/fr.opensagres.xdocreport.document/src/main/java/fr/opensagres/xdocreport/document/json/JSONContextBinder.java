@@ -0,0 +1,340 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import fr.opensagres.xdocreport.core.utils.Base64Utility;
+import fr.opensagres.xdocreport.core.utils.DatatypeUtils;
+import fr.opensagres.xdocreport.document.images.ByteArrayImageProvider;
+import fr.opensagres.xdocreport.template.IContext;
+
+/**
+ * Binds a JSON stream to a report context. Unlike {@link JSONObject}, which requires the whole JSON text as String
+ * and builds a {@link JSONObject}/{@link JSONArray} graph which must be copied again before being given to the
+ * template engine, the binder reads the JSON from a {@link Reader} and creates directly the {@link Map} and
+ * {@link List} instances used by the template engine:
+ * <ul>
+ * <li>JSON objects are bound to {@link HashMap}, and the keys are shared between the objects of the same stream (an
+ * array of 10000 objects with the same properties creates the property names once).</li>
+ * <li>JSON arrays are bound to {@link ArrayList} trimmed to the number of items.</li>
+ * <li>the objects <code>{"$date": "..."}</code> and <code>{"$img": "..."}</code> are bound to {@link Date} and
+ * {@link ByteArrayImageProvider} like {@link JSONObject#get(String)} does.</li>
+ * </ul>
+ * The binder accepts the same lenient syntax as {@link JSONTokener} (single quotes, unquoted keys, etc).
+ */
+public class JSONContextBinder
+{
+
+    private static final String DEFAULT_ENCODING = "UTF-8";
+
+    private static final String DATE_TYPE = "$date";
+
+    private static final String IMAGE_TYPE = "$img";
+
+    private static final JSONContextBinder INSTANCE = new JSONContextBinder();
+
+    public static JSONContextBinder getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * Read the given UTF-8 JSON stream which must contain a JSON object and returns it as {@link Map}.
+     * 
+     * @param in the JSON stream.
+     * @return the bound map.
+     * @throws IOException
+     * @throws JSONException if there is a syntax error.
+     */
+    public Map<String, Object> bind( InputStream in )
+        throws IOException, JSONException
+    {
+        return bind( new InputStreamReader( in, DEFAULT_ENCODING ) );
+    }
+
+    /**
+     * Read the given JSON reader which must contain a JSON object and returns it as {@link Map}.
+     * 
+     * @param reader the JSON reader.
+     * @return the bound map.
+     * @throws JSONException if there is a syntax error.
+     */
+    public Map<String, Object> bind( Reader reader )
+        throws JSONException
+    {
+        Map<String, Object> map = new HashMap<String, Object>();
+        new Binding( reader ).bindRoot( map );
+        return map;
+    }
+
+    /**
+     * Read the given JSON reader which must contain a JSON object and put each of its properties in the given
+     * context.
+     * 
+     * @param reader the JSON reader.
+     * @param context the report context to populate.
+     * @throws JSONException if there is a syntax error.
+     */
+    public void bind( Reader reader, IContext context )
+        throws JSONException
+    {
+        new Binding( reader ).bindRoot( new ContextMap( context ) );
+    }
+
+    /**
+     * State of the bind of one JSON stream.
+     */
+    private static class Binding
+    {
+
+        private final JSONTokener x;
+
+        private final Map<String, String> keys;
+
+        public Binding( Reader reader )
+        {
+            this.x = new JSONTokener( reader );
+            this.keys = new HashMap<String, String>();
+        }
+
+        public void bindRoot( Map<String, Object> map )
+            throws JSONException
+        {
+            if ( x.nextClean() != '{' )
+            {
+                throw x.syntaxError( "A JSONObject text must begin with '{'" );
+            }
+            bindObject( map );
+        }
+
+        /**
+         * Read the properties of the current JSON object (the '{' is consumed) and put them in the given map.
+         */
+        private void bindObject( Map<String, Object> map )
+            throws JSONException
+        {
+            char c;
+            for ( ;; )
+            {
+                c = x.nextClean();
+                switch ( c )
+                {
+                    case 0:
+                        throw x.syntaxError( "A JSONObject text must end with '}'" );
+                    case '}':
+                        return;
+                    default:
+                        x.back();
+                }
+                String key = getKey( x.nextValue().toString() );
+
+                // The key is followed by ':'. We will also tolerate '=' or '=>'.
+                c = x.nextClean();
+                if ( c == '=' )
+                {
+                    if ( x.next() != '>' )
+                    {
+                        x.back();
+                    }
+                }
+                else if ( c != ':' )
+                {
+                    throw x.syntaxError( "Expected a ':' after a key" );
+                }
+                map.put( key, nextValue() );
+
+                // Pairs are separated by ','. We will also tolerate ';'.
+                switch ( x.nextClean() )
+                {
+                    case ';':
+                    case ',':
+                        if ( x.nextClean() == '}' )
+                        {
+                            return;
+                        }
+                        x.back();
+                        break;
+                    case '}':
+                        return;
+                    default:
+                        throw x.syntaxError( "Expected a ',' or '}'" );
+                }
+            }
+        }
+
+        /**
+         * Read the items of the current JSON array (the '[' is consumed).
+         */
+        private List<Object> bindArray()
+            throws JSONException
+        {
+            ArrayList<Object> list = new ArrayList<Object>();
+            if ( x.nextClean() == ']' )
+            {
+                return list;
+            }
+            x.back();
+            for ( ;; )
+            {
+                if ( x.nextClean() == ',' )
+                {
+                    x.back();
+                    list.add( JSONObject.NULL );
+                }
+                else
+                {
+                    x.back();
+                    list.add( nextValue() );
+                }
+                switch ( x.nextClean() )
+                {
+                    case ';':
+                    case ',':
+                        if ( x.nextClean() == ']' )
+                        {
+                            list.trimToSize();
+                            return list;
+                        }
+                        x.back();
+                        break;
+                    case ']':
+                        list.trimToSize();
+                        return list;
+                    default:
+                        throw x.syntaxError( "Expected a ',' or ']'" );
+                }
+            }
+        }
+
+        private Object nextValue()
+            throws JSONException
+        {
+            char c = x.nextClean();
+            switch ( c )
+            {
+                case '{':
+                    Map<String, Object> map = new HashMap<String, Object>();
+                    bindObject( map );
+                    return toTypedValue( map );
+                case '[':
+                    return bindArray();
+                default:
+                    x.back();
+                    return x.nextValue();
+            }
+        }
+
+        /**
+         * Returns the shared instance of the given key.
+         */
+        private String getKey( String key )
+        {
+            String sharedKey = keys.get( key );
+            if ( sharedKey == null )
+            {
+                keys.put( key, key );
+                return key;
+            }
+            return sharedKey;
+        }
+
+        private Object toTypedValue( Map<String, Object> map )
+        {
+            if ( map.size() != 1 )
+            {
+                return map;
+            }
+            Object date = map.get( DATE_TYPE );
+            if ( date instanceof String )
+            {
+                try
+                {
+                    return DatatypeUtils.parseXSDateTime( (String) date );
+                }
+                catch ( Exception e )
+                {
+                    throw new JSONException( "JSONObject[" + JSONObject.quote( DATE_TYPE ) + "] is not a Date." );
+                }
+            }
+            Object image = map.get( IMAGE_TYPE );
+            if ( image instanceof String )
+            {
+                try
+                {
+                    return new ByteArrayImageProvider( Base64Utility.decode( (String) image ) );
+                }
+                catch ( Exception e )
+                {
+                    throw new JSONException( "JSONObject[" + JSONObject.quote( IMAGE_TYPE ) + "] is not an Image." );
+                }
+            }
+            return map;
+        }
+    }
+
+    /**
+     * {@link Map} view used to put the root properties of the JSON stream directly in a report context.
+     */
+    private static class ContextMap
+        extends AbstractMap<String, Object>
+    {
+
+        private final IContext context;
+
+        public ContextMap( IContext context )
+        {
+            this.context = context;
+        }
+
+        @Override
+        public Object put( String key, Object value )
+        {
+            return context.put( key, value );
+        }
+
+        @Override
+        public Object get( Object key )
+        {
+            return key instanceof String ? context.get( (String) key ) : null;
+        }
+
+        @Override
+        public Set<Map.Entry<String, Object>> entrySet()
+        {
+            return context.getContextMap().entrySet();
+        }
+    }
+}
@@ -29,9 +29,12 @@ import java.io.StringWriter;
 import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.xml.sax.Attributes;
 
@@ -46,9 +49,11 @@ public class BufferedElement implements IBufferedRegion {
 
 	private final String name;
 
-	private final String startTagElementName;
+	private String startTagElementName;
 
-	private final String endTagElementName;
+	private String endTagElementName;
+
+	private final CharacterBuffer characterBuffer;
 
 	protected final BufferedStartTagElement startTagElement;
 
@@ -68,8 +73,10 @@ public class BufferedElement implements IBufferedRegion {
 			String localName, String name, Attributes attributes) {
 		this.parent = parent;
 		this.name = name;
-		this.startTagElementName = "<" + name + ">";
-		this.endTagElementName = "</" + name + ">";
+		// the content of all elements of the document is buffered in the
+		// characters buffer of the root element.
+		this.characterBuffer = parent != null ? parent.characterBuffer
+				: new CharacterBuffer();
 		this.attributes = attributes;
 		this.startTagElement = new BufferedStartTagElement(this);
 		this.endTagElement = new BufferedEndTagElement(this);
@@ -207,18 +214,30 @@ public class BufferedElement implements IBufferedRegion {
 	 * @param elements
 	 */
 	public void removeAll(Collection<BufferedElement> elements) {
-		BufferedTagElement tagElement = null;
+		if (elements.isEmpty()) {
+			return;
+		}
+		// collect the start/end tag elements to remove and remove them in one
+		// pass of the regions.
+		Set<ISavable> tagElements = Collections
+				.newSetFromMap(new IdentityHashMap<ISavable, Boolean>());
 		for (BufferedElement element : elements) {
-			// remove start tag element
-			tagElement = element.getStartTagElement();
-			if (tagElement != null) {
-				getStartTagElement().regions.remove(tagElement);
-			}
-			// remove end tag element
-			tagElement = element.getEndTagElement();
-			if (tagElement != null) {
-				getStartTagElement().regions.remove(tagElement);
+			tagElements.add(element.getStartTagElement());
+			tagElements.add(element.getEndTagElement());
+		}
+		List<ISavable> regions = getStartTagElement().regions;
+		int size = regions.size();
+		int newSize = 0;
+		for (int i = 0; i < size; i++) {
+			ISavable region = regions.get(i);
+			if (tagElements.remove(region)) {
+				// List#remove(Object) removes only the first occurrence
+				continue;
 			}
+			regions.set(newSize++, region);
+		}
+		for (int i = size - 1; i >= newSize; i--) {
+			regions.remove(i);
 		}
 	}
 
@@ -291,7 +310,8 @@ public class BufferedElement implements IBufferedRegion {
 			String name) {
 		List<BufferedElement> elements = new ArrayList<BufferedElement>();
 		List<ISavable> regions = element.getStartTagElement().regions;
-		findChildren(regions, name, elements);
+		findChildren(regions, name, elements,
+				Collections.newSetFromMap(new IdentityHashMap<BufferedElement, Boolean>()));
 		return elements;
 	}
 
@@ -352,16 +372,17 @@ public class BufferedElement implements IBufferedRegion {
 	 * @param elements
 	 */
 	private void findChildren(List<ISavable> regions, String name,
-			List<BufferedElement> elements) {
+			List<BufferedElement> elements, Set<BufferedElement> found) {
 		for (ISavable region : regions) {
 			if (region instanceof IBufferedRegion) {
 				IBufferedRegion r = (IBufferedRegion) region;
 				if (r.getOwnerElement().match(name)
-						&& !elements.contains(r.getOwnerElement())) {
+						&& found.add(r.getOwnerElement())) {
 					elements.add(r.getOwnerElement());
 				}
 				if (r instanceof BufferedRegion) {
-					findChildren(((BufferedRegion) r).regions, name, elements);
+					findChildren(((BufferedRegion) r).regions, name, elements,
+							found);
 				}
 			}
 		}
@@ -396,6 +417,9 @@ public class BufferedElement implements IBufferedRegion {
 	 * @return
 	 */
 	public String getStartTagElementName() {
+		if (startTagElementName == null) {
+			startTagElementName = "<" + name + ">";
+		}
 		return startTagElementName;
 	}
 
@@ -405,6 +429,9 @@ public class BufferedElement implements IBufferedRegion {
 	 * @return
 	 */
 	public String getEndTagElementName() {
+		if (endTagElementName == null) {
+			endTagElementName = "</" + name + ">";
+		}
 		return endTagElementName;
 	}
 
@@ -495,6 +522,15 @@ public class BufferedElement implements IBufferedRegion {
 		return name;
 	}
 
+	/**
+	 * Returns the characters buffer shared by the elements of the document.
+	 * 
+	 * @return
+	 */
+	CharacterBuffer getCharacterBuffer() {
+		return characterBuffer;
+	}
+
 	public String getInnerText() {
 		StringWriter writer = new StringWriter();
 		List<ISavable> regions = startTagElement.regions;
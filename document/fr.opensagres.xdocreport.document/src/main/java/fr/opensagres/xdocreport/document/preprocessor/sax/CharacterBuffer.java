@@ -0,0 +1,129 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document.preprocessor.sax;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Append-only char array shared by the {@link StringBufferedRegion} of a buffered document. A region stores only the
+ * offset and the length of its content in this buffer, so the XML entry is buffered in one growing char array instead
+ * of one {@link StringBuilder} per region.
+ */
+class CharacterBuffer
+{
+
+    private static final int INITIAL_CAPACITY = 8192;
+
+    private char[] chars;
+
+    private int length;
+
+    CharacterBuffer()
+    {
+        this.chars = new char[INITIAL_CAPACITY];
+        this.length = 0;
+    }
+
+    /**
+     * Returns the length of the buffer which is the offset of the next appended content.
+     * 
+     * @return
+     */
+    int length()
+    {
+        return length;
+    }
+
+    /**
+     * Append the given content and returns the number of appended characters. Like {@link StringBuilder}, null is
+     * appended as "null".
+     * 
+     * @param content
+     * @return
+     */
+    int append( String content )
+    {
+        if ( content == null )
+        {
+            content = "null";
+        }
+        int contentLength = content.length();
+        ensureCapacity( length + contentLength );
+        content.getChars( 0, contentLength, chars, length );
+        length += contentLength;
+        return contentLength;
+    }
+
+    void append( char[] ch, int start, int contentLength )
+    {
+        ensureCapacity( length + contentLength );
+        System.arraycopy( ch, start, chars, length, contentLength );
+        length += contentLength;
+    }
+
+    void append( char c )
+    {
+        ensureCapacity( length + 1 );
+        chars[length++] = c;
+    }
+
+    /**
+     * Truncate the buffer to the given length.
+     * 
+     * @param newLength
+     */
+    void setLength( int newLength )
+    {
+        this.length = newLength;
+    }
+
+    void write( Writer writer, int offset, int count )
+        throws IOException
+    {
+        writer.write( chars, offset, count );
+    }
+
+    void copyTo( StringBuilder buffer, int offset, int count )
+    {
+        buffer.append( chars, offset, count );
+    }
+
+    String toString( int offset, int count )
+    {
+        return new String( chars, offset, count );
+    }
+
+    private void ensureCapacity( int capacity )
+    {
+        if ( capacity > chars.length )
+        {
+            int newCapacity = Math.max( chars.length * 2, capacity );
+            char[] newChars = new char[newCapacity];
+            System.arraycopy( chars, 0, newChars, 0, length );
+            chars = newChars;
+        }
+    }
+}
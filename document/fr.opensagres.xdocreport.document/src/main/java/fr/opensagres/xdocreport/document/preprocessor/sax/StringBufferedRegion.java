@@ -28,17 +28,30 @@ import java.io.IOException;
 import java.io.Writer;
 
 /**
- * String buffered region.
+ * String buffered region. The content is stored in the {@link CharacterBuffer} shared by the elements of the
+ * document while the region is the last appended region of this buffer. When content is appended to a region which
+ * is not the last one (ex : an element content modified after the parse of its children), the content of the region is
+ * copied in its own {@link StringBuilder}.
  */
 public class StringBufferedRegion
     extends BufferedRegionAdpater
 {
 
-    private final StringBuilder buffer = new StringBuilder();
+    private final CharacterBuffer characters;
+
+    private int offset;
+
+    private int length;
+
+    private StringBuilder buffer;
 
     public StringBufferedRegion( BufferedElement ownerElement, IBufferedRegion parent )
     {
         super( ownerElement, parent );
+        this.characters = ownerElement != null ? ownerElement.getCharacterBuffer() : null;
+        this.offset = -1;
+        this.length = 0;
+        this.buffer = characters == null ? new StringBuilder() : null;
     }
 
     @Override
@@ -51,40 +64,112 @@ public class StringBufferedRegion
     public void save( Writer writer )
         throws IOException
     {
-        writer.write( buffer.toString() );
+        if ( buffer != null )
+        {
+            writer.write( buffer.toString() );
+        }
+        else if ( length > 0 )
+        {
+            characters.write( writer, offset, length );
+        }
     }
 
     @Override
     public void append( String content )
     {
-        buffer.append( content );
+        if ( isShared() )
+        {
+            length += characters.append( content );
+        }
+        else
+        {
+            buffer.append( content );
+        }
     }
 
     @Override
     public void append( char[] ch, int start, int length )
     {
-        buffer.append( ch, start, length );
+        if ( isShared() )
+        {
+            characters.append( ch, start, length );
+            this.length += length;
+        }
+        else
+        {
+            buffer.append( ch, start, length );
+        }
     }
 
     @Override
     public void append( char c )
     {
-        buffer.append( c );
+        if ( isShared() )
+        {
+            characters.append( c );
+            length++;
+        }
+        else
+        {
+            buffer.append( c );
+        }
+    }
+
+    /**
+     * Returns true if the content to append can be appended to the shared character buffer and false if it must be
+     * appended to the own buffer of the region.
+     * 
+     * @return
+     */
+    private boolean isShared()
+    {
+        if ( buffer != null )
+        {
+            return false;
+        }
+        if ( offset == -1 )
+        {
+            // first append : the region starts at the end of the shared buffer
+            offset = characters.length();
+            return true;
+        }
+        if ( offset + length == characters.length() )
+        {
+            // the region is the last region of the shared buffer
+            return true;
+        }
+        // another region was appended after this region, copy the content in the own buffer of the region.
+        buffer = new StringBuilder( length + 16 );
+        characters.copyTo( buffer, offset, length );
+        return false;
     }
 
     @Override
     public String toString()
     {
-        if ( buffer == null )
+        if ( buffer != null )
         {
-            return null;
+            return buffer.toString();
         }
-        return buffer.toString();
+        return length > 0 ? characters.toString( offset, length ) : "";
     }
 
     public void clear()
     {
-        buffer.setLength( 0 );
+        if ( buffer != null )
+        {
+            buffer.setLength( 0 );
+        }
+        else
+        {
+            if ( offset != -1 && offset + length == characters.length() )
+            {
+                // the region is the last region of the shared buffer, free its content
+                characters.setLength( offset );
+            }
+            offset = -1;
+            length = 0;
+        }
     }
 
 }
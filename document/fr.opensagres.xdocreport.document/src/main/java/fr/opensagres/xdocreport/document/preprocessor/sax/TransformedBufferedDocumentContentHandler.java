@@ -26,8 +26,8 @@ package fr.opensagres.xdocreport.document.preprocessor.sax;
 
 import static java.util.Collections.singletonList;
 
-import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.xml.sax.Attributes;
@@ -173,21 +173,18 @@ public abstract class TransformedBufferedDocumentContentHandler<Document extends
         if ( currentRow != null && formatter != null && fieldsMetadata != null)
         {
             // characters parsing belong to a row
-            // search if it contains fields list from metadata
-            Collection<String> fieldsAsList = fieldsMetadata.getFieldsAsList();
+            // search (in one pass) the fields list from metadata contained in the content
+            List<String> fieldsAsList = fieldsMetadata.getFieldsAsListMatcher().getFieldNames( content );
             if ( !currentRow.isLoopTemplateDirectiveInitilalized() )
             {
                 for ( final String fieldName : fieldsAsList )
                 {
-                    if ( content.contains( fieldName ) )
+                    String itemNameList = formatter.extractItemNameList( content, fieldName, forceAsField );
+                    if ( StringUtils.isNotEmpty( itemNameList ) )
                     {
-                        String itemNameList = formatter.extractItemNameList( content, fieldName, forceAsField );
-                        if ( StringUtils.isNotEmpty( itemNameList ) )
-                        {
-                            currentRow.initializeLoopTemplateDirective( itemNameList, formatter, getStartNoParse(),
-                                                                        getEndNoParse() );
-                            break;
-                        }
+                        currentRow.initializeLoopTemplateDirective( itemNameList, formatter, getStartNoParse(),
+                                                                    getEndNoParse() );
+                        break;
                     }
                 }
             }
@@ -196,15 +193,12 @@ public abstract class TransformedBufferedDocumentContentHandler<Document extends
             {
                 for ( final String fieldName : fieldsAsList )
                 {
-                    if ( content.contains( fieldName ) )
+                    String newContent = formatter.formatAsFieldItemList( content, fieldName, forceAsField );
+                    if ( newContent != null )
                     {
-                        String newContent = formatter.formatAsFieldItemList( content, fieldName, forceAsField );
-                        if ( newContent != null )
-                        {
-                            return new ProcessRowResult( newContent, fieldName, currentRow.getItemNameList(),
-                                                         currentRow.getStartLoopDirective(),
-                                                         currentRow.getEndLoopDirective() );
-                        }
+                        return new ProcessRowResult( newContent, fieldName, currentRow.getItemNameList(),
+                                                     currentRow.getStartLoopDirective(),
+                                                     currentRow.getEndLoopDirective() );
                     }
                 }
             }
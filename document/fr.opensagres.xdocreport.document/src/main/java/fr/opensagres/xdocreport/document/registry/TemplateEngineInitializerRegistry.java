@@ -33,6 +33,7 @@ import fr.opensagres.xdocreport.core.document.DocumentKind;
 import fr.opensagres.xdocreport.core.registry.AbstractRegistry;
 import fr.opensagres.xdocreport.core.utils.StringUtils;
 import fr.opensagres.xdocreport.document.discovery.ITemplateEngineInitializerDiscovery;
+import fr.opensagres.xdocreport.template.AbstractTemplateEngine;
 import fr.opensagres.xdocreport.template.ITemplateEngine;
 import fr.opensagres.xdocreport.template.TemplateEngineKind;
 import fr.opensagres.xdocreport.template.discovery.ITemplateEngineDiscovery;
@@ -70,6 +71,13 @@ public class TemplateEngineInitializerRegistry
     @Override
     protected void doDispose()
     {
+        for ( ITemplateEngine templateEngine : templateEnginesCache.values() )
+        {
+            if ( templateEngine instanceof AbstractTemplateEngine )
+            {
+                ( (AbstractTemplateEngine) templateEngine ).dispose();
+            }
+        }
         this.templateEnginesCache.clear();
         this.templateEnginesInitializerDiscoveryCache.clear();
     }
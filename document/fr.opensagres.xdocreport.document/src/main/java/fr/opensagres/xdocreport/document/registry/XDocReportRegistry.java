@@ -41,12 +41,15 @@ import fr.opensagres.xdocreport.core.XDocReportException;
 import fr.opensagres.xdocreport.core.cache.CacheStorageRegistry;
 import fr.opensagres.xdocreport.core.cache.ICacheStorage;
 import fr.opensagres.xdocreport.core.io.IEntryInfo;
+import fr.opensagres.xdocreport.core.io.IEntryStorage;
 import fr.opensagres.xdocreport.core.io.XDocArchive;
 import fr.opensagres.xdocreport.core.logging.LogUtils;
 import fr.opensagres.xdocreport.core.registry.AbstractRegistry;
 import fr.opensagres.xdocreport.core.utils.StringUtils;
+import fr.opensagres.xdocreport.document.AbstractXDocReport;
 import fr.opensagres.xdocreport.document.IXDocReport;
 import fr.opensagres.xdocreport.document.discovery.IXDocReportFactoryDiscovery;
+import fr.opensagres.xdocreport.template.AbstractTemplateEngine;
 import fr.opensagres.xdocreport.template.ITemplateEngine;
 import fr.opensagres.xdocreport.template.TemplateEngineKind;
 import fr.opensagres.xdocreport.template.cache.ITemplateCacheInfoProvider;
@@ -82,6 +85,12 @@ public class XDocReportRegistry
      */
     private final ICacheStorage<String, IXDocReport> cachedReports;
     private Timer cleanupTimer;
+
+    /**
+     * Storage of the entries of the loaded reports (null for the heap).
+     */
+    private volatile IEntryStorage entryStorage;
+
     public XDocReportRegistry()
     {
         super( IXDocReportFactoryDiscovery.class );
@@ -368,7 +377,7 @@ public class XDocReportRegistry
         throws IOException, XDocReportException
     {
         // Load zipped XML document
-        XDocArchive documentArchive = XDocArchive.readZip( sourceStream );
+        XDocArchive documentArchive = XDocArchive.readZip( sourceStream, entryStorage );
         return createReport( documentArchive );
     }
 
@@ -383,6 +392,10 @@ public class XDocReportRegistry
                 IXDocReport report = discovery.createReport();
                 if ( report != null )
                 {
+                    if ( entryStorage != null )
+                    {
+                        report.setEntryStorage( entryStorage );
+                    }
                     report.setDocumentArchive( documentArchive );
                 }
                 return report;
@@ -439,6 +452,11 @@ public class XDocReportRegistry
         {
             checkReportId( reportId );
         }
+        IXDocReport oldReport = cachedReports.get( reportId );
+        if ( oldReport != null && oldReport != report )
+        {
+            evictTemplates( oldReport );
+        }
         cachedReports.put( report.getId(), report );
     }
 
@@ -489,9 +507,12 @@ public class XDocReportRegistry
      */
     public void unregisterReport( String reportId )
     {
-        if ( existsReport( reportId ) )
+        IXDocReport report = getReport( reportId );
+        if ( report != null )
         {
             cachedReports.remove( reportId );
+            evictTemplates( report );
+            dispose( report );
         }
     }
 
@@ -505,6 +526,36 @@ public class XDocReportRegistry
         if ( report != null )
         {
             cachedReports.remove( report.getId() );
+            evictTemplates( report );
+            dispose( report );
+        }
+    }
+
+    /**
+     * Remove the templates of the given report from the template cache of its template engine (see
+     * FreemarkerTemplateEngine#setImmutableTemplates).
+     * 
+     * @param report
+     */
+    private static void evictTemplates( IXDocReport report )
+    {
+        ITemplateEngine templateEngine = report.getTemplateEngine();
+        if ( templateEngine instanceof AbstractTemplateEngine && StringUtils.isNotEmpty( report.getId() ) )
+        {
+            ( (AbstractTemplateEngine) templateEngine ).evictTemplates( report.getId() );
+        }
+    }
+
+    /**
+     * Release the entries of the given report which is no longer used (see {@link AbstractXDocReport#dispose()}).
+     * 
+     * @param report
+     */
+    private static void dispose( IXDocReport report )
+    {
+        if ( report instanceof AbstractXDocReport )
+        {
+            ( (AbstractXDocReport) report ).dispose();
         }
     }
 
@@ -553,11 +604,43 @@ public class XDocReportRegistry
     }
 
     /**
-     * Clear the cached reports.
+     * Set the storage of the entries of the reports created by this registry (ex : a
+     * {@link fr.opensagres.xdocreport.core.io.storage.SizeThresholdEntryStorage} which keeps the big entries of the
+     * cached templates out of the Java heap), and null to store them on the heap.
+     * 
+     * @param entryStorage
+     */
+    public void setEntryStorage( IEntryStorage entryStorage )
+    {
+        this.entryStorage = entryStorage;
+    }
+
+    /**
+     * Returns the storage of the entries of the reports created by this registry and null for the heap.
+     * 
+     * @return
+     */
+    public IEntryStorage getEntryStorage()
+    {
+        return entryStorage;
+    }
+
+    /**
+     * Clear the cached reports. The entries of the cleared reports are released (see
+     * {@link AbstractXDocReport#dispose()}), so they must not be processed after.
      */
     public void clear()
     {
+        for ( IXDocReport report : new ArrayList<IXDocReport>( cachedReports.values() ) )
+        {
+            evictTemplates( report );
+            dispose( report );
+        }
         cachedReports.clear();
+        if ( entryStorage != null )
+        {
+            entryStorage.dispose();
+        }
     }
 
     /**
@@ -618,7 +701,7 @@ public class XDocReportRegistry
         	this.cleanupTimer.cancel();	
     	}
         this.reportFactoryDiscoveries.clear();
-        this.cachedReports.clear();
+        clear();
     }
 
     @Override
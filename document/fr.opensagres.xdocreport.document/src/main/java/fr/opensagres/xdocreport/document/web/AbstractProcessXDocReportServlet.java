@@ -24,6 +24,7 @@
  */
 package fr.opensagres.xdocreport.document.web;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
@@ -43,6 +44,7 @@ import fr.opensagres.xdocreport.converter.Options;
 import fr.opensagres.xdocreport.converter.OptionsHelper;
 import fr.opensagres.xdocreport.converter.XDocConverterException;
 import fr.opensagres.xdocreport.core.XDocReportException;
+import fr.opensagres.xdocreport.core.utils.HttpHeaderUtils;
 import fr.opensagres.xdocreport.core.utils.StringUtils;
 import fr.opensagres.xdocreport.document.IXDocReport;
 import fr.opensagres.xdocreport.document.ProcessState;
@@ -65,6 +67,8 @@ public abstract class AbstractProcessXDocReportServlet
 
     private static final String WEB_URI_RESOLVER_DATA_KEY = WEBURIResolver.class.getName();
 
+    private static final String ARCHIVE_CONTENT_DATA_KEY = ArchiveContent.class.getName();
+
     private static final long serialVersionUID = -4228326301636062279L;
 
     // JSP files
@@ -72,12 +76,15 @@ public abstract class AbstractProcessXDocReportServlet
 
     private boolean cacheOriginalDocument = false;
 
+    private boolean flushResponseHeaders = false;
+
     @Override
     public void init( ServletConfig config )
         throws ServletException
     {
         super.init( config );
         this.cacheOriginalDocument = StringUtils.asBoolean( super.getInitParameter( "cacheOriginalDocument" ), false );
+        this.flushResponseHeaders = StringUtils.asBoolean( super.getInitParameter( "flushResponseHeaders" ), false );
     }
 
     /**
@@ -174,9 +181,18 @@ public abstract class AbstractProcessXDocReportServlet
             {
                 // 2) Prepare HTTP response content type
                 prepareHTTPResponse( report.getId(), report.getMimeMapping(), request, response );
+                // 3) Answer 304 if the client has already the archive
+                String etag = getETag( report, processState );
+                if ( doNotModified( report, etag, request, response ) )
+                {
+                    return;
+                }
                 try
                 {
-                    report.save( processState, response.getOutputStream() );
+                    // 4) Write the zipped archive, zipped only once per loaded report
+                    byte[] content = getArchiveContent( report, processState, etag );
+                    response.setContentLength( content.length );
+                    response.getOutputStream().write( content );
                 }
                 catch ( XDocReportException e )
                 {
@@ -212,6 +228,11 @@ public abstract class AbstractProcessXDocReportServlet
                 {
                     // 2) Prepare HTTP response content type
                     prepareHTTPResponse( report.getId(), entryName, request, response );
+                    // 3) Answer 304 if the client has already the entry
+                    if ( doNotModified( report, getETag( report, processState ), request, response ) )
+                    {
+                        return;
+                    }
                     report.saveEntry( entryName, processState, response.getOutputStream() );
                 }
                 catch ( XDocReportException e )
@@ -226,6 +247,88 @@ public abstract class AbstractProcessXDocReportServlet
         }
     }
 
+    /**
+     * Returns the entity tag of the original/preprocessed archive of the given report. The archive doesn't change
+     * while the report is loaded, so the tag is computed with the load time of the report.
+     * 
+     * @param report
+     * @param processState
+     * @return
+     */
+    protected String getETag( IXDocReport report, ProcessState processState )
+    {
+        return HttpHeaderUtils.getETag( Long.toHexString( report.getLastModified() ) + "-"
+            + processState.name().toLowerCase() );
+    }
+
+    /**
+     * Set the validators of the archive in the HTTP response and set the "304 Not Modified" status if the client has
+     * already the archive.
+     * 
+     * @param report
+     * @param etag
+     * @param request
+     * @param response
+     * @return true if the "304 Not Modified" status was set and nothing must be written in the response.
+     */
+    protected boolean doNotModified( IXDocReport report, String etag, HttpServletRequest request,
+                                     HttpServletResponse response )
+    {
+        long lastModified = report.getLastModified();
+        response.setHeader( HttpHeaderUtils.ETAG, etag );
+        response.setDateHeader( HttpHeaderUtils.LAST_MODIFIED, lastModified );
+        if ( isDisableHTTPResponCache() )
+        {
+            // the archive can be stored by the client but must be revalidated.
+            response.setHeader( HttpHeaderUtils.CACHE_CONTROL_HTTP_HEADER, HttpHeaderUtils.NO_CACHE );
+        }
+        long ifModifiedSince = -1;
+        try
+        {
+            ifModifiedSince = request.getDateHeader( HttpHeaderUtils.IF_MODIFIED_SINCE );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            // bad date format, ignore the header.
+        }
+        if ( HttpHeaderUtils.isNotModified( request.getHeader( HttpHeaderUtils.IF_NONE_MATCH ), ifModifiedSince,
+                                            etag, lastModified ) )
+        {
+            response.setStatus( HttpServletResponse.SC_NOT_MODIFIED );
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the zipped original/preprocessed archive of the given report. The zipped bytes are stored in the report
+     * data to avoid zipping the archive on each download.
+     * 
+     * @param report
+     * @param processState
+     * @param etag
+     * @return
+     * @throws IOException
+     * @throws XDocReportException
+     */
+    private byte[] getArchiveContent( IXDocReport report, ProcessState processState, String etag )
+        throws IOException, XDocReportException
+    {
+        String key = ARCHIVE_CONTENT_DATA_KEY + processState.name();
+        synchronized ( report )
+        {
+            ArchiveContent content = report.getData( key );
+            if ( content == null || !content.etag.equals( etag ) )
+            {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                report.save( processState, out );
+                content = new ArchiveContent( etag, out.toByteArray() );
+                report.setData( key, content );
+            }
+            return content.bytes;
+        }
+    }
+
     protected boolean doGenerateReport( String entryName, HttpServletRequest request, HttpServletResponse response )
         throws ServletException, IOException
     {
@@ -300,6 +403,7 @@ public abstract class AbstractProcessXDocReportServlet
                 IDumper dumper = report.getDumper( dumperOptions );
                 // 3) Prepare HTTP response content type
                 prepareHTTPResponse( report.getId(), dumper.getMimeMapping(), request, response );
+                flushResponseHeadersIfNeeded( report, request, response );
                 // 4) Generate dump
                 report.dump( context, dumperOptions, response.getOutputStream() );
             }
@@ -307,6 +411,7 @@ public abstract class AbstractProcessXDocReportServlet
             {
                 // 2) Prepare HTTP response content type
                 prepareHTTPResponse( report.getId(), report.getMimeMapping(), request, response );
+                flushResponseHeadersIfNeeded( report, request, response );
                 // 3) Generate report
                 report.process( context, response.getOutputStream() );
             }
@@ -315,6 +420,7 @@ public abstract class AbstractProcessXDocReportServlet
         {
             // 2) Prepare HTTP response content type
             prepareHTTPResponse( report.getId(), entryName, request, response );
+            flushResponseHeadersIfNeeded( report, request, response );
             // 3) Generate report
             report.process( context, entryName, response.getOutputStream() );
         }
@@ -344,6 +450,7 @@ public abstract class AbstractProcessXDocReportServlet
             IDumper dumper = report.getDumper( dumperOptions );
             // 3) Prepare HTTP response content type
             prepareHTTPResponse( report.getId(), dumper.getMimeMapping(), request, response );
+            flushResponseHeadersIfNeeded( report, request, response );
             // 4) Generate dump
             report.dump( context, dumperOptions, response.getOutputStream() );
         }
@@ -353,11 +460,47 @@ public abstract class AbstractProcessXDocReportServlet
             IConverter converter = report.getConverter( options );
             // 3) Prepare HTTP response content type
             prepareHTTPResponse( report.getId(), converter.getMimeMapping(), request, response );
+            flushResponseHeadersIfNeeded( report, request, response );
             // 4) Generate report with conversion
             report.convert( context, options, response.getOutputStream() );
         }
     }
 
+    /**
+     * Commit the HTTP response headers before generating the report, if {@link #isFlushResponseHeaders(String,
+     * HttpServletRequest)} returns true. The client receives the headers at once and the generated content is sent
+     * chunked while it is written.
+     * 
+     * @param report
+     * @param request
+     * @param response
+     * @throws IOException
+     */
+    private void flushResponseHeadersIfNeeded( IXDocReport report, HttpServletRequest request,
+                                               HttpServletResponse response )
+        throws IOException
+    {
+        if ( isFlushResponseHeaders( report.getId(), request ) )
+        {
+            response.flushBuffer();
+        }
+    }
+
+    /**
+     * Returns true if the HTTP response headers must be sent before the report is generated and false otherwise. When
+     * the headers are flushed, an error which occurs while generating the report cannot be sent to the client with
+     * {@link #error(IXDocReport, IContext, DumperOptions, HttpServletRequest, HttpServletResponse, Exception)}. By
+     * default the "flushResponseHeaders" init parameter is used (false if not defined).
+     * 
+     * @param reportId the report id.
+     * @param request the HTTP request.
+     * @return true if the HTTP response headers must be sent before the report is generated and false otherwise.
+     */
+    protected boolean isFlushResponseHeaders( String reportId, HttpServletRequest request )
+    {
+        return flushResponseHeaders;
+    }
+
     // ----------------- Get Report
 
     /**
@@ -666,4 +809,21 @@ public abstract class AbstractProcessXDocReportServlet
      */
     protected abstract void populateContext( IContext context, String reportId, HttpServletRequest request )
         throws IOException, XDocReportException;
+
+    /**
+     * Zipped archive stored in the report data with the entity tag of the archive.
+     */
+    private static class ArchiveContent
+    {
+
+        private final String etag;
+
+        private final byte[] bytes;
+
+        public ArchiveContent( String etag, byte[] bytes )
+        {
+            this.etag = etag;
+            this.bytes = bytes;
+        }
+    }
 }
@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import fr.opensagres.xdocreport.document.images.IImageProvider;
+
+public class JSONContextBinderTestCase
+{
+
+    @Test
+    public void bindStream()
+        throws Exception
+    {
+        String json =
+            "{\"project\":{\"Name\":\"XDocReport\",\"Version\":2},"
+                + "\"developers\":[{\"Name\":\"ZERR\",\"Mail\":\"angelo.zerr@gmail.com\"},"
+                + "{\"Name\":\"Leclercq\",\"Mail\":\"pascal.leclercq@gmail.com\"}],"
+                + "\"empty\":[],\"price\":10.5,\"enabled\":true,\"nothing\":null}";
+        Map<String, Object> map =
+            JSONContextBinder.getInstance().bind( new ByteArrayInputStream( json.getBytes( "UTF-8" ) ) );
+
+        Map<?, ?> project = (Map<?, ?>) map.get( "project" );
+        Assert.assertEquals( "XDocReport", project.get( "Name" ) );
+        Assert.assertEquals( Integer.valueOf( 2 ), project.get( "Version" ) );
+
+        List<?> developers = (List<?>) map.get( "developers" );
+        Assert.assertEquals( 2, developers.size() );
+        Map<?, ?> developer1 = (Map<?, ?>) developers.get( 0 );
+        Map<?, ?> developer2 = (Map<?, ?>) developers.get( 1 );
+        Assert.assertEquals( "ZERR", developer1.get( "Name" ) );
+        Assert.assertEquals( "pascal.leclercq@gmail.com", developer2.get( "Mail" ) );
+        // keys are shared between the objects of the stream
+        Assert.assertSame( getKey( developer1, "Name" ), getKey( developer2, "Name" ) );
+
+        Assert.assertTrue( ( (List<?>) map.get( "empty" ) ).isEmpty() );
+        Assert.assertEquals( Double.valueOf( 10.5 ), map.get( "price" ) );
+        Assert.assertEquals( Boolean.TRUE, map.get( "enabled" ) );
+        Assert.assertSame( JSONObject.NULL, map.get( "nothing" ) );
+    }
+
+    @Test
+    public void bindLenientSyntax()
+        throws Exception
+    {
+        String json =
+            "{project:{Name:'XDocReport', URL:'http://code.google.com/p/xdocreport'}, "
+                + "developers:[{Name: 'ZERR', LastName: 'Angelo'},{Name: 'Leclercq', LastName: 'Pascal'},]}";
+        Map<String, Object> map = JSONContextBinder.getInstance().bind( new StringReader( json ) );
+
+        Map<?, ?> project = (Map<?, ?>) map.get( "project" );
+        Assert.assertEquals( "http://code.google.com/p/xdocreport", project.get( "URL" ) );
+        List<?> developers = (List<?>) map.get( "developers" );
+        Assert.assertEquals( 2, developers.size() );
+        Assert.assertEquals( "Pascal", ( (Map<?, ?>) developers.get( 1 ) ).get( "LastName" ) );
+    }
+
+    @Test
+    public void bindDateAndImage()
+        throws Exception
+    {
+        String json =
+            "{\"birthday\":{\"$date\":\"2013-03-04T10:07:05.003+01:00\"},\"photo\":{\"$img\":\"AQID\"}}";
+        Map<String, Object> map = JSONContextBinder.getInstance().bind( new StringReader( json ) );
+
+        Assert.assertTrue( map.get( "birthday" ) instanceof Date );
+        Assert.assertTrue( map.get( "photo" ) instanceof IImageProvider );
+    }
+
+    @Test( expected = JSONException.class )
+    public void bindNotAnObject()
+        throws Exception
+    {
+        JSONContextBinder.getInstance().bind( new StringReader( "[1, 2]" ) );
+    }
+
+    private static Object getKey( Map<?, ?> map, String name )
+    {
+        for ( Object key : map.keySet() )
+        {
+            if ( name.equals( key ) )
+            {
+                return key;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document.preprocessor.sax;
+
+import java.io.StringWriter;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests that a {@link StringBufferedRegion} which shares the {@link CharacterBuffer} of the document is never mutated
+ * by the other regions of the buffer (copy-on-write).
+ */
+public class StringBufferedRegionTestCase
+    extends TestCase
+{
+
+    public void testAppendToRegionFollowedByAnotherRegion()
+        throws Exception
+    {
+        BufferedElement root = new BufferedElement( null, null, "p", "p", null );
+        StringBufferedRegion first = new StringBufferedRegion( root, null );
+        first.append( "abc" );
+        StringBufferedRegion second = new StringBufferedRegion( root, null );
+        second.append( "def" );
+
+        // the first region is copied in its own buffer, the second region is not changed
+        first.append( "X" );
+        first.append( 'Y' );
+        first.append( new char[] { 'Z' }, 0, 1 );
+        assertEquals( "abcXYZ", first.toString() );
+        assertEquals( "def", second.toString() );
+        assertEquals( "abcXYZ", save( first ) );
+        assertEquals( "def", save( second ) );
+
+        // the second region is still the last region of the shared buffer
+        second.append( "ghi" );
+        assertEquals( "abcXYZ", first.toString() );
+        assertEquals( "defghi", second.toString() );
+    }
+
+    public void testClearLastRegion()
+        throws Exception
+    {
+        BufferedElement root = new BufferedElement( null, null, "p", "p", null );
+        StringBufferedRegion first = new StringBufferedRegion( root, null );
+        first.append( "abc" );
+        StringBufferedRegion second = new StringBufferedRegion( root, null );
+        second.append( "def" );
+
+        second.clear();
+        assertEquals( "abc", first.toString() );
+        assertEquals( "", second.toString() );
+
+        second.append( "gh" );
+        assertEquals( "abc", first.toString() );
+        assertEquals( "gh", second.toString() );
+
+        first.append( "!" );
+        assertEquals( "abc!", save( first ) );
+        assertEquals( "gh", save( second ) );
+    }
+
+    public void testClearRegionFollowedByAnotherRegion()
+        throws Exception
+    {
+        BufferedElement root = new BufferedElement( null, null, "p", "p", null );
+        StringBufferedRegion first = new StringBufferedRegion( root, null );
+        first.append( "abc" );
+        StringBufferedRegion second = new StringBufferedRegion( root, null );
+        second.append( "def" );
+
+        first.clear();
+        assertEquals( "", first.toString() );
+        assertEquals( "def", second.toString() );
+
+        first.append( "z" );
+        second.append( "g" );
+        assertEquals( "z", save( first ) );
+        assertEquals( "defg", save( second ) );
+    }
+
+    private static String save( StringBufferedRegion region )
+        throws Exception
+    {
+        StringWriter writer = new StringWriter();
+        region.save( writer );
+        return writer.toString();
+    }
+}
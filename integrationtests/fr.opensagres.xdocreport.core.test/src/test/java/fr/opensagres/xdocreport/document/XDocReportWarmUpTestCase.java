@@ -0,0 +1,168 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import fr.opensagres.xdocreport.document.dispatcher.IXDocReportLoader;
+import fr.opensagres.xdocreport.document.dump.Developer;
+import fr.opensagres.xdocreport.document.dump.Project;
+import fr.opensagres.xdocreport.document.registry.XDocReportRegistry;
+import fr.opensagres.xdocreport.template.IContext;
+import fr.opensagres.xdocreport.template.TemplateEngineKind;
+import fr.opensagres.xdocreport.template.formatter.FieldsMetadata;
+
+/**
+ * Test case for {@link XDocReportWarmUp}.
+ */
+public class XDocReportWarmUpTestCase
+{
+
+    private static final String REPORT_ID = "XDocReportWarmUpTestCase";
+
+    private static final String UNKNOWN_REPORT_ID = "XDocReportWarmUpTestCase-unknown";
+
+    @Test
+    public void warmUp()
+        throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool( 4 );
+        try
+        {
+            XDocReportWarmUp warmUp =
+                XDocReport.warmUp( Arrays.asList( REPORT_ID, UNKNOWN_REPORT_ID ), new ProjectLoader(), executor );
+            Assert.assertTrue( warmUp.await( 1, TimeUnit.MINUTES ) );
+            Assert.assertTrue( warmUp.isDone() );
+            Assert.assertTrue( warmUp.getTotalTime() >= 0 );
+            Assert.assertTrue( warmUp.getTimings().containsKey( "registry:XDocReportRegistry" ) );
+            Assert.assertTrue( warmUp.getTimings().containsKey( "template:" + REPORT_ID ) );
+
+            // the unknown report has failed
+            Assert.assertFalse( warmUp.isReady() );
+            Assert.assertEquals( 1, warmUp.getErrors().size() );
+            Assert.assertTrue( warmUp.getErrors().containsKey( "template:" + UNKNOWN_REPORT_ID ) );
+
+            // the report is cached and preprocessed
+            IXDocReport report = XDocReportRegistry.getRegistry().getReport( REPORT_ID );
+            Assert.assertNotNull( report );
+            Assert.assertTrue( report.isPreprocessed() );
+            IContext context = report.createContext();
+            context.put( "project", new Project( "XDocReport" ) );
+            context.put( "developers", Arrays.asList( new Developer( "ZERR", "Angelo", "angelo.zerr@gmail.com" ) ) );
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            report.process( context, out );
+            Assert.assertTrue( out.size() > 0 );
+        }
+        finally
+        {
+            executor.shutdown();
+            XDocReportRegistry.getRegistry().unregisterReport( REPORT_ID );
+        }
+    }
+
+    @Test
+    public void warmUpInCurrentThread()
+        throws Exception
+    {
+        XDocReportWarmUp warmUp = new XDocReportWarmUp().start( null );
+        Assert.assertTrue( warmUp.isReady() );
+        try
+        {
+            warmUp.start( null );
+            Assert.fail( "Warm-up cannot be started twice" );
+        }
+        catch ( IllegalStateException e )
+        {
+            // OK
+        }
+    }
+
+    @Test
+    public void warmUpWithRejectingExecutor()
+        throws Exception
+    {
+        Executor executor = new Executor()
+        {
+            public void execute( Runnable command )
+            {
+                throw new RejectedExecutionException( "rejected" );
+            }
+        };
+        XDocReportWarmUp warmUp = new XDocReportWarmUp().start( executor );
+        Assert.assertTrue( warmUp.await( 0, TimeUnit.SECONDS ) );
+        Assert.assertFalse( warmUp.isReady() );
+        Assert.assertTrue( warmUp.getTimings().isEmpty() );
+        Assert.assertTrue( warmUp.getErrors().containsKey( "registry:XDocReportRegistry" ) );
+        for ( Throwable e : warmUp.getErrors().values() )
+        {
+            Assert.assertTrue( e instanceof RejectedExecutionException );
+        }
+    }
+
+    private static class ProjectLoader
+        implements IXDocReportLoader
+    {
+
+        public InputStream getSourceStream( String reportId )
+            throws IOException
+        {
+            if ( REPORT_ID.equals( reportId ) )
+            {
+                return Project.class.getResourceAsStream( "DocxProjectWithFreemarkerList.docx" );
+            }
+            return null;
+        }
+
+        public String getTemplateEngineKind( String reportId )
+        {
+            return TemplateEngineKind.Freemarker.name();
+        }
+
+        public FieldsMetadata getFieldsMetadata( String reportId )
+        {
+            FieldsMetadata metadata = new FieldsMetadata();
+            metadata.addFieldAsList( "developers.name" );
+            metadata.addFieldAsList( "developers.lastName" );
+            metadata.addFieldAsList( "developers.mail" );
+            return metadata;
+        }
+
+        public Boolean isCacheReport( String reportId )
+        {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document.docx;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import fr.opensagres.xdocreport.core.io.IOUtils;
+import fr.opensagres.xdocreport.core.io.XDocArchive;
+import fr.opensagres.xdocreport.document.IXDocReport;
+import fr.opensagres.xdocreport.document.dump.Developer;
+import fr.opensagres.xdocreport.document.dump.Project;
+import fr.opensagres.xdocreport.document.registry.XDocReportRegistry;
+import fr.opensagres.xdocreport.template.IContext;
+import fr.opensagres.xdocreport.template.TemplateEngineKind;
+import fr.opensagres.xdocreport.template.formatter.FieldsMetadata;
+
+/**
+ * Process the same cached report from several threads : the first process is done while the report is not
+ * preprocessed, so the threads must wait for the same preprocessing.
+ */
+public class DocxConcurrentProcessTestCase
+{
+
+    private static final int NB_THREADS = 64;
+
+    private static final int NB_PROCESS_PER_THREAD = 5;
+
+    @Test
+    public void processFromSeveralThreads()
+        throws Exception
+    {
+        final String reportId = "DocxConcurrentProcessTestCase";
+        InputStream in = Project.class.getResourceAsStream( "DocxProjectWithFreemarkerList.docx" );
+        final IXDocReport report =
+            XDocReportRegistry.getRegistry().loadReport( in, reportId, TemplateEngineKind.Freemarker );
+        try
+        {
+            FieldsMetadata metadata = report.createFieldsMetadata();
+            metadata.addFieldAsList( "developers.name" );
+            metadata.addFieldAsList( "developers.lastName" );
+            metadata.addFieldAsList( "developers.mail" );
+            Assert.assertFalse( report.isPreprocessed() );
+
+            ExecutorService executor = Executors.newFixedThreadPool( NB_THREADS );
+            final CountDownLatch start = new CountDownLatch( 1 );
+            List<Future<Void>> results = new ArrayList<Future<Void>>();
+            for ( int i = 0; i < NB_THREADS; i++ )
+            {
+                final int threadIndex = i;
+                results.add( executor.submit( new Callable<Void>()
+                {
+                    public Void call()
+                        throws Exception
+                    {
+                        start.await();
+                        for ( int j = 0; j < NB_PROCESS_PER_THREAD; j++ )
+                        {
+                            String projectName = "Project-" + threadIndex + "-" + j;
+                            String developerName = "Developer-" + threadIndex + "-" + j;
+                            IContext context = report.createContext();
+                            context.put( "project", new Project( projectName ) );
+                            context.put( "developers",
+                                         Collections.singletonList( new Developer( developerName, "Last", "mail" ) ) );
+
+                            ByteArrayOutputStream out = new ByteArrayOutputStream();
+                            report.process( context, out );
+
+                            XDocArchive archive =
+                                XDocArchive.readZip( new ByteArrayInputStream( out.toByteArray() ) );
+                            String document =
+                                IOUtils.toString( archive.getEntryReader( DocxConstants.WORD_DOCUMENT_XML_ENTRY ) );
+                            Assert.assertTrue( document, document.contains( projectName + "<" ) );
+                            Assert.assertTrue( document, document.contains( developerName + "<" ) );
+                            Assert.assertFalse( document, document.contains( "developers.name" ) );
+                        }
+                        return null;
+                    }
+                } ) );
+            }
+            // start all the threads at the same time
+            start.countDown();
+            for ( Future<Void> result : results )
+            {
+                result.get();
+            }
+            executor.shutdown();
+            Assert.assertTrue( executor.awaitTermination( 1, TimeUnit.MINUTES ) );
+            Assert.assertTrue( report.isPreprocessed() );
+        }
+        finally
+        {
+            XDocReportRegistry.getRegistry().unregisterReport( reportId );
+        }
+    }
+}
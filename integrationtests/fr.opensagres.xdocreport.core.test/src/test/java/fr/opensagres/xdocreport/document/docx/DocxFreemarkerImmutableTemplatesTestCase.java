@@ -0,0 +1,190 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document.docx;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import fr.opensagres.xdocreport.core.io.IOUtils;
+import fr.opensagres.xdocreport.core.io.XDocArchive;
+import fr.opensagres.xdocreport.document.IXDocReport;
+import fr.opensagres.xdocreport.document.dump.Project;
+import fr.opensagres.xdocreport.document.registry.XDocReportRegistry;
+import fr.opensagres.xdocreport.template.IContext;
+import fr.opensagres.xdocreport.template.freemarker.FreemarkerTemplateEngine;
+
+/**
+ * Test case for the immutable templates mode of Freemarker : the templates pinned for a cached report must be evicted
+ * when the report is reloaded or unregistered.
+ */
+public class DocxFreemarkerImmutableTemplatesTestCase
+{
+
+    @Test
+    public void reloadReport()
+        throws Exception
+    {
+        String reportId = "DocxFreemarkerImmutableTemplatesTestCase_reload";
+        FreemarkerTemplateEngine templateEngine = createTemplateEngine();
+        IXDocReport report =
+            XDocReportRegistry.getRegistry().loadReport( createDocx( "Name: ${project.name}" ), reportId,
+                                                         templateEngine );
+        try
+        {
+            Assert.assertTrue( process( report ).contains( "Name: XDocReport" ) );
+            // the pinned template is used
+            Assert.assertTrue( process( report ).contains( "Name: XDocReport" ) );
+
+            report.load( createDocx( "Reloaded: ${project.name}" ) );
+            Assert.assertTrue( process( report ).contains( "Reloaded: XDocReport" ) );
+        }
+        finally
+        {
+            XDocReportRegistry.getRegistry().unregisterReport( reportId );
+        }
+    }
+
+    @Test
+    public void reloadReportWhileProcessing()
+        throws Exception
+    {
+        String reportId = "DocxFreemarkerImmutableTemplatesTestCase_concurrentReload";
+        FreemarkerTemplateEngine templateEngine = createTemplateEngine();
+        final IXDocReport report =
+            XDocReportRegistry.getRegistry().loadReport( createDocx( "Version: 0 ${project.name}" ), reportId,
+                                                         templateEngine );
+        final AtomicBoolean stop = new AtomicBoolean();
+        final List<Throwable> errors = Collections.synchronizedList( new ArrayList<Throwable>() );
+        List<Thread> threads = new ArrayList<Thread>();
+        for ( int i = 0; i < 4; i++ )
+        {
+            Thread thread = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        while ( !stop.get() )
+                        {
+                            process( report );
+                        }
+                    }
+                    catch ( Throwable e )
+                    {
+                        errors.add( e );
+                    }
+                }
+            };
+            threads.add( thread );
+            thread.start();
+        }
+        try
+        {
+            for ( int version = 1; version <= 50; version++ )
+            {
+                report.load( createDocx( "Version: " + version + " ${project.name}" ) );
+                // the templates pinned by the processes running during the reload are not used
+                Assert.assertTrue( process( report ).contains( "Version: " + version + " XDocReport" ) );
+            }
+        }
+        finally
+        {
+            stop.set( true );
+            for ( Thread thread : threads )
+            {
+                thread.join();
+            }
+            XDocReportRegistry.getRegistry().unregisterReport( reportId );
+        }
+        Assert.assertEquals( Collections.emptyList(), errors );
+    }
+
+    @Test
+    public void unregisterReport()
+        throws Exception
+    {
+        String reportId = "DocxFreemarkerImmutableTemplatesTestCase_unregister";
+        FreemarkerTemplateEngine templateEngine = createTemplateEngine();
+        IXDocReport report =
+            XDocReportRegistry.getRegistry().loadReport( createDocx( "Name: ${project.name}" ), reportId,
+                                                         templateEngine );
+        Assert.assertTrue( process( report ).contains( "Name: XDocReport" ) );
+        XDocReportRegistry.getRegistry().unregisterReport( reportId );
+
+        // new report with the same id
+        report =
+            XDocReportRegistry.getRegistry().loadReport( createDocx( "New: ${project.name}" ), reportId,
+                                                         templateEngine );
+        try
+        {
+            Assert.assertTrue( process( report ).contains( "New: XDocReport" ) );
+        }
+        finally
+        {
+            XDocReportRegistry.getRegistry().unregisterReport( reportId );
+        }
+    }
+
+    private static FreemarkerTemplateEngine createTemplateEngine()
+    {
+        FreemarkerTemplateEngine templateEngine = new FreemarkerTemplateEngine();
+        templateEngine.setTemplateCacheInfoProvider( XDocReportRegistry.getRegistry() );
+        templateEngine.setImmutableTemplates( true );
+        return templateEngine;
+    }
+
+    private static String process( IXDocReport report )
+        throws Exception
+    {
+        IContext context = report.createContext();
+        context.put( "project", new Project( "XDocReport" ) );
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        report.process( context, out );
+        XDocArchive archive = XDocArchive.readZip( new ByteArrayInputStream( out.toByteArray() ) );
+        return IOUtils.toString( archive.getEntryReader( DocxConstants.WORD_DOCUMENT_XML_ENTRY ) );
+    }
+
+    private static InputStream createDocx( String text )
+        throws Exception
+    {
+        XDocArchive archive =
+            XDocArchive.readZip( Project.class.getResourceAsStream( "DocxProjectWithFreemarkerList.docx" ) );
+        Writer writer = archive.getEntryWriter( DocxConstants.WORD_DOCUMENT_XML_ENTRY );
+        writer.write( "<w:document xmlns:w=\"http://schemas.openxmlformats.org/wordprocessingml/2006/main\">"
+            + "<w:body><w:p><w:r><w:t>" + text + "</w:t></w:r></w:p></w:body></w:document>" );
+        writer.close();
+        return XDocArchive.getInputStream( archive );
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document.docx;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import fr.opensagres.xdocreport.core.XDocReportException;
+import fr.opensagres.xdocreport.core.io.IOUtils;
+import fr.opensagres.xdocreport.core.io.XDocArchive;
+import fr.opensagres.xdocreport.document.IXDocReport;
+import fr.opensagres.xdocreport.document.dump.Project;
+import fr.opensagres.xdocreport.document.registry.XDocReportRegistry;
+import fr.opensagres.xdocreport.template.TemplateEngineKind;
+import fr.opensagres.xdocreport.template.formatter.FieldsMetadata;
+
+/**
+ * Preprocess a docx with and without executor : the preprocessed entries must be the same.
+ */
+public class DocxParallelPreprocessingTestCase
+{
+
+    private ExecutorService executor;
+
+    @Before
+    public void createExecutor()
+    {
+        executor = Executors.newFixedThreadPool( 4 );
+    }
+
+    @After
+    public void shutdownExecutor()
+    {
+        executor.shutdown();
+    }
+
+    @Test
+    public void preprocessWithList()
+        throws Exception
+    {
+        IXDocReport sequentialReport = loadReport( "DocxProjectWithFreemarkerList.docx" );
+        IXDocReport parallelReport = loadReport( "DocxProjectWithFreemarkerList.docx" );
+        parallelReport.setPreprocessingExecutor( executor );
+        for ( IXDocReport report : new IXDocReport[] { sequentialReport, parallelReport } )
+        {
+            FieldsMetadata metadata = report.createFieldsMetadata();
+            metadata.addFieldAsList( "developers.name" );
+            metadata.addFieldAsList( "developers.lastName" );
+            metadata.addFieldAsList( "developers.mail" );
+            report.preprocess();
+        }
+        assertSameArchive( sequentialReport.getPreprocessedDocumentArchive(),
+                           parallelReport.getPreprocessedDocumentArchive() );
+        XDocArchive archive = parallelReport.getPreprocessedDocumentArchive();
+        String document = IOUtils.toString( archive.getEntryReader( DocxConstants.WORD_DOCUMENT_XML_ENTRY ) );
+        Assert.assertTrue( document, document.contains( "[#list developers as" ) );
+    }
+
+    @Test
+    public void cyclicDependencies()
+        throws Exception
+    {
+        IXDocReport report = loadReport( "DocxProjectWithFreemarkerList.docx" );
+        report.setPreprocessingExecutor( executor );
+        // numbering already depends on styles
+        report.addPreprocessorDependency( DocxConstants.WORD_STYLES_XML_ENTRY, DocxConstants.WORD_NUMBERING_XML_ENTRY );
+        try
+        {
+            report.preprocess();
+            Assert.fail( "Cyclic dependencies must be detected" );
+        }
+        catch ( XDocReportException e )
+        {
+            Assert.assertTrue( e.getMessage(), e.getMessage().contains( DocxConstants.WORD_NUMBERING_XML_ENTRY ) );
+        }
+    }
+
+    private static IXDocReport loadReport( String name )
+        throws IOException, XDocReportException
+    {
+        InputStream in = Project.class.getResourceAsStream( name );
+        return XDocReportRegistry.getRegistry().loadReport( in, TemplateEngineKind.Freemarker, false );
+    }
+
+    private static void assertSameArchive( XDocArchive expected, XDocArchive actual )
+        throws IOException
+    {
+        Assert.assertEquals( expected.getEntryNames(), actual.getEntryNames() );
+        for ( String entryName : expected.getEntryNames() )
+        {
+            Assert.assertArrayEquals( entryName, IOUtils.toByteArray( expected.getEntryInputStream( entryName ) ),
+                                      IOUtils.toByteArray( actual.getEntryInputStream( entryName ) ) );
+        }
+    }
+}
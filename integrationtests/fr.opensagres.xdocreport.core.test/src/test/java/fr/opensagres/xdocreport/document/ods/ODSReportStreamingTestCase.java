@@ -0,0 +1,208 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document.ods;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import fr.opensagres.xdocreport.core.io.IOUtils;
+import fr.opensagres.xdocreport.document.IXDocReport;
+import fr.opensagres.xdocreport.document.dump.Developer;
+import fr.opensagres.xdocreport.document.ods.internal.EmptyRowsCompactionWriter;
+import fr.opensagres.xdocreport.document.registry.XDocReportRegistry;
+import fr.opensagres.xdocreport.template.IContext;
+import fr.opensagres.xdocreport.template.TemplateEngineKind;
+import fr.opensagres.xdocreport.template.formatter.FieldsMetadata;
+
+/**
+ * Test case for the ODS row loop and the streaming of content.xml.
+ */
+public class ODSReportStreamingTestCase
+{
+
+    private static final String EMPTY_ROW =
+        "<table:table-row table:style-name=\"ro1\"><table:table-cell table:number-columns-repeated=\"2\"/>"
+            + "</table:table-row>";
+
+    private static final String CONTENT = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+        + "<office:document-content xmlns:office=\"urn:oasis:names:tc:opendocument:xmlns:office:1.0\" "
+        + "xmlns:text=\"urn:oasis:names:tc:opendocument:xmlns:text:1.0\" "
+        + "xmlns:table=\"urn:oasis:names:tc:opendocument:xmlns:table:1.0\">" + "<office:body>"
+        + "<office:spreadsheet>" + "<table:table table:name=\"Sheet1\" table:style-name=\"ta1\">"
+        + "<table:table-column table:style-name=\"co1\" table:number-columns-repeated=\"2\"/>"
+        + "<table:table-row table:style-name=\"ro1\">"
+        + "<table:table-cell office:value-type=\"string\"><text:p>${developers.name}</text:p></table:table-cell>"
+        + "<table:table-cell office:value-type=\"string\"><text:p>${developers.mail}</text:p></table:table-cell>"
+        + "</table:table-row>" + EMPTY_ROW + EMPTY_ROW + EMPTY_ROW
+        + "<table:table-row table:style-name=\"ro1\" table:number-rows-repeated=\"1048570\">"
+        + "<table:table-cell table:number-columns-repeated=\"2\"/></table:table-row>" + "</table:table>"
+        + "</office:spreadsheet>" + "</office:body>" + "</office:document-content>";
+
+    private static final String COMPACTED_ROWS = "<table:table-row table:style-name=\"ro1\" "
+        + "table:number-rows-repeated=\"1048573\"><table:table-cell table:number-columns-repeated=\"2\"/>"
+        + "</table:table-row>";
+
+    @Test
+    public void streamedContent()
+        throws Exception
+    {
+        ODSReport report = loadReport();
+        report.setStreamingContent( true );
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        report.process( createContext( report ), out );
+
+        ZipInputStream zip = new ZipInputStream( new ByteArrayInputStream( out.toByteArray() ) );
+        // mimetype must be the first entry
+        Assert.assertEquals( "mimetype", zip.getNextEntry().getName() );
+        Assert.assertEquals( "application/vnd.oasis.opendocument.spreadsheet", IOUtils.toString( zip, "UTF-8" ) );
+        Assert.assertEquals( "content.xml", zip.getNextEntry().getName() );
+        String content = IOUtils.toString( zip, "UTF-8" );
+        Assert.assertTrue( content.contains( "<text:p>ZERR</text:p>" ) );
+        Assert.assertTrue( content.contains( "<text:p>leclercq@gmail.com</text:p>" ) );
+        Assert.assertTrue( content.contains( "</table:table-row>" + COMPACTED_ROWS + "</table:table>" ) );
+        Assert.assertFalse( content.contains( EMPTY_ROW ) );
+        Assert.assertEquals( "styles.xml", zip.getNextEntry().getName() );
+        Assert.assertNull( zip.getNextEntry() );
+        zip.close();
+    }
+
+    @Test
+    public void notStreamedContent()
+        throws Exception
+    {
+        ODSReport report = loadReport();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        report.process( createContext( report ), "content.xml", out );
+
+        String content = new String( out.toByteArray(), "UTF-8" );
+        Assert.assertTrue( content.contains( "<text:p>ZERR</text:p>" ) );
+        Assert.assertTrue( content.contains( "<text:p>leclercq@gmail.com</text:p>" ) );
+        Assert.assertTrue( content.contains( EMPTY_ROW + EMPTY_ROW + EMPTY_ROW ) );
+    }
+
+    @Test
+    public void compactionWithChunks()
+        throws IOException
+    {
+        String xml =
+            "<table:table>" + EMPTY_ROW + EMPTY_ROW
+                + "<table:table-row><table:table-cell office:value-type=\"float\" office:value=\"1\"/>"
+                + "</table:table-row>" + EMPTY_ROW + "<table:table-rows/>" + EMPTY_ROW + EMPTY_ROW
+                + "<table:table-row table:style-name=\"ro1\"><table:table-cell><text:p>a</text:p></table:table-cell>"
+                + "</table:table-row>" + "</table:table>";
+        String expected =
+            "<table:table>" + EMPTY_ROW.replace( "\"ro1\"", "\"ro1\" table:number-rows-repeated=\"2\"" )
+                + "<table:table-row><table:table-cell office:value-type=\"float\" office:value=\"1\"/>"
+                + "</table:table-row>" + EMPTY_ROW + "<table:table-rows/>"
+                + EMPTY_ROW.replace( "\"ro1\"", "\"ro1\" table:number-rows-repeated=\"2\"" )
+                + "<table:table-row table:style-name=\"ro1\"><table:table-cell><text:p>a</text:p></table:table-cell>"
+                + "</table:table-row>" + "</table:table>";
+        for ( int chunkSize = 1; chunkSize <= xml.length(); chunkSize += 7 )
+        {
+            StringWriter result = new StringWriter();
+            EmptyRowsCompactionWriter writer = new EmptyRowsCompactionWriter( result );
+            for ( int i = 0; i < xml.length(); i += chunkSize )
+            {
+                writer.write( xml, i, Math.min( chunkSize, xml.length() - i ) );
+            }
+            writer.close();
+            Assert.assertEquals( "chunk size " + chunkSize, expected, result.toString() );
+        }
+    }
+
+    @Test
+    public void compactionWithWhitespaces()
+        throws IOException
+    {
+        // indented content.xml, like the rows generated by a template loop
+        String xml =
+            "<table:table>\n  " + EMPTY_ROW + "\n  " + EMPTY_ROW + "\n\t  " + EMPTY_ROW + "\n  "
+                + "<table:table-row><table:table-cell office:value-type=\"float\" office:value=\"1\"/>"
+                + "</table:table-row>\n  " + EMPTY_ROW + " text " + EMPTY_ROW + "\n</table:table>";
+        String expected =
+            "<table:table>\n  " + EMPTY_ROW.replace( "\"ro1\"", "\"ro1\" table:number-rows-repeated=\"3\"" )
+                + "\n  " + "<table:table-row><table:table-cell office:value-type=\"float\" office:value=\"1\"/>"
+                + "</table:table-row>\n  " + EMPTY_ROW + " text " + EMPTY_ROW + "\n</table:table>";
+        for ( int chunkSize = 1; chunkSize <= xml.length(); chunkSize += 5 )
+        {
+            StringWriter result = new StringWriter();
+            EmptyRowsCompactionWriter writer = new EmptyRowsCompactionWriter( result );
+            for ( int i = 0; i < xml.length(); i += chunkSize )
+            {
+                writer.write( xml, i, Math.min( chunkSize, xml.length() - i ) );
+            }
+            writer.close();
+            Assert.assertEquals( "chunk size " + chunkSize, expected, result.toString() );
+        }
+    }
+
+    private ODSReport loadReport()
+        throws Exception
+    {
+        ByteArrayOutputStream ods = new ByteArrayOutputStream();
+        ZipOutputStream zip = new ZipOutputStream( ods );
+        addEntry( zip, "mimetype", "application/vnd.oasis.opendocument.spreadsheet" );
+        addEntry( zip, "content.xml", CONTENT );
+        addEntry( zip, "styles.xml", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<office:document-styles xmlns:office=\"urn:oasis:names:tc:opendocument:xmlns:office:1.0\"/>" );
+        zip.close();
+
+        IXDocReport report =
+            XDocReportRegistry.getRegistry().loadReport( new ByteArrayInputStream( ods.toByteArray() ),
+                                                         TemplateEngineKind.Freemarker, false );
+        FieldsMetadata metadata = report.createFieldsMetadata();
+        metadata.addFieldAsList( "developers.name" );
+        metadata.addFieldAsList( "developers.mail" );
+        return (ODSReport) report;
+    }
+
+    private IContext createContext( IXDocReport report )
+        throws Exception
+    {
+        IContext context = report.createContext();
+        context.put( "developers",
+                     Arrays.asList( new Developer( "ZERR", "Angelo", "angelo.zerr@gmail.com" ),
+                                    new Developer( "Leclercq", "Pascal", "leclercq@gmail.com" ) ) );
+        return context;
+    }
+
+    private static void addEntry( ZipOutputStream zip, String name, String content )
+        throws IOException
+    {
+        zip.putNextEntry( new ZipEntry( name ) );
+        zip.write( content.getBytes( "UTF-8" ) );
+        zip.closeEntry();
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document.ods.preprocessor;
+
+import java.io.InputStream;
+import java.io.StringWriter;
+
+import junit.framework.TestCase;
+import fr.opensagres.xdocreport.core.io.IOUtils;
+import fr.opensagres.xdocreport.template.formatter.FieldsMetadata;
+import fr.opensagres.xdocreport.template.formatter.IDocumentFormatter;
+import fr.opensagres.xdocreport.template.freemarker.FreemarkerDocumentFormatter;
+
+public class ODSPreprocessorWithFreemarkerTestCase
+    extends TestCase
+{
+
+    private static final String START_CONTENT = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+        + "<office:document-content xmlns:office=\"urn:oasis:names:tc:opendocument:xmlns:office:1.0\" "
+        + "xmlns:text=\"urn:oasis:names:tc:opendocument:xmlns:text:1.0\" "
+        + "xmlns:table=\"urn:oasis:names:tc:opendocument:xmlns:table:1.0\">" + "<office:body>"
+        + "<office:spreadsheet>" + "<table:table table:name=\"Sheet1\" table:style-name=\"ta1\">"
+        + "<table:table-column table:style-name=\"co1\" table:number-columns-repeated=\"2\"/>"
+        + "<table:table-row table:style-name=\"ro1\">"
+        + "<table:table-cell office:value-type=\"string\"><text:p>Name</text:p></table:table-cell>"
+        + "<table:table-cell office:value-type=\"string\"><text:p>Mail</text:p></table:table-cell>"
+        + "</table:table-row>";
+
+    private static final String END_CONTENT = "<table:table-row table:style-name=\"ro1\" "
+        + "table:number-rows-repeated=\"1048574\"><table:table-cell table:number-columns-repeated=\"2\"/>"
+        + "</table:table-row>" + "</table:table>" + "</office:spreadsheet>" + "</office:body>"
+        + "</office:document-content>";
+
+    public void testRowWithListField()
+        throws Exception
+    {
+        ODSPreprocessor preprocessor = new ODSPreprocessor();
+        InputStream stream =
+            IOUtils.toInputStream( START_CONTENT + "<table:table-row table:style-name=\"ro1\">"
+                + "<table:table-cell office:value-type=\"string\"><text:p>${developers.Name}</text:p></table:table-cell>"
+                + "<table:table-cell office:value-type=\"string\"><text:p>${developers.Mail}</text:p></table:table-cell>"
+                + "</table:table-row>" + END_CONTENT, "UTF-8" );
+        StringWriter writer = new StringWriter();
+
+        FieldsMetadata metadata = new FieldsMetadata();
+        metadata.addFieldAsList( "developers.Name" );
+        metadata.addFieldAsList( "developers.Mail" );
+        IDocumentFormatter formatter = new FreemarkerDocumentFormatter();
+
+        preprocessor.preprocess( "content.xml", stream, writer, metadata, formatter, null );
+
+        assertEquals( START_CONTENT + "[#list developers as item_developers]"
+            + "<table:table-row table:style-name=\"ro1\">"
+            + "<table:table-cell office:value-type=\"string\"><text:p>${item_developers.Name}</text:p></table:table-cell>"
+            + "<table:table-cell office:value-type=\"string\"><text:p>${item_developers.Mail}</text:p></table:table-cell>"
+            + "</table:table-row>" + "[/#list]" + END_CONTENT, writer.toString() );
+    }
+
+    public void testRowWithoutListField()
+        throws Exception
+    {
+        ODSPreprocessor preprocessor = new ODSPreprocessor();
+        String content =
+            START_CONTENT + "<table:table-row table:style-name=\"ro1\">"
+                + "<table:table-cell office:value-type=\"string\"><text:p>${name}</text:p></table:table-cell>"
+                + "<table:table-cell/>" + "</table:table-row>" + END_CONTENT;
+        StringWriter writer = new StringWriter();
+
+        FieldsMetadata metadata = new FieldsMetadata();
+        metadata.addFieldAsList( "developers.Name" );
+        IDocumentFormatter formatter = new FreemarkerDocumentFormatter();
+
+        preprocessor.preprocess( "content.xml", IOUtils.toInputStream( content, "UTF-8" ), writer, metadata,
+                                 formatter, null );
+
+        assertEquals( content, writer.toString() );
+    }
+}
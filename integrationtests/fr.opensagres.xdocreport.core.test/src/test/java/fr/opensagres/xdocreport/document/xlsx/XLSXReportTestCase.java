@@ -0,0 +1,294 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document.xlsx;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import fr.opensagres.xdocreport.core.io.IOUtils;
+import fr.opensagres.xdocreport.document.IXDocReport;
+import fr.opensagres.xdocreport.document.dump.Developer;
+import fr.opensagres.xdocreport.document.registry.XDocReportRegistry;
+import fr.opensagres.xdocreport.document.xlsx.internal.RowsNumberingWriter;
+import fr.opensagres.xdocreport.template.IContext;
+import fr.opensagres.xdocreport.template.TemplateEngineKind;
+import fr.opensagres.xdocreport.template.formatter.FieldsMetadata;
+
+/**
+ * Test case for the XLSX row loop, the inline strings generated for the shared strings with fields and the
+ * renumbering of the generated rows.
+ */
+public class XLSXReportTestCase
+{
+
+    private static final String SHEET_ENTRY = "xl/worksheets/sheet1.xml";
+
+    private static final String SHARED_STRINGS = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+        + "<sst xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" count=\"4\" uniqueCount=\"4\">"
+        + "<si><t>Name</t></si>" + "<si><t>${developers.name}</t></si>"
+        + "<si><r><rPr><b/></rPr><t>${developers.</t></r><r><t>mail}</t></r></si>" + "<si><t>Total</t></si>"
+        + "</sst>";
+
+    private static final String SHEET = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+        + "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">"
+        + "<dimension ref=\"A1:B5\"/>" + "<sheetData>" + "<row r=\"1\"><c r=\"A1\" t=\"s\"><v>0</v></c></row>"
+        + "<row r=\"2\" spans=\"1:2\"><c r=\"A2\" s=\"1\" t=\"s\"><v>1</v></c><c r=\"B2\" t=\"s\"><v>2</v></c></row>"
+        + "<row r=\"3\"><c r=\"A3\" t=\"s\"><v>3</v></c><c r=\"B3\"><v>2</v></c></row>"
+        + "<row r=\"5\"><c r=\"A5\"><v>5</v></c><c r=\"B5\"><f>SUM(B2:B3)*$A$1+A5</f><v>7</v></c></row>"
+        + "</sheetData>" + "<mergeCells count=\"2\"><mergeCell ref=\"A2:B2\"/><mergeCell ref=\"A3:B5\"/></mergeCells>"
+        + "</worksheet>";
+
+    @Test
+    public void streamedSheet()
+        throws Exception
+    {
+        IXDocReport report = loadReport();
+        Assert.assertTrue( report instanceof XLSXReport );
+        Assert.assertTrue( ( (XLSXReport) report ).isStreamingSheets() );
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        report.process( createContext( report, 2 ), out );
+
+        ZipInputStream zip = new ZipInputStream( new ByteArrayInputStream( out.toByteArray() ) );
+        // the sheet is written first, the other entries are written after
+        Assert.assertEquals( SHEET_ENTRY, zip.getNextEntry().getName() );
+        String sheet = IOUtils.toString( zip, "UTF-8" );
+        Assert.assertTrue( sheet.contains( "<row r=\"1\"><c r=\"A1\" t=\"s\"><v>0</v></c></row>" ) );
+        Assert.assertTrue( sheet.contains( "<row r=\"2\" spans=\"1:2\"><c r=\"A2\" s=\"1\" t=\"inlineStr\">"
+            + "<is><t xml:space=\"preserve\">ZERR</t></is></c><c r=\"B2\" t=\"inlineStr\"><is><t xml:space=\"preserve\">angelo.zerr@gmail.com</t></is></c></row>" ) );
+        Assert.assertTrue( sheet.contains( "<row r=\"3\" spans=\"1:2\"><c r=\"A3\" s=\"1\" t=\"inlineStr\">"
+            + "<is><t xml:space=\"preserve\">Leclercq</t></is></c><c r=\"B3\" t=\"inlineStr\"><is><t xml:space=\"preserve\">leclercq@gmail.com</t></is></c></row>" ) );
+        // the rows after the loop are shifted, with the references of the formulas and of the merged cells
+        Assert.assertTrue( sheet.contains( "<row r=\"4\"><c r=\"A4\" t=\"s\"><v>3</v></c><c r=\"B4\"><v>2</v></c></row>"
+            + "<row r=\"6\"><c r=\"A6\"><v>5</v></c><c r=\"B6\"><f>SUM(B2:B4)*$A$1+A6</f><v>7</v></c></row>" ) );
+        Assert.assertTrue( sheet.contains( "<mergeCells><mergeCell ref=\"A2:B2\"/><mergeCell ref=\"A3:B3\"/>"
+            + "<mergeCell ref=\"A4:B6\"/></mergeCells>" ) );
+        // the dimension of a sheet with a loop is removed
+        Assert.assertFalse( sheet.contains( "<dimension" ) );
+        List<String> entryNames = new ArrayList<String>();
+        ZipEntry entry = null;
+        while ( ( entry = zip.getNextEntry() ) != null )
+        {
+            entryNames.add( entry.getName() );
+        }
+        zip.close();
+        Assert.assertTrue( entryNames.contains( "xl/sharedStrings.xml" ) );
+        Assert.assertTrue( entryNames.contains( "[Content_Types].xml" ) );
+        Assert.assertFalse( entryNames.contains( SHEET_ENTRY ) );
+
+        // the formulas are recalculated when the workbook is opened
+        out = new ByteArrayOutputStream();
+        report.process( createContext( report, 2 ), "xl/workbook.xml", out );
+        Assert.assertTrue( new String( out.toByteArray(), "UTF-8" ).contains( "<sheets/><calcPr fullCalcOnLoad=\"1\"/>"
+            + "</workbook>" ) );
+    }
+
+    @Test
+    public void notStreamedSheet()
+        throws Exception
+    {
+        XLSXReport report = (XLSXReport) loadReport();
+        report.setStreamingSheets( false );
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        report.process( createContext( report, 3 ), SHEET_ENTRY, out );
+
+        String sheet = new String( out.toByteArray(), "UTF-8" );
+        Assert.assertTrue( sheet.contains( "<c r=\"A4\" s=\"1\" t=\"inlineStr\"><is><t xml:space=\"preserve\">Developer2</t></is></c>" ) );
+        Assert.assertTrue( sheet.contains( "<row r=\"5\"><c r=\"A5\" t=\"s\"><v>3</v></c>" ) );
+        Assert.assertTrue( sheet.contains( "<row r=\"7\"><c r=\"A7\"><v>5</v></c>"
+            + "<c r=\"B7\"><f>SUM(B2:B5)*$A$1+A7</f><v>7</v></c></row>" ) );
+    }
+
+    @Test
+    public void manyRows()
+        throws Exception
+    {
+        int count = 100000;
+        IXDocReport report = loadReport();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        report.process( createContext( report, count ), out );
+
+        ZipInputStream zip = new ZipInputStream( new ByteArrayInputStream( out.toByteArray() ) );
+        Assert.assertEquals( SHEET_ENTRY, zip.getNextEntry().getName() );
+        String sheet = IOUtils.toString( zip, "UTF-8" );
+        zip.close();
+        Assert.assertTrue( sheet.contains( "<c r=\"A" + ( count + 1 ) + "\" s=\"1\" t=\"inlineStr\"><is><t xml:space=\"preserve\">Developer"
+            + ( count - 1 ) + "</t></is></c>" ) );
+        Assert.assertTrue( sheet.contains( "<row r=\"" + ( count + 4 ) + "\"><c r=\"A" + ( count + 4 ) + "\"><v>5</v>" ) );
+    }
+
+    @Test
+    public void renumberingWithChunks()
+        throws IOException
+    {
+        String xml =
+            "<sheetData><row r=\"2\"><c r=\"A2\" t=\"inlineStr\"><is><t xml:space=\"preserve\">a&gt;b</t></is></c></row>"
+                + "<row r=\"2\"><c r=\"AB2\"/><c/></row><rows r=\"1\"/><x:row r='2' spans=\"1:1\"><x:c r='C2'/></x:row>"
+                + "<row><c r=\"A3\"><v>1</v></c></row><row r=\"4\"></row></sheetData><mergeCell ref=\"A2:B2\"/>";
+        // the merged cells of the row template are merged in each generated row
+        String expected =
+            "<sheetData><row r=\"2\"><c r=\"A2\" t=\"inlineStr\"><is><t xml:space=\"preserve\">a&gt;b</t></is></c></row>"
+                + "<row r=\"3\"><c r=\"AB3\"/><c/></row><rows r=\"1\"/><x:row r='4' spans=\"1:1\"><x:c r='C4'/></x:row>"
+                + "<row><c r=\"A5\"><v>1</v></c></row><row r=\"6\"></row></sheetData><mergeCell ref=\"A2:B2\"/>"
+                + "<mergeCell ref=\"A3:B3\"/><mergeCell ref=\"A4:B4\"/>";
+        for ( int chunkSize = 1; chunkSize <= xml.length(); chunkSize += 5 )
+        {
+            Assert.assertEquals( "chunk size " + chunkSize, expected, renumber( xml, chunkSize ) );
+        }
+    }
+
+    @Test
+    public void formulasWithChunks()
+        throws IOException
+    {
+        String row2 = "<c r=\"A2\"/><c r=\"B2\"><f>A2*$A$1+'Q1 2'!A2+Sheet2!B2:B3</f></c></row>";
+        String xml =
+            "<sheetData><row r=\"1\"><c r=\"A1\"><f>B2*2</f><v>0</v></c></row><row r=\"2\">" + row2
+                + "<row r=\"2\">" + row2 + "<row r=\"3\"><c r=\"A3\"><f t=\"array\" ref=\"A3\">"
+                + "SUM(B2:B2)+LOG10(A1)&amp;\"A2\"&amp;&quot;B2&quot;</f><v>1</v></c></row></sheetData>"
+                + "<mergeCells count=\"2\"><mergeCell ref=\"A2:B2\"/><mergeCell ref=\"A1:C3\"/></mergeCells>";
+        String expected =
+            "<sheetData><row r=\"1\"><c r=\"A1\"><f>B2*2</f><v>0</v></c></row><row r=\"2\">" + row2
+                + "<row r=\"3\"><c r=\"A3\"/><c r=\"B3\"><f>A3*$A$1+'Q1 2'!A2+Sheet2!B2:B3</f></c></row>"
+                + "<row r=\"4\"><c r=\"A4\"><f t=\"array\" ref=\"A4\">"
+                + "SUM(B2:B3)+LOG10(A1)&amp;\"A2\"&amp;&quot;B2&quot;</f><v>1</v></c></row></sheetData>"
+                + "<mergeCells><mergeCell ref=\"A2:B2\"/><mergeCell ref=\"A3:B3\"/><mergeCell ref=\"A1:C4\"/>"
+                + "</mergeCells>";
+        for ( int chunkSize = 1; chunkSize <= xml.length(); chunkSize += 5 )
+        {
+            Assert.assertEquals( "chunk size " + chunkSize, expected, renumber( xml, chunkSize ) );
+        }
+    }
+
+    @Test
+    public void formulaBeforeLoopRejected()
+        throws IOException
+    {
+        // the total is above the rows of the loop, its range cannot be known when it is written
+        String xml =
+            "<sheetData><row r=\"1\"><c r=\"A1\"><f>SUM(B2:B2)</f></c></row><row r=\"2\"><c r=\"B2\"/></row>"
+                + "<row r=\"2\"><c r=\"B2\"/></row></sheetData>";
+        try
+        {
+            renumber( xml, xml.length() );
+            Assert.fail( "The formula references the rows of the loop" );
+        }
+        catch ( IOException e )
+        {
+            Assert.assertTrue( e.getMessage().contains( "SUM(B2:B2)" ) );
+        }
+        // a shared formula cannot be copied
+        xml =
+            "<sheetData><row r=\"2\"><c r=\"A2\"><f t=\"shared\" ref=\"A2\" si=\"0\">B2</f></c></row>"
+                + "<row r=\"2\"><c r=\"A2\"><f t=\"shared\" ref=\"A2\" si=\"0\">B2</f></c></row></sheetData>";
+        try
+        {
+            renumber( xml, xml.length() );
+            Assert.fail( "The shared formula is copied" );
+        }
+        catch ( IOException e )
+        {
+            // OK
+        }
+    }
+
+    private static String renumber( String xml, int chunkSize )
+        throws IOException
+    {
+        StringWriter result = new StringWriter();
+        RowsNumberingWriter writer = new RowsNumberingWriter( result );
+        for ( int i = 0; i < xml.length(); i += chunkSize )
+        {
+            writer.write( xml, i, Math.min( chunkSize, xml.length() - i ) );
+        }
+        writer.close();
+        return result.toString();
+    }
+
+    private IXDocReport loadReport()
+        throws Exception
+    {
+        ByteArrayOutputStream xlsx = new ByteArrayOutputStream();
+        ZipOutputStream zip = new ZipOutputStream( xlsx );
+        addEntry( zip, "[Content_Types].xml", "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+            + "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+            + "<Override PartName=\"/xl/workbook.xml\" "
+            + "ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>"
+            + "</Types>" );
+        addEntry( zip, "xl/workbook.xml", "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+            + "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheets/></workbook>" );
+        addEntry( zip, "xl/sharedStrings.xml", SHARED_STRINGS );
+        addEntry( zip, SHEET_ENTRY, SHEET );
+        zip.close();
+
+        IXDocReport report =
+            XDocReportRegistry.getRegistry().loadReport( new ByteArrayInputStream( xlsx.toByteArray() ),
+                                                         TemplateEngineKind.Freemarker, false );
+        FieldsMetadata metadata = report.createFieldsMetadata();
+        metadata.addFieldAsList( "developers.name" );
+        metadata.addFieldAsList( "developers.mail" );
+        return report;
+    }
+
+    private IContext createContext( IXDocReport report, int count )
+        throws Exception
+    {
+        IContext context = report.createContext();
+        List<Developer> developers = new ArrayList<Developer>();
+        if ( count == 2 )
+        {
+            developers.addAll( Arrays.asList( new Developer( "ZERR", "Angelo", "angelo.zerr@gmail.com" ),
+                                              new Developer( "Leclercq", "Pascal", "leclercq@gmail.com" ) ) );
+        }
+        else
+        {
+            for ( int i = 0; i < count; i++ )
+            {
+                developers.add( new Developer( "Developer" + i, "", "developer" + i + "@gmail.com" ) );
+            }
+        }
+        context.put( "developers", developers );
+        return context;
+    }
+
+    private static void addEntry( ZipOutputStream zip, String name, String content )
+        throws IOException
+    {
+        zip.putNextEntry( new ZipEntry( name ) );
+        zip.write( content.getBytes( "UTF-8" ) );
+        zip.closeEntry();
+    }
+}
@@ -90,6 +90,7 @@ public class DocumentTest
                         mavenBundle( "fr.opensagres.xdocreport", "fr.opensagres.xdocreport.document.odp" ).versionAsInProject().noStart(),
                         mavenBundle( "fr.opensagres.xdocreport", "fr.opensagres.xdocreport.document.ods" ).versionAsInProject().noStart(),
                         mavenBundle( "fr.opensagres.xdocreport", "fr.opensagres.xdocreport.document.pptx" ).versionAsInProject().noStart(),
+                        mavenBundle( "fr.opensagres.xdocreport", "fr.opensagres.xdocreport.document.xlsx" ).versionAsInProject().noStart(),
                         new Customizer()
                         {
 
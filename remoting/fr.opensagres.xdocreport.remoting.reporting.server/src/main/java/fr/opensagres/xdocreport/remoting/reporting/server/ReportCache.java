@@ -0,0 +1,215 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.remoting.reporting.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.xml.sax.SAXException;
+
+import fr.opensagres.xdocreport.core.XDocReportException;
+import fr.opensagres.xdocreport.core.io.IOUtils;
+import fr.opensagres.xdocreport.core.utils.StringUtils;
+import fr.opensagres.xdocreport.document.IXDocReport;
+import fr.opensagres.xdocreport.document.XDocReport;
+import fr.opensagres.xdocreport.document.registry.XDocReportRegistry;
+import fr.opensagres.xdocreport.template.formatter.FieldsMetadata;
+import fr.opensagres.xdocreport.template.formatter.FieldsMetadataXMLSerializer;
+
+/**
+ * Bounded cache of the reports loaded by the reporting service. A report is identified with the SHA-256 hash of its
+ * template document, template engine kind and XML fields metadata, so a template uploaded twice is loaded (unzipped,
+ * preprocessed and compiled) once. Cached reports are registered in the {@link XDocReportRegistry} (so template
+ * engines can use the preprocessed entries) and the least recently used report is unregistered when the cache is
+ * full.
+ */
+public class ReportCache
+{
+
+    public static final int DEFAULT_MAX_REPORTS = 100;
+
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final XDocReportRegistry registry;
+
+    private final Map<String, IXDocReport> reports;
+
+    public ReportCache()
+    {
+        this( XDocReportRegistry.getRegistry(), DEFAULT_MAX_REPORTS );
+    }
+
+    public ReportCache( XDocReportRegistry registry, final int maxReports )
+    {
+        this.registry = registry;
+        this.reports = new LinkedHashMap<String, IXDocReport>( 16, 0.75f, true )
+        {
+            private static final long serialVersionUID = 6530548196338567386L;
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<String, IXDocReport> eldest )
+            {
+                if ( size() > maxReports )
+                {
+                    ReportCache.this.registry.unregisterReport( eldest.getValue() );
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached report identified with the given hash and null if the report is not (or no longer) cached.
+     * 
+     * @param reportId the hash returned by {@link #loadReport(InputStream, String, String)}.
+     * @return the cached report or null.
+     */
+    public synchronized IXDocReport getReport( String reportId )
+    {
+        IXDocReport report = reports.get( reportId );
+        if ( report != null && registry.getReport( reportId ) != report )
+        {
+            // the report was unregistered from the registry by someone else.
+            reports.remove( reportId );
+            return null;
+        }
+        return report;
+    }
+
+    /**
+     * Returns the cached report of the given template and loads it if it is not cached.
+     * 
+     * @param templateDocument stream of the template document (docx, odt...).
+     * @param templateEngineKind the template engine kind (Velocity, Freemarker).
+     * @param xmlFieldsMetadata the fields metadata serialized as XML or null.
+     * @return the report whose {@link IXDocReport#getId()} is the hash of the template.
+     * @throws IOException
+     * @throws XDocReportException
+     */
+    public IXDocReport loadReport( InputStream templateDocument, String templateEngineKind, String xmlFieldsMetadata )
+        throws IOException, XDocReportException
+    {
+        byte[] document = IOUtils.toByteArray( templateDocument );
+        String reportId = getReportId( document, templateEngineKind, xmlFieldsMetadata );
+        IXDocReport report = getReport( reportId );
+        if ( report != null )
+        {
+            return report;
+        }
+        // load the report outside the lock, a concurrent load of the same template keeps the first registered report.
+        report =
+            XDocReport.loadReport( new ByteArrayInputStream( document ), templateEngineKind,
+                                   getFieldsMetadata( xmlFieldsMetadata ), registry );
+        report.setId( reportId );
+        synchronized ( this )
+        {
+            IXDocReport cachedReport = getReport( reportId );
+            if ( cachedReport != null )
+            {
+                return cachedReport;
+            }
+            registry.registerReport( report, true );
+            reports.put( reportId, report );
+        }
+        return report;
+    }
+
+    public synchronized int size()
+    {
+        return reports.size();
+    }
+
+    private static FieldsMetadata getFieldsMetadata( String xmlFieldsMetadata )
+        throws IOException, XDocReportException
+    {
+        if ( StringUtils.isEmpty( xmlFieldsMetadata ) )
+        {
+            return null;
+        }
+        try
+        {
+            return FieldsMetadataXMLSerializer.getInstance().load( new StringReader( xmlFieldsMetadata ) );
+        }
+        catch ( SAXException e )
+        {
+            throw new XDocReportException( e );
+        }
+    }
+
+    /**
+     * Returns the hexadecimal SHA-256 hash of the given template.
+     */
+    public static String getReportId( byte[] document, String templateEngineKind, String xmlFieldsMetadata )
+    {
+        MessageDigest digest;
+        try
+        {
+            digest = MessageDigest.getInstance( HASH_ALGORITHM );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            // SHA-256 is available in every JRE.
+            throw new IllegalStateException( e );
+        }
+        update( digest, templateEngineKind );
+        update( digest, xmlFieldsMetadata );
+        digest.update( document );
+        byte[] hash = digest.digest();
+        char[] hex = new char[hash.length * 2];
+        for ( int i = 0; i < hash.length; i++ )
+        {
+            hex[i * 2] = HEX_DIGITS[( hash[i] >> 4 ) & 0x0F];
+            hex[i * 2 + 1] = HEX_DIGITS[hash[i] & 0x0F];
+        }
+        return new String( hex );
+    }
+
+    private static void update( MessageDigest digest, String value )
+    {
+        if ( value != null )
+        {
+            try
+            {
+                digest.update( value.getBytes( "UTF-8" ) );
+            }
+            catch ( IOException e )
+            {
+                // UTF-8 is available in every JRE.
+                throw new IllegalStateException( e );
+            }
+        }
+        // separator to distinguish ("ab", "c") from ("a", "bc").
+        digest.update( (byte) 0 );
+    }
+}
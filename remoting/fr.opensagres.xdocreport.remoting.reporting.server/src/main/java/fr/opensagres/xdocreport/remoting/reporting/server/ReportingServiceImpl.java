@@ -25,6 +25,7 @@
 package fr.opensagres.xdocreport.remoting.reporting.server;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.StringReader;
 import java.util.Map;
@@ -35,6 +36,7 @@ import javax.activation.DataSource;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.MediaType;
@@ -43,7 +45,6 @@ import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.StreamingOutput;
 
 import org.apache.cxf.jaxrs.ext.multipart.Multipart;
-import org.xml.sax.SAXException;
 
 import fr.opensagres.xdocreport.converter.IConverter;
 import fr.opensagres.xdocreport.converter.Options;
@@ -54,12 +55,8 @@ import fr.opensagres.xdocreport.core.logging.LogUtils;
 import fr.opensagres.xdocreport.core.utils.HttpHeaderUtils;
 import fr.opensagres.xdocreport.core.utils.StringUtils;
 import fr.opensagres.xdocreport.document.IXDocReport;
-import fr.opensagres.xdocreport.document.XDocReport;
-import fr.opensagres.xdocreport.document.json.JSONObject;
-import fr.opensagres.xdocreport.document.registry.XDocReportRegistry;
+import fr.opensagres.xdocreport.document.json.JSONContextBinder;
 import fr.opensagres.xdocreport.remoting.reporting.ReportingService;
-import fr.opensagres.xdocreport.template.formatter.FieldsMetadata;
-import fr.opensagres.xdocreport.template.formatter.FieldsMetadataXMLSerializer;
 
 /**
  * Reporting REST Web Service implementation.
@@ -71,6 +68,20 @@ public class ReportingServiceImpl
 
     private static final Logger LOGGER = LogUtils.getLogger( ReportingServiceImpl.class );
 
+    private static final ReportCache DEFAULT_REPORT_CACHE = new ReportCache();
+
+    private final ReportCache reportCache;
+
+    public ReportingServiceImpl()
+    {
+        this( DEFAULT_REPORT_CACHE );
+    }
+
+    public ReportingServiceImpl( ReportCache reportCache )
+    {
+        this.reportCache = reportCache;
+    }
+
     @POST
     @Consumes( MediaType.WILDCARD )
     @Produces( MediaType.WILDCARD )
@@ -79,7 +90,7 @@ public class ReportingServiceImpl
     DataSource templateDocument, @Multipart( "templateEngineKind" )
     String templateEngineKind, @Multipart( value = "metadata", required = false )
     String xmlFieldsMetadata, @Multipart( "data" )
-    String data, @Multipart( value = "dataType", required = false )
+    DataSource data, @Multipart( value = "dataType", required = false )
     String dataType, @Multipart( value="outFileName", required = false )
     String outFileName, @Multipart( value = "outFormat", required = false )
     String outFormat, @Multipart( value = "outFormatVia", required = false )
@@ -87,12 +98,9 @@ public class ReportingServiceImpl
     {
         try
         {
-            FieldsMetadata metadata = getFieldsMetadata( xmlFieldsMetadata );
-            // Load report
-            final IXDocReport report =
-                XDocReport.loadReport( templateDocument.getInputStream(), templateEngineKind, metadata,
-                                       XDocReportRegistry.getRegistry() );
-            return doReport( report, data, dataType, outFileName, outFormat, via );
+            // Load report (or get it from the cache if the same template was already uploaded)
+            final IXDocReport report = loadReport( templateDocument, templateEngineKind, xmlFieldsMetadata );
+            return doReport( report, toMap( data, dataType ), outFileName, outFormat, via );
         }
         catch ( Exception e )
         {
@@ -100,37 +108,85 @@ public class ReportingServiceImpl
         }
     }
 
-    private FieldsMetadata getFieldsMetadata( String xmlFieldsMetadata )
-        throws SAXException, IOException
+    /**
+     * Generate the report with the data given as String. The "/report" resource binds the data from the stream of the
+     * multipart "data" part to avoid building the String.
+     */
+    public Response report( DataSource templateDocument, String templateEngineKind, String xmlFieldsMetadata,
+                            String data, String dataType, String outFileName, String outFormat, final String via )
     {
-        FieldsMetadata metadata = null;
-        if ( StringUtils.isNotEmpty( xmlFieldsMetadata ) )
+        try
+        {
+            final IXDocReport report = loadReport( templateDocument, templateEngineKind, xmlFieldsMetadata );
+            return doReport( report, toMap( data, dataType ), outFileName, outFormat, via );
+        }
+        catch ( Exception e )
         {
-            metadata = FieldsMetadataXMLSerializer.getInstance().load( new StringReader( xmlFieldsMetadata ) );
+            throw new RuntimeException( e );
+        }
+    }
+
+    /**
+     * Register the given template in the report cache and returns its id (hash of the template) which can be used
+     * with the "/report2/{reportId}" path to generate reports without uploading again the template.
+     */
+    @POST
+    @Consumes( MediaType.WILDCARD )
+    @Produces( MediaType.TEXT_PLAIN )
+    @Path( "/template" )
+    public String registerTemplate( @Multipart( "templateDocument" )
+    DataSource templateDocument, @Multipart( "templateEngineKind" )
+    String templateEngineKind, @Multipart( value = "metadata", required = false )
+    String xmlFieldsMetadata )
+    {
+        try
+        {
+            return loadReport( templateDocument, templateEngineKind, xmlFieldsMetadata ).getId();
+        }
+        catch ( Exception e )
+        {
+            throw new RuntimeException( e );
         }
-        return metadata;
     }
 
     @POST
     @Consumes( MediaType.WILDCARD )
     @Produces( MediaType.WILDCARD )
-    @Path( "/report2" )
-    public Response report2( String reportId, @Multipart( "data" )
-    String data, @Multipart( value = "dataType", required = false )
-    String dataType, @Multipart( "templateEngineKind" )
-    final String templateEngineKind, @Multipart( "outFileName" )
+    @Path( "/report2/{reportId}" )
+    public Response report2( @PathParam( "reportId" )
+    String reportId, @Multipart( "data" )
+    DataSource data, @Multipart( value = "dataType", required = false )
+    String dataType, @Multipart( value = "templateDocument", required = false )
+    DataSource templateDocument, @Multipart( value = "templateEngineKind", required = false )
+    String templateEngineKind, @Multipart( value = "metadata", required = false )
+    String xmlFieldsMetadata, @Multipart( value = "outFileName", required = false )
     final String outFileName, @Multipart( value = "outFormat", required = false )
     String outFormat, @Multipart( value = "outFormatVia", required = false )
     final String via )
     {
+        IXDocReport report = getReport( reportId, templateDocument, templateEngineKind, xmlFieldsMetadata );
         try
         {
-            // TODO : manage FieldsMetadata
-            FieldsMetadata metadata = null;
-            // Load report
+            return doReport( report, toMap( data, dataType ), outFileName, outFormat, via );
+        }
+        catch ( Exception e )
+        {
+            throw new RuntimeException( e );
+        }
+    }
 
-            final IXDocReport report = null;
-            return doReport( report, data, dataType, outFileName, outFormat, via );
+    /**
+     * Generate the report registered with the given id with the data given as String. The "/report2/{reportId}"
+     * resource binds the data from the stream of the multipart "data" part to avoid building the String.
+     */
+    public Response report2( String reportId, String data, String dataType, DataSource templateDocument,
+                             String templateEngineKind, String xmlFieldsMetadata, final String outFileName,
+                             String outFormat, final String via )
+    {
+        IXDocReport report = getReport( reportId, templateDocument, templateEngineKind, xmlFieldsMetadata );
+        try
+        {
+            return doReport( report, toMap( data, dataType ), outFileName, outFormat, via );
         }
         catch ( Exception e )
         {
@@ -138,12 +194,72 @@ public class ReportingServiceImpl
         }
     }
 
-    private Response doReport( final IXDocReport report, String data, String dataType, final String outFileName,
+    /**
+     * Returns the cached report with the given id or load it from the given template if it is not cached.
+     */
+    private IXDocReport getReport( String reportId, DataSource templateDocument, String templateEngineKind,
+                                   String xmlFieldsMetadata )
+    {
+        IXDocReport report = reportCache.getReport( reportId );
+        if ( report == null )
+        {
+            if ( templateDocument == null )
+            {
+                // the report is not (or no longer) cached, the client must upload the template.
+                throw new WebApplicationException( Response.Status.NOT_FOUND );
+            }
+            if ( LOGGER.isLoggable( Level.FINE ) )
+            {
+                LOGGER.fine( "Report " + reportId + " is not cached, load it from the uploaded template." );
+            }
+        }
+        try
+        {
+            if ( report == null )
+            {
+                report = loadReport( templateDocument, templateEngineKind, xmlFieldsMetadata );
+            }
+            return report;
+        }
+        catch ( Exception e )
+        {
+            throw new RuntimeException( e );
+        }
+    }
+
+    private IXDocReport loadReport( DataSource templateDocument, String templateEngineKind, String xmlFieldsMetadata )
+        throws IOException, XDocReportException
+    {
+        InputStream in = templateDocument.getInputStream();
+        try
+        {
+            return reportCache.loadReport( in, templateEngineKind, xmlFieldsMetadata );
+        }
+        finally
+        {
+            IOUtils.closeQuietly( in );
+        }
+    }
+
+    private Map toMap( DataSource data, String dataType )
+        throws Exception
+    {
+        // Bind the data stream to Map.
+        InputStream in = data.getInputStream();
+        try
+        {
+            return toMap( in, dataType );
+        }
+        finally
+        {
+            IOUtils.closeQuietly( in );
+        }
+    }
+
+    private Response doReport( final IXDocReport report, final Map contextMap, final String outFileName,
                                final String outFormat, final String via )
         throws Exception
     {
-        // Transform string data to Map.
-        final Map contextMap = toMap( data, dataType );
 
         Options options = getOptions( outFormat, via );
         StreamingOutput output = new StreamingOutput()
@@ -237,10 +353,17 @@ public class ReportingServiceImpl
         return options;
     }
 
+    protected Map toMap( InputStream data, String dataType )
+        throws Exception
+    {
+        // TODO : use well serializer of the data according dataType (json, xml, etc)
+        return JSONContextBinder.getInstance().bind( data );
+    }
+
     protected Map toMap( String data, String dataType )
         throws Exception
     {
         // TODO : use well serializer of the data according dataType (json, xml, etc)
-        return new JSONObject( data );
+        return JSONContextBinder.getInstance().bind( new StringReader( data ) );
     }
 }
@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.remoting.reporting.server;
+
+import java.io.InputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import fr.opensagres.xdocreport.document.IXDocReport;
+import fr.opensagres.xdocreport.document.registry.XDocReportRegistry;
+
+public class ReportCacheTestCase
+{
+
+    private static final String TEMPLATE = "DocxProjectWithVelocityAndImageList.docx";
+
+    @Test
+    public void loadSameTemplate()
+        throws Exception
+    {
+        ReportCache cache = new ReportCache( XDocReportRegistry.getRegistry(), 2 );
+        IXDocReport report1 = cache.loadReport( getTemplate(), "Velocity", null );
+        IXDocReport report2 = cache.loadReport( getTemplate(), "Velocity", null );
+        Assert.assertSame( report1, report2 );
+        Assert.assertSame( report1, cache.getReport( report1.getId() ) );
+        Assert.assertSame( report1, XDocReportRegistry.getRegistry().getReport( report1.getId() ) );
+        Assert.assertEquals( 1, cache.size() );
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed()
+        throws Exception
+    {
+        ReportCache cache = new ReportCache( XDocReportRegistry.getRegistry(), 2 );
+        // the metadata is a part of the template id
+        IXDocReport report1 = cache.loadReport( getTemplate(), "Velocity", "<fields id=\"1\" />" );
+        IXDocReport report2 = cache.loadReport( getTemplate(), "Velocity", "<fields id=\"2\" />" );
+        Assert.assertFalse( report1.getId().equals( report2.getId() ) );
+
+        // use report1 so report2 becomes the least recently used.
+        Assert.assertSame( report1, cache.getReport( report1.getId() ) );
+        IXDocReport report3 = cache.loadReport( getTemplate(), "Velocity", "<fields id=\"3\" />" );
+
+        Assert.assertEquals( 2, cache.size() );
+        Assert.assertNull( cache.getReport( report2.getId() ) );
+        Assert.assertFalse( XDocReportRegistry.getRegistry().existsReport( report2.getId() ) );
+        Assert.assertSame( report1, cache.getReport( report1.getId() ) );
+        Assert.assertSame( report3, cache.getReport( report3.getId() ) );
+    }
+
+    private static InputStream getTemplate()
+    {
+        return ReportCacheTestCase.class.getClassLoader().getResourceAsStream( TEMPLATE );
+    }
+}
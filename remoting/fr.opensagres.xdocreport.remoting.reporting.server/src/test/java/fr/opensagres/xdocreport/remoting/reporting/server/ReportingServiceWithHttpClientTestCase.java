@@ -220,4 +220,76 @@ public class ReportingServiceWithHttpClientTestCase
         }
     }
 
+
+    @Test
+    public void generateReportWithRegisteredTemplate()
+        throws Exception
+    {
+        // 1) Register the template and get its id
+        PostMethod post = new PostMethod( "http://localhost:" + PORT + "/template" );
+        post.setRequestHeader( "Content-Type", "multipart/mixed" );
+        Part[] parts = new Part[2];
+        parts[0] =
+            new FilePart( "templateDocument", new File( root, "DocxProjectWithVelocityAndImageList.docx" ),
+                          "application/vnd.oasis.opendocument.text", "UTF-8" );
+        parts[1] = new StringPart( "templateEngineKind", "Velocity" );
+        post.setRequestEntity( new MultipartRequestEntity( parts, post.getParams() ) );
+
+        HttpClient httpclient = new HttpClient();
+        String reportId = null;
+        try
+        {
+            int result = httpclient.executeMethod( post );
+            Assert.assertEquals( 200, result );
+            reportId = post.getResponseBodyAsString();
+            Assert.assertEquals( 64, reportId.length() );
+        }
+        finally
+        {
+            post.releaseConnection();
+        }
+
+        // 2) Generate the report with the template id (the template is not uploaded).
+        post = new PostMethod( "http://localhost:" + PORT + "/report2/" + reportId );
+        post.setRequestHeader( "Content-Type", "multipart/mixed" );
+        parts = new Part[2];
+        parts[0] = new StringPart( "data", "{project:{Name:'XDocReport'}, developers:[]}" );
+        parts[1] = new StringPart( "outFileName", "report2.docx" );
+        post.setRequestEntity( new MultipartRequestEntity( parts, post.getParams() ) );
+        try
+        {
+            int result = httpclient.executeMethod( post );
+            Assert.assertEquals( 200, result );
+            Assert.assertEquals( "attachment; filename=\"report2.docx\"",
+                                 post.getResponseHeader( "Content-Disposition" ).getValue() );
+            Assert.assertTrue( post.getResponseBody().length > 0 );
+        }
+        finally
+        {
+            post.releaseConnection();
+        }
+    }
+
+    @Test
+    public void generateReportWithUnknownTemplate()
+        throws Exception
+    {
+        PostMethod post = new PostMethod( "http://localhost:" + PORT + "/report2/unknown" );
+        post.setRequestHeader( "Content-Type", "multipart/mixed" );
+        Part[] parts = new Part[1];
+        parts[0] = new StringPart( "data", "{project:{Name:'XDocReport'}}" );
+        post.setRequestEntity( new MultipartRequestEntity( parts, post.getParams() ) );
+
+        HttpClient httpclient = new HttpClient();
+        try
+        {
+            int result = httpclient.executeMethod( post );
+            Assert.assertEquals( 404, result );
+        }
+        finally
+        {
+            post.releaseConnection();
+        }
+    }
+
 }
@@ -112,6 +112,13 @@ public class JAXRSResourcesServiceClient  implements JAXRSResourcesService
         return target.path( ResourcesServiceName.downloadLarge.name() ).queryParam( "resourceId", resourceId ).request().accept( MediaType.WILDCARD ).get( LargeBinaryData.class );
     }
 
+    public LargeBinaryData downloadMultipleLarge( List<String> resourceIds )
+        throws ResourcesException
+    {
+        reset();
+        return target.path( ResourcesServiceName.downloadMultipleLarge.name() ).queryParam( "resourceIds", resourceIds.toArray() ).request().accept( MediaType.WILDCARD ).get( LargeBinaryData.class );
+    }
+
     public void uploadLarge( LargeBinaryData data )
         throws ResourcesException
     {
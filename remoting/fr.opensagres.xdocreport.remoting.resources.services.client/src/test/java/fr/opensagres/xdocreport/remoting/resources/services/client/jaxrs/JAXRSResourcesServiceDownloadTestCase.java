@@ -0,0 +1,178 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.remoting.resources.services.client.jaxrs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.apache.cxf.jaxrs.servlet.CXFNonSpringJaxrsServlet;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import fr.opensagres.xdocreport.core.io.IOUtils;
+import fr.opensagres.xdocreport.remoting.resources.services.FileUtils;
+
+public class JAXRSResourcesServiceDownloadTestCase
+{
+
+    private static final int PORT = 9998;
+
+    private static final String BASE_ADDRESS = "http://localhost:" + PORT + "/jaxrs";
+
+    private static final File srcFolder = new File( "src/test/resources/fr/opensagres/xdocreport/remoting/resources" );
+
+    // folder used by MockJAXRSResourcesApplication
+    private static final File resourcesFolder = new File( "target/resources" );
+
+    private static Server server;
+
+    @BeforeClass
+    public static void startServer()
+        throws Exception
+    {
+        FileUtils.copyDirectory( srcFolder, resourcesFolder );
+
+        ServletHolder servlet = new ServletHolder( CXFNonSpringJaxrsServlet.class );
+        servlet.setInitParameter( "javax.ws.rs.Application", MockJAXRSResourcesApplication.class.getName() );
+        server = new Server( PORT );
+        ServletContextHandler context = new ServletContextHandler( server, "/", ServletContextHandler.SESSIONS );
+        context.addServlet( servlet, "/jaxrs/*" );
+        server.start();
+    }
+
+    @AfterClass
+    public static void stopServer()
+        throws Exception
+    {
+        server.stop();
+    }
+
+    @Test
+    public void downloadLargeWithConditionalGet()
+        throws Exception
+    {
+        File file = new File( resourcesFolder, "Simple.docx" );
+
+        HttpURLConnection connection = openDownloadLarge( "Simple.docx" );
+        Assert.assertEquals( 200, connection.getResponseCode() );
+        Assert.assertEquals( file.length(), connection.getContentLength() );
+        String etag = connection.getHeaderField( "ETag" );
+        Assert.assertNotNull( etag );
+        Assert.assertNotNull( connection.getHeaderField( "Last-Modified" ) );
+        Assert.assertEquals( file.length(), read( connection ).length );
+
+        // the client has already the content
+        connection = openDownloadLarge( "Simple.docx" );
+        connection.setRequestProperty( "If-None-Match", etag );
+        Assert.assertEquals( 304, connection.getResponseCode() );
+        connection.disconnect();
+    }
+
+    @Test
+    public void downloadLargeWithRange()
+        throws Exception
+    {
+        byte[] content = FileUtils.readFileToByteArray( new File( resourcesFolder, "Simple.odt" ) );
+
+        HttpURLConnection connection = openDownloadLarge( "Simple.odt" );
+        connection.setRequestProperty( "Range", "bytes=10-19" );
+        Assert.assertEquals( 206, connection.getResponseCode() );
+        Assert.assertEquals( "bytes 10-19/" + content.length, connection.getHeaderField( "Content-Range" ) );
+        byte[] range = read( connection );
+        Assert.assertEquals( 10, range.length );
+        for ( int i = 0; i < range.length; i++ )
+        {
+            Assert.assertEquals( content[10 + i], range[i] );
+        }
+
+        connection = openDownloadLarge( "Simple.odt" );
+        connection.setRequestProperty( "Range", "bytes=" + content.length + "-" );
+        Assert.assertEquals( 416, connection.getResponseCode() );
+        connection.disconnect();
+    }
+
+    @Test
+    public void downloadMultipleLarge()
+        throws Exception
+    {
+        URL url =
+            new URL( BASE_ADDRESS + "/downloadMultipleLarge?resourceIds=Simple.docx&resourceIds=Custom____CustomSimple.odt" );
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        Assert.assertEquals( 200, connection.getResponseCode() );
+
+        Set<String> entryNames = new HashSet<String>();
+        ZipInputStream zip = new ZipInputStream( connection.getInputStream() );
+        try
+        {
+            ZipEntry entry = null;
+            while ( ( entry = zip.getNextEntry() ) != null )
+            {
+                entryNames.add( entry.getName() );
+                byte[] content = IOUtils.toByteArray( zip );
+                Assert.assertEquals( new File( resourcesFolder, entry.getName() ).length(), content.length );
+            }
+        }
+        finally
+        {
+            zip.close();
+        }
+        Assert.assertEquals( 2, entryNames.size() );
+        Assert.assertTrue( entryNames.contains( "Simple.docx" ) );
+        Assert.assertTrue( entryNames.contains( "Custom/CustomSimple.odt" ) );
+    }
+
+    private static HttpURLConnection openDownloadLarge( String resourceId )
+        throws IOException
+    {
+        URL url = new URL( BASE_ADDRESS + "/downloadLarge?resourceId=" + resourceId );
+        return (HttpURLConnection) url.openConnection();
+    }
+
+    private static byte[] read( HttpURLConnection connection )
+        throws IOException
+    {
+        InputStream in = connection.getInputStream();
+        try
+        {
+            return IOUtils.toByteArray( in );
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+}
@@ -30,6 +30,10 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
 
 import fr.opensagres.xdocreport.core.io.IOUtils;
 import fr.opensagres.xdocreport.core.utils.StringUtils;
@@ -76,8 +80,7 @@ public abstract class FileResourcesService
         File file = new File( getRootFolder(), resourcePath );
         try
         {
-            FileInputStream input = new FileInputStream( file );
-            byte[] content = IOUtils.toByteArray( input );
+            byte[] content = readFile( file );
 
             BinaryData data = new BinaryData();
             data.setContent( content );
@@ -91,6 +94,45 @@ public abstract class FileResourcesService
         }
     }
 
+    /**
+     * Read the whole file in a byte array sized with the file length (no intermediate buffer to grow and copy).
+     */
+    private static byte[] readFile( File file )
+        throws IOException
+    {
+        FileInputStream input = new FileInputStream( file );
+        try
+        {
+            FileChannel channel = input.getChannel();
+            long size = channel.size();
+            if ( size > Integer.MAX_VALUE )
+            {
+                throw new IOException( "File " + file + " is too large to be downloaded as byte array." );
+            }
+            byte[] content = new byte[(int) size];
+            ByteBuffer buffer = ByteBuffer.wrap( content );
+            while ( buffer.hasRemaining() )
+            {
+                if ( channel.read( buffer ) == -1 )
+                {
+                    break;
+                }
+            }
+            if ( buffer.hasRemaining() )
+            {
+                // the file was truncated while reading it.
+                byte[] truncated = new byte[buffer.position()];
+                System.arraycopy( content, 0, truncated, 0, truncated.length );
+                return truncated;
+            }
+            return content;
+        }
+        finally
+        {
+            IOUtils.closeQuietly( input );
+        }
+    }
+
     protected String getResourcePath( String resourceId )
     {
         return StringUtils.replaceAll( resourceId, "____", "/" );
@@ -108,6 +150,10 @@ public abstract class FileResourcesService
             data.setContent( input );
             data.setFileName( file.getName() );
             data.setResourceId( resourceId );
+            // the length and the last modification time allow JAX-RS to send Content-Length, ETag and Last-Modified
+            // headers and to manage conditional and range requests.
+            data.setLength( file.length() );
+            data.setLastModified( file.lastModified() );
             return data;
         }
         catch ( Exception e )
@@ -117,6 +163,30 @@ public abstract class FileResourcesService
 
     }
 
+    public LargeBinaryData downloadMultipleLarge( List<String> resourceIds )
+        throws ResourcesException
+    {
+        List<File> files = new ArrayList<File>( resourceIds.size() );
+        List<String> entryNames = new ArrayList<String>( resourceIds.size() );
+        for ( String resourceId : resourceIds )
+        {
+            String resourcePath = getResourcePath( resourceId );
+            File file = new File( getRootFolder(), resourcePath );
+            if ( !file.isFile() )
+            {
+                throw new ResourcesException( "Resource " + resourceId + " does not exist." );
+            }
+            files.add( file );
+            entryNames.add( resourcePath );
+        }
+        // the files are zipped while the response is written.
+        LargeBinaryData data = new LargeBinaryData();
+        data.setContent( new ZipFilesInputStream( files, entryNames ) );
+        data.setFileName( "resources.zip" );
+        data.setMimeType( "application/zip" );
+        return data;
+    }
+
     public void uploadLarge( LargeBinaryData data )
         throws ResourcesException
     {
@@ -135,7 +205,14 @@ public abstract class FileResourcesService
         {
 
             output = new FileOutputStream( file );
-            IOUtils.copyLarge( input, output );
+            if ( input instanceof FileInputStream )
+            {
+                transfer( ( (FileInputStream) input ).getChannel(), ( (FileOutputStream) output ).getChannel() );
+            }
+            else
+            {
+                IOUtils.copyLarge( input, output );
+            }
         }
         catch ( IOException e )
         {
@@ -156,6 +233,22 @@ public abstract class FileResourcesService
 
     }
 
+    private static void transfer( FileChannel source, FileChannel target )
+        throws IOException
+    {
+        long position = source.position();
+        long size = source.size();
+        while ( position < size )
+        {
+            long n = source.transferTo( position, size - position, target );
+            if ( n <= 0 )
+            {
+                break;
+            }
+            position += n;
+        }
+    }
+
     public void upload( BinaryData data )
         throws ResourcesException
     {
@@ -0,0 +1,179 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.remoting.resources.services.server.file;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import fr.opensagres.xdocreport.core.io.IOUtils;
+
+/**
+ * {@link InputStream} which zips a list of files on the fly: the zip is produced by chunks while the stream is read,
+ * so neither the files nor the zip are loaded in memory.
+ */
+class ZipFilesInputStream
+    extends InputStream
+{
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private final List<File> files;
+
+    private final List<String> entryNames;
+
+    private final ZipBuffer buffer;
+
+    private final ZipOutputStream zip;
+
+    private final byte[] chunk;
+
+    private InputStream current;
+
+    private int nextFile;
+
+    private int position;
+
+    private boolean finished;
+
+    public ZipFilesInputStream( List<File> files, List<String> entryNames )
+    {
+        this.files = files;
+        this.entryNames = entryNames;
+        this.buffer = new ZipBuffer();
+        this.zip = new ZipOutputStream( buffer );
+        this.chunk = new byte[CHUNK_SIZE];
+    }
+
+    @Override
+    public int read()
+        throws IOException
+    {
+        if ( !fillIfNeeded() )
+        {
+            return -1;
+        }
+        return buffer.getBuffer()[position++] & 0xFF;
+    }
+
+    @Override
+    public int read( byte[] b, int off, int len )
+        throws IOException
+    {
+        if ( len == 0 )
+        {
+            return 0;
+        }
+        if ( !fillIfNeeded() )
+        {
+            return -1;
+        }
+        int n = Math.min( len, buffer.size() - position );
+        System.arraycopy( buffer.getBuffer(), position, b, off, n );
+        position += n;
+        return n;
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        IOUtils.closeQuietly( current );
+        current = null;
+        finished = true;
+    }
+
+    /**
+     * Zip the next chunks of the files until there are some zipped bytes to read.
+     * 
+     * @return false if the whole zip was read.
+     */
+    private boolean fillIfNeeded()
+        throws IOException
+    {
+        while ( position == buffer.size() )
+        {
+            if ( finished )
+            {
+                return false;
+            }
+            buffer.reset();
+            position = 0;
+            zipNextChunk();
+        }
+        return true;
+    }
+
+    private void zipNextChunk()
+        throws IOException
+    {
+        if ( current == null )
+        {
+            if ( nextFile == files.size() )
+            {
+                zip.finish();
+                finished = true;
+                return;
+            }
+            zip.putNextEntry( new ZipEntry( entryNames.get( nextFile ) ) );
+            current = new FileInputStream( files.get( nextFile ) );
+            nextFile++;
+        }
+        int n = current.read( chunk );
+        if ( n == -1 )
+        {
+            current.close();
+            current = null;
+            zip.closeEntry();
+        }
+        else
+        {
+            zip.write( chunk, 0, n );
+        }
+    }
+
+    /**
+     * {@link ByteArrayOutputStream} which gives access to its buffer to avoid copying the zipped bytes.
+     */
+    private static class ZipBuffer
+        extends ByteArrayOutputStream
+    {
+
+        public ZipBuffer()
+        {
+            super( CHUNK_SIZE * 2 );
+        }
+
+        public byte[] getBuffer()
+        {
+            return buf;
+        }
+    }
+}
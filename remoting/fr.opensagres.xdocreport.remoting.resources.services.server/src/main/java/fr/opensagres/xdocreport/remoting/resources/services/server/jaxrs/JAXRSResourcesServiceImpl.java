@@ -93,6 +93,12 @@ public class JAXRSResourcesServiceImpl
         return getDelegate().downloadLarge( resourceId );
     }
 
+    public LargeBinaryData downloadMultipleLarge( List<String> resourceIds )
+        throws ResourcesException
+    {
+        return getDelegate().downloadMultipleLarge( resourceIds );
+    }
+
     @Override
     protected JAXRSResourcesService getDelegate()
     {
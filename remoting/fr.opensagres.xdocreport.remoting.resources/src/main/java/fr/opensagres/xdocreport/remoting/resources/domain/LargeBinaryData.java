@@ -36,6 +36,7 @@ import java.io.InputStream;
 
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlTransient;
 import javax.xml.bind.annotation.XmlType;
 
 
@@ -78,6 +79,9 @@ public class LargeBinaryData {
     protected long length;
     protected String mimeType = DEFAULT_MIMETYPE;
     protected String resourceId;
+    // not a part of the schema, only used by JAX-RS to send the Last-Modified/ETag headers.
+    @XmlTransient
+    protected long lastModified;
 
     /**
      * Gets the value of the content property.
@@ -191,4 +195,20 @@ public class LargeBinaryData {
         this.resourceId = value;
     }
 
+    /**
+     * Gets the last modification time of the content (in milliseconds since the epoch) and 0 if it is unknown.
+     *
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Sets the last modification time of the content (in milliseconds since the epoch).
+     *
+     */
+    public void setLastModified(long value) {
+        this.lastModified = value;
+    }
+
 }
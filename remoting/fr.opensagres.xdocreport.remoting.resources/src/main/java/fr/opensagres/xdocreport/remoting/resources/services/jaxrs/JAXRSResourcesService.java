@@ -24,6 +24,8 @@
  */
 package fr.opensagres.xdocreport.remoting.resources.services.jaxrs;
 
+import java.util.List;
+
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
@@ -78,6 +80,17 @@ public interface JAXRSResourcesService
     String resourceId )
         throws ResourcesException;
 
+    /**
+     * Download the content of the given resources as a zip whose entries are the resource paths.
+     */
+    @GET
+    @Path( "/downloadMultipleLarge" )
+    @Consumes( MediaType.APPLICATION_JSON )
+    @Produces( "application/zip" )
+    LargeBinaryData downloadMultipleLarge( @QueryParam( "resourceIds" )
+    List<String> resourceIds )
+        throws ResourcesException;
+
     @POST
     @Path( "/uploadLarge" )
     // @Consumes( MediaType.APPLICATION_JSON )
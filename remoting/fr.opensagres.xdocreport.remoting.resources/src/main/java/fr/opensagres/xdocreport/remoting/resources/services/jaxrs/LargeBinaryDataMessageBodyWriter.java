@@ -24,11 +24,15 @@
  */
 package fr.opensagres.xdocreport.remoting.resources.services.jaxrs;
 
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.MediaType;
@@ -75,25 +79,70 @@ public class LargeBinaryDataMessageBodyWriter
         	httpHeaders.add( "Content-Type", t.getMimeType() );	
         }
         httpHeaders.add( "X-resourceId", t.getResourceId() );
-        copyLarge( content, entityStream );
+        if ( t.getLength() > 0 )
+        {
+            // getSize() is ignored by some JAX-RS implementations.
+            httpHeaders.putSingle( "Content-Length", String.valueOf( t.getLength() ) );
+        }
+        try
+        {
+            if ( content instanceof FileInputStream )
+            {
+                // let the file channel send the file without copying it through a Java buffer when possible.
+                transferTo( ( (FileInputStream) content ).getChannel(), t.getLength(), entityStream );
+            }
+            else
+            {
+                copyLarge( content, entityStream, t.getLength() );
+            }
+        }
+        finally
+        {
+            content.close();
+        }
         entityStream.flush();
     }
 
+    /**
+     * Transfer the given count of bytes (or the remaining bytes if count is not positive) of the channel from its
+     * current position.
+     */
+    private void transferTo( FileChannel channel, long count, OutputStream output )
+        throws IOException
+    {
+        long position = channel.position();
+        long remaining = count > 0 ? count : channel.size() - position;
+        WritableByteChannel target = Channels.newChannel( output );
+        while ( remaining > 0 )
+        {
+            long n = channel.transferTo( position, remaining, target );
+            if ( n <= 0 )
+            {
+                break;
+            }
+            position += n;
+            remaining -= n;
+        }
+    }
+
     /**
      * The default buffer size to use.
      */
     private static final int DEFAULT_BUFFER_SIZE = 1024 * 4;
 
-    private long copyLarge( InputStream input, OutputStream output )
+    private long copyLarge( InputStream input, OutputStream output, long length )
         throws IOException
     {
         byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
+        long remaining = length > 0 ? length : Long.MAX_VALUE;
         long count = 0;
         int n = 0;
-        while ( -1 != ( n = input.read( buffer ) ) )
+        while ( remaining > 0
+            && -1 != ( n = input.read( buffer, 0, (int) Math.min( buffer.length, remaining ) ) ) )
         {
             output.write( buffer, 0, n );
             count += n;
+            remaining -= n;
         }
         return count;
     }
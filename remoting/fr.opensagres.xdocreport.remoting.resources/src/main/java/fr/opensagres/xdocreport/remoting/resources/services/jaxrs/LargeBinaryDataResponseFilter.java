@@ -0,0 +1,212 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.remoting.resources.services.jaxrs;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Date;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.ext.Provider;
+
+import fr.opensagres.xdocreport.remoting.resources.domain.LargeBinaryData;
+
+/**
+ * {@link ContainerResponseFilter} which manages conditional and range GET requests for the {@link LargeBinaryData}
+ * whose last modification time is known:
+ * <ul>
+ * <li>the <code>Last-Modified</code> and <code>ETag</code> headers are sent with the content, and a
+ * <code>304 Not Modified</code> response without content is returned when the client already has it
+ * (<code>If-None-Match</code>, <code>If-Modified-Since</code>).</li>
+ * <li>a single <code>Range: bytes=start-end</code> is served as <code>206 Partial Content</code>, so an interrupted
+ * download can be resumed.</li>
+ * </ul>
+ */
+@Provider
+public class LargeBinaryDataResponseFilter
+    implements ContainerResponseFilter
+{
+
+    private static final String ACCEPT_RANGES = "Accept-Ranges";
+
+    private static final String CONTENT_RANGE = "Content-Range";
+
+    private static final String RANGE = "Range";
+
+    private static final String IF_RANGE = "If-Range";
+
+    private static final String BYTES_UNIT = "bytes";
+
+    private static final String BYTES_RANGE_PREFIX = BYTES_UNIT + "=";
+
+    private static final int REQUESTED_RANGE_NOT_SATISFIABLE = 416;
+
+    public void filter( ContainerRequestContext requestContext, ContainerResponseContext responseContext )
+        throws IOException
+    {
+        Object entity = responseContext.getEntity();
+        if ( !( entity instanceof LargeBinaryData ) || !HttpMethod.GET.equals( requestContext.getMethod() )
+            || responseContext.getStatus() != Response.Status.OK.getStatusCode() )
+        {
+            return;
+        }
+        LargeBinaryData data = (LargeBinaryData) entity;
+        if ( data.getLastModified() <= 0 )
+        {
+            // the version of the content is unknown.
+            return;
+        }
+        long length = data.getLength();
+        // HTTP dates have a precision of one second.
+        Date lastModified = new Date( data.getLastModified() / 1000 * 1000 );
+        EntityTag etag = new EntityTag( Long.toHexString( lastModified.getTime() ) + "-" + Long.toHexString( length ) );
+
+        MultivaluedMap<String, Object> headers = responseContext.getHeaders();
+        headers.putSingle( HttpHeaders.LAST_MODIFIED, lastModified );
+        headers.putSingle( HttpHeaders.ETAG, etag );
+
+        ResponseBuilder notModified = requestContext.getRequest().evaluatePreconditions( lastModified, etag );
+        if ( notModified != null )
+        {
+            closeContent( data );
+            responseContext.setStatus( notModified.build().getStatus() );
+            responseContext.setEntity( null );
+            return;
+        }
+
+        if ( length <= 0 )
+        {
+            return;
+        }
+        headers.putSingle( ACCEPT_RANGES, BYTES_UNIT );
+        String range = requestContext.getHeaderString( RANGE );
+        if ( range == null || !range.startsWith( BYTES_RANGE_PREFIX ) )
+        {
+            return;
+        }
+        String ifRange = requestContext.getHeaderString( IF_RANGE );
+        if ( ifRange != null && !ifRange.equals( etag.toString() ) )
+        {
+            // the client has an old version, send the whole content.
+            return;
+        }
+        long[] bounds = parseRange( range.substring( BYTES_RANGE_PREFIX.length() ).trim(), length );
+        if ( bounds == null )
+        {
+            // several ranges or invalid syntax, send the whole content.
+            return;
+        }
+        if ( bounds[0] >= length || bounds[0] > bounds[1] )
+        {
+            closeContent( data );
+            headers.putSingle( CONTENT_RANGE, BYTES_UNIT + " */" + length );
+            responseContext.setStatus( REQUESTED_RANGE_NOT_SATISFIABLE );
+            responseContext.setEntity( null );
+            return;
+        }
+        skip( data.getContent(), bounds[0] );
+        data.setLength( bounds[1] - bounds[0] + 1 );
+        headers.putSingle( CONTENT_RANGE, BYTES_UNIT + " " + bounds[0] + "-" + bounds[1] + "/" + length );
+        responseContext.setStatus( Response.Status.PARTIAL_CONTENT.getStatusCode() );
+    }
+
+    /**
+     * Parse the given byte range (without the "bytes=" prefix) and returns the first and last byte positions, or null
+     * if the range cannot be managed.
+     */
+    private static long[] parseRange( String range, long length )
+    {
+        if ( range.indexOf( ',' ) != -1 )
+        {
+            return null;
+        }
+        int dash = range.indexOf( '-' );
+        if ( dash == -1 )
+        {
+            return null;
+        }
+        try
+        {
+            String first = range.substring( 0, dash ).trim();
+            String last = range.substring( dash + 1 ).trim();
+            if ( first.length() == 0 )
+            {
+                // suffix range: the last N bytes.
+                long suffixLength = Long.parseLong( last );
+                if ( suffixLength <= 0 )
+                {
+                    return null;
+                }
+                return new long[] { Math.max( 0, length - suffixLength ), length - 1 };
+            }
+            long start = Long.parseLong( first );
+            long end = last.length() == 0 ? length - 1 : Math.min( Long.parseLong( last ), length - 1 );
+            return new long[] { start, end };
+        }
+        catch ( NumberFormatException e )
+        {
+            return null;
+        }
+    }
+
+    private static void skip( InputStream content, long count )
+        throws IOException
+    {
+        long remaining = count;
+        while ( remaining > 0 )
+        {
+            long n = content.skip( remaining );
+            if ( n <= 0 )
+            {
+                throw new IOException( "Cannot skip " + count + " bytes of the content." );
+            }
+            remaining -= n;
+        }
+    }
+
+    private static void closeContent( LargeBinaryData data )
+    {
+        InputStream content = data.getContent();
+        if ( content != null )
+        {
+            try
+            {
+                content.close();
+            }
+            catch ( IOException e )
+            {
+                // ignore
+            }
+        }
+    }
+}
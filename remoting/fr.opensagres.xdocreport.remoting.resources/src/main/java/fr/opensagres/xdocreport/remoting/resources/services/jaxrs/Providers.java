@@ -44,6 +44,7 @@ public class Providers
             providers = new ArrayList<Object>();
             providers.add( new LargeBinaryDataMessageBodyReader() );
             providers.add( new LargeBinaryDataMessageBodyWriter() );
+            providers.add( new LargeBinaryDataResponseFilter() );
         }
         return providers;
     }
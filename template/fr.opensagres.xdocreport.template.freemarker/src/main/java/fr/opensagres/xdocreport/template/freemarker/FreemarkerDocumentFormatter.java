@@ -30,6 +30,7 @@ import fr.opensagres.xdocreport.core.utils.StringUtils;
 import fr.opensagres.xdocreport.template.TemplateContextHelper;
 import fr.opensagres.xdocreport.template.config.ITemplateEngineConfiguration;
 import fr.opensagres.xdocreport.template.config.ReplaceText;
+import fr.opensagres.xdocreport.template.config.XMLEscaper;
 import fr.opensagres.xdocreport.template.formatter.AbstractDocumentFormatter;
 import fr.opensagres.xdocreport.template.formatter.DirectivesStack;
 import fr.opensagres.xdocreport.template.formatter.IfDirective;
@@ -64,6 +65,9 @@ public class FreemarkerDocumentFormatter
 
     private static final String XML_ESCAPE = "?xml";
 
+    private static final String START_METHOD_ESCAPE = "[#escape any as " + FreemarkerConstants.XML_ESCAPE_METHOD
+        + "(any?string)";
+
     private static final String START_REPLACE_ESCAPE = "?replace('";
 
     private static final String BODY_REPLACE_ESCAPE = "','";
@@ -92,6 +96,8 @@ public class FreemarkerDocumentFormatter
 
     private static final String END_CDATA = "[#--]]>--]";
 
+    private XMLEscaper escaper;
+
     public String formatAsFieldItemList( String content, String fieldName, boolean forceAsField )
     {
         if ( forceAsField )
@@ -172,19 +178,28 @@ public class FreemarkerDocumentFormatter
             return;
         }
 
-        startEscape.append( START_ESCAPE );
-        if ( configuration.escapeXML() )
+        escaper = XMLEscaper.create( configuration, false );
+        if ( escaper != null )
         {
-            startEscape.append( XML_ESCAPE );
+            // escape XML and replace texts with one method call
+            startEscape.append( START_METHOD_ESCAPE );
         }
-
-        for ( ReplaceText replaceText : replacment )
+        else
         {
-            startEscape.append( START_REPLACE_ESCAPE );
-            startEscape.append( replaceText.getOldText() );
-            startEscape.append( BODY_REPLACE_ESCAPE );
-            startEscape.append( replaceText.getNewText() );
-            startEscape.append( END_REPLACE_ESCAPE );
+            startEscape.append( START_ESCAPE );
+            if ( configuration.escapeXML() )
+            {
+                startEscape.append( XML_ESCAPE );
+            }
+
+            for ( ReplaceText replaceText : replacment )
+            {
+                startEscape.append( START_REPLACE_ESCAPE );
+                startEscape.append( replaceText.getOldText() );
+                startEscape.append( BODY_REPLACE_ESCAPE );
+                startEscape.append( replaceText.getNewText() );
+                startEscape.append( END_REPLACE_ESCAPE );
+            }
         }
         if ( startEscape.length() > 0 )
         {
@@ -198,6 +213,17 @@ public class FreemarkerDocumentFormatter
 
     }
 
+    /**
+     * Returns the escaper used by the [#escape] directive and null if the directive uses the ?xml and ?replace
+     * built-ins.
+     * 
+     * @return
+     */
+    public XMLEscaper getEscaper()
+    {
+        return escaper;
+    }
+
     public String getFunctionDirective( boolean noescape, boolean encloseInDirective, String key, String methodName,
                                         String... parameters )
     {
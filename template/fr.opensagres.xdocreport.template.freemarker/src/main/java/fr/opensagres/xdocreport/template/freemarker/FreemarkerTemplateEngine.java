@@ -31,8 +31,12 @@ import java.io.StringReader;
 import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import fr.opensagres.xdocreport.core.EncodingConstants;
 import fr.opensagres.xdocreport.core.XDocReportException;
@@ -42,9 +46,12 @@ import fr.opensagres.xdocreport.template.FieldsExtractor;
 import fr.opensagres.xdocreport.template.IContext;
 import fr.opensagres.xdocreport.template.TemplateEngineKind;
 import fr.opensagres.xdocreport.template.config.ITemplateEngineConfiguration;
+import fr.opensagres.xdocreport.template.config.XMLEscaper;
 import fr.opensagres.xdocreport.template.formatter.IDocumentFormatter;
 import fr.opensagres.xdocreport.template.freemarker.cache.XDocReportEntryTemplateLoader;
 import fr.opensagres.xdocreport.template.freemarker.internal.XDocFreemarkerContext;
+import fr.opensagres.xdocreport.template.freemarker.internal.XMLEscapeMethod;
+import fr.opensagres.xdocreport.template.utils.TemplateUtils;
 import freemarker.cache.MultiTemplateLoader;
 import freemarker.cache.TemplateLoader;
 import freemarker.core.Environment;
@@ -65,16 +72,32 @@ public class FreemarkerTemplateEngine
 
     private static final String DOLLAR_VARIABLE = "DollarVariable";
 
-    private static Configuration DEFAULT_FREEMARKER_CONFIGURATION = null;
+    private static volatile Configuration DEFAULT_FREEMARKER_CONFIGURATION = null;
+
+    private static final Object DEFAULT_FREEMARKER_CONFIGURATION_LOCK = new Object();
 
     private FreemarkerDocumentFormatter formatter = new FreemarkerDocumentFormatter();
 
-    private Configuration freemarkerConfiguration = null;
+    private volatile Configuration freemarkerConfiguration = null;
 
     private boolean forceModifyReader = false;
 
     private final List<TemplateLoader> templateLoaders;
 
+    private XMLEscapeMethod xmlEscapeMethod;
+
+    private volatile boolean immutableTemplates = false;
+
+    /**
+     * Templates of the cached reports pinned in the immutable mode, by template name (reportId!entryName).
+     */
+    private final ConcurrentMap<String, Template> pinnedTemplates = new ConcurrentHashMap<String, Template>();
+
+    /**
+     * Number of calls of {@link #evictTemplates(String)}, used to not pin a template loaded during an eviction.
+     */
+    private final AtomicLong evictions = new AtomicLong();
+
     public FreemarkerTemplateEngine()
     {
         this.templateLoaders = new ArrayList<TemplateLoader>();
@@ -107,11 +130,106 @@ public class FreemarkerTemplateEngine
         throws XDocReportException, IOException
     {
         // Get template from cache.
-        Template template = getFreemarkerConfiguration().getTemplate( templateName );
+        Template template = getCachedTemplate( templateName );
         // Merge template with Java model
         process( context, writer, template );
     }
 
+    @Override
+    protected void compileWithCache( String templateName )
+        throws XDocReportException, IOException
+    {
+        // the template is parsed and cached by the freemarker configuration
+        getCachedTemplate( templateName );
+    }
+
+    /**
+     * Returns the template from the freemarker cache, which checks if the template entry was modified for each call.
+     * In the immutable mode, the template is pinned after the first call and is only removed with
+     * {@link #evictTemplates(String)}.
+     * 
+     * @param templateName
+     * @return
+     * @throws IOException
+     */
+    private Template getCachedTemplate( String templateName )
+        throws IOException
+    {
+        if ( !immutableTemplates )
+        {
+            return getFreemarkerConfiguration().getTemplate( templateName );
+        }
+        Template template = pinnedTemplates.get( templateName );
+        if ( template == null )
+        {
+            long evictionsCount = evictions.get();
+            template = getFreemarkerConfiguration().getTemplate( templateName );
+            Template existingTemplate = pinnedTemplates.putIfAbsent( templateName, template );
+            if ( existingTemplate != null )
+            {
+                template = existingTemplate;
+            }
+            else if ( evictions.get() != evictionsCount )
+            {
+                // the template was loaded while a report was reloaded, it can come from the previous document : it
+                // is used for this call but it is not pinned.
+                pinnedTemplates.remove( templateName, template );
+                removeTemplateFromCache( templateName );
+            }
+        }
+        return template;
+    }
+
+    @Override
+    public void evictTemplates( String reportId )
+    {
+        evictions.incrementAndGet();
+        String prefix = TemplateUtils.getCachedTemplateName( reportId, "" );
+        Iterator<String> templateNames = pinnedTemplates.keySet().iterator();
+        while ( templateNames.hasNext() )
+        {
+            String templateName = templateNames.next();
+            if ( templateName.startsWith( prefix ) )
+            {
+                templateNames.remove();
+                removeTemplateFromCache( templateName );
+            }
+        }
+    }
+
+    private void removeTemplateFromCache( String templateName )
+    {
+        try
+        {
+            getFreemarkerConfiguration().removeTemplateFromCache( templateName );
+        }
+        catch ( IOException e )
+        {
+            // the template is reloaded by the freemarker cache if it was modified
+        }
+    }
+
+    /**
+     * Set true if the templates of the cached reports never change until the report is unregistered or reloaded (see
+     * XDocReportRegistry). In this mode the template of an entry is pinned after its first process and the freemarker
+     * cache doesn't search the template entry and its last modified date for each process.
+     * 
+     * @param immutableTemplates
+     */
+    public void setImmutableTemplates( boolean immutableTemplates )
+    {
+        this.immutableTemplates = immutableTemplates;
+        if ( !immutableTemplates )
+        {
+            pinnedTemplates.clear();
+        }
+    }
+
+    public boolean isImmutableTemplates()
+    {
+        return immutableTemplates;
+    }
+
     @Override
     protected void processNoCache( String templateName, IContext context, Reader reader, Writer writer )
         throws XDocReportException, IOException
@@ -160,6 +278,11 @@ public class FreemarkerTemplateEngine
         try
         {
             Environment environment = template.createProcessingEnvironment( context, writer );
+            if ( xmlEscapeMethod != null )
+            {
+                // method used by the [#escape] directive of the document formatter
+                environment.setGlobalVariable( XML_ESCAPE_METHOD, xmlEscapeMethod );
+            }
             environment.process();
         }
         catch ( TemplateException e )
@@ -248,15 +371,26 @@ public class FreemarkerTemplateEngine
      */
     private Configuration getDefaultConfiguration()
     {
-        if ( DEFAULT_FREEMARKER_CONFIGURATION == null )
+        Configuration configuration = DEFAULT_FREEMARKER_CONFIGURATION;
+        if ( configuration == null )
         {
-            DEFAULT_FREEMARKER_CONFIGURATION = new Configuration();
-            DEFAULT_FREEMARKER_CONFIGURATION.setDefaultEncoding( EncodingConstants.UTF_8.name() );
-            DEFAULT_FREEMARKER_CONFIGURATION.setOutputEncoding( EncodingConstants.UTF_8.name() );
-            DEFAULT_FREEMARKER_CONFIGURATION.setObjectWrapper( new DefaultObjectWrapper() );
-            setFreemarkerConfiguration( DEFAULT_FREEMARKER_CONFIGURATION );
+            synchronized ( DEFAULT_FREEMARKER_CONFIGURATION_LOCK )
+            {
+                configuration = DEFAULT_FREEMARKER_CONFIGURATION;
+                if ( configuration == null )
+                {
+                    configuration = new Configuration();
+                    configuration.setDefaultEncoding( EncodingConstants.UTF_8.name() );
+                    configuration.setOutputEncoding( EncodingConstants.UTF_8.name() );
+                    configuration.setObjectWrapper( new DefaultObjectWrapper() );
+                    setFreemarkerConfiguration( configuration );
+                    // publish the configuration once the XDocReport template loader is set, otherwise another thread
+                    // could search the report entries with the default loader.
+                    DEFAULT_FREEMARKER_CONFIGURATION = configuration;
+                }
+            }
         }
-        return DEFAULT_FREEMARKER_CONFIGURATION;
+        return configuration;
     }
 
     @Override
@@ -266,6 +400,8 @@ public class FreemarkerTemplateEngine
         if ( isEscapeTemplate() )
         {
             formatter.setConfiguration( configuration );
+            XMLEscaper escaper = formatter.getEscaper();
+            xmlEscapeMethod = escaper != null ? new XMLEscapeMethod( escaper ) : null;
         }
     }
 
@@ -89,6 +89,52 @@ public class FreemarkerTemplateEngineConfigurationTestCase
         assertEquals( "Project: A<text:line-break>B.", writer.toString() );
     }
 
+    public void testNumberAndReplaceEscapeContext()
+        throws Exception
+    {
+        FreemarkerTemplateEngine templateEngine = new FreemarkerTemplateEngine();
+        templateEngine.setForceModifyReader( true );
+
+        templateEngine.setConfiguration( new JUnitTemplateEngineConfiguration() );
+        // escape with one method call
+        assertNotNull( ( (FreemarkerDocumentFormatter) templateEngine.getDocumentFormatter() ).getEscaper() );
+
+        Reader reader = new StringReader( "${count}: ${project.name!}." );
+        Writer writer = new StringWriter();
+        IContext context = templateEngine.createContext();
+        context.put( "count", 12 );
+        context.put( "project.name", "<A>\nB" );
+
+        templateEngine.process( "", context, reader, writer );
+        assertEquals( "12: &lt;A&gt;<text:line-break>B.", writer.toString() );
+    }
+
+    public void testNotOnePassEscapeContext()
+        throws Exception
+    {
+        FreemarkerTemplateEngine templateEngine = new FreemarkerTemplateEngine();
+        templateEngine.setForceModifyReader( true );
+
+        // the replaced text contains '&' which is replaced after the XML escape with ?xml?replace
+        templateEngine.setConfiguration( new AbstractTemplateEngineConfiguration()
+        {
+            @Override
+            protected void populate( Collection<ReplaceText> replacment )
+            {
+                replacment.add( new ReplaceText( "&", "and" ) );
+            }
+        } );
+        assertNull( ( (FreemarkerDocumentFormatter) templateEngine.getDocumentFormatter() ).getEscaper() );
+
+        Reader reader = new StringReader( "Project: ${project.name}." );
+        Writer writer = new StringWriter();
+        IContext context = templateEngine.createContext();
+        context.put( "project.name", "A&B" );
+
+        templateEngine.process( "", context, reader, writer );
+        assertEquals( "Project: Aandamp;B.", writer.toString() );
+    }
+
     private static class JUnitTemplateEngineConfiguration
         extends AbstractTemplateEngineConfiguration
     {
@@ -36,4 +36,7 @@ public interface VelocityConstants
     String DESCRIPTION_DISCOVERY = "Manage Velocity template engine.";
 
     String VELOCITY_TEMPLATE_ENGINE_KEY = "velocityTemplateEngine";
+
+    // Velocity property to share the velocity engine between the velocity template engines
+    String SHARED_VELOCITY_ENGINE_PROPERTY = "xdocreport.velocityEngine.shared";
 }
@@ -30,6 +30,8 @@ import java.io.Reader;
 import java.io.Writer;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
@@ -42,6 +44,7 @@ import fr.opensagres.xdocreport.template.AbstractTemplateEngine;
 import fr.opensagres.xdocreport.template.FieldsExtractor;
 import fr.opensagres.xdocreport.template.IContext;
 import fr.opensagres.xdocreport.template.TemplateEngineKind;
+import fr.opensagres.xdocreport.template.cache.ITemplateCacheInfoProvider;
 import fr.opensagres.xdocreport.template.config.ITemplateEngineConfiguration;
 import fr.opensagres.xdocreport.template.formatter.IDocumentFormatter;
 import fr.opensagres.xdocreport.template.velocity.VelocityConstants;
@@ -60,13 +63,32 @@ public class VelocityTemplateEngine
 
     private VelocityDocumentFormatter formatter = new VelocityDocumentFormatter();
 
-    private VelocityEngine velocityEngine;
+    /**
+     * Initialized velocity engines shared between velocity template engines which have the same properties, template
+     * cache info provider and configuration. A shared engine is removed when a template engine which uses it is
+     * disposed (see {@link #dispose()}, called when the template engine registries are disposed), so the cache doesn't
+     * keep the registry and its class loader.
+     */
+    private static final ConcurrentMap<SharedVelocityEngineKey, VelocityEngine> SHARED_VELOCITY_ENGINES =
+        new ConcurrentHashMap<SharedVelocityEngineKey, VelocityEngine>();
+
+    private final Object velocityEngineLock = new Object();
+
+    // volatile to publish the velocity engine only once it is initialized, without locking on each process.
+    private volatile VelocityEngine velocityEngine;
+
+    // true if the velocity engine comes from the shared velocity engines. Guarded by velocityEngineLock.
+    private boolean velocityEngineShared;
 
     private final Properties velocityEngineProperties;
 
+    private boolean sharedVelocityEngine;
+
     public VelocityTemplateEngine( Properties velocityEngineProperties )
     {
         this.velocityEngineProperties = velocityEngineProperties;
+        this.sharedVelocityEngine =
+            Boolean.valueOf( velocityEngineProperties.getProperty( SHARED_VELOCITY_ENGINE_PROPERTY ) );
     }
 
     public String getKind()
@@ -101,6 +123,14 @@ public class VelocityTemplateEngine
         }
     }
 
+    @Override
+    protected void compileWithCache( String templateName )
+        throws XDocReportException, IOException
+    {
+        // the template is parsed and cached by the resource manager of the velocity engine
+        getVelocityEngine().getTemplate( templateName, EncodingConstants.UTF_8.name() );
+    }
+
     @Override
     protected void processNoCache( String templateName, IContext context, Reader reader, Writer writer )
         throws XDocReportException, IOException
@@ -109,19 +139,111 @@ public class VelocityTemplateEngine
         velocityEngine.evaluate( (VelocityContext) context, writer, templateName, reader );
     }
 
-    protected synchronized VelocityEngine getVelocityEngine()
+    protected VelocityEngine getVelocityEngine()
+        throws XDocReportException
+    {
+        VelocityEngine velocityEngine = this.velocityEngine;
+        if ( velocityEngine == null )
+        {
+            synchronized ( velocityEngineLock )
+            {
+                velocityEngine = this.velocityEngine;
+                if ( velocityEngine == null )
+                {
+                    velocityEngineShared = isSharedVelocityEngine();
+                    velocityEngine = velocityEngineShared ? getSharedVelocityEngine() : createVelocityEngine();
+                    this.velocityEngine = velocityEngine;
+                }
+            }
+        }
+        return velocityEngine;
+    }
+
+    /**
+     * Returns the initialized velocity engine shared by the velocity template engines which have the same properties,
+     * template cache info provider and configuration than this template engine. The first template engine which
+     * requires it creates it.
+     * 
+     * @return
+     * @throws XDocReportException
+     */
+    private VelocityEngine getSharedVelocityEngine()
         throws XDocReportException
     {
+        SharedVelocityEngineKey key =
+            new SharedVelocityEngineKey( velocityEngineProperties, getTemplateCacheInfoProvider(),
+                                         getConfiguration() );
+        VelocityEngine velocityEngine = SHARED_VELOCITY_ENGINES.get( key );
         if ( velocityEngine == null )
         {
-            velocityEngine = new VelocityEngine();
-            initializeVelocityEngine( velocityEngineProperties );
+            synchronized ( SHARED_VELOCITY_ENGINES )
+            {
+                velocityEngine = SHARED_VELOCITY_ENGINES.get( key );
+                if ( velocityEngine == null )
+                {
+                    velocityEngine = createVelocityEngine();
+                    SHARED_VELOCITY_ENGINES.put( key, velocityEngine );
+                }
+            }
         }
         return velocityEngine;
     }
 
+    private VelocityEngine createVelocityEngine()
+        throws XDocReportException
+    {
+        VelocityEngine velocityEngine = new VelocityEngine();
+        initializeVelocityEngine( velocityEngine, velocityEngineProperties );
+        return velocityEngine;
+    }
+
+    /**
+     * Initialize the velocity engine of this template engine with the given properties. A shared velocity engine is
+     * never initialized again : this template engine uses its own velocity engine after this call.
+     * 
+     * @param velocityEngineProperties
+     * @throws XDocReportException
+     */
     public void initializeVelocityEngine( Properties velocityEngineProperties )
         throws XDocReportException
+    {
+        synchronized ( velocityEngineLock )
+        {
+            VelocityEngine velocityEngine = this.velocityEngine;
+            if ( velocityEngine == null || velocityEngineShared )
+            {
+                velocityEngine = new VelocityEngine();
+            }
+            initializeVelocityEngine( velocityEngine, velocityEngineProperties );
+            this.velocityEngine = velocityEngine;
+            this.velocityEngineShared = false;
+        }
+    }
+
+    /**
+     * Release the velocity engine of this template engine and remove it from the shared velocity engines. It will be
+     * created again if the template engine is used after.
+     */
+    @Override
+    public void dispose()
+    {
+        synchronized ( velocityEngineLock )
+        {
+            VelocityEngine velocityEngine = this.velocityEngine;
+            if ( velocityEngine != null && velocityEngineShared )
+            {
+                synchronized ( SHARED_VELOCITY_ENGINES )
+                {
+                    SHARED_VELOCITY_ENGINES.values().remove( velocityEngine );
+                }
+            }
+            this.velocityEngine = null;
+            this.velocityEngineShared = false;
+        }
+    }
+
+    private void initializeVelocityEngine( VelocityEngine velocityEngine, Properties velocityEngineProperties )
+        throws XDocReportException
     {
         ClassLoader backupCL = Thread.currentThread().getContextClassLoader();
         Thread.currentThread().setContextClassLoader( VelocityTemplateEngine.class.getClassLoader() );
@@ -135,7 +257,34 @@ public class VelocityTemplateEngine
         {
             throw new XDocReportException( e );
         }
-        Thread.currentThread().setContextClassLoader( backupCL );
+        finally
+        {
+            Thread.currentThread().setContextClassLoader( backupCL );
+        }
+    }
+
+    /**
+     * Set to true if the velocity engine (with its parsed templates cache) must be shared with the other velocity
+     * template engines which have the same properties, template cache info provider and configuration, and false
+     * otherwise. This flag must be set before the first process. By default, the
+     * {@link VelocityConstants#SHARED_VELOCITY_ENGINE_PROPERTY} velocity property is used.
+     * 
+     * @param sharedVelocityEngine
+     */
+    public void setSharedVelocityEngine( boolean sharedVelocityEngine )
+    {
+        this.sharedVelocityEngine = sharedVelocityEngine;
+    }
+
+    /**
+     * Returns true if the velocity engine is shared with the other velocity template engines which have the same
+     * properties, template cache info provider and configuration, and false otherwise.
+     * 
+     * @return
+     */
+    public boolean isSharedVelocityEngine()
+    {
+        return sharedVelocityEngine;
     }
 
     @Override
@@ -187,4 +336,56 @@ public class VelocityTemplateEngine
     {
         return false;
     }
+
+    /**
+     * Key of a shared velocity engine. The velocity engine resolves the report entries with the template cache info
+     * provider and escapes the values with the configuration of the template engine which has created it, so they are
+     * compared with identity.
+     */
+    private static class SharedVelocityEngineKey
+    {
+
+        private final Properties properties;
+
+        private final ITemplateCacheInfoProvider templateCacheInfoProvider;
+
+        private final ITemplateEngineConfiguration configuration;
+
+        private final int hashCode;
+
+        public SharedVelocityEngineKey( Properties properties, ITemplateCacheInfoProvider templateCacheInfoProvider,
+                                        ITemplateEngineConfiguration configuration )
+        {
+            // copy the properties, the key must not change if the properties of the template engine are updated.
+            this.properties = new Properties();
+            this.properties.putAll( properties );
+            this.templateCacheInfoProvider = templateCacheInfoProvider;
+            this.configuration = configuration;
+            this.hashCode =
+                31 * ( 31 * this.properties.hashCode() + System.identityHashCode( templateCacheInfoProvider ) )
+                    + System.identityHashCode( configuration );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals( Object obj )
+        {
+            if ( this == obj )
+            {
+                return true;
+            }
+            if ( !( obj instanceof SharedVelocityEngineKey ) )
+            {
+                return false;
+            }
+            SharedVelocityEngineKey other = (SharedVelocityEngineKey) obj;
+            return templateCacheInfoProvider == other.templateCacheInfoProvider
+                && configuration == other.configuration && properties.equals( other.properties );
+        }
+    }
 }
@@ -31,7 +31,9 @@ import org.apache.velocity.runtime.RuntimeServices;
 
 import fr.opensagres.xdocreport.core.utils.StringUtils;
 import fr.opensagres.xdocreport.template.ITemplateEngine;
+import fr.opensagres.xdocreport.template.config.ITemplateEngineConfiguration;
 import fr.opensagres.xdocreport.template.config.ReplaceText;
+import fr.opensagres.xdocreport.template.config.XMLEscaper;
 import fr.opensagres.xdocreport.template.formatter.AbstractDocumentFormatter;
 import fr.opensagres.xdocreport.template.velocity.VelocityConstants;
 
@@ -48,12 +50,22 @@ public class XDocReportEscapeReference
 
     private String[] replacementList;
 
+    // escape XML and replace text in one pass, null if the configuration requires the escape+replace each.
+    private XMLEscaper escaper;
+
     @Override
     public void setRuntimeServices( RuntimeServices rs )
     {
         super.setRuntimeServices( rs );
         ITemplateEngine templateEngine = (ITemplateEngine) rs.getProperty( VELOCITY_TEMPLATE_ENGINE_KEY );
-        Collection<ReplaceText> replacment = templateEngine.getConfiguration().getReplacment();
+        ITemplateEngineConfiguration configuration = templateEngine.getConfiguration();
+        // escape non ASCII characters like EscapeXmlReference
+        escaper = XMLEscaper.create( configuration, true );
+        if ( escaper != null )
+        {
+            return;
+        }
+        Collection<ReplaceText> replacment = configuration.getReplacment();
         if ( replacment != null && replacment.size() > 0 )
         {
             searchList = new String[replacment.size()];
@@ -71,6 +83,10 @@ public class XDocReportEscapeReference
     @Override
     protected String escape( Object text )
     {
+        if ( escaper != null )
+        {
+            return escaper.escape( text.toString() );
+        }
         String result = super.escape( text );
         if ( result != null && searchList != null )
         {
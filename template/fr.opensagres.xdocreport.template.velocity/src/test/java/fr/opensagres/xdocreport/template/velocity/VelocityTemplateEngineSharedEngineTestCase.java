@@ -0,0 +1,187 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.template.velocity;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+
+import org.apache.velocity.app.VelocityEngine;
+import org.apache.velocity.runtime.RuntimeConstants;
+
+import fr.opensagres.xdocreport.core.XDocReportException;
+import fr.opensagres.xdocreport.template.IContext;
+import fr.opensagres.xdocreport.template.velocity.internal.VelocityTemplateEngine;
+
+public class VelocityTemplateEngineSharedEngineTestCase
+    extends TestCase
+{
+
+    public void testNotSharedByDefault()
+        throws Exception
+    {
+        JUnitVelocityTemplateEngine engine1 = new JUnitVelocityTemplateEngine( createProperties() );
+        JUnitVelocityTemplateEngine engine2 = new JUnitVelocityTemplateEngine( createProperties() );
+        assertFalse( engine1.isSharedVelocityEngine() );
+        assertNotSame( engine1.getVelocityEngine(), engine2.getVelocityEngine() );
+        // the engine is created once per template engine
+        assertSame( engine1.getVelocityEngine(), engine1.getVelocityEngine() );
+    }
+
+    public void testSharedWithSameProperties()
+        throws Exception
+    {
+        Properties properties = createProperties();
+        properties.setProperty( VelocityConstants.SHARED_VELOCITY_ENGINE_PROPERTY, "true" );
+        JUnitVelocityTemplateEngine engine1 = new JUnitVelocityTemplateEngine( properties );
+        JUnitVelocityTemplateEngine engine2 = new JUnitVelocityTemplateEngine( (Properties) properties.clone() );
+        assertTrue( engine1.isSharedVelocityEngine() );
+        assertSame( engine1.getVelocityEngine(), engine2.getVelocityEngine() );
+
+        // other properties, other velocity engine
+        Properties otherProperties = (Properties) properties.clone();
+        otherProperties.setProperty( "directive.foreach.maxloops", "100" );
+        JUnitVelocityTemplateEngine engine3 = new JUnitVelocityTemplateEngine( otherProperties );
+        assertNotSame( engine1.getVelocityEngine(), engine3.getVelocityEngine() );
+
+        // shared engine must process templates.
+        IContext context = engine2.createContext();
+        context.put( "name", "XDocReport" );
+        StringWriter writer = new StringWriter();
+        engine2.process( "", context, new StringReader( "Hello ${name}!" ), writer );
+        assertEquals( "Hello XDocReport!", writer.toString() );
+    }
+
+    public void testInitializeDoesNotChangeSharedEngine()
+        throws Exception
+    {
+        Properties properties = createProperties();
+        properties.setProperty( VelocityConstants.SHARED_VELOCITY_ENGINE_PROPERTY, "true" );
+        JUnitVelocityTemplateEngine engine1 = new JUnitVelocityTemplateEngine( properties );
+        JUnitVelocityTemplateEngine engine2 = new JUnitVelocityTemplateEngine( (Properties) properties.clone() );
+        VelocityEngine sharedEngine = engine2.getVelocityEngine();
+        assertSame( sharedEngine, engine1.getVelocityEngine() );
+
+        // engine1 gets its own velocity engine, the shared engine is not initialized again
+        Properties otherProperties = createProperties();
+        otherProperties.setProperty( "directive.foreach.maxloops", "100" );
+        engine1.initializeVelocityEngine( otherProperties );
+        assertNotSame( sharedEngine, engine1.getVelocityEngine() );
+        assertFalse( "100".equals( String.valueOf( sharedEngine.getProperty( "directive.foreach.maxloops" ) ) ) );
+        assertEquals( "100", String.valueOf( engine1.getVelocityEngine().getProperty( "directive.foreach.maxloops" ) ) );
+        assertSame( sharedEngine, engine2.getVelocityEngine() );
+
+        engine2.dispose();
+    }
+
+    public void testDisposeRemovesSharedEngine()
+        throws Exception
+    {
+        Properties properties = createProperties();
+        properties.setProperty( VelocityConstants.SHARED_VELOCITY_ENGINE_PROPERTY, "true" );
+        JUnitVelocityTemplateEngine engine1 = new JUnitVelocityTemplateEngine( properties );
+        VelocityEngine sharedEngine = engine1.getVelocityEngine();
+
+        engine1.dispose();
+
+        // the disposed velocity engine is no longer shared
+        JUnitVelocityTemplateEngine engine2 = new JUnitVelocityTemplateEngine( (Properties) properties.clone() );
+        assertNotSame( sharedEngine, engine2.getVelocityEngine() );
+        // the disposed template engine creates again its velocity engine when it is used
+        assertSame( engine2.getVelocityEngine(), engine1.getVelocityEngine() );
+
+        engine2.dispose();
+    }
+
+    public void testConcurrentGetVelocityEngine()
+        throws Exception
+    {
+        final JUnitVelocityTemplateEngine engine = new JUnitVelocityTemplateEngine( createProperties() );
+        int nbThreads = 16;
+        final CountDownLatch start = new CountDownLatch( 1 );
+        ExecutorService executor = Executors.newFixedThreadPool( nbThreads );
+        try
+        {
+            List<Future<VelocityEngine>> futures = new ArrayList<Future<VelocityEngine>>();
+            for ( int i = 0; i < nbThreads; i++ )
+            {
+                futures.add( executor.submit( new Callable<VelocityEngine>()
+                {
+                    public VelocityEngine call()
+                        throws Exception
+                    {
+                        start.await();
+                        return engine.getVelocityEngine();
+                    }
+                } ) );
+            }
+            start.countDown();
+            VelocityEngine velocityEngine = futures.get( 0 ).get();
+            assertNotNull( velocityEngine );
+            for ( Future<VelocityEngine> future : futures )
+            {
+                assertSame( velocityEngine, future.get() );
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private static Properties createProperties()
+    {
+        Properties properties = new Properties();
+        properties.setProperty( RuntimeConstants.RUNTIME_LOG_LOGSYSTEM_CLASS,
+                                "org.apache.velocity.runtime.log.NullLogChute" );
+        return properties;
+    }
+
+    private static class JUnitVelocityTemplateEngine
+        extends VelocityTemplateEngine
+    {
+
+        public JUnitVelocityTemplateEngine( Properties velocityEngineProperties )
+        {
+            super( velocityEngineProperties );
+        }
+
+        @Override
+        public VelocityEngine getVelocityEngine()
+            throws XDocReportException
+        {
+            return super.getVelocityEngine();
+        }
+    }
+}
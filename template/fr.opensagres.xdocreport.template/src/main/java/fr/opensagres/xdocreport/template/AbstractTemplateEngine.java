@@ -185,6 +185,58 @@ public abstract class AbstractTemplateEngine
 
     }
 
+    /**
+     * Parse the template of the given entry and store it in the template cache of the engine, so the first process of
+     * the report doesn't parse it. Nothing is done if the report doesn't use the template cache (report not registered
+     * in the {@link ITemplateCacheInfoProvider}).
+     * 
+     * @param reportId the report id.
+     * @param entryName the entry name of the template.
+     * @throws XDocReportException
+     * @throws IOException
+     */
+    public void compile( String reportId, String entryName )
+        throws XDocReportException, IOException
+    {
+        if ( isUseTemplateCache( reportId ) )
+        {
+            compileWithCache( getCachedTemplateName( reportId, entryName ) );
+        }
+    }
+
+    /**
+     * Parse the given template and store it in the template cache. Does nothing by default.
+     * 
+     * @param templateName the template name.
+     * @throws XDocReportException
+     * @throws IOException
+     */
+    protected void compileWithCache( String templateName )
+        throws XDocReportException, IOException
+    {
+        // Do nothing
+    }
+
+    /**
+     * Remove the templates of the given report from the template cache of the engine. Called when the report is
+     * unregistered or reloaded. Does nothing by default.
+     * 
+     * @param reportId the report id.
+     */
+    public void evictTemplates( String reportId )
+    {
+        // Do nothing
+    }
+
+    /**
+     * Release the resources of the engine. Called when the registry which stores the engine is disposed. Does nothing
+     * by default.
+     */
+    public void dispose()
+    {
+        // Do nothing
+    }
+
     public void extractFields( IEntryReaderProvider readerProvider, String entryName, FieldsExtractor extractor )
         throws XDocReportException
     {
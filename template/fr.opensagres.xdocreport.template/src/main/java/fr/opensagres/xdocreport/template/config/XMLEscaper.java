@@ -0,0 +1,294 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.template.config;
+
+import java.util.Collection;
+
+/**
+ * Escaper of the values merged by a template engine. The XML escaping and the {@link ReplaceText} replacements of an
+ * {@link ITemplateEngineConfiguration} are done in one pass. A value which contains no character to escape or to
+ * replace is returned as is, without creating a new String.
+ * <p>
+ * The one pass escaping gives the same result as XML escaping followed with the replacements only when the replaced
+ * texts are made of control characters (ex : "\n", "\r\n", "\t") which don't overlap, and when the new texts contain
+ * no control characters. It is the case of the XDocReport configurations. For other configurations,
+ * {@link #create(ITemplateEngineConfiguration, boolean)} returns null and the template engine must escape as before.
+ * </p>
+ */
+public class XMLEscaper
+{
+
+    private static final int ASCII_LENGTH = 128;
+
+    private final boolean escapeXML;
+
+    private final boolean escapeNonASCII;
+
+    private final String[] searchList;
+
+    private final String[] replacementList;
+
+    // true for the ASCII characters which must be escaped or which start a replaced text.
+    private final boolean[] specialCharacters;
+
+    private XMLEscaper( boolean escapeXML, boolean escapeNonASCII, String[] searchList, String[] replacementList )
+    {
+        this.escapeXML = escapeXML;
+        this.escapeNonASCII = escapeXML && escapeNonASCII;
+        this.searchList = searchList;
+        this.replacementList = replacementList;
+        this.specialCharacters = new boolean[ASCII_LENGTH];
+        if ( escapeXML )
+        {
+            specialCharacters['&'] = true;
+            specialCharacters['<'] = true;
+            specialCharacters['>'] = true;
+            specialCharacters['"'] = true;
+            specialCharacters['\''] = true;
+        }
+        for ( String search : searchList )
+        {
+            specialCharacters[search.charAt( 0 )] = true;
+        }
+    }
+
+    /**
+     * Create an escaper for the given configuration.
+     * 
+     * @param configuration the template engine configuration.
+     * @param escapeNonASCII true if the non ASCII characters must be escaped with numeric character references when
+     *            XML is escaped (as Velocity does) and false otherwise (as Freemarker does).
+     * @return the escaper or null if the replacements of the configuration cannot be done in one pass.
+     */
+    public static XMLEscaper create( ITemplateEngineConfiguration configuration, boolean escapeNonASCII )
+    {
+        if ( configuration == null )
+        {
+            return null;
+        }
+        Collection<ReplaceText> replacement = configuration.getReplacment();
+        int size = replacement != null ? replacement.size() : 0;
+        String[] searchList = new String[size];
+        String[] replacementList = new String[size];
+        if ( size > 0 )
+        {
+            int i = 0;
+            for ( ReplaceText replaceText : replacement )
+            {
+                String search = replaceText.getOldText();
+                String newText = replaceText.getNewText();
+                if ( !isControlText( search ) || newText == null || hasControlCharacter( newText ) )
+                {
+                    return null;
+                }
+                for ( int j = 0; j < i; j++ )
+                {
+                    // a previous text contained in this text would be replaced before it
+                    if ( search.contains( searchList[j] ) || overlaps( search, searchList[j] )
+                        || overlaps( searchList[j], search ) )
+                    {
+                        return null;
+                    }
+                }
+                searchList[i] = search;
+                replacementList[i] = newText;
+                i++;
+            }
+        }
+        return new XMLEscaper( configuration.escapeXML(), escapeNonASCII, searchList, replacementList );
+    }
+
+    /**
+     * Returns true if XML is escaped and false otherwise.
+     * 
+     * @return
+     */
+    public boolean isEscapeXML()
+    {
+        return escapeXML;
+    }
+
+    /**
+     * Returns the escaped text. If the text contains no character to escape or to replace, the given text is returned.
+     * 
+     * @param text the text to escape.
+     * @return the escaped text.
+     */
+    public String escape( String text )
+    {
+        int length = text.length();
+        int start = 0;
+        while ( start < length && !isSpecialCharacter( text.charAt( start ) ) )
+        {
+            start++;
+        }
+        if ( start == length )
+        {
+            // fast path : nothing to escape.
+            return text;
+        }
+        StringBuilder result = new StringBuilder( length + 16 );
+        result.append( text, 0, start );
+        escape( text, start, result );
+        return result.toString();
+    }
+
+    /**
+     * Escape the characters of the given text from the start index and append them to the given output.
+     */
+    private void escape( String text, int start, StringBuilder out )
+    {
+        int end = text.length();
+        int unescaped = start;
+        int i = start;
+        while ( i < end )
+        {
+            char c = text.charAt( i );
+            if ( !isSpecialCharacter( c ) )
+            {
+                i++;
+                continue;
+            }
+            int replaced = -1;
+            for ( int k = 0; k < searchList.length; k++ )
+            {
+                String search = searchList[k];
+                if ( search.charAt( 0 ) == c )
+                {
+                    int matched = match( text, i, end, search );
+                    if ( matched == search.length() )
+                    {
+                        replaced = k;
+                        break;
+                    }
+                }
+            }
+            String entity = null;
+            int length = 1;
+            if ( replaced != -1 )
+            {
+                entity = replacementList[replaced];
+                length = searchList[replaced].length();
+            }
+            else if ( escapeXML )
+            {
+                entity = getEntity( c );
+            }
+            if ( entity != null )
+            {
+                out.append( text, unescaped, i );
+                out.append( entity );
+                unescaped = i + length;
+            }
+            i += length;
+        }
+        out.append( text, unescaped, end );
+    }
+
+    private boolean isSpecialCharacter( char c )
+    {
+        return c < ASCII_LENGTH ? specialCharacters[c] : escapeNonASCII;
+    }
+
+    private String getEntity( char c )
+    {
+        switch ( c )
+        {
+            case '&':
+                return "&amp;";
+            case '<':
+                return "&lt;";
+            case '>':
+                return "&gt;";
+            case '"':
+                return "&quot;";
+            case '\'':
+                return "&apos;";
+        }
+        if ( c >= ASCII_LENGTH && escapeNonASCII )
+        {
+            return "&#" + (int) c + ";";
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of characters of the search text which match the text from the given index.
+     */
+    private static int match( String text, int index, int end, String search )
+    {
+        int length = Math.min( search.length(), end - index );
+        int i = 0;
+        while ( i < length && text.charAt( index + i ) == search.charAt( i ) )
+        {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Returns true if a suffix of the first text is a prefix of the second text.
+     */
+    private static boolean overlaps( String first, String second )
+    {
+        int max = Math.min( first.length(), second.length() );
+        for ( int length = 1; length < max; length++ )
+        {
+            if ( first.regionMatches( first.length() - length, second, 0, length ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isControlText( String text )
+    {
+        if ( text == null || text.length() == 0 )
+        {
+            return false;
+        }
+        for ( int i = 0; i < text.length(); i++ )
+        {
+            if ( text.charAt( i ) >= ' ' )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasControlCharacter( String text )
+    {
+        for ( int i = 0; i < text.length(); i++ )
+        {
+            if ( text.charAt( i ) < ' ' )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
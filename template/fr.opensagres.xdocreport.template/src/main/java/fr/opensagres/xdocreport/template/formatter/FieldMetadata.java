@@ -66,6 +66,27 @@ public class FieldMetadata
         fieldsMetadata.fields.add( this );
     }
 
+    /**
+     * Copy the given field for the given fields metadata snapshot. The copy is not registered in the snapshot, it's
+     * done by the snapshot itself.
+     * 
+     * @param fieldsMetadata the fields metadata snapshot.
+     * @param field the field to copy.
+     */
+    FieldMetadata( FieldsMetadata fieldsMetadata, FieldMetadata field )
+    {
+        this.fieldsMetadata = fieldsMetadata;
+        this.fieldName = field.fieldName;
+        this.imageName = field.imageName;
+        this.listType = field.listType;
+        this.imageType = field.imageType;
+        this.syntaxKind = field.syntaxKind;
+        this.description = field.description;
+        this.syntaxWithDirective = field.syntaxWithDirective;
+        this.behaviour = field.behaviour;
+        this.useImageSize = field.useImageSize;
+    }
+
     /**
      * Returns the field name.
      * 
@@ -103,6 +124,12 @@ public class FieldMetadata
      */
     public void setListType( boolean listType )
     {
+        if ( this.listType == listType && ( !listType || fieldsMetadata.fieldsAsList.get( getFieldName() ) == this ) )
+        {
+            // nothing changed, keep the cached snapshot of the fields metadata.
+            return;
+        }
+        fieldsMetadata.checkNotFrozen();
         this.listType = listType;
         if ( listType )
         {
@@ -112,6 +139,7 @@ public class FieldMetadata
         {
             fieldsMetadata.fieldsAsList.remove( getFieldName() );
         }
+        fieldsMetadata.fieldsChanged();
     }
 
     /**
@@ -131,6 +159,7 @@ public class FieldMetadata
      */
     public void setImageName( String imageName )
     {
+        fieldsMetadata.checkNotFrozen();
         this.imageName = imageName;
         this.imageType = StringUtils.isNotEmpty( imageName );
         if ( imageType )
@@ -141,6 +170,7 @@ public class FieldMetadata
         {
             fieldsMetadata.fieldsAsImage.remove( getImageName() );
         }
+        fieldsMetadata.fieldsChanged();
     }
 
     public String getSyntaxKind()
@@ -155,6 +185,7 @@ public class FieldMetadata
 
     public void setSyntaxKind( String syntaxKind )
     {
+        fieldsMetadata.checkNotFrozen();
         this.syntaxKind = syntaxKind;
         if ( StringUtils.isNotEmpty( syntaxKind ) )
         {
@@ -164,15 +195,18 @@ public class FieldMetadata
         {
             fieldsMetadata.fieldsAsTextStyling.remove( getFieldName() );
         }
+        fieldsMetadata.fieldsChanged();
     }
 
     public void setSyntaxWithDirective( boolean syntaxWithDirective )
     {
+        fieldsMetadata.fieldsChanged();
         this.syntaxWithDirective = syntaxWithDirective;
     }
 
     public void setDescription( String description )
     {
+        fieldsMetadata.fieldsChanged();
         this.description = description;
     }
 
@@ -198,6 +232,7 @@ public class FieldMetadata
      */
     public void setBehaviour( NullImageBehaviour behaviour )
     {
+        fieldsMetadata.fieldsChanged();
         this.behaviour = behaviour;
     }
 
@@ -208,6 +243,7 @@ public class FieldMetadata
 
     public void setUseImageSize( boolean useImageSize )
     {
+        fieldsMetadata.fieldsChanged();
         this.useImageSize = useImageSize;
     }
 
@@ -40,22 +40,68 @@ public class FieldReplacementFormatter
 
     private final List<String> replacementList;
 
+    // arrays of the search/replacement lists, created once instead of for each formatted field
+    private String[] searchArray;
+
+    private String[] replacementArray;
+
     public FieldReplacementFormatter()
     {
         this.searchList = new ArrayList<String>();
         this.replacementList = new ArrayList<String>();
     }
 
+    /**
+     * Copy the mappings of the given formatter.
+     * 
+     * @param formatter
+     */
+    public FieldReplacementFormatter( FieldReplacementFormatter formatter )
+    {
+        this.searchList = new ArrayList<String>( formatter.searchList );
+        this.replacementList = new ArrayList<String>( formatter.replacementList );
+        this.searchArray = searchList.toArray( StringUtils.EMPTY_STRING_ARRAY );
+        this.replacementArray = replacementList.toArray( StringUtils.EMPTY_STRING_ARRAY );
+    }
+
     public String format( String content, IDocumentFormatter formatter )
     {
-        return StringUtils.replaceEach( content, searchList.toArray( StringUtils.EMPTY_STRING_ARRAY ),
-                                        replacementList.toArray( StringUtils.EMPTY_STRING_ARRAY ) );
+        String[] searchArray = this.searchArray;
+        String[] replacementArray = this.replacementArray;
+        if ( searchArray == null || replacementArray == null )
+        {
+            searchArray = searchList.toArray( StringUtils.EMPTY_STRING_ARRAY );
+            replacementArray = replacementList.toArray( StringUtils.EMPTY_STRING_ARRAY );
+            this.searchArray = searchArray;
+            this.replacementArray = replacementArray;
+        }
+        return StringUtils.replaceEach( content, searchArray, replacementArray );
     }
 
     public void addMapping( String search, String replacement )
     {
         searchList.add( search );
         replacementList.add( replacement );
+        this.searchArray = null;
+        this.replacementArray = null;
+    }
+
+    /**
+     * Returns true if the given mapping was already added and false otherwise.
+     * 
+     * @param search
+     * @param replacement
+     * @return
+     */
+    public boolean hasMapping( String search, String replacement )
+    {
+        int index = searchList.indexOf( search );
+        if ( index == -1 )
+        {
+            return false;
+        }
+        String existingReplacement = replacementList.get( index );
+        return existingReplacement == null ? replacement == null : existingReplacement.equals( replacement );
     }
 
 }
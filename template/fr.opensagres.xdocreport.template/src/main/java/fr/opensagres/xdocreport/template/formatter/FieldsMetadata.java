@@ -32,6 +32,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -44,6 +45,11 @@ import fr.opensagres.xdocreport.template.registry.FieldsMetadataClassSerializerR
 /**
  * Fields Metadata is used in the preprocessing step to modify some XML entries like generate script (Freemarker,
  * Velocity...) for loop for Table row, generate script for Image...
+ * <p>
+ * A fields metadata is a mutable builder which is not thread-safe : it must not be modified while a report which uses
+ * it is processed. {@link #freeze()} returns an immutable snapshot of it, with the sorted fields and the fields
+ * matchers computed once, which can be shared by several threads which preprocess or process the same report.
+ * </p>
  */
 public class FieldsMetadata
 {
@@ -100,8 +106,16 @@ public class FieldsMetadata
 
     private List<FieldMetadata> sortedFieldsAsImage;
 
+    private FieldsNameMatcher fieldsAsListMatcher;
+
+    private FieldsNameMatcher fieldsAsTextStylingMatcher;
+
     private List<ICustomFormatter> customFormatters;
 
+    private final boolean frozen;
+
+    private volatile FieldsMetadata snapshot;
+
     public FieldsMetadata()
     {
         this( (String) null );
@@ -114,6 +128,7 @@ public class FieldsMetadata
 
     public FieldsMetadata( String templateEngineKind )
     {
+        this.frozen = false;
         this.fields = new ArrayList<FieldMetadata>();
         this.fieldsAsList = new HashMap<String, FieldMetadata>();
         this.fieldsAsImage = new HashMap<String, FieldMetadata>();
@@ -134,6 +149,119 @@ public class FieldsMetadata
         this.customFormatters = null;
     }
 
+    /**
+     * Create an immutable snapshot of the given fields metadata.
+     * 
+     * @param metadata the fields metadata to copy.
+     */
+    private FieldsMetadata( FieldsMetadata metadata )
+    {
+        this.frozen = true;
+        // copy the fields (bound to this snapshot) and keep the same indexes than the builder
+        Map<FieldMetadata, FieldMetadata> copies = new IdentityHashMap<FieldMetadata, FieldMetadata>();
+        List<FieldMetadata> fields = new ArrayList<FieldMetadata>( metadata.fields.size() );
+        for ( FieldMetadata field : metadata.fields )
+        {
+            FieldMetadata copy = new FieldMetadata( this, field );
+            copies.put( field, copy );
+            fields.add( copy );
+        }
+        this.fields = Collections.unmodifiableList( fields );
+        this.fieldsAsList = Collections.unmodifiableMap( copyFields( metadata.fieldsAsList, copies ) );
+        this.fieldsAsImage = Collections.unmodifiableMap( copyFields( metadata.fieldsAsImage, copies ) );
+        this.fieldsAsTextStyling = Collections.unmodifiableMap( copyFields( metadata.fieldsAsTextStyling, copies ) );
+        this.beforeTableToken = metadata.beforeTableToken;
+        this.afterTableToken = metadata.afterTableToken;
+        this.beforeRowToken = metadata.beforeRowToken;
+        this.afterRowToken = metadata.afterRowToken;
+        this.beforeTableCellToken = metadata.beforeTableCellToken;
+        this.afterTableCellToken = metadata.afterTableCellToken;
+        this.description = metadata.description;
+        this.templateEngineKind = metadata.templateEngineKind;
+        this.serializer = metadata.serializer;
+        this.evaluateEngineOnlyForFields = metadata.evaluateEngineOnlyForFields;
+        this.behaviour = metadata.behaviour;
+        this.useImageSize = metadata.useImageSize;
+        if ( metadata.customFormatters != null )
+        {
+            List<ICustomFormatter> customFormatters =
+                new ArrayList<ICustomFormatter>( metadata.customFormatters.size() );
+            for ( ICustomFormatter customFormatter : metadata.customFormatters )
+            {
+                if ( customFormatter instanceof FieldReplacementFormatter )
+                {
+                    // the builder can add mappings to its formatter, use a copy
+                    customFormatter = new FieldReplacementFormatter( (FieldReplacementFormatter) customFormatter );
+                }
+                customFormatters.add( customFormatter );
+            }
+            this.customFormatters = Collections.unmodifiableList( customFormatters );
+        }
+        // compute the sorted fields and the matchers now, the snapshot is never modified.
+        this.sortedFieldsAsList = Collections.unmodifiableList( (List<String>) getFieldsAsList() );
+        this.sortedFieldsAsImage = Collections.unmodifiableList( (List<FieldMetadata>) getFieldsAsImage() );
+        this.sortedFieldsAsTextStyling =
+            Collections.unmodifiableList( (List<FieldMetadata>) getFieldsAsTextStyling() );
+        getFieldsAsListMatcher();
+        getFieldsAsTextStylingMatcher();
+    }
+
+    private static Map<String, FieldMetadata> copyFields( Map<String, FieldMetadata> fields,
+                                                          Map<FieldMetadata, FieldMetadata> copies )
+    {
+        Map<String, FieldMetadata> copy = new HashMap<String, FieldMetadata>( fields.size() * 2 );
+        for ( Map.Entry<String, FieldMetadata> entry : fields.entrySet() )
+        {
+            copy.put( entry.getKey(), copies.get( entry.getValue() ) );
+        }
+        return copy;
+    }
+
+    /**
+     * Returns an immutable snapshot of this fields metadata. The snapshot is cached and is created again only when
+     * this fields metadata was modified since the last call. Every mutator of the snapshot (and of its fields) throws
+     * {@link UnsupportedOperationException}. This method returns this instance if it is already a snapshot. It must not
+     * be called while this fields metadata is modified by another thread.
+     * 
+     * @return an immutable snapshot of this fields metadata.
+     */
+    public FieldsMetadata freeze()
+    {
+        if ( frozen )
+        {
+            return this;
+        }
+        FieldsMetadata snapshot = this.snapshot;
+        if ( snapshot == null )
+        {
+            snapshot = new FieldsMetadata( this );
+            this.snapshot = snapshot;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns true if this fields metadata is an immutable snapshot created with {@link #freeze()} and false
+     * otherwise.
+     * 
+     * @return
+     */
+    public boolean isFrozen()
+    {
+        return frozen;
+    }
+
+    /**
+     * Throws {@link UnsupportedOperationException} if this fields metadata is an immutable snapshot.
+     */
+    void checkNotFrozen()
+    {
+        if ( frozen )
+        {
+            throw new UnsupportedOperationException( "Fields metadata snapshot cannot be modified." );
+        }
+    }
+
     /**
      * Add a field name which is considered as an image.
      * 
@@ -268,6 +396,7 @@ public class FieldsMetadata
     public FieldMetadata addField( String fieldName, Boolean listType, String imageName, String syntaxKind,
                                    Boolean syntaxWithDirective )
     {
+        checkNotFrozen();
         // Test if it exists fields with the given name
         FieldMetadata exsitingField = getFieldAsImage( fieldName );
         if ( exsitingField == null )
@@ -313,6 +442,21 @@ public class FieldsMetadata
         return fieldsAsImage.get( fieldName );
     }
 
+    /**
+     * Returns true if the given field name belongs to a list and false otherwise.
+     * 
+     * @param fieldName
+     * @return
+     */
+    public boolean isFieldAsList( String fieldName )
+    {
+        if ( StringUtils.isEmpty( fieldName ) )
+        {
+            return false;
+        }
+        return fieldsAsList.containsKey( fieldName );
+    }
+
     /**
      * Returns list of fields name which belongs to a list.
      * 
@@ -320,6 +464,7 @@ public class FieldsMetadata
      */
     public Collection<String> getFieldsAsList()
     {
+        List<String> sortedFieldsAsList = this.sortedFieldsAsList;
         if ( sortedFieldsAsList == null )
         {
             sortedFieldsAsList = new ArrayList<String>();
@@ -328,10 +473,28 @@ public class FieldsMetadata
                 sortedFieldsAsList.add( field.getFieldName() );
             }
             Collections.sort( sortedFieldsAsList, FieldsNameComparator.getInstance() );
+            this.sortedFieldsAsList = sortedFieldsAsList;
         }
         return sortedFieldsAsList;
     }
 
+    /**
+     * Returns the matcher which searches the fields name which belongs to a list in a text. The fields name are
+     * returned in the order of {@link #getFieldsAsList()}.
+     * 
+     * @return
+     */
+    public FieldsNameMatcher getFieldsAsListMatcher()
+    {
+        FieldsNameMatcher matcher = fieldsAsListMatcher;
+        if ( matcher == null )
+        {
+            matcher = new FieldsNameMatcher( getFieldsAsList() );
+            fieldsAsListMatcher = matcher;
+        }
+        return matcher;
+    }
+
     /**
      * Returns list of fields name which are considered as an image.
      * 
@@ -339,10 +502,12 @@ public class FieldsMetadata
      */
     public Collection<FieldMetadata> getFieldsAsImage()
     {
+        List<FieldMetadata> sortedFieldsAsImage = this.sortedFieldsAsImage;
         if ( sortedFieldsAsImage == null )
         {
             sortedFieldsAsImage = new ArrayList<FieldMetadata>( fieldsAsImage.values() );
             Collections.sort( sortedFieldsAsImage, FieldsMetadataComparator.getInstance() );
+            this.sortedFieldsAsImage = sortedFieldsAsImage;
         }
         return sortedFieldsAsImage;
     }
@@ -354,10 +519,12 @@ public class FieldsMetadata
      */
     public Collection<FieldMetadata> getFieldsAsTextStyling()
     {
+        List<FieldMetadata> sortedFieldsAsTextStyling = this.sortedFieldsAsTextStyling;
         if ( sortedFieldsAsTextStyling == null )
         {
             sortedFieldsAsTextStyling = new ArrayList<FieldMetadata>( fieldsAsTextStyling.values() );
             Collections.sort( sortedFieldsAsTextStyling, FieldsMetadataComparator.getInstance() );
+            this.sortedFieldsAsTextStyling = sortedFieldsAsTextStyling;
         }
         return sortedFieldsAsTextStyling;
     }
@@ -371,15 +538,42 @@ public class FieldsMetadata
 	 *         null otherwise.
 	 */
 	public FieldMetadata getFieldAsTextStyling(String content) {
-		Collection<FieldMetadata> fieldsAsTextStyling = getFieldsAsTextStyling();
-		for (FieldMetadata field : fieldsAsTextStyling) {
-			if (content.contains(field.getFieldName())) {
-				return field;
-			}
-		}
-		return null;
+		String fieldName = getFieldsAsTextStylingMatcher().getFirstFieldName(content);
+		return fieldName != null ? fieldsAsTextStyling.get(fieldName) : null;
 	}
 
+    private FieldsNameMatcher getFieldsAsTextStylingMatcher()
+    {
+        FieldsNameMatcher matcher = fieldsAsTextStylingMatcher;
+        if ( matcher == null )
+        {
+            Collection<FieldMetadata> fields = getFieldsAsTextStyling();
+            List<String> fieldNames = new ArrayList<String>( fields.size() );
+            for ( FieldMetadata field : fields )
+            {
+                fieldNames.add( field.getFieldName() );
+            }
+            matcher = new FieldsNameMatcher( fieldNames );
+            fieldsAsTextStylingMatcher = matcher;
+        }
+        return matcher;
+    }
+
+    /**
+     * Clear the sorted fields, the fields matchers and the cached snapshot. This method is called when a field is
+     * added or modified.
+     */
+    void fieldsChanged()
+    {
+        checkNotFrozen();
+        this.snapshot = null;
+        this.sortedFieldsAsList = null;
+        this.sortedFieldsAsImage = null;
+        this.sortedFieldsAsTextStyling = null;
+        this.fieldsAsListMatcher = null;
+        this.fieldsAsTextStylingMatcher = null;
+    }
+
     /**
      * Returns true if there are fields as image and false otherwise.
      * 
@@ -420,6 +614,7 @@ public class FieldsMetadata
 
     public void setBeforeTableToken( String beforeTableToken )
     {
+        fieldsChanged();
         this.beforeTableToken = beforeTableToken;
     }
 
@@ -430,6 +625,7 @@ public class FieldsMetadata
 
     public void setAfterTableToken( String afterTableToken )
     {
+        fieldsChanged();
         this.afterTableToken = afterTableToken;
     }
 
@@ -440,6 +636,7 @@ public class FieldsMetadata
 
     public void setBeforeRowToken( String beforeRowToken )
     {
+        fieldsChanged();
         this.beforeRowToken = beforeRowToken;
     }
 
@@ -450,6 +647,7 @@ public class FieldsMetadata
 
     public void setAfterRowToken( String afterRowToken )
     {
+        fieldsChanged();
         this.afterRowToken = afterRowToken;
     }
 
@@ -460,6 +658,7 @@ public class FieldsMetadata
 
     public void setBeforeTableCellToken( String beforeTableCellToken )
     {
+        fieldsChanged();
         this.beforeTableCellToken = beforeTableCellToken;
     }
 
@@ -470,6 +669,7 @@ public class FieldsMetadata
 
     public void setAfterTableCellToken( String afterTableCellToken )
     {
+        fieldsChanged();
         this.afterTableCellToken = afterTableCellToken;
     }
 
@@ -651,6 +851,7 @@ public class FieldsMetadata
      */
     public void setDescription( String description )
     {
+        fieldsChanged();
         this.description = description;
     }
 
@@ -671,6 +872,13 @@ public class FieldsMetadata
      */
     public void setTemplateEngineKind( String templateEngineKind )
     {
+        if ( frozen && StringUtils.isNotEmpty( templateEngineKind )
+            && templateEngineKind.equals( this.templateEngineKind ) )
+        {
+            // the snapshot is already bound to this template engine kind
+            return;
+        }
+        fieldsChanged();
         this.templateEngineKind = templateEngineKind;
         if ( templateEngineKind == null )
         {
@@ -701,6 +909,7 @@ public class FieldsMetadata
      */
     public void setEvaluateEngineOnlyForFields( boolean evaluateEngineOnlyForFields )
     {
+        fieldsChanged();
         this.evaluateEngineOnlyForFields = evaluateEngineOnlyForFields;
     }
 
@@ -721,6 +930,7 @@ public class FieldsMetadata
      */
     public void setBehaviour( NullImageBehaviour behaviour )
     {
+        fieldsChanged();
         this.behaviour = behaviour;
     }
 
@@ -731,6 +941,7 @@ public class FieldsMetadata
 
     public void setUseImageSize( boolean useImageSize )
     {
+        fieldsChanged();
         this.useImageSize = useImageSize;
     }
 
@@ -741,6 +952,7 @@ public class FieldsMetadata
      */
     public void addCustomFormatter( ICustomFormatter customFormatter )
     {
+        fieldsChanged();
         if ( customFormatters == null )
         {
             customFormatters = new ArrayList<ICustomFormatter>();
@@ -772,6 +984,15 @@ public class FieldsMetadata
             mappingFormatter = new FieldReplacementFormatter();
             addCustomFormatter( mappingFormatter );
         }
+        else if ( mappingFormatter.hasMapping( search, replacement ) )
+        {
+            // the mapping is already done, keep the cached snapshot
+            return;
+        }
+        else
+        {
+            fieldsChanged();
+        }
         mappingFormatter.addMapping( search, replacement );
 
     }
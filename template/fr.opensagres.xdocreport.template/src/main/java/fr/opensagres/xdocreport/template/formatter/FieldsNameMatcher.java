@@ -0,0 +1,304 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.template.formatter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Matcher which searches in one pass (Aho-Corasick automaton) the fields name contained in a text.
+ * <p>
+ * The matcher is built once with the fields name ordered by priority (ex : the order of
+ * {@link FieldsMetadata#getFieldsAsList()}) and returns the same result than a loop which calls
+ * {@link String#contains(CharSequence)} for each field name in this order, but the cost of the search depends only on
+ * the length of the text.
+ * </p>
+ * <p>
+ * Instance of this class is immutable and can be shared between threads.
+ * </p>
+ */
+public class FieldsNameMatcher
+{
+
+    private static final int[] NO_OUTPUTS = new int[0];
+
+    private final String[] fieldNames;
+
+    private final Node root;
+
+    public FieldsNameMatcher( Collection<String> fieldNames )
+    {
+        this.fieldNames = fieldNames.toArray( new String[fieldNames.size()] );
+        this.root = new Node();
+        for ( int i = 0; i < this.fieldNames.length; i++ )
+        {
+            addFieldName( this.fieldNames[i], i );
+        }
+        computeFailureLinks();
+    }
+
+    /**
+     * Returns the index of the first field name (in the order of the constructor) contained in the given content and
+     * -1 otherwise.
+     * 
+     * @param content
+     * @return
+     */
+    public int indexOf( String content )
+    {
+        int index = root.outputs.length > 0 ? root.outputs[0] : -1;
+        Node node = root;
+        int length = content.length();
+        for ( int i = 0; i < length && index != 0; i++ )
+        {
+            node = next( node, content.charAt( i ) );
+            if ( node.outputs.length > 0 && ( index == -1 || node.outputs[0] < index ) )
+            {
+                index = node.outputs[0];
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Returns the first field name (in the order of the constructor) contained in the given content and null
+     * otherwise.
+     * 
+     * @param content
+     * @return
+     */
+    public String getFirstFieldName( String content )
+    {
+        int index = indexOf( content );
+        return index != -1 ? fieldNames[index] : null;
+    }
+
+    /**
+     * Returns the fields name (in the order of the constructor) contained in the given content.
+     * 
+     * @param content
+     * @return
+     */
+    public List<String> getFieldNames( String content )
+    {
+        boolean[] found = null;
+        int nbFound = 0;
+        Node node = root;
+        int length = content.length();
+        for ( int i = -1; i < length; i++ )
+        {
+            if ( i >= 0 )
+            {
+                node = next( node, content.charAt( i ) );
+            }
+            for ( int output : node.outputs )
+            {
+                if ( found == null )
+                {
+                    found = new boolean[fieldNames.length];
+                }
+                if ( !found[output] )
+                {
+                    found[output] = true;
+                    nbFound++;
+                }
+            }
+        }
+        if ( nbFound == 0 )
+        {
+            return Collections.emptyList();
+        }
+        List<String> result = new ArrayList<String>( nbFound );
+        for ( int i = 0; i < found.length; i++ )
+        {
+            if ( found[i] )
+            {
+                result.add( fieldNames[i] );
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if there is none field name and false otherwise.
+     * 
+     * @return
+     */
+    public boolean isEmpty()
+    {
+        return fieldNames.length == 0;
+    }
+
+    private Node next( Node node, char c )
+    {
+        Node child = node.getChild( c );
+        while ( child == null && node != root )
+        {
+            node = node.fail;
+            child = node.getChild( c );
+        }
+        return child != null ? child : root;
+    }
+
+    private void addFieldName( String fieldName, int index )
+    {
+        Node node = root;
+        for ( int i = 0; i < fieldName.length(); i++ )
+        {
+            char c = fieldName.charAt( i );
+            Node child = node.getChild( c );
+            if ( child == null )
+            {
+                child = node.addChild( c );
+            }
+            node = child;
+        }
+        node.outputs = merge( node.outputs, new int[] { index } );
+    }
+
+    private void computeFailureLinks()
+    {
+        // breadth-first traversal : the failure link of a node is computed with the failure link of its parent.
+        LinkedList<Node> queue = new LinkedList<Node>();
+        for ( int i = 0; i < root.size; i++ )
+        {
+            Node child = root.children[i];
+            child.fail = root;
+            child.outputs = merge( child.outputs, root.outputs );
+            queue.add( child );
+        }
+        while ( !queue.isEmpty() )
+        {
+            Node node = queue.removeFirst();
+            for ( int i = 0; i < node.size; i++ )
+            {
+                char c = node.keys[i];
+                Node child = node.children[i];
+                Node fail = node.fail;
+                while ( fail != root && fail.getChild( c ) == null )
+                {
+                    fail = fail.fail;
+                }
+                Node failChild = fail.getChild( c );
+                child.fail = failChild != null ? failChild : root;
+                // a node outputs the fields name of its failure link (suffix of the node)
+                child.outputs = merge( child.outputs, child.fail.outputs );
+                queue.add( child );
+            }
+        }
+    }
+
+    /**
+     * Merge the two sorted arrays of fields index.
+     */
+    private static int[] merge( int[] outputs1, int[] outputs2 )
+    {
+        if ( outputs2.length == 0 )
+        {
+            return outputs1;
+        }
+        if ( outputs1.length == 0 )
+        {
+            return outputs2;
+        }
+        int[] outputs = new int[outputs1.length + outputs2.length];
+        int i = 0, j = 0, k = 0;
+        while ( i < outputs1.length || j < outputs2.length )
+        {
+            int value;
+            if ( j == outputs2.length || ( i < outputs1.length && outputs1[i] <= outputs2[j] ) )
+            {
+                value = outputs1[i++];
+            }
+            else
+            {
+                value = outputs2[j++];
+            }
+            if ( k == 0 || outputs[k - 1] != value )
+            {
+                outputs[k++] = value;
+            }
+        }
+        if ( k < outputs.length )
+        {
+            int[] result = new int[k];
+            System.arraycopy( outputs, 0, result, 0, k );
+            return result;
+        }
+        return outputs;
+    }
+
+    private static class Node
+    {
+
+        private char[] keys;
+
+        private Node[] children;
+
+        private int size;
+
+        private Node fail;
+
+        private int[] outputs = NO_OUTPUTS;
+
+        public Node getChild( char c )
+        {
+            for ( int i = 0; i < size; i++ )
+            {
+                if ( keys[i] == c )
+                {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        public Node addChild( char c )
+        {
+            if ( keys == null )
+            {
+                keys = new char[2];
+                children = new Node[2];
+            }
+            else if ( size == keys.length )
+            {
+                char[] newKeys = new char[size * 2];
+                System.arraycopy( keys, 0, newKeys, 0, size );
+                keys = newKeys;
+                Node[] newChildren = new Node[size * 2];
+                System.arraycopy( children, 0, newChildren, 0, size );
+                children = newChildren;
+            }
+            Node child = new Node();
+            keys[size] = c;
+            children[size] = child;
+            size++;
+            return child;
+        }
+    }
+}
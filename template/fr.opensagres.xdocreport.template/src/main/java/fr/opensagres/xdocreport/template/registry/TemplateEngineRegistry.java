@@ -31,6 +31,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import fr.opensagres.xdocreport.core.registry.AbstractRegistry;
+import fr.opensagres.xdocreport.template.AbstractTemplateEngine;
 import fr.opensagres.xdocreport.template.ITemplateEngine;
 import fr.opensagres.xdocreport.template.TemplateEngineKind;
 import fr.opensagres.xdocreport.template.discovery.ITemplateEngineDiscovery;
@@ -128,6 +129,13 @@ public class TemplateEngineRegistry
     @Override
     protected void doDispose()
     {
+        for ( ITemplateEngine templateEngine : templateEnginesCache.values() )
+        {
+            if ( templateEngine instanceof AbstractTemplateEngine )
+            {
+                ( (AbstractTemplateEngine) templateEngine ).dispose();
+            }
+        }
         this.templateEnginesDiscoveryCache.clear();
         this.defaultTemplateEngine = null;
         this.templateEngineKinds.clear();
@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.template.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Collection;
+
+import org.junit.Test;
+
+public class XMLEscaperTestCase
+{
+
+    @Test
+    public void noEscapeReturnsSameString()
+    {
+        XMLEscaper escaper = XMLEscaper.create( new ODTConfiguration(), true );
+        String text = "XDocReport 1.0.4";
+        assertSame( text, escaper.escape( text ) );
+    }
+
+    @Test
+    public void escapeAndReplace()
+    {
+        XMLEscaper escaper = XMLEscaper.create( new ODTConfiguration(), false );
+        assertEquals( "A&amp;B&lt;C&gt;&quot;D&quot;&apos;E&apos;", escaper.escape( "A&B<C>\"D\"'E'" ) );
+        assertEquals( "a<text:line-break />b<text:line-break />c<text:tab />é",
+                      escaper.escape( "a\r\nb\nc\té" ) );
+        // keep the carriage return which is not followed with a line feed
+        assertEquals( "a\rb", escaper.escape( "a\rb" ) );
+    }
+
+    @Test
+    public void escapeNonASCII()
+    {
+        XMLEscaper escaper = XMLEscaper.create( new ODTConfiguration(), true );
+        assertEquals( "&#233;t&#233;&amp;", escaper.escape( "été&" ) );
+    }
+
+    @Test
+    public void notOnePassConfiguration()
+    {
+        assertNull( XMLEscaper.create( new JUnitConfiguration( "&", "and" ), false ) );
+        assertNull( XMLEscaper.create( new JUnitConfiguration( "\n", "\n\n" ), false ) );
+        // "\n" would be replaced before "\r\n"
+        assertNull( XMLEscaper.create( new JUnitConfiguration( "\n", "1", "\r\n", "2" ), false ) );
+        assertNull( XMLEscaper.create( new JUnitConfiguration( "\n\r", "1", "\r\n", "2" ), false ) );
+        assertNotNull( XMLEscaper.create( new JUnitConfiguration( "\r\n", "1", "\n", "2" ), false ) );
+    }
+
+    private static class ODTConfiguration
+        extends AbstractTemplateEngineConfiguration
+    {
+
+        @Override
+        protected void populate( Collection<ReplaceText> replacment )
+        {
+            replacment.add( new ReplaceText( "\r\n", "<text:line-break />" ) );
+            replacment.add( new ReplaceText( "\n", "<text:line-break />" ) );
+            replacment.add( new ReplaceText( "\t", "<text:tab />" ) );
+        }
+    }
+
+    private static class JUnitConfiguration
+        extends AbstractTemplateEngineConfiguration
+    {
+
+        private final String[] texts;
+
+        public JUnitConfiguration( String... texts )
+        {
+            this.texts = texts;
+        }
+
+        @Override
+        protected void populate( Collection<ReplaceText> replacment )
+        {
+            for ( int i = 0; i < texts.length; i += 2 )
+            {
+                replacment.add( new ReplaceText( texts[i], texts[i + 1] ) );
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.template.formatter;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import fr.opensagres.xdocreport.core.document.SyntaxKind;
+
+public class FieldsMetadataFreezeTestCase
+{
+
+    @Test
+    public void snapshotIsCachedUntilModified()
+    {
+        FieldsMetadata metadata = new FieldsMetadata();
+        metadata.addFieldAsList( "developers.Name" );
+
+        FieldsMetadata snapshot = metadata.freeze();
+        Assert.assertTrue( snapshot.isFrozen() );
+        Assert.assertFalse( metadata.isFrozen() );
+        Assert.assertSame( snapshot, metadata.freeze() );
+        Assert.assertSame( snapshot, snapshot.freeze() );
+
+        // add the same field again doesn't modify the metadata
+        metadata.addFieldAsList( "developers.Name" );
+        Assert.assertSame( snapshot, metadata.freeze() );
+
+        metadata.addFieldAsList( "developers.Mail" );
+        FieldsMetadata newSnapshot = metadata.freeze();
+        Assert.assertNotSame( snapshot, newSnapshot );
+        Assert.assertEquals( Arrays.asList( "developers.Name" ), snapshot.getFieldsAsList() );
+        Assert.assertEquals( metadata.getFieldsAsList(), newSnapshot.getFieldsAsList() );
+        Assert.assertEquals( 2, newSnapshot.getFieldsAsList().size() );
+    }
+
+    @Test
+    public void snapshotIsIndexed()
+    {
+        FieldsMetadata metadata = new FieldsMetadata();
+        metadata.addFieldAsList( "developers.Name" );
+        metadata.addFieldAsImage( "logo", "project.Logo" );
+        metadata.addFieldAsTextStyling( "project.Description", SyntaxKind.Html );
+        metadata.addFieldReplacement( "d.Name", "developers.Name" );
+
+        FieldsMetadata snapshot = metadata.freeze();
+        Assert.assertEquals( 3, snapshot.getFields().size() );
+        Assert.assertTrue( snapshot.isFieldAsList( "developers.Name" ) );
+        Assert.assertFalse( snapshot.isFieldAsList( "project.Logo" ) );
+        Assert.assertTrue( snapshot.isFieldAsImage( "logo" ) );
+        Assert.assertTrue( snapshot.hasFieldsAsImage() );
+        Assert.assertEquals( "project.Logo", snapshot.getImageFieldName( "logo" ) );
+        Assert.assertSame( snapshot.getFieldAsImage( "logo" ), snapshot.getFieldsAsImage().iterator().next() );
+        Assert.assertNotSame( metadata.getFieldAsImage( "logo" ), snapshot.getFieldAsImage( "logo" ) );
+        Assert.assertEquals( "project.Description",
+                             snapshot.getFieldAsTextStyling( "$project.Description" ).getFieldName() );
+        Assert.assertEquals( "developers.Name",
+                             snapshot.getFieldsAsListMatcher().getFirstFieldName( "$developers.Name" ) );
+        Assert.assertEquals( "$developers.Name", snapshot.customFormat( "$d.Name", null ) );
+
+        // the builder modifications are not visible in the snapshot
+        metadata.addFieldReplacement( "p.Name", "project.Name" );
+        metadata.getFieldAsImage( "logo" ).setUseImageSize( true );
+        Assert.assertEquals( "$p.Name", snapshot.customFormat( "$p.Name", null ) );
+        Assert.assertFalse( snapshot.getFieldAsImage( "logo" ).isUseImageSize() );
+        Assert.assertEquals( "$project.Name", metadata.freeze().customFormat( "$p.Name", null ) );
+    }
+
+    @Test
+    public void snapshotCannotBeModified()
+    {
+        FieldsMetadata metadata = new FieldsMetadata( "Velocity" );
+        metadata.addFieldAsImage( "logo", "project.Logo" );
+        FieldsMetadata snapshot = metadata.freeze();
+
+        try
+        {
+            snapshot.addFieldAsList( "developers.Name" );
+            Assert.fail( "Snapshot must be immutable." );
+        }
+        catch ( UnsupportedOperationException e )
+        {
+            // expected
+        }
+        try
+        {
+            snapshot.getFieldAsImage( "logo" ).setBehaviour( NullImageBehaviour.RemoveImageTemplate );
+            Assert.fail( "Snapshot fields must be immutable." );
+        }
+        catch ( UnsupportedOperationException e )
+        {
+            // expected
+        }
+        try
+        {
+            snapshot.setTemplateEngineKind( "Freemarker" );
+            Assert.fail( "Snapshot must be immutable." );
+        }
+        catch ( UnsupportedOperationException e )
+        {
+            // expected
+        }
+        // the same template engine kind is accepted (ex : IXDocReport#setFieldsMetadata)
+        snapshot.setTemplateEngineKind( "Velocity" );
+        Assert.assertEquals( "Velocity", snapshot.getTemplateEngineKind() );
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.template.formatter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import fr.opensagres.xdocreport.core.document.SyntaxKind;
+
+public class FieldsNameMatcherTestCase
+{
+
+    @Test
+    public void getFieldNames()
+    {
+        FieldsNameMatcher matcher =
+            new FieldsNameMatcher( Arrays.asList( "developers.Name", "developers.Mail", "developers", "Name" ) );
+        Assert.assertEquals( Arrays.asList( "developers.Name", "developers", "Name" ),
+                             matcher.getFieldNames( "$developers.Name" ) );
+        Assert.assertEquals( Arrays.asList( "developers.Mail", "developers" ),
+                             matcher.getFieldNames( "${developers.Mail}" ) );
+        Assert.assertTrue( matcher.getFieldNames( "$project.Title" ).isEmpty() );
+        Assert.assertEquals( "developers.Name", matcher.getFirstFieldName( "[#list developers as d]${developers.Name}" ) );
+        Assert.assertEquals( 2, matcher.indexOf( "developers.Nam" ) );
+        Assert.assertEquals( -1, matcher.indexOf( "" ) );
+    }
+
+    @Test
+    public void sameResultAsContains()
+    {
+        Random random = new Random( 0 );
+        // fields name are unique like in FieldsMetadata
+        Set<String> fieldNames = new LinkedHashSet<String>();
+        for ( int i = 0; i < 200; i++ )
+        {
+            fieldNames.add( randomText( random, 1 + random.nextInt( 6 ) ) );
+        }
+        FieldsNameMatcher matcher = new FieldsNameMatcher( fieldNames );
+        for ( int i = 0; i < 1000; i++ )
+        {
+            String content = randomText( random, random.nextInt( 30 ) );
+            List<String> expected = new ArrayList<String>();
+            for ( String fieldName : fieldNames )
+            {
+                if ( content.contains( fieldName ) )
+                {
+                    expected.add( fieldName );
+                }
+            }
+            Assert.assertEquals( content, expected, matcher.getFieldNames( content ) );
+            Assert.assertEquals( content, expected.isEmpty() ? null : expected.get( 0 ),
+                                 matcher.getFirstFieldName( content ) );
+        }
+    }
+
+    @Test
+    public void fieldsMetadataUpdatesMatchers()
+    {
+        FieldsMetadata metadata = new FieldsMetadata();
+        metadata.addFieldAsList( "developers.Name" );
+        Assert.assertEquals( Arrays.asList( "developers.Name" ),
+                             metadata.getFieldsAsListMatcher().getFieldNames( "$developers.Name" ) );
+        Assert.assertNull( metadata.getFieldAsTextStyling( "$comments" ) );
+
+        metadata.addFieldAsList( "developers.Name.First" );
+        metadata.addFieldAsTextStyling( "comments", SyntaxKind.Html );
+        Assert.assertEquals( Arrays.asList( "developers.Name.First", "developers.Name" ),
+                             metadata.getFieldsAsListMatcher().getFieldNames( "$developers.Name.First" ) );
+        Assert.assertEquals( "comments", metadata.getFieldAsTextStyling( "$comments" ).getFieldName() );
+    }
+
+    private static String randomText( Random random, int length )
+    {
+        StringBuilder text = new StringBuilder( length );
+        for ( int i = 0; i < length; i++ )
+        {
+            text.append( (char) ( 'a' + random.nextInt( 3 ) ) );
+        }
+        return text.toString();
+    }
+}
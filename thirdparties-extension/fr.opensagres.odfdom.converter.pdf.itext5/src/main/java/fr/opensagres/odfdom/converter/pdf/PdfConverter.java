@@ -40,6 +40,8 @@ import fr.opensagres.odfdom.converter.core.IODFConverter;
 import fr.opensagres.odfdom.converter.core.ODFConverterException;
 import fr.opensagres.odfdom.converter.pdf.internal.ElementVisitorForIText;
 import fr.opensagres.odfdom.converter.pdf.internal.StyleEngineForIText;
+import fr.opensagres.xdocreport.core.pool.ByteArrayOutputStreamFactory;
+import fr.opensagres.xdocreport.core.pool.IObjectPool;
 
 public class PdfConverter
     extends AbstractODFConverter<PdfOptions>
@@ -47,6 +49,9 @@ public class PdfConverter
 
     private static final IODFConverter<PdfOptions> INSTANCE = new PdfConverter();
 
+    // the in-memory PDF buffers are reused between conversions
+    private static final IObjectPool<ByteArrayOutputStream> BUFFER_POOL = ByteArrayOutputStreamFactory.createPool();
+
     public static IODFConverter<PdfOptions> getInstance()
     {
         return INSTANCE;
@@ -56,20 +61,21 @@ public class PdfConverter
     protected void doConvert( OdfDocument odfDocument, OutputStream out, Writer writer, PdfOptions options )
         throws ODFConverterException, IOException
     {
+        ByteArrayOutputStream pooledOut = BUFFER_POOL.borrow();
         try
         {
             // process styles
             StyleEngineForIText styleEngine = processStyles( odfDocument, options );
 
             // process content
-            ByteArrayOutputStream tempOut = new ByteArrayOutputStream();
+            ByteArrayOutputStream tempOut = pooledOut;
             ElementVisitorForIText visitorForIText = processBody( odfDocument, tempOut, styleEngine, options, null );
             Integer expectedPageCount = visitorForIText.getExpectedPageCount();
             int actualPageCount = visitorForIText.getActualPageCount();
             if ( expectedPageCount == null || expectedPageCount == actualPageCount )
             {
                 // page count not required or correct, copy temp stream to output stream
-                out.write( tempOut.toByteArray() );
+                tempOut.writeTo( out );
                 out.close();
             }
             else
@@ -83,6 +89,10 @@ public class PdfConverter
                e.printStackTrace();
             throw new ODFConverterException( e );
         }
+        finally
+        {
+            BUFFER_POOL.release( pooledOut );
+        }
     }
 
     private StyleEngineForIText processStyles( OdfDocument odfDocument, PdfOptions options )
@@ -26,6 +26,7 @@ package fr.opensagres.odfdom.converter.pdf.internal;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -106,6 +107,7 @@ import fr.opensagres.odfdom.converter.pdf.internal.styles.StyleTableProperties;
 import fr.opensagres.odfdom.converter.pdf.internal.styles.StyleTableRowProperties;
 import fr.opensagres.odfdom.converter.pdf.internal.styles.StyleTextProperties;
 import fr.opensagres.xdocreport.itext.extension.PageOrientation;
+import fr.opensagres.xdocreport.itext.extension.font.IFontProvider;
 import fr.opensagres.xdocreport.utils.BorderType;
 import fr.opensagres.xdocreport.utils.StringUtils;
 
@@ -131,10 +133,16 @@ public class StyleEngineForIText
 
     private final Map<String, Style> stylesMap = new HashMap<String, Style>();
 
+    // computed styles (default + parent element + current style) per parent element style instance and style id
+    private final Map<Style, Map<String, Style>> computedStylesMap = new IdentityHashMap<Style, Map<String, Style>>();
+
+    private final IFontProvider fontProvider;
+
     public StyleEngineForIText( OdfDocument odfDocument, PdfOptions options )
     {
         super( odfDocument );
         this.options = options != null ? options : PdfOptions.getDefault();
+        this.fontProvider = new CachedFontProvider( this.options.getFontProvider() );
     }
 
     public void visit( OfficeStylesElement ele )
@@ -206,7 +214,7 @@ public class StyleEngineForIText
         }
 
         // 3) Create style
-        style = new Style( options.getFontProvider(), styleName, familyName, masterPageName );
+        style = new Style( fontProvider, styleName, familyName, masterPageName );
 
         // 4) Apply default style if needed
         // Style defaultStyle = null;
@@ -251,6 +259,7 @@ public class StyleEngineForIText
 
         // 7) register style in the cache
         stylesMap.put( styleId, style );
+        computedStylesMap.clear();
         return style;
     }
 
@@ -754,7 +763,7 @@ public class StyleEngineForIText
         StyleTextProperties textProperties = currentStyle.getTextProperties();
         if ( textProperties == null )
         {
-            textProperties = new StyleTextProperties( options.getFontProvider() );
+            textProperties = new StyleTextProperties( fontProvider );
             currentStyle.setTextProperties( textProperties );
         }
 
@@ -1738,17 +1747,34 @@ public class StyleEngineForIText
         return className.toString();
     }
 
-    private Style getStyle( String familyName, String styleName )
+    /**
+     * Returns the style computed from the default styles, the given parent element style and the style of the given
+     * name. The computed style is cached per parent element style, so the returned style must not be modified.
+     */
+    public Style getStyle( String familyName, String styleName, Style parentElementStyle )
     {
-        return stylesMap.get( getStyleId( familyName, styleName ) );
+        String styleId = getStyleId( familyName, styleName );
+        Map<String, Style> computedStyles = computedStylesMap.get( parentElementStyle );
+        if ( computedStyles == null )
+        {
+            computedStyles = new HashMap<String, Style>();
+            computedStylesMap.put( parentElementStyle, computedStyles );
+        }
+        Style computedStyle = computedStyles.get( styleId );
+        if ( computedStyle == null )
+        {
+            computedStyle = createComputedStyle( styleId, parentElementStyle );
+            computedStyles.put( styleId, computedStyle );
+        }
+        return computedStyle;
     }
 
-    public Style getStyle( String familyName, String styleName, Style parentElementStyle )
+    private Style createComputedStyle( String styleId, Style parentElementStyle )
     {
         String newStyleName = null;
         String newFamilyName = null;
         String newMasterPageName = null;
-        Style style = getStyle( familyName, styleName );
+        Style style = stylesMap.get( styleId );
         if ( style != null )
         {
             newStyleName = style.getStyleName();
@@ -1766,7 +1792,7 @@ public class StyleEngineForIText
         // 1 default style
         // 2 parent element style
         // 3 current style
-        Style newStyle = new Style( options.getFontProvider(), newStyleName, newFamilyName, newMasterPageName );
+        Style newStyle = new Style( fontProvider, newStyleName, newFamilyName, newMasterPageName );
         if ( parentElementStyle != null )
         {
             // parent element style contains default style
@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.odfdom.converter.pdf.internal;
+
+import java.awt.Color;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.lowagie.text.Font;
+
+import fr.opensagres.xdocreport.itext.extension.font.IFontProvider;
+
+/**
+ * {@link IFontProvider} which memoizes the fonts of the wrapped provider for one document. A copy of the memoized font
+ * is returned because the stylable elements update the style of the font (underline, strikethru).
+ */
+public class CachedFontProvider
+    implements IFontProvider
+{
+
+    private final IFontProvider fontProvider;
+
+    private final Map<String, Font> fonts;
+
+    public CachedFontProvider( IFontProvider fontProvider )
+    {
+        this.fontProvider = fontProvider;
+        this.fonts = new HashMap<String, Font>();
+    }
+
+    public Font getFont( String familyName, String encoding, float size, int style, Color color )
+    {
+        String key = getKey( familyName, encoding, size, style, color );
+        Font font = fonts.get( key );
+        if ( font == null )
+        {
+            font = fontProvider.getFont( familyName, encoding, size, style, color );
+            if ( font == null )
+            {
+                return null;
+            }
+            fonts.put( key, font );
+        }
+        return new Font( font );
+    }
+
+    private static String getKey( String familyName, String encoding, float size, int style, Color color )
+    {
+        StringBuilder key = new StringBuilder();
+        key.append( familyName );
+        key.append( '|' );
+        key.append( encoding );
+        key.append( '|' );
+        key.append( Float.floatToIntBits( size ) );
+        key.append( '|' );
+        key.append( style );
+        key.append( '|' );
+        if ( color != null )
+        {
+            key.append( color.getRGB() );
+        }
+        return key.toString();
+    }
+}
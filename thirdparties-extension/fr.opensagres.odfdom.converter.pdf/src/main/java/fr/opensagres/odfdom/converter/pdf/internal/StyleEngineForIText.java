@@ -26,6 +26,7 @@ package fr.opensagres.odfdom.converter.pdf.internal;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -107,6 +108,7 @@ import fr.opensagres.odfdom.converter.pdf.internal.styles.StyleTableProperties;
 import fr.opensagres.odfdom.converter.pdf.internal.styles.StyleTableRowProperties;
 import fr.opensagres.odfdom.converter.pdf.internal.styles.StyleTextProperties;
 import fr.opensagres.xdocreport.itext.extension.PageOrientation;
+import fr.opensagres.xdocreport.itext.extension.font.IFontProvider;
 import fr.opensagres.xdocreport.utils.BorderType;
 import fr.opensagres.xdocreport.utils.StringUtils;
 
@@ -134,10 +136,16 @@ public class StyleEngineForIText
 
     private final Map<String, Style> stylesMap = new HashMap<String, Style>();
 
+    // computed styles (default + parent element + current style) per parent element style instance and style id
+    private final Map<Style, Map<String, Style>> computedStylesMap = new IdentityHashMap<Style, Map<String, Style>>();
+
+    private final IFontProvider fontProvider;
+
     public StyleEngineForIText( OdfDocument odfDocument, PdfOptions options )
     {
         super(odfDocument);
         this.options = options != null ? options : PdfOptions.getDefault();
+        this.fontProvider = new CachedFontProvider( this.options.getFontProvider() );
     }
 
     public BackgroundImage getBackgroundImage() {
@@ -247,7 +255,7 @@ public class StyleEngineForIText
         }
 
         // 3) Create style
-        style = new Style( options.getFontProvider(), styleName, familyName, masterPageName );
+        style = new Style( fontProvider, styleName, familyName, masterPageName );
 
         // 4) Apply default style if needed
         // Style defaultStyle = null;
@@ -292,6 +300,7 @@ public class StyleEngineForIText
 
         // 7) register style in the cache
         stylesMap.put( styleId, style );
+        computedStylesMap.clear();
         return style;
     }
 
@@ -801,7 +810,7 @@ public class StyleEngineForIText
         StyleTextProperties textProperties = currentStyle.getTextProperties();
         if ( textProperties == null )
         {
-            textProperties = new StyleTextProperties( options.getFontProvider() );
+            textProperties = new StyleTextProperties( fontProvider );
             currentStyle.setTextProperties( textProperties );
         }
 
@@ -1785,17 +1794,34 @@ public class StyleEngineForIText
         return className.toString();
     }
 
-    private Style getStyle( String familyName, String styleName )
+    /**
+     * Returns the style computed from the default styles, the given parent element style and the style of the given
+     * name. The computed style is cached per parent element style, so the returned style must not be modified.
+     */
+    public Style getStyle( String familyName, String styleName, Style parentElementStyle )
     {
-        return stylesMap.get( getStyleId( familyName, styleName ) );
+        String styleId = getStyleId( familyName, styleName );
+        Map<String, Style> computedStyles = computedStylesMap.get( parentElementStyle );
+        if ( computedStyles == null )
+        {
+            computedStyles = new HashMap<String, Style>();
+            computedStylesMap.put( parentElementStyle, computedStyles );
+        }
+        Style computedStyle = computedStyles.get( styleId );
+        if ( computedStyle == null )
+        {
+            computedStyle = createComputedStyle( styleId, parentElementStyle );
+            computedStyles.put( styleId, computedStyle );
+        }
+        return computedStyle;
     }
 
-    public Style getStyle( String familyName, String styleName, Style parentElementStyle )
+    private Style createComputedStyle( String styleId, Style parentElementStyle )
     {
         String newStyleName = null;
         String newFamilyName = null;
         String newMasterPageName = null;
-        Style style = getStyle( familyName, styleName );
+        Style style = stylesMap.get( styleId );
         if ( style != null )
         {
             newStyleName = style.getStyleName();
@@ -1813,7 +1839,7 @@ public class StyleEngineForIText
         // 1 default style
         // 2 parent element style
         // 3 current style
-        Style newStyle = new Style( options.getFontProvider(), newStyleName, newFamilyName, newMasterPageName );
+        Style newStyle = new Style( fontProvider, newStyleName, newFamilyName, newMasterPageName );
         if ( parentElementStyle != null )
         {
             // parent element style contains default style
@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.odfdom.converter.pdf.internal;
+
+import java.awt.Color;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.odftoolkit.odfdom.doc.OdfTextDocument;
+
+import com.lowagie.text.Font;
+
+import fr.opensagres.odfdom.converter.pdf.PdfOptions;
+import fr.opensagres.odfdom.converter.pdf.internal.styles.Style;
+import fr.opensagres.xdocreport.itext.extension.font.IFontProvider;
+
+/**
+ * Tests for the fonts and computed styles which are cached while a document is converted.
+ */
+public class StyleCacheTestCase
+{
+
+    private static class CountingFontProvider
+        implements IFontProvider
+    {
+
+        private int count;
+
+        public Font getFont( String familyName, String encoding, float size, int style, Color color )
+        {
+            count++;
+            if ( "Unknown".equals( familyName ) )
+            {
+                return null;
+            }
+            return new Font( Font.HELVETICA, size, style, color );
+        }
+    }
+
+    @Test
+    public void fontIsLoadedOncePerKey()
+    {
+        CountingFontProvider provider = new CountingFontProvider();
+        CachedFontProvider cachedProvider = new CachedFontProvider( provider );
+
+        Font font1 = cachedProvider.getFont( "Arial", "Cp1252", 12f, Font.NORMAL, Color.BLACK );
+        Font font2 = cachedProvider.getFont( "Arial", "Cp1252", 12f, Font.NORMAL, Color.BLACK );
+        Assert.assertEquals( 1, provider.count );
+
+        cachedProvider.getFont( "Arial", "Cp1252", 14f, Font.NORMAL, Color.BLACK );
+        cachedProvider.getFont( "Arial", "Cp1252", 12f, Font.BOLD, Color.BLACK );
+        cachedProvider.getFont( "Arial", "Cp1252", 12f, Font.NORMAL, Color.RED );
+        Assert.assertEquals( 4, provider.count );
+
+        // each call returns a copy, updating one font must not change the cached one.
+        Assert.assertNotSame( font1, font2 );
+        font1.setStyle( Font.UNDERLINE );
+        Font font3 = cachedProvider.getFont( "Arial", "Cp1252", 12f, Font.NORMAL, Color.BLACK );
+        Assert.assertEquals( Font.NORMAL, font2.getStyle() );
+        Assert.assertEquals( Font.NORMAL, font3.getStyle() );
+        Assert.assertEquals( 4, provider.count );
+    }
+
+    @Test
+    public void nullFontIsNotCached()
+    {
+        CountingFontProvider provider = new CountingFontProvider();
+        CachedFontProvider cachedProvider = new CachedFontProvider( provider );
+
+        Assert.assertNull( cachedProvider.getFont( "Unknown", "Cp1252", 12f, Font.NORMAL, null ) );
+        Assert.assertNull( cachedProvider.getFont( "Unknown", "Cp1252", 12f, Font.NORMAL, null ) );
+        Assert.assertEquals( 2, provider.count );
+    }
+
+    @Test
+    public void computedStyleIsCachedPerParentStyle()
+        throws Exception
+    {
+        OdfTextDocument document = OdfTextDocument.newTextDocument();
+        StyleEngineForIText styleEngine = new StyleEngineForIText( document, PdfOptions.create() );
+        document.getStylesDom().getOfficeStyles().accept( styleEngine );
+
+        Style style = styleEngine.getStyle( "paragraph", "Standard", null );
+        Assert.assertSame( style, styleEngine.getStyle( "paragraph", "Standard", null ) );
+
+        Style childStyle = styleEngine.getStyle( "text", "Standard", style );
+        Assert.assertSame( childStyle, styleEngine.getStyle( "text", "Standard", style ) );
+        Assert.assertNotSame( style, childStyle );
+    }
+}
@@ -33,7 +33,6 @@ import java.util.Collection;
 import java.util.List;
 import javax.activation.MimetypesFileTypeMap;
 
-import fr.opensagres.xdocreport.core.utils.Base64Utility;
 import org.odftoolkit.odfdom.doc.OdfDocument;
 import org.odftoolkit.odfdom.dom.element.OdfStylableElement;
 import org.odftoolkit.odfdom.dom.element.draw.DrawFrameElement;
@@ -70,7 +69,6 @@ import fr.opensagres.odfdom.converter.core.IURIResolver;
 import fr.opensagres.odfdom.converter.core.utils.ODFUtils;
 import fr.opensagres.odfdom.converter.core.utils.StringUtils;
 import fr.opensagres.odfdom.converter.xhtml.XHTMLOptions;
-import fr.opensagres.xdocreport.xhtml.extension.StringEscapeUtils;
 import fr.opensagres.xdocreport.xhtml.extension.XHTMLConstants;
 import fr.opensagres.xdocreport.xhtml.extension.XHTMLPageContentBuffer;
 
@@ -476,16 +474,12 @@ public class ElementVisitorForXHTML
         Collection<String> attributes = new ArrayList<String>();
 
         // src
+        String base64Prefix = null;
         if( exportImageAsBase64 && imageStream != null )
         {
+            // the base64 content is written directly in the XHTML content once the img element is started
             String mimeType = new MimetypesFileTypeMap().getContentType( new File( href ) );
-            StringBuilder src = new StringBuilder();
-            src.append( DATA_ATTR_TAG );
-            src.append( mimeType + ";base64,");
-            src.append( Base64Utility.encode( imageStream ) );
-
-            attributes.add( SRC_ATTR );
-            attributes.add( src.toString() );
+            base64Prefix = DATA_ATTR_TAG + mimeType + ";base64,";
         }
         else
         {
@@ -525,7 +519,17 @@ public class ElementVisitorForXHTML
             attributes.add( styleAttr.toString() );
         }
 
-        visit( IMG_ELEMENT, ele, null, null, attributes.toArray( StringUtils.EMPTY_STRING_ARRAY ) );
+        if ( base64Prefix != null )
+        {
+            startVisit( IMG_ELEMENT, ele, attributes.toArray( StringUtils.EMPTY_STRING_ARRAY ) );
+            currentXHTMLContent.setBase64Attribute( SRC_ATTR, base64Prefix, imageStream );
+            xhtml.getStyleEngine().applyStyles( null, null, currentXHTMLContent );
+            endVisit( IMG_ELEMENT, ele );
+        }
+        else
+        {
+            visit( IMG_ELEMENT, ele, null, null, attributes.toArray( StringUtils.EMPTY_STRING_ARRAY ) );
+        }
     }
 
     // ---------------------- visit text:line-break
@@ -626,7 +630,7 @@ public class ElementVisitorForXHTML
         if ( StringUtils.isNotEmpty( content ) )
         {
             // Escape with HTML characters
-            currentXHTMLContent.setText( StringEscapeUtils.escapeHtml( content ) );
+            currentXHTMLContent.setEscapedText( content );
         }
         else
         {
@@ -26,6 +26,7 @@ package fr.opensagres.odfdom.converter.xhtml;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Writer;
 
 import org.odftoolkit.odfdom.doc.OdfDocument;
@@ -96,18 +97,17 @@ public class XHTMLConverter
             OdfOfficeMasterStyles masterStyles = odfDocument.getOfficeMasterStyles();
             masterStyles.accept( visitorForXHTML );
 
+            // 2.2) Write the head (CSS styles are known since 1)) and the
+            // header, and stream the body content while visiting content.xml
+            Writer pageWriter = writer != null ? writer : new OutputStreamWriter( out, "UTF-8" );
+            xhtml.startStreaming( pageWriter );
+
             // 2) Compute meta
             // TODO
             odfDocument.getContentRoot().accept( visitorForXHTML );
 
-            if ( writer != null )
-            {
-                xhtml.save( writer );
-            }
-            else
-            {
-                xhtml.save( out );
-            }
+            // 2.3) Write the end of the body content and the footer
+            xhtml.endStreaming( pageWriter );
 
         }
         catch ( Exception e )
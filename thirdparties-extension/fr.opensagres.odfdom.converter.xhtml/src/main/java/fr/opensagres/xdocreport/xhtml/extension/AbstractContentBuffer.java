@@ -38,11 +38,67 @@ public abstract class AbstractContentBuffer
         this.indent = indent;
     }
 
+    /**
+     * Size of the char array used to copy a buffer to a writer.
+     */
+    private static final int WRITE_CHUNK_SIZE = 4096;
+
     public void setText( String content )
     {
         getCurrentBuffer().append( content );
     }
 
+    /**
+     * Escapes the given text with HTML entities and appends it to the buffer character per character, without
+     * building an escaped String.
+     * 
+     * @param content the text to escape.
+     */
+    public void setEscapedText( String content )
+    {
+        StringBuilder buffer = getCurrentBuffer();
+        int length = content.length();
+        for ( int i = 0; i < length; i++ )
+        {
+            char c = content.charAt( i );
+            String entityName = StringEscapeUtils.Entities.HTML40.entityName( c );
+            if ( entityName == null )
+            {
+                buffer.append( c );
+            }
+            else
+            {
+                buffer.append( '&' ).append( entityName ).append( ';' );
+            }
+        }
+    }
+
+    /**
+     * Writes the content of the given buffer to the writer by chunks, without building a String.
+     */
+    protected static void write( StringBuilder buffer, Writer writer )
+        throws IOException
+    {
+        write( buffer, writer, new char[Math.min( buffer.length(), WRITE_CHUNK_SIZE )] );
+    }
+
+    /**
+     * Writes the content of the given buffer to the writer by using the given char array to copy the characters.
+     */
+    protected static void write( StringBuilder buffer, Writer writer, char[] chunk )
+        throws IOException
+    {
+        int length = buffer.length();
+        int offset = 0;
+        while ( offset < length )
+        {
+            int count = Math.min( chunk.length, length - offset );
+            buffer.getChars( offset, offset + count, chunk, 0 );
+            writer.write( chunk, 0, count );
+            offset += count;
+        }
+    }
+
     protected void doIndentIfNeeded( StringBuilder buffer, int index )
     {
         if ( indent > 0 )
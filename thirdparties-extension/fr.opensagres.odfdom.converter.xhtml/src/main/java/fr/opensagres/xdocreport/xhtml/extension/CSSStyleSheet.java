@@ -61,7 +61,7 @@ public class CSSStyleSheet
     public void save( Writer writer )
         throws IOException
     {
-        writer.write( cssStyles.toString() );
+        write( cssStyles, writer );
     }
 
     public void save( OutputStream out )
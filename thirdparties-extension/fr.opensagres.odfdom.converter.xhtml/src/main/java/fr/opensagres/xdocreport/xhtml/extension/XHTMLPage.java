@@ -62,6 +62,37 @@ public class XHTMLPage
 
     }
 
+    /**
+     * Write the page content which is before the body content (head with CSS styles and body header) and switch the
+     * body content to streaming mode : the body is written to the writer while it is generated and is never buffered
+     * entirely. {@link #endStreaming(Writer)} must be called once the body content is generated.
+     * 
+     * @param writer the writer where the page must be written.
+     * @throws IOException
+     */
+    public void startStreaming( Writer writer )
+        throws IOException
+    {
+        getPageBeforeBody().save( writer );
+        getPageBodyContentHeader().save( writer );
+        getPageBodyContentBody().setWriter( writer );
+    }
+
+    /**
+     * Write the end of the body content and the page content which is after the body content (body footer).
+     * 
+     * @param writer the writer where the page must be written.
+     * @throws IOException
+     */
+    public void endStreaming( Writer writer )
+        throws IOException
+    {
+        getPageBodyContentBody().flush();
+        getPageBodyContentFooter().save( writer );
+        getPageAfterBody().save( writer );
+        writer.flush();
+    }
+
     public void save( OutputStream out )
         throws IOException
     {
@@ -29,26 +29,80 @@ import java.io.OutputStream;
 import java.io.StringWriter;
 import java.io.Writer;
 
+import fr.opensagres.odfdom.converter.core.ODFConverterException;
+import fr.opensagres.xdocreport.core.utils.Base64Utility;
+
 public abstract class XHTMLPageContentBuffer
     extends AbstractContentBuffer
     implements XHTMLConstants
 {
 
+    /**
+     * Size of the buffer from which the content is flushed to the writer in streaming mode.
+     */
+    private static final int FLUSH_THRESHOLD = 8192;
+
     protected StringBuilder currentBuffer = null;
 
     protected int currentElementIndex;
 
+    // writer used in streaming mode, null if the whole content is buffered.
+    private Writer writer;
+
+    private char[] flushChunk;
+
     public XHTMLPageContentBuffer( int indent )
     {
         super( indent );
         this.currentBuffer = new StringBuilder();
     }
 
+    /**
+     * Switch to streaming mode : the content already buffered and the content added after this call is written to the
+     * given writer as soon as the buffer exceeds {@link #FLUSH_THRESHOLD} characters, so the buffer never holds the
+     * whole content. {@link #flush()} must be called at the end to write the remaining content.
+     * 
+     * @param writer the writer where the content must be streamed.
+     */
+    public void setWriter( Writer writer )
+    {
+        this.writer = writer;
+        this.flushChunk = new char[FLUSH_THRESHOLD];
+    }
+
+    /**
+     * Write the buffered content to the writer when streaming mode is enabled.
+     */
+    public void flush()
+    {
+        if ( writer != null && currentBuffer.length() > 0 )
+        {
+            try
+            {
+                write( currentBuffer, writer, flushChunk );
+            }
+            catch ( IOException e )
+            {
+                throw new ODFConverterException( e );
+            }
+            currentBuffer.setLength( 0 );
+        }
+    }
+
+    protected void flushIfNeeded()
+    {
+        if ( writer != null && currentBuffer.length() >= FLUSH_THRESHOLD )
+        {
+            flush();
+        }
+    }
+
     public void startEndElement( String elementName )
     {
         startElementNotEnclosed( elementName );
         currentBuffer.append( '/' );
         currentBuffer.append( '>' );
+        flushIfNeeded();
     }
 
     public void startElement( String elementName )
@@ -66,6 +120,7 @@ public abstract class XHTMLPageContentBuffer
     public void endElementNotEnclosed()
     {
         getCurrentBuffer().append( '>' );
+        flushIfNeeded();
     }
 
     public XHTMLPageContentBuffer setAttribute( String name, String value )
@@ -80,6 +135,33 @@ public abstract class XHTMLPageContentBuffer
         return this;
     }
 
+    /**
+     * Set an attribute whose value is the given prefix followed with the base64 content of the given data. The base64
+     * content is appended by chunks and is never materialized as String.
+     */
+    public XHTMLPageContentBuffer setBase64Attribute( String name, String prefix, byte[] data )
+    {
+        startAttribute( name ).addAttributeValue( prefix, true );
+        if ( writer != null )
+        {
+            // streaming mode, write the base64 content directly to the writer
+            flush();
+            try
+            {
+                Base64Utility.encode( data, writer );
+            }
+            catch ( IOException e )
+            {
+                throw new ODFConverterException( e );
+            }
+        }
+        else
+        {
+            Base64Utility.encode( data, getCurrentBuffer() );
+        }
+        return endAttribute();
+    }
+
     public XHTMLPageContentBuffer addAttributeValue( String value, boolean firstValue )
     {
         if ( !firstValue )
@@ -142,6 +224,7 @@ public abstract class XHTMLPageContentBuffer
     {
         currentElementIndex--;
         endElement( elementName, getCurrentBuffer(), currentElementIndex );
+        flushIfNeeded();
     }
 
     protected StringBuilder endElement( String elementName, StringBuilder buffer, int index )
@@ -183,7 +266,7 @@ public abstract class XHTMLPageContentBuffer
     public void save( Writer writer )
         throws IOException
     {
-        writer.write( getCurrentBuffer().toString() );
+        write( getCurrentBuffer(), writer );
     }
 
     public void save( OutputStream out )
@@ -319,6 +319,16 @@ public class MasterPageManager
         }
     }
 
+    /**
+     * Returns true if the document uses different headers/footers for even and odd pages and false otherwise.
+     *
+     * @return
+     */
+    public boolean isEvenAndOddHeaders()
+    {
+        return evenAndOddHeaders;
+    }
+
     /**
      * Returns true if <w:evenAndOddHeaders /> is defined in the word/settings.xml entry and false otherwise.
      *
@@ -338,4 +348,4 @@ public class MasterPageManager
         }
         return XWPFUtils.isCTOnOff( settings.getEvenAndOddHeaders() );
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
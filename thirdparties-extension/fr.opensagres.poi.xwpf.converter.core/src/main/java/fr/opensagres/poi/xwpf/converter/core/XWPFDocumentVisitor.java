@@ -217,6 +217,27 @@ public abstract class XWPFDocumentVisitor<T, O extends Options, E extends IXWPFM
         endVisitDocument();
     }
 
+    /**
+     * Visit only the body elements of the w:body between fromIndex (inclusive) and toIndex (exclusive). The body
+     * elements before the range are not rendered, but the &lt;w:sectPr declared by their paragraphs are activated, so
+     * that the range is rendered with the page size, margins and header/footer of its section.
+     *
+     * @param fromIndex index of the first body element to visit.
+     * @param toIndex index after the last body element to visit.
+     * @throws Exception
+     */
+    public void start( int fromIndex, int toIndex )
+        throws Exception
+    {
+        // start document
+        T container = startVisitDocument();
+        List<IBodyElement> bodyElements = document.getBodyElements();
+        skipBodyElements( bodyElements, fromIndex );
+        visitBodyElements( bodyElements, fromIndex, toIndex, container );
+        // end document
+        endVisitDocument();
+    }
+
     /**
      * Start of visit document.
      *
@@ -239,17 +260,16 @@ public abstract class XWPFDocumentVisitor<T, O extends Options, E extends IXWPFM
     protected void visitBodyElements( List<IBodyElement> bodyElements, T container )
         throws Exception
     {
-        if ( !masterPageManager.isInitialized() )
-        {
-            // master page manager which hosts each <:w;sectPr declared in the word/document.xml
-            // must be initialized. The initialization loop for each
-            // <w:p paragraph to compute a list of <w:sectPr which contains information
-            // about header/footer declared in the <w:headerReference/<w:footerReference
-            masterPageManager.initialize();
-        }
+        visitBodyElements( bodyElements, 0, bodyElements.size(), container );
+    }
+
+    protected void visitBodyElements( List<IBodyElement> bodyElements, int fromIndex, int toIndex, T container )
+        throws Exception
+    {
+        initializeMasterPageManagerIfNeeded();
 
         String previousParagraphStyleName = null;
-        for ( int i = 0; i < bodyElements.size(); i++ )
+        for ( int i = fromIndex; i < toIndex; i++ )
         {
             IBodyElement bodyElement = bodyElements.get( i );
             switch ( bodyElement.getElementType() )
@@ -274,6 +294,70 @@ public abstract class XWPFDocumentVisitor<T, O extends Options, E extends IXWPFM
 
     }
 
+    private void initializeMasterPageManagerIfNeeded()
+        throws Exception
+    {
+        if ( !masterPageManager.isInitialized() )
+        {
+            // master page manager which hosts each <:w;sectPr declared in the word/document.xml
+            // must be initialized. The initialization loop for each
+            // <w:p paragraph to compute a list of <w:sectPr which contains information
+            // about header/footer declared in the <w:headerReference/<w:footerReference
+            masterPageManager.initialize();
+        }
+    }
+
+    /**
+     * Skip the body elements of the w:body before the given index : nothing is rendered, but the master page manager
+     * is updated like if the paragraphs were visited, to activate the section of the body element at the given index.
+     *
+     * @param bodyElements the body elements of the w:body.
+     * @param toIndex index of the first body element which will be visited.
+     * @throws Exception
+     */
+    protected void skipBodyElements( List<IBodyElement> bodyElements, int toIndex )
+        throws Exception
+    {
+        initializeMasterPageManagerIfNeeded();
+        for ( int i = 0; i < toIndex; i++ )
+        {
+            XWPFParagraph paragraph = getFirstParagraph( bodyElements.get( i ) );
+            if ( paragraph != null )
+            {
+                // for a table, only the first paragraph can change the section (paragraph of cells don't declare
+                // <w:sectPr)
+                masterPageManager.update( paragraph.getCTP() );
+            }
+        }
+    }
+
+    private static XWPFParagraph getFirstParagraph( IBodyElement bodyElement )
+    {
+        switch ( bodyElement.getElementType() )
+        {
+            case PARAGRAPH:
+                return (XWPFParagraph) bodyElement;
+            case TABLE:
+                for ( XWPFTableRow row : ( (XWPFTable) bodyElement ).getRows() )
+                {
+                    for ( XWPFTableCell cell : row.getTableCells() )
+                    {
+                        for ( IBodyElement cellElement : cell.getBodyElements() )
+                        {
+                            XWPFParagraph paragraph = getFirstParagraph( cellElement );
+                            if ( paragraph != null )
+                            {
+                                return paragraph;
+                            }
+                        }
+                    }
+                }
+                return null;
+            default:
+                return null;
+        }
+    }
+
     /**
      * @param contents content controls
      */
@@ -26,35 +26,35 @@ package fr.opensagres.poi.xwpf.converter.core.registry;
 
 import fr.opensagres.poi.xwpf.converter.core.Color;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * Color cache used by the XWPF converters. Colors are created out of lock, the first one stored wins.
+ */
 public abstract class AbstractColorRegistry
 {
 
-    private final Map<String, Color> colors = new HashMap<String, Color>();
+    private final ConcurrentMap<String, Color> colors = new ConcurrentHashMap<String, Color>();
 
     public Color getColor( String style )
     {
-        Color color = colors.get( style );
-        if ( color == null )
+        if ( style == null )
         {
-            color = internalCreateColor( style );
+            return createColor( style );
         }
-        return color;
-    }
-
-    private synchronized Color internalCreateColor( String style )
-    {
         Color color = colors.get( style );
-        if ( color != null )
-        {
-            return color;
-        }
-        color = createColor( style );
-        if ( color != null )
+        if ( color == null )
         {
-            colors.put( style, color );
+            color = createColor( style );
+            if ( color != null )
+            {
+                Color existingColor = colors.putIfAbsent( style, color );
+                if ( existingColor != null )
+                {
+                    color = existingColor;
+                }
+            }
         }
         return color;
     }
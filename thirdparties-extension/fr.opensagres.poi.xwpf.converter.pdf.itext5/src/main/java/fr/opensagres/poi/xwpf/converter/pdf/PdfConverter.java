@@ -35,12 +35,17 @@ import fr.opensagres.poi.xwpf.converter.core.AbstractXWPFConverter;
 import fr.opensagres.poi.xwpf.converter.core.IXWPFConverter;
 import fr.opensagres.poi.xwpf.converter.core.XWPFConverterException;
 import fr.opensagres.poi.xwpf.converter.pdf.internal.PdfMapper;
+import fr.opensagres.xdocreport.core.pool.ByteArrayOutputStreamFactory;
+import fr.opensagres.xdocreport.core.pool.IObjectPool;
 
 
 public class PdfConverter extends AbstractXWPFConverter<PdfOptions> {
 
 	private static final IXWPFConverter<PdfOptions> INSTANCE = new PdfConverter();
 
+	// the in-memory PDF buffers are reused between conversions
+	private static final IObjectPool<ByteArrayOutputStream> BUFFER_POOL = ByteArrayOutputStreamFactory.createPool();
+
 	public static IXWPFConverter<PdfOptions> getInstance() {
 		return INSTANCE;
 	}
@@ -49,11 +54,11 @@ public class PdfConverter extends AbstractXWPFConverter<PdfOptions> {
 	protected void doConvert(XWPFDocument document, OutputStream out,
 			Writer writer, PdfOptions options) throws XWPFConverterException,
 			IOException {
+		ByteArrayOutputStream tempOut = BUFFER_POOL.borrow();
 		try {
 			// PdfMapper mapper = new PdfMapper( document, out, options );
 
 			// process content
-			ByteArrayOutputStream tempOut = new ByteArrayOutputStream();
 			PdfMapper mapper = new PdfMapper(document, tempOut, options, null);
 			mapper.start();
 
@@ -65,11 +70,13 @@ public class PdfConverter extends AbstractXWPFConverter<PdfOptions> {
 				mapper = new PdfMapper(document, out, options, actualPageCount);
 				mapper.start();
 			} else {
-				out.write(tempOut.toByteArray());
+				tempOut.writeTo(out);
 			}
 
 		} catch (Exception e) {
 			throw new XWPFConverterException(e);
+		} finally {
+			BUFFER_POOL.release(tempOut);
 		}
 
 	}
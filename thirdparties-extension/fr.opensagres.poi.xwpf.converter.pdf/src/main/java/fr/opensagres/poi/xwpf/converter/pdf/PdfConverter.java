@@ -28,18 +28,25 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Writer;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
 
 import fr.opensagres.poi.xwpf.converter.core.AbstractXWPFConverter;
 import fr.opensagres.poi.xwpf.converter.core.IXWPFConverter;
 import fr.opensagres.poi.xwpf.converter.core.XWPFConverterException;
+import fr.opensagres.poi.xwpf.converter.pdf.internal.ParallelSectionsRenderer;
 import fr.opensagres.poi.xwpf.converter.pdf.internal.PdfMapper;
+import fr.opensagres.xdocreport.core.pool.ByteArrayOutputStreamFactory;
+import fr.opensagres.xdocreport.core.pool.IObjectPool;
 
 public class PdfConverter extends AbstractXWPFConverter<PdfOptions> {
 
 	private static final IXWPFConverter<PdfOptions> INSTANCE = new PdfConverter();
 
+	// the in-memory PDF buffers are reused between conversions
+	private static final IObjectPool<ByteArrayOutputStream> BUFFER_POOL = ByteArrayOutputStreamFactory.createPool();
+
 	public static IXWPFConverter<PdfOptions> getInstance() {
 		return INSTANCE;
 	}
@@ -48,11 +55,26 @@ public class PdfConverter extends AbstractXWPFConverter<PdfOptions> {
 	protected void doConvert(XWPFDocument document, OutputStream out,
 			Writer writer, PdfOptions options) throws XWPFConverterException,
 			IOException {
+		ExecutorService sectionsExecutor = options != null ? options
+				.getSectionsExecutor() : null;
+		if (sectionsExecutor != null) {
+			// render each section in its own PDF and merge them
+			ParallelSectionsRenderer renderer = new ParallelSectionsRenderer(
+					document, options, BUFFER_POOL);
+			try {
+				if (renderer.canRender()
+						&& renderer.render(sectionsExecutor, out)) {
+					return;
+				}
+			} catch (Exception e) {
+				throw new XWPFConverterException(e);
+			}
+		}
+		ByteArrayOutputStream tempOut = BUFFER_POOL.borrow();
 		try {
 			// PdfMapper mapper = new PdfMapper( document, out, options );
 
 			// process content
-			ByteArrayOutputStream tempOut = new ByteArrayOutputStream();
 			PdfMapper mapper = new PdfMapper(document, tempOut, options, null);
 			mapper.start();
 
@@ -64,11 +86,13 @@ public class PdfConverter extends AbstractXWPFConverter<PdfOptions> {
 				mapper = new PdfMapper(document, out, options, actualPageCount);
 				mapper.start();
 			} else {
-				out.write(tempOut.toByteArray());
+				tempOut.writeTo(out);
 			}
 
 		} catch (Exception e) {
 			throw new XWPFConverterException(e);
+		} finally {
+			BUFFER_POOL.release(tempOut);
 		}
 
 	}
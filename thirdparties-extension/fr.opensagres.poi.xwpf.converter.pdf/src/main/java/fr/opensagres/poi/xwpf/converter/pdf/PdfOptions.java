@@ -24,6 +24,8 @@
  */
 package fr.opensagres.poi.xwpf.converter.pdf;
 
+import java.util.concurrent.ExecutorService;
+
 import com.lowagie.text.pdf.BaseFont;
 import com.lowagie.text.pdf.PdfWriter;
 
@@ -47,6 +49,8 @@ public class PdfOptions
 
     private IPdfWriterConfiguration configuration;
 
+    private ExecutorService sectionsExecutor;
+
     private PdfOptions()
     {
         this.fontEncoding = BaseFont.IDENTITY_H;
@@ -107,6 +111,32 @@ public class PdfOptions
         return fontProvider;
     }
 
+    /**
+     * Set the executor used to render the sections of the document in parallel. Each section which starts on a new
+     * page (&lt;w:sectPr without continuous type) is rendered in its own PDF, and the PDF are merged at the end with
+     * the page numbers fixed. Sections must be independent : bookmarks, internal hyperlinks and list numbering are
+     * not shared between sections. If null (default), the document is rendered sequentially.
+     * 
+     * @param sectionsExecutor the executor used to render the sections or null.
+     * @return this instance
+     */
+    public PdfOptions sectionsExecutor( ExecutorService sectionsExecutor )
+    {
+        this.sectionsExecutor = sectionsExecutor;
+        return this;
+    }
+
+    /**
+     * Returns the executor used to render the sections of the document in parallel and null if the document must be
+     * rendered sequentially.
+     * 
+     * @return
+     */
+    public ExecutorService getSectionsExecutor()
+    {
+        return sectionsExecutor;
+    }
+
     /**
      * Returns the default Pdf Options.
      * 
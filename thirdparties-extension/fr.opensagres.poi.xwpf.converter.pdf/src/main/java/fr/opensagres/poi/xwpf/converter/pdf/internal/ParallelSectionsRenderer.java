@@ -0,0 +1,456 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.poi.xwpf.converter.pdf.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.poi.xwpf.usermodel.BodyElementType;
+import org.apache.poi.xwpf.usermodel.IBodyElement;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTPPr;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTSectPr;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.pdf.PdfCopy;
+import com.lowagie.text.pdf.PdfReader;
+
+import fr.opensagres.poi.xwpf.converter.core.utils.XWPFUtils;
+import fr.opensagres.poi.xwpf.converter.pdf.PdfOptions;
+import fr.opensagres.xdocreport.core.pool.IObjectPool;
+
+/**
+ * Renders the sections of a DOCX in parallel and merges the PDF of each section.
+ * <p>
+ * The w:body is split before each section which starts on a new page. Each section is rendered by its own
+ * {@link PdfMapper} in a buffer. The XmlBeans graph of a {@link XWPFDocument} cannot be visited by several threads,
+ * so the first section is rendered with the given document and the other sections with a copy of the document,
+ * loaded from the serialized content of the given document. A copy is used by one section at a time and is reused by
+ * the next sections, so there are at most as many copies as threads of the executor. When the document uses page
+ * number or total page count fields, the sections are rendered a second time once the page count of each section is
+ * known, to number the pages like a sequential rendering. At the end, the pages of each buffer are copied in the
+ * output with iText {@link PdfCopy}.
+ * </p>
+ */
+public class ParallelSectionsRenderer
+{
+
+    private final XWPFDocument document;
+
+    private final PdfOptions options;
+
+    private final IObjectPool<ByteArrayOutputStream> bufferPool;
+
+    private final List<Integer> bounds;
+
+    /**
+     * Serialized content of the document, used to load the copies of the document.
+     */
+    private byte[] content;
+
+    /**
+     * Copies of the document which are not used by a section.
+     */
+    private final List<XWPFDocument> freeCopies = new ArrayList<XWPFDocument>();
+
+    /**
+     * All the loaded copies of the document, closed at the end of the rendering.
+     */
+    private final List<XWPFDocument> copies = new ArrayList<XWPFDocument>();
+
+    public ParallelSectionsRenderer( XWPFDocument document, PdfOptions options,
+                                     IObjectPool<ByteArrayOutputStream> bufferPool )
+    {
+        this.document = document;
+        this.options = options;
+        this.bufferPool = bufferPool;
+        this.bounds = getSectionBounds();
+    }
+
+    /**
+     * Returns true if the document has several sections which can be rendered in parallel and false otherwise.
+     *
+     * @return
+     */
+    public boolean canRender()
+    {
+        return bounds.size() > 2;
+    }
+
+    /**
+     * Render the sections in parallel with the given executor and write the merged PDF in the given output stream.
+     *
+     * @param executor
+     * @param out
+     * @return false if the document cannot be rendered by section (the output stream is not used in this case) and
+     *         true otherwise.
+     * @throws Exception
+     */
+    public boolean render( ExecutorService executor, OutputStream out )
+        throws Exception
+    {
+        int nbSections = bounds.size() - 1;
+        List<Section> sections = new ArrayList<Section>( nbSections );
+        try
+        {
+            for ( int i = 0; i < nbSections; i++ )
+            {
+                sections.add( new Section( bounds.get( i ), bounds.get( i + 1 ), bufferPool.borrow() ) );
+            }
+
+            Section firstSection = sections.get( 0 );
+            firstSection.mapper = new PdfMapper( document, firstSection.buffer, options, null );
+            if ( firstSection.mapper.getMasterPageManager().isEvenAndOddHeaders() )
+            {
+                // even/odd headers depend on the parity of the page in the whole document
+                return false;
+            }
+            content = getContent();
+
+            // 1) render each section with the page numbering of a standalone document
+            renderSections( executor, sections, null, null );
+
+            boolean totalPageFieldUsed = false;
+            boolean pageNumberFieldUsed = false;
+            for ( Section section : sections )
+            {
+                totalPageFieldUsed |= section.mapper.useTotalPageField();
+                pageNumberFieldUsed |= section.mapper.usePageNumberField();
+            }
+
+            if ( totalPageFieldUsed || pageNumberFieldUsed )
+            {
+                // 2) compute the number of the last page of each section like PdfWriter does for a sequential
+                // rendering and render again the sections with the right page numbers.
+                int[] pageOffsets = new int[nbSections];
+                int lastPageNumber = firstSection.mapper.getPageCount();
+                for ( int i = 1; i < nbSections; i++ )
+                {
+                    pageOffsets[i] = lastPageNumber;
+                    Integer start = getPageNumberStart( i );
+                    lastPageNumber =
+                        ( start != null ? start.intValue() - 1 : lastPageNumber ) + sections.get( i ).numberOfPages;
+                }
+                Integer expectedPageCount = totalPageFieldUsed ? Integer.valueOf( lastPageNumber ) : null;
+                for ( int i = 0; i < nbSections; i++ )
+                {
+                    if ( i > 0 || totalPageFieldUsed )
+                    {
+                        // the first section is well numbered, render it again only for the total page count
+                        sections.get( i ).reset();
+                    }
+                }
+                renderSections( executor, sections, expectedPageCount, pageOffsets );
+            }
+
+            // 3) merge the PDF of each section
+            merge( sections, out );
+            return true;
+        }
+        finally
+        {
+            for ( Section section : sections )
+            {
+                bufferPool.release( section.buffer );
+            }
+            closeCopies();
+        }
+    }
+
+    /**
+     * Render the sections which are not rendered.
+     */
+    private void renderSections( ExecutorService executor, List<Section> sections, final Integer expectedPageCount,
+                                 final int[] pageOffsets )
+        throws Exception
+    {
+        List<Future<?>> futures = new ArrayList<Future<?>>( sections.size() );
+        for ( int i = 0; i < sections.size(); i++ )
+        {
+            final Section section = sections.get( i );
+            if ( section.rendered )
+            {
+                continue;
+            }
+            final boolean firstSection = i == 0;
+            final Integer pageOffset = pageOffsets != null && i > 0 ? Integer.valueOf( pageOffsets[i] ) : null;
+            futures.add( executor.submit( new Callable<Object>()
+            {
+                public Object call()
+                    throws Exception
+                {
+                    XWPFDocument copy = firstSection ? null : acquireCopy();
+                    try
+                    {
+                        if ( section.mapper == null )
+                        {
+                            section.mapper =
+                                new PdfMapper( firstSection ? document : copy, section.buffer, options,
+                                               expectedPageCount, pageOffset );
+                        }
+                        section.mapper.start( section.fromIndex, section.toIndex );
+                        section.numberOfPages = section.mapper.getNumberOfPages();
+                        section.rendered = true;
+                    }
+                    finally
+                    {
+                        if ( copy != null )
+                        {
+                            releaseCopy( copy );
+                        }
+                    }
+                    return null;
+                }
+            } ) );
+        }
+        for ( Future<?> future : futures )
+        {
+            try
+            {
+                future.get();
+            }
+            catch ( ExecutionException e )
+            {
+                Throwable cause = e.getCause();
+                if ( cause instanceof Exception )
+                {
+                    throw (Exception) cause;
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Returns the serialized content of the document, used to load a copy of the document for each section.
+     */
+    private byte[] getContent()
+        throws IOException
+    {
+        ByteArrayOutputStream out = bufferPool.borrow();
+        try
+        {
+            document.write( out );
+            return out.toByteArray();
+        }
+        finally
+        {
+            bufferPool.release( out );
+        }
+    }
+
+    /**
+     * Returns a copy of the document which is not used by another section, loaded if all the copies are used.
+     */
+    private XWPFDocument acquireCopy()
+        throws IOException
+    {
+        synchronized ( freeCopies )
+        {
+            if ( !freeCopies.isEmpty() )
+            {
+                return freeCopies.remove( freeCopies.size() - 1 );
+            }
+        }
+        XWPFDocument copy = new XWPFDocument( new ByteArrayInputStream( content ) );
+        synchronized ( freeCopies )
+        {
+            copies.add( copy );
+        }
+        return copy;
+    }
+
+    private void releaseCopy( XWPFDocument copy )
+    {
+        synchronized ( freeCopies )
+        {
+            freeCopies.add( copy );
+        }
+    }
+
+    private void closeCopies()
+        throws IOException
+    {
+        synchronized ( freeCopies )
+        {
+            for ( XWPFDocument copy : copies )
+            {
+                copy.close();
+            }
+            copies.clear();
+            freeCopies.clear();
+        }
+        content = null;
+    }
+
+    private void merge( List<Section> sections, OutputStream out )
+        throws Exception
+    {
+        Document pdfDocument = new Document();
+        PdfCopy copy = new PdfCopy( pdfDocument, out );
+        if ( options.getConfiguration() != null )
+        {
+            options.getConfiguration().configure( copy );
+        }
+        pdfDocument.open();
+        for ( Section section : sections )
+        {
+            PdfReader reader = section.getReader();
+            if ( reader == null )
+            {
+                continue;
+            }
+            int nbPages = reader.getNumberOfPages();
+            for ( int i = 1; i <= nbPages; i++ )
+            {
+                copy.addPage( copy.getImportedPage( reader, i ) );
+            }
+            copy.freeReader( reader );
+        }
+        pdfDocument.close();
+    }
+
+    /**
+     * Returns the &lt;w:pgNumType w:start of the section with the given index and null otherwise.
+     */
+    private Integer getPageNumberStart( int index )
+    {
+        CTSectPr sectPr = getSectPr( document.getBodyElements().get( bounds.get( index + 1 ) - 1 ) );
+        if ( sectPr == null )
+        {
+            // last section
+            sectPr = document.getDocument().getBody().getSectPr();
+        }
+        if ( sectPr != null && sectPr.getPgNumType() != null )
+        {
+            BigInteger start = sectPr.getPgNumType().getStart();
+            if ( start != null )
+            {
+                return Integer.valueOf( start.intValue() );
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the indexes of the body elements which start a section on a new page. The first index is 0 and the
+     * last is the number of body elements.
+     *
+     * @return
+     */
+    private List<Integer> getSectionBounds()
+    {
+        List<IBodyElement> bodyElements = document.getBodyElements();
+        List<Integer> bounds = new ArrayList<Integer>();
+        bounds.add( Integer.valueOf( 0 ) );
+        int size = bodyElements.size();
+        for ( int i = 0; i < size - 1; i++ )
+        {
+            if ( getSectPr( bodyElements.get( i ) ) != null && !isContinuousSection( bodyElements, i + 1 ) )
+            {
+                bounds.add( Integer.valueOf( i + 1 ) );
+            }
+        }
+        bounds.add( Integer.valueOf( size ) );
+        return bounds;
+    }
+
+    /**
+     * Returns true if the section which starts with the body element of the given index is continuous. The type of
+     * a section is declared in the &lt;w:sectPr which ends it.
+     */
+    private boolean isContinuousSection( List<IBodyElement> bodyElements, int fromIndex )
+    {
+        for ( int i = fromIndex; i < bodyElements.size(); i++ )
+        {
+            CTSectPr sectPr = getSectPr( bodyElements.get( i ) );
+            if ( sectPr != null )
+            {
+                return XWPFUtils.isContinuousSection( sectPr );
+            }
+        }
+        return XWPFUtils.isContinuousSection( document.getDocument().getBody().getSectPr() );
+    }
+
+    private static CTSectPr getSectPr( IBodyElement bodyElement )
+    {
+        if ( bodyElement.getElementType() != BodyElementType.PARAGRAPH )
+        {
+            return null;
+        }
+        CTPPr ppr = ( (XWPFParagraph) bodyElement ).getCTP().getPPr();
+        return ppr != null ? ppr.getSectPr() : null;
+    }
+
+    /**
+     * A range of body elements rendered in its own PDF.
+     */
+    private static class Section
+    {
+
+        private final int fromIndex;
+
+        private final int toIndex;
+
+        private final ByteArrayOutputStream buffer;
+
+        private PdfMapper mapper;
+
+        private boolean rendered;
+
+        private int numberOfPages;
+
+        public Section( int fromIndex, int toIndex, ByteArrayOutputStream buffer )
+        {
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+            this.buffer = buffer;
+        }
+
+        public void reset()
+        {
+            buffer.reset();
+            mapper = null;
+            rendered = false;
+            numberOfPages = 0;
+        }
+
+        public PdfReader getReader()
+            throws IOException
+        {
+            return buffer.size() > 0 ? new PdfReader( buffer.toByteArray() ) : null;
+        }
+    }
+}
@@ -145,6 +145,10 @@ public class PdfMapper
 
     private Integer expectedPageCount;
 
+    private Integer pageOffset;
+
+    private boolean pageNumberFieldUsed;
+
     private VerticalAlign currentRunVerticalAlign = VerticalAlign.BASELINE;
 
     private Map<MultiValueTriplet<XWPFPictureData, Long, Long>, Image> imageCache;
@@ -157,6 +161,18 @@ public class PdfMapper
         this.expectedPageCount = expectedPageCount;
     }
 
+    /**
+     * Create a mapper which renders a part of the document (see {@link #start(int, int)}) whose pages are numbered
+     * after the given page offset.
+     */
+    public PdfMapper( XWPFDocument document, OutputStream out, PdfOptions options, Integer expectedPageCount,
+                      Integer pageOffset )
+        throws Exception
+    {
+        this( document, out, options, expectedPageCount );
+        this.pageOffset = pageOffset;
+    }
+
     // ------------------------- Document
 
     @Override
@@ -178,6 +194,19 @@ public class PdfMapper
         out.close();
     }
 
+    @Override
+    protected void skipBodyElements( List<IBodyElement> bodyElements, int toIndex )
+        throws Exception
+    {
+        super.skipBodyElements( bodyElements, toIndex );
+        if ( pageOffset != null )
+        {
+            // the page numbering continues the previous part of the document. A <w:pgNumType w:start of the section
+            // of the first visited body element overrides it, because this section is activated after.
+            pdfDocument.setPageCount( pageOffset.intValue() );
+        }
+    }
+
     @Override
     protected IITextContainer startVisitSDT( XWPFSDT contents, IITextContainer container )
     {
@@ -690,6 +719,10 @@ public class PdfMapper
         }
         else
         {
+            if ( pageNumber )
+            {
+                pageNumberFieldUsed = true;
+            }
             textChunk =
                 pageNumber ? new ExtendedChunk( pdfDocument, true, currentRunFont ) : new Chunk( text, currentRunFont );
         }
@@ -1512,9 +1545,22 @@ public class PdfMapper
         }
     }
 
+    /**
+     * Returns the number of pages written by this mapper, whatever the numbering of the pages.
+     */
+    public int getNumberOfPages()
+    {
+        return pdfDocument.getNumberOfPages();
+    }
+
     public boolean useTotalPageField()
     {
         return totalPageFieldUsed;
     }
 
+    public boolean usePageNumberField()
+    {
+        return pageNumberFieldUsed;
+    }
+
 }
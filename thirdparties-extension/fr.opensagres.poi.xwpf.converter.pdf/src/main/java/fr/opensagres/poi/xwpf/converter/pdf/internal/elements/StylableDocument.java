@@ -173,6 +173,28 @@ public class StylableDocument
         return writer.getPageNumber();
     }
 
+    /**
+     * Returns the number of pages written in the PDF. Contrary to {@link #getPageNumber()}, this number doesn't
+     * depend on the numbering of the pages (see {@link #setPageCount(int)}).
+     *
+     * @return
+     */
+    public int getNumberOfPages()
+    {
+        int nbPages = writer.getCurrentPageNumber();
+        return isOpen() ? nbPages : nbPages - 1;
+    }
+
+    /**
+     * Set the number of the current page, the next page will be numbered pageCount + 1.
+     *
+     * @param pageCount
+     */
+    public void setPageCount( int pageCount )
+    {
+        writer.setPageCount( pageCount );
+    }
+
     @Override
     public void close()
     {
@@ -296,8 +318,11 @@ public class StylableDocument
             return;
         }
 
-        // flush pending content
-        flushTable();
+        if ( !documentEmpty )
+        {
+            // flush pending content
+            flushTable();
+        }
         // activate master page in three steps
 
         // Style style = getStyleMasterPage( masterPage );
@@ -308,7 +333,7 @@ public class StylableDocument
         // }
         // step 2 - set header/footer if any, it needs page dimensions from step 1
         super.setActiveMasterPage( masterPage );
-        if ( activeMasterPage != null )
+        if ( activeMasterPage != null && !documentEmpty )
         {
             // set a flag used by addElement/pageBreak
             masterPageJustChanged = true;
@@ -29,29 +29,53 @@ import fr.opensagres.xdocreport.core.utils.Base64Utility;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
+ * Image manager which embeds images in the XHTML with "data:" URI.
+ * <p>
+ * When the XHTML is generated with {@link SimpleContentHandler}, the base64 content of the image is streamed directly
+ * to the output (see {@link SimpleContentHandler#base64Attribute(String, String, byte[])}), otherwise
+ * {@link #resolve(String)} returns the "data:" URI as String.
+ * </p>
  * Created by zzt on 17/4/11.
  */
 public class Base64EmbedImgManager extends ImageManager {
-    private static final String EMBED_IMG_SRC_PREFIX = XHTMLConstants.DATA_ATTR + ";base64,";
+    public static final String EMBED_IMG_SRC_PREFIX = XHTMLConstants.DATA_ATTR + ";base64,";
 
-    private byte[] picture;
+    private final Map<String, byte[]> pictures;
 
     public Base64EmbedImgManager() {
         super(new File(""), "");
+        this.pictures = new HashMap<String, byte[]>();
     }
 
     @Override
     public void extract(String imagePath, byte[] imageData) throws IOException {
-        this.picture = imageData;
+        pictures.put(imagePath, imageData);
+    }
+
+    /**
+     * Returns the extracted data of the image with the given path and release it from this manager (the image is
+     * extracted again before each visit of a picture).
+     *
+     * @param uri the image path.
+     * @return the image data or null if the image was not extracted.
+     */
+    public byte[] consume(String uri) {
+        return pictures.remove(uri);
     }
 
     @Override
     public String resolve(String uri) {
-        StringBuilder sb = new StringBuilder(picture.length + EMBED_IMG_SRC_PREFIX.length())
-                .append(EMBED_IMG_SRC_PREFIX)
-                .append(Base64Utility.encode(picture));
+        byte[] picture = consume(uri);
+        if (picture == null) {
+            return EMBED_IMG_SRC_PREFIX;
+        }
+        StringBuilder sb = new StringBuilder(EMBED_IMG_SRC_PREFIX.length() + ((picture.length + 2) / 3) * 4)
+                .append(EMBED_IMG_SRC_PREFIX);
+        Base64Utility.encode(picture, sb);
         return sb.toString();
     }
 }
@@ -26,31 +26,56 @@ package fr.opensagres.poi.xwpf.converter.xhtml;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Writer;
 
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
+import fr.opensagres.poi.xwpf.converter.xhtml.internal.utils.StringEscapeUtils;
+import fr.opensagres.xdocreport.core.utils.Base64Utility;
+
+/**
+ * SAX {@link org.xml.sax.ContentHandler} which serializes the XHTML directly to a {@link Writer}. Markup is written in
+ * a fixed char array which is flushed to the target writer when it is full, so no String is built per element,
+ * attribute or text.
+ * <p>
+ * The buffer is flushed to the target writer when the root element is ended and at {@link #endDocument()}. When
+ * several root elements are generated (fragment without start/end document), {@link #flush()} must be called once
+ * the conversion is done (this is done by {@link XHTMLConverter}).
+ * </p>
+ * <p>
+ * Attribute values are escaped ('&amp;', '&lt;' and '&quot;'), so a value which contains a quote or an ampersand
+ * (ex : a link URL with several query parameters) produces well-formed XHTML. Element content is written as is.
+ * </p>
+ */
 public class SimpleContentHandler
     extends DefaultHandler
 {
 
-    private final OutputStream out;
+    private static final int BUFFER_SIZE = 8192;
 
     private final Writer writer;
 
-    private boolean startingElement;
+    // true if the writer was created by this handler and must be flushed with the buffer.
+    private final boolean ownWriter;
 
-    private StringBuilder currentCharacters;
+    private final char[] buffer;
+
+    private int count;
+
+    private boolean startingElement;
 
     private final Integer indent;
-    
+
     private int nbElements;
 
     private boolean firstElement;
 
-    
+    // true if a subclass overrides the deprecated flushCharacters(String) hook, which must still receive the text.
+    private final boolean stringCharactersHook;
+
     public SimpleContentHandler( OutputStream out )
     {
         this( out, null );
@@ -58,7 +83,8 @@ public class SimpleContentHandler
 
     public SimpleContentHandler( OutputStream out, Integer indent )
     {
-        this( out, null, indent );
+        // use the platform encoding like the previous String#getBytes() based implementation
+        this( new OutputStreamWriter( out ), true, indent );
     }
 
     public SimpleContentHandler( Writer writer )
@@ -68,70 +94,110 @@ public class SimpleContentHandler
 
     public SimpleContentHandler( Writer writer, Integer indent )
     {
-        this( null, writer, indent );
+        this( writer, false, indent );
     }
 
-    private SimpleContentHandler( OutputStream out, Writer writer, Integer indent )
+    private SimpleContentHandler( Writer writer, boolean ownWriter, Integer indent )
     {
-        this.out = out;
         this.writer = writer;
-        this.currentCharacters = new StringBuilder();
+        this.ownWriter = ownWriter;
+        this.buffer = new char[BUFFER_SIZE];
+        this.count = 0;
         this.indent = indent;
         this.firstElement = true;
+        this.stringCharactersHook = overridesStringCharactersHook( getClass() );
+    }
+
+    private static boolean overridesStringCharactersHook( Class<?> handlerClass )
+    {
+        for ( Class<?> c = handlerClass; c != SimpleContentHandler.class; c = c.getSuperclass() )
+        {
+            try
+            {
+                c.getDeclaredMethod( "flushCharacters", String.class );
+                return true;
+            }
+            catch ( NoSuchMethodException e )
+            {
+                // search in the super class
+            }
+        }
+        return false;
     }
 
     @Override
     public void startElement( String uri, String localName, String name, Attributes attributes )
         throws SAXException
-    {        
+    {
         if ( startingElement )
         {
-            write( ">" );
-        }
-        if ( currentCharacters.length() > 0 )
-        {
-            flushCharacters( currentCharacters.toString() );
-            resetCharacters();
+            write( '>' );
         }
-
         doIndentIfNeeded();
-        write( "<" );
+        write( '<' );
         write( localName );
         int length = attributes.getLength();
-        if ( length > 0 )
+        for ( int i = 0; i < length; i++ )
         {
-            String attrName = null;
-            String attrValue = null;
-            for ( int i = 0; i < length; i++ )
-            {
-                attrName = attributes.getLocalName( i );
-                attrValue = attributes.getValue( i );
-                write( " " );
-                write( attrName );
-                write( "=\"" );
-                write( attrValue );
-                write( "\"" );
-            }
+            write( ' ' );
+            write( attributes.getLocalName( i ) );
+            write( '=' );
+            write( '"' );
+            writeEscapedAttributeValue( attributes.getValue( i ) );
+            write( '"' );
         }
         startingElement = true;
         firstElement = false;
         nbElements++;
     }
 
-    private void doIndentIfNeeded() throws SAXException
+    /**
+     * Adds to the current started element an attribute whose value is the given prefix followed with the base64
+     * content of the given data. The base64 content is streamed to the output by chunks and is never materialized as
+     * String.
+     *
+     * @param name the attribute name.
+     * @param prefix the attribute value prefix (ex : "data:;base64,").
+     * @param data the data to encode.
+     * @throws SAXException
+     */
+    public void base64Attribute( String name, String prefix, byte[] data )
+        throws SAXException
+    {
+        if ( !startingElement )
+        {
+            throw new SAXException( "Cannot add attribute '" + name + "' outside a start element." );
+        }
+        write( ' ' );
+        write( name );
+        write( '=' );
+        write( '"' );
+        write( prefix );
+        try
+        {
+            flushBuffer();
+            Base64Utility.encode( data, writer );
+        }
+        catch ( IOException e )
+        {
+            throw new SAXException( e );
+        }
+        write( '"' );
+    }
+
+    private void doIndentIfNeeded()
+        throws SAXException
     {
-        if (indent == null || firstElement) {
+        if ( indent == null || firstElement )
+        {
             return;
         }
-        StringBuilder content = new StringBuilder("\n");
-        for ( int i = 0; i < nbElements; i++ )
+        write( '\n' );
+        int nbSpaces = nbElements * indent;
+        for ( int i = 0; i < nbSpaces; i++ )
         {
-            for ( int j = 0; j < indent; j++ )
-            {
-                content.append( ' ' );
-            }            
+            write( ' ' );
         }
-        write(content.toString());
     }
 
     @Override
@@ -139,25 +205,26 @@ public class SimpleContentHandler
         throws SAXException
     {
         nbElements--;
-        if ( currentCharacters.length() > 0 )
-        {
-            // Flush caracters
-            flushCharacters( currentCharacters.toString() );
-            resetCharacters();
-        }
         // Start of end element
         if ( startingElement )
         {
-            write( "/>" );
+            write( '/' );
+            write( '>' );
             startingElement = false;
         }
         else
         {
             doIndentIfNeeded();
-            write( "</" );
+            write( '<' );
+            write( '/' );
             write( localName );
-            write( ">" );
-        }        
+            write( '>' );
+        }
+        if ( nbElements == 0 )
+        {
+            // the root element is ended, nothing must stay in the buffer.
+            flush();
+        }
     }
 
     @Override
@@ -166,72 +233,109 @@ public class SimpleContentHandler
     {
         if ( startingElement )
         {
-            write( ">" );
+            write( '>' );
+        }
+        startingElement = false;
+        if ( stringCharactersHook )
+        {
+            flushCharacters( new String( ch, start, length ) );
+        }
+        else
+        {
+            flushCharacters( ch, start, length );
+        }
+    }
+
+    /**
+     * Escapes the given text with HTML entities and writes it as element content. The text is escaped character per
+     * character in the output buffer, without building an escaped String.
+     *
+     * @param text the text to escape.
+     * @throws SAXException
+     */
+    public void escapedCharacters( String text )
+        throws SAXException
+    {
+        if ( startingElement )
+        {
+            write( '>' );
         }
         startingElement = false;
-        char c;
-        for ( int i = start; i < start + length; i++ )
-        {
-            c = ch[i];
-            // if ( mustEncodeCharachers() )
-            // {
-            // if ( c == '<' )
-            // {
-            // currentCharacters.append( LT );
-            // }
-            // else if ( c == '>' )
-            // {
-            // currentCharacters.append( GT );
-            // }
-            // else if ( c == '\'' )
-            // {
-            // currentCharacters.append( APOS );
-            // }
-            // else if ( c == '&' )
-            // {
-            // currentCharacters.append( AMP );
-            // }
-            // else
-            // {
-            // currentCharacters.append( c );
-            // }
-            // }
-            // else
-            // {
-            currentCharacters.append( c );
-            // }
-
-        }
-    }
-
-    protected boolean mustEncodeCharachers()
-    {
-        return true;
+        int length = text.length();
+        for ( int i = 0; i < length; i++ )
+        {
+            char c = text.charAt( i );
+            String entityName = StringEscapeUtils.Entities.HTML40.entityName( c );
+            if ( entityName == null )
+            {
+                write( c );
+            }
+            else
+            {
+                write( '&' );
+                write( entityName );
+                write( ';' );
+            }
+        }
+    }
+
+    /**
+     * Writes the given characters as element content. The characters are written as is (the XHTML mapper escapes
+     * the text before calling {@link #characters(char[], int, int)}).
+     */
+    protected void flushCharacters( char[] ch, int start, int length )
+        throws SAXException
+    {
+        int end = start + length;
+        for ( int i = start; i < end; i++ )
+        {
+            write( ch[i] );
+        }
     }
 
+    /**
+     * Writes the given characters as element content. The characters are no longer accumulated until the next element
+     * : when a subclass overrides this method, it is called for each {@link #characters(char[], int, int)} instead of
+     * {@link #flushCharacters(char[], int, int)}.
+     * 
+     * @deprecated override {@link #flushCharacters(char[], int, int)} which doesn't create a String per text.
+     */
+    @Deprecated
     protected void flushCharacters( String characters )
         throws SAXException
     {
-        write( characters );
+        flushCharacters( characters.toCharArray(), 0, characters.length() );
     }
 
+    /**
+     * Does nothing : the characters are written as they come and are no longer accumulated.
+     */
     protected void resetCharacters()
     {
-        currentCharacters.setLength( 0 );
+        // Do nothing
     }
 
-    private void write( String content )
+    @Override
+    public void endDocument()
+        throws SAXException
+    {
+        flush();
+    }
+
+    /**
+     * Flush the buffered XHTML content to the target writer.
+     *
+     * @throws SAXException
+     */
+    public void flush()
         throws SAXException
     {
         try
         {
-            if ( out != null )
+            flushBuffer();
+            if ( ownWriter )
             {
-                out.write( content.getBytes() );
-            }
-            else
-            {
-                writer.write( content );
+                writer.flush();
             }
         }
         catch ( IOException e )
@@ -240,4 +344,80 @@ public class SimpleContentHandler
         }
     }
 
+    private void writeEscapedAttributeValue( String value )
+        throws SAXException
+    {
+        int length = value.length();
+        for ( int i = 0; i < length; i++ )
+        {
+            char c = value.charAt( i );
+            switch ( c )
+            {
+                case '&':
+                    write( "&amp;" );
+                    break;
+                case '<':
+                    write( "&lt;" );
+                    break;
+                case '"':
+                    write( "&quot;" );
+                    break;
+                default:
+                    write( c );
+            }
+        }
+    }
+
+    private void write( char c )
+        throws SAXException
+    {
+        if ( count == buffer.length )
+        {
+            try
+            {
+                flushBuffer();
+            }
+            catch ( IOException e )
+            {
+                throw new SAXException( e );
+            }
+        }
+        buffer[count++] = c;
+    }
+
+    private void write( String content )
+        throws SAXException
+    {
+        int length = content.length();
+        int offset = 0;
+        while ( offset < length )
+        {
+            if ( count == buffer.length )
+            {
+                try
+                {
+                    flushBuffer();
+                }
+                catch ( IOException e )
+                {
+                    throw new SAXException( e );
+                }
+            }
+            int chunk = Math.min( buffer.length - count, length - offset );
+            content.getChars( offset, offset + chunk, buffer, count );
+            count += chunk;
+            offset += chunk;
+        }
+    }
+
+    private void flushBuffer()
+        throws IOException
+    {
+        if ( count > 0 )
+        {
+            writer.write( buffer, 0, count );
+            count = 0;
+        }
+    }
+
 }
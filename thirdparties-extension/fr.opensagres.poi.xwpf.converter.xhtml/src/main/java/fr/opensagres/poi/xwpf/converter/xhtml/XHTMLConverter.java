@@ -72,6 +72,11 @@ public class XHTMLConverter
             options = options != null ? options : XHTMLOptions.getDefault();
             XHTMLMapper mapper = new XHTMLMapper( document, contentHandler, options );
             mapper.start();
+            if ( contentHandler instanceof SimpleContentHandler )
+            {
+                // fragment doesn't end the document, flush the buffered content.
+                ( (SimpleContentHandler) contentHandler ).flush();
+            }
         }
         catch ( Exception e )
         {
@@ -72,6 +72,8 @@ import fr.opensagres.poi.xwpf.converter.core.styles.run.RunFontStyleStrikeValueP
 import fr.opensagres.poi.xwpf.converter.core.styles.run.RunTextHighlightingValueProvider;
 import fr.opensagres.poi.xwpf.converter.core.utils.DxaUtil;
 import fr.opensagres.poi.xwpf.converter.core.utils.StringUtils;
+import fr.opensagres.poi.xwpf.converter.xhtml.Base64EmbedImgManager;
+import fr.opensagres.poi.xwpf.converter.xhtml.SimpleContentHandler;
 import fr.opensagres.poi.xwpf.converter.xhtml.XHTMLOptions;
 import fr.opensagres.poi.xwpf.converter.xhtml.internal.styles.CSSStyle;
 import fr.opensagres.poi.xwpf.converter.xhtml.internal.styles.CSSStylePropertyConstants;
@@ -211,7 +213,7 @@ public class XHTMLMapper
 	        {	
 	        	text = StringUtils.replaceNonUnicodeChars(text);
 	        	text = text + "\u0020";
-	        	SAXHelper.characters( contentHandler, StringEscapeUtils.escapeHtml( text ) );
+	        	escapedCharacters( text );
 	        }
 	        endElement( SPAN_ELEMENT );
 		}
@@ -288,7 +290,7 @@ public class XHTMLMapper
         if ( StringUtils.isNotEmpty( text ) )
         {
             // Escape with HTML characters
-            characters( StringEscapeUtils.escapeHtml( text ) );
+            escapedCharacters( text );
         }
         // else
         // {
@@ -344,7 +346,7 @@ public class XHTMLMapper
         if ( StringUtils.isNotEmpty( text ) )
         {
             // Escape with HTML characters
-            characters( StringEscapeUtils.escapeHtml( text ) );
+            escapedCharacters( text );
         }
         if ( runAttributes != null )
         {
@@ -560,6 +562,8 @@ public class XHTMLMapper
     {
 
         AttributesImpl attributes = null;
+        // embedded image data to stream as img/@src
+        byte[] embeddedData = null;
         // Src attribute
         XWPFPictureData pictureData = super.getPictureData( picture );
         if ( pictureData != null )
@@ -568,8 +572,16 @@ public class XHTMLMapper
             String src = pictureData.getFileName();
             if ( StringUtils.isNotEmpty( src ) )
             {
-                src = resolver.resolve( WORD_MEDIA + src );
-                attributes = SAXHelper.addAttrValue( attributes, SRC_ATTR, src );
+                if ( resolver instanceof Base64EmbedImgManager && contentHandler instanceof SimpleContentHandler )
+                {
+                    // base64 content will be streamed to the output once the img element is started
+                    embeddedData = ( (Base64EmbedImgManager) resolver ).consume( WORD_MEDIA + src );
+                }
+                if ( embeddedData == null )
+                {
+                    src = resolver.resolve( WORD_MEDIA + src );
+                    attributes = SAXHelper.addAttrValue( attributes, SRC_ATTR, src );
+                }
             }
 
             CTPositiveSize2D ext = picture.getSpPr().getXfrm().getExt();
@@ -602,6 +614,12 @@ public class XHTMLMapper
         if ( attributes != null )
         {
             startElement( IMG_ELEMENT, attributes );
+            if ( embeddedData != null )
+            {
+                ( (SimpleContentHandler) contentHandler ).base64Attribute( SRC_ATTR,
+                                                                           Base64EmbedImgManager.EMBED_IMG_SRC_PREFIX,
+                                                                           embeddedData );
+            }
             endElement( IMG_ELEMENT );
         }
     }
@@ -719,6 +737,20 @@ public class XHTMLMapper
         SAXHelper.characters( contentHandler, content );
     }
 
+    private void escapedCharacters( String text )
+        throws SAXException
+    {
+        if ( contentHandler instanceof SimpleContentHandler )
+        {
+            // escape the text directly in the output buffer
+            ( (SimpleContentHandler) contentHandler ).escapedCharacters( text );
+        }
+        else
+        {
+            characters( StringEscapeUtils.escapeHtml( text ) );
+        }
+    }
+
     @Override
     public CSSStylesDocument getStylesDocument()
     {
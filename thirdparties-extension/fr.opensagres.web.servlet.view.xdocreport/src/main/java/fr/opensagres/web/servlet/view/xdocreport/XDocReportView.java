@@ -114,6 +114,11 @@ public class XDocReportView
      */
     private IXDocReportConfiguration configuration;
 
+    /**
+     * If set to true, the HTTP response headers are sent before the report is generated.
+     */
+    private boolean flushResponseHeaders = false;
+
     /**
      * Set to true, if the report must be loaded when Spring {@link ApplicationContext} is initialized and false
      * otherwise. By default, the report is loaded when {@link ApplicationContext} is initialized.
@@ -283,6 +288,29 @@ public class XDocReportView
         return configuration;
     }
 
+    /**
+     * Set to true, if the HTTP response headers must be sent before the report is generated and false otherwise. The
+     * client receives the headers at once and the report is sent chunked while it is written, but an error which
+     * occurs while generating the report cannot change anymore the HTTP status. By default the headers are not
+     * flushed.
+     * 
+     * @param flushResponseHeaders
+     */
+    public void setFlushResponseHeaders( boolean flushResponseHeaders )
+    {
+        this.flushResponseHeaders = flushResponseHeaders;
+    }
+
+    /**
+     * Returns true, if the HTTP response headers must be sent before the report is generated and false otherwise.
+     * 
+     * @return
+     */
+    public boolean isFlushResponseHeaders()
+    {
+        return flushResponseHeaders;
+    }
+
     @Override
     protected final void initApplicationContext()
         throws ApplicationContextException
@@ -467,6 +495,7 @@ public class XDocReportView
             IDumper dumper = report.getDumper( dumperOptions );
             // 3) Prepare HTTP response content type
             prepareHTTPResponse( report.getId(), dumper.getMimeMapping(), request, response );
+            flushResponseHeadersIfNeeded( response );
             // 4) Generate dump
             report.dump( context, dumperOptions, response.getOutputStream() );
         }
@@ -474,6 +503,7 @@ public class XDocReportView
         {
             // 2) Prepare HTTP response content type
             prepareHTTPResponse( report.getId(), report.getMimeMapping(), request, response );
+            flushResponseHeadersIfNeeded( response );
             // 3) Generate report
             report.process( context, response.getOutputStream() );
         }
@@ -503,6 +533,7 @@ public class XDocReportView
             IDumper dumper = report.getDumper( dumperOptions );
             // 3) Prepare HTTP response content type
             prepareHTTPResponse( report.getId(), dumper.getMimeMapping(), request, response );
+            flushResponseHeadersIfNeeded( response );
             // 4) Generate dump
             report.dump( context, dumperOptions, response.getOutputStream() );
         }
@@ -512,6 +543,7 @@ public class XDocReportView
             IConverter converter = report.getConverter( options );
             // 3) Prepare HTTP response content type
             prepareHTTPResponse( report.getId(), converter.getMimeMapping(), request, response );
+            flushResponseHeadersIfNeeded( response );
             // 4) Generate report with conversion
             report.convert( context, options, response.getOutputStream() );
         }
@@ -546,6 +578,15 @@ public class XDocReportView
         return true;
     }
 
+    private void flushResponseHeadersIfNeeded( HttpServletResponse response )
+        throws IOException
+    {
+        if ( isFlushResponseHeaders() )
+        {
+            response.flushBuffer();
+        }
+    }
+
     protected String getContentDisposition( String reportId, MimeMapping mimeMapping, HttpServletRequest request )
     {
         if ( mimeMapping != null )
@@ -25,35 +25,36 @@
 package fr.opensagres.xdocreport.itext.extension.color;
 
 import java.awt.Color;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * Cache of parsed colors shared by all conversions. Lookup is lock-free, so concurrent conversions don't contend on
+ * the registry.
+ */
 public abstract class AbstractColorRegistry
 {
 
-    private final Map<String, Color> colors = new HashMap<String, Color>();
+    private final ConcurrentMap<String, Color> colors = new ConcurrentHashMap<String, Color>();
 
     public Color getColor( String style )
     {
-        Color color = colors.get( style );
-        if ( color == null )
+        if ( style == null )
         {
-            color = internalCreateColor( style );
+            return createColor( style );
         }
-        return color;
-    }
-
-    private synchronized Color internalCreateColor( String style )
-    {
         Color color = colors.get( style );
-        if ( color != null )
-        {
-            return color;
-        }
-        color = createColor( style );
-        if ( color != null )
+        if ( color == null )
         {
-            colors.put( style, color );
+            color = createColor( style );
+            if ( color != null )
+            {
+                Color existingColor = colors.putIfAbsent( style, color );
+                if ( existingColor != null )
+                {
+                    color = existingColor;
+                }
+            }
         }
         return color;
     }
@@ -39,7 +39,8 @@ public abstract class AbstractFontRegistry
 
     private String systemEncoding;
 
-    private static boolean fontRegistryInitialized = false;
+    // volatile : the font directories are scanned once, concurrent conversions must not scan them again.
+    private static volatile boolean fontRegistryInitialized = false;
 
     public Font getFont( String familyName, String encoding, float size, int style, Color color )
     {
@@ -59,15 +60,25 @@ public abstract class AbstractFontRegistry
         }
     }
 
-    private void initFontRegistryIfNeeded()
+    /**
+     * Register the fonts of the system font directories if it is not already done. The first PDF conversion does it,
+     * this method can be called at the startup of the application to avoid this cost.
+     */
+    public static void initFontRegistryIfNeeded()
     {
         if ( !fontRegistryInitialized )
         {
-            // clear built-in fonts which may clash with document fonts
-            ExtendedBaseFont.clearBuiltinFonts();
-            // register fonts from files (ex : for windows, load files from C:\WINDOWS\Fonts)
-            FontFactory.registerDirectories();
-            fontRegistryInitialized = true;
+            synchronized ( AbstractFontRegistry.class )
+            {
+                if ( !fontRegistryInitialized )
+                {
+                    // clear built-in fonts which may clash with document fonts
+                    ExtendedBaseFont.clearBuiltinFonts();
+                    // register fonts from files (ex : for windows, load files from C:\WINDOWS\Fonts)
+                    FontFactory.registerDirectories();
+                    fontRegistryInitialized = true;
+                }
+            }
         }
     }
 
@@ -24,37 +24,37 @@
  */
 package fr.opensagres.xdocreport.itext.extension.color;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.itextpdf.text.BaseColor;
 
+/**
+ * iText 5 {@link BaseColor} cache, safe to share between concurrent PDF conversions.
+ */
 public abstract class AbstractColorRegistry
 {
 
-    private final Map<String, BaseColor> colors = new HashMap<String, BaseColor>();
+    private final ConcurrentMap<String, BaseColor> colors = new ConcurrentHashMap<String, BaseColor>();
 
     public BaseColor getColor( String style )
     {
-    	BaseColor color = colors.get( style );
-        if ( color == null )
-        {
-            color = internalCreateColor( style );
-        }
-        return color;
-    }
-
-    private synchronized BaseColor internalCreateColor( String style )
-    {
-    	BaseColor color = colors.get( style );
-        if ( color != null )
+        if ( style == null )
         {
-            return color;
+            return createColor( style );
         }
-        color = createColor( style );
-        if ( color != null )
+        BaseColor color = colors.get( style );
+        if ( color == null )
         {
-            colors.put( style, color );
+            color = createColor( style );
+            if ( color != null )
+            {
+                BaseColor existingColor = colors.putIfAbsent( style, color );
+                if ( existingColor != null )
+                {
+                    color = existingColor;
+                }
+            }
         }
         return color;
     }